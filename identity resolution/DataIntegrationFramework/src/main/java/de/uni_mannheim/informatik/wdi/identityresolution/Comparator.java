@@ -17,11 +17,28 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution;
 
+import java.util.Collection;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.model.Record;
 
 /**
  * Super class for all {@link Record} comparators.
  * 
+ * Thread-safety: if the {@link MatchingEngine} runs with a parallelism larger
+ * than 1, {@link #compare(Object, Object)} is called concurrently for different
+ * pairs on the same instance. Implementations must therefore not modify any
+ * state in compare() (no fields, no shared buffers), or must synchronise this
+ * state themselves. All values used by compare() must be initialised before
+ * the matching starts. The same applies to all {@link SimilarityMeasure}s used
+ * by a comparator.
+ * 
+ * Comparators that need expensive preprocessing of the compared values (like
+ * tokenisation) can do this once per record in {@link #prepare(Collection)},
+ * which the {@link MatchingEngine} calls for all records before the matching
+ * starts. See {@link PreparedComparator}.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  * @param <RecordType>
@@ -39,4 +56,44 @@ public abstract class Comparator<RecordType> {
 	 */
 	public abstract double compare(RecordType record1, RecordType record2);
 
+	/**
+	 * Compares one record to a list of records. The {@link MatchingEngine}
+	 * uses this method for all pairs that share their first record, so
+	 * comparators can process the first record only once and run a tight
+	 * loop over the second records. The default implementation calls
+	 * {@link #compare(Object, Object)} for every pair.
+	 * 
+	 * @param record1
+	 *            the first record
+	 * @param records2
+	 *            the second records
+	 * @param similarities
+	 *            receives the similarity of record1 and records2.get(i) at
+	 *            position i, must be at least as long as records2
+	 */
+	public void compareBatch(RecordType record1, List<RecordType> records2, double[] similarities) {
+		for (int i = 0; i < records2.size(); i++) {
+			similarities[i] = compare(record1, records2.get(i));
+		}
+	}
+
+	/**
+	 * Is called once for every data set before the matching starts, so the
+	 * comparator can preprocess the records that will be compared. The
+	 * default implementation does nothing.
+	 * 
+	 * @param records
+	 *            the records of one data set
+	 */
+	public void prepare(Collection<RecordType> records) {
+	}
+
+	/**
+	 * Is called after the matching finished and releases everything that was
+	 * created by {@link #prepare(Collection)}. The default implementation
+	 * does nothing.
+	 */
+	public void clearPrepared() {
+	}
+
 }
@@ -17,8 +17,13 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import de.uni_mannheim.informatik.wdi.model.DefaultRecord;
 import de.uni_mannheim.informatik.wdi.model.Matchable;
@@ -28,6 +33,19 @@ import de.uni_mannheim.informatik.wdi.model.Pair;
  * A {@link MatchingRule} that is defined by a weighted additive linear
  * combination of attribute similarities.
  * 
+ * If early termination is enabled (see {@link #setEarlyTermination(boolean)}),
+ * the rule assumes that all comparators return similarities in [0,1]. After
+ * each comparator, it calculates the highest score that the remaining
+ * comparators could still produce and stops as soon as this upper bound is
+ * below the final threshold. In this case, compare() returns the upper bound
+ * instead of the exact score, which does not change any matching decision.
+ * Pairs that can still reach the threshold are always evaluated completely,
+ * so correspondences carry their exact similarity score. The comparators are
+ * evaluated in the order of weight per measured cost: the run time of each
+ * comparator is sampled during the first calls and the order is fixed
+ * afterwards, so cheap and heavy comparators can rule out non-matches before
+ * the expensive ones are executed.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  * @param <RecordType>
@@ -38,6 +56,22 @@ public class LinearCombinationMatchingRule<RecordType extends Matchable>
 	private List<Pair<Comparator<RecordType>, Double>> comparators;
 	private double offset;
 
+	private boolean earlyTermination = false;
+
+	/**
+	 * The number of calls to compare() that are used to measure the cost of
+	 * the comparators before their evaluation order is fixed
+	 */
+	private static final int COST_SAMPLE_SIZE = 1000;
+
+	// statistics for the early termination, updated concurrently
+	private AtomicLongArray comparatorTime;
+	private AtomicLongArray comparatorCalls;
+	private AtomicInteger sampledCalls = new AtomicInteger();
+	private AtomicLong evaluatedComparisons = new AtomicLong();
+	private AtomicLong skippedComparisons = new AtomicLong();
+	private volatile int[] evaluationOrder = null;
+
 	/**
 	 * Initialises the rule. The finalThreshold determines the matching
 	 * decision.
@@ -46,7 +80,8 @@ public class LinearCombinationMatchingRule<RecordType extends Matchable>
 	 */
 	public LinearCombinationMatchingRule(double finalThreshold) {
 		super(finalThreshold);
-		comparators = new LinkedList<>();
+		comparators = new ArrayList<>();
+		resetStatistics();
 	}
 
 	/**
@@ -74,6 +109,7 @@ public class LinearCombinationMatchingRule<RecordType extends Matchable>
 		if (weight > 0.0) {
 			comparators.add(new Pair<Comparator<RecordType>, Double>(
 					comparator, weight));
+			resetStatistics();
 		} else {
 			throw new Exception("Weight cannot be 0.0 or smaller");
 		}
@@ -87,16 +123,93 @@ public class LinearCombinationMatchingRule<RecordType extends Matchable>
 		for (Pair<Comparator<RecordType>, Double> pair : comparators) {
 			sum += pair.getSecond();
 		}
-		List<Pair<Comparator<RecordType>, Double>> normComparators = new LinkedList<>();
+		List<Pair<Comparator<RecordType>, Double>> normComparators = new ArrayList<>();
 		for (Pair<Comparator<RecordType>, Double> pair : comparators) {
 			normComparators.add(new Pair<Comparator<RecordType>, Double>(pair
 					.getFirst(), (pair.getSecond() / sum)));
 		}
 		comparators = normComparators;
+		resetStatistics();
+	}
+
+	@Override
+	public void prepare(Collection<RecordType> records) {
+		for (Pair<Comparator<RecordType>, Double> pair : comparators) {
+			pair.getFirst().prepare(records);
+		}
+	}
+
+	@Override
+	public void clearPrepared() {
+		for (Pair<Comparator<RecordType>, Double> pair : comparators) {
+			pair.getFirst().clearPrepared();
+		}
+	}
+
+	@Override
+	public String getFingerprint() {
+		StringBuilder sb = new StringBuilder(super.getFingerprint());
+		sb.append(String.format(" offset: %s", Double.toString(offset)));
+		for (Pair<Comparator<RecordType>, Double> pair : comparators) {
+			sb.append(String.format(" %s: %s", pair.getFirst().getClass().getName(), Double.toString(pair.getSecond())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Enables or disables the early termination of the comparator evaluation
+	 * for pairs that cannot reach the final threshold anymore. Requires all
+	 * comparators to return similarities between 0 and 1.
+	 * 
+	 * @param earlyTermination
+	 */
+	public void setEarlyTermination(boolean earlyTermination) {
+		this.earlyTermination = earlyTermination;
+	}
+
+	public boolean isEarlyTermination() {
+		return earlyTermination;
+	}
+
+	/**
+	 * Returns the number of comparator calls that were executed with early
+	 * termination enabled
+	 * 
+	 * @return
+	 */
+	public long getNumberOfEvaluatedComparisons() {
+		return evaluatedComparisons.get();
+	}
+
+	/**
+	 * Returns the number of comparator calls that were skipped because of
+	 * early termination
+	 * 
+	 * @return
+	 */
+	public long getNumberOfSkippedComparisons() {
+		return skippedComparisons.get();
+	}
+
+	/**
+	 * Resets the cost measurements and the comparison statistics. The
+	 * evaluation order is determined again during the next calls.
+	 */
+	public void resetStatistics() {
+		comparatorTime = new AtomicLongArray(comparators.size());
+		comparatorCalls = new AtomicLongArray(comparators.size());
+		sampledCalls.set(0);
+		evaluatedComparisons.set(0);
+		skippedComparisons.set(0);
+		evaluationOrder = null;
 	}
 
 	@Override
 	public double compare(RecordType record1, RecordType record2) {
+		if (earlyTermination) {
+			return compareWithEarlyTermination(record1, record2);
+		}
+
 		double sum = 0.0;
 		double wSum = 0.0;
 		for (int i = 0; i < comparators.size(); i++) {
@@ -113,6 +226,128 @@ public class LinearCombinationMatchingRule<RecordType extends Matchable>
 		return offset + (sum / wSum);
 	}
 
+	/**
+	 * Evaluates each comparator for the whole batch before the next one. With
+	 * early termination, every pair is evaluated separately.
+	 */
+	@Override
+	public void compareBatch(RecordType record1, List<RecordType> records2, double[] similarities) {
+		if (earlyTermination) {
+			super.compareBatch(record1, records2, similarities);
+			return;
+		}
+
+		int n = records2.size();
+		double[] sums = new double[n];
+		double[] comparatorSimilarities = new double[n];
+		double wSum = 0.0;
+		for (int i = 0; i < comparators.size(); i++) {
+			Pair<Comparator<RecordType>, Double> pair = comparators.get(i);
+
+			pair.getFirst().compareBatch(record1, records2, comparatorSimilarities);
+			double weight = pair.getSecond();
+			wSum += weight;
+			for (int j = 0; j < n; j++) {
+				sums[j] += (comparatorSimilarities[j] * weight);
+			}
+		}
+
+		for (int j = 0; j < n; j++) {
+			similarities[j] = offset + (sums[j] / wSum);
+		}
+	}
+
+	private double compareWithEarlyTermination(RecordType record1, RecordType record2) {
+		int[] order = evaluationOrder;
+		boolean sample = order == null;
+
+		double wSum = 0.0;
+		for (int i = 0; i < comparators.size(); i++) {
+			wSum += comparators.get(i).getSecond();
+		}
+
+		double sum = 0.0;
+		double remainingWeight = wSum;
+		for (int i = 0; i < comparators.size(); i++) {
+			int index = sample ? i : order[i];
+			Pair<Comparator<RecordType>, Double> pair = comparators.get(index);
+
+			Comparator<RecordType> comp = pair.getFirst();
+
+			double similarity;
+			if (sample) {
+				long start = System.nanoTime();
+				similarity = comp.compare(record1, record2);
+				comparatorTime.addAndGet(index, System.nanoTime() - start);
+				comparatorCalls.incrementAndGet(index);
+			} else {
+				similarity = comp.compare(record1, record2);
+			}
+
+			double weight = pair.getSecond();
+			remainingWeight -= weight;
+			sum += (similarity * weight);
+
+			// the best possible score if all remaining comparators return 1.0
+			double upperBound = offset + ((sum + remainingWeight) / wSum);
+			if (upperBound < getFinalThreshold() && i < comparators.size() - 1) {
+				evaluatedComparisons.addAndGet(i + 1);
+				skippedComparisons.addAndGet(comparators.size() - i - 1);
+				finishSample(sample);
+				return upperBound;
+			}
+		}
+
+		evaluatedComparisons.addAndGet(comparators.size());
+		finishSample(sample);
+
+		return offset + (sum / wSum);
+	}
+
+	/**
+	 * Fixes the evaluation order once enough calls have been sampled
+	 * 
+	 * @param sample
+	 */
+	private void finishSample(boolean sample) {
+		if (sample && sampledCalls.incrementAndGet() == COST_SAMPLE_SIZE) {
+			final double[] benefit = new double[comparators.size()];
+			double maxCost = 1.0;
+			for (int i = 0; i < comparators.size(); i++) {
+				if (comparatorCalls.get(i) > 0) {
+					maxCost = Math.max(maxCost, (double) comparatorTime.get(i) / (double) comparatorCalls.get(i));
+				}
+			}
+			for (int i = 0; i < comparators.size(); i++) {
+				// comparators that were never reached count as most expensive
+				double cost = maxCost;
+				if (comparatorCalls.get(i) > 0) {
+					cost = Math.max(1.0, (double) comparatorTime.get(i) / (double) comparatorCalls.get(i));
+				}
+				benefit[i] = comparators.get(i).getSecond() / cost;
+			}
+
+			Integer[] order = new Integer[comparators.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			// highest weight per cost first
+			Arrays.sort(order, new java.util.Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return -Double.compare(benefit[o1], benefit[o2]);
+				}
+			});
+
+			int[] result = new int[order.length];
+			for (int i = 0; i < order.length; i++) {
+				result[i] = order[i];
+			}
+			evaluationOrder = result;
+		}
+	}
+
 	@Override
 	public DefaultRecord generateFeatures(RecordType record1, RecordType record2) {
 		DefaultRecord model = new DefaultRecord(String.format("%s-%s",
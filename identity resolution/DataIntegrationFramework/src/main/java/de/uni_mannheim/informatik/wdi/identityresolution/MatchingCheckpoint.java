@@ -0,0 +1,306 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.List;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Stores the progress of a matching run in a directory, so the run can be
+ * resumed after the JVM was stopped. The directory contains three files:
+ * 
+ * <ul>
+ * <li>fingerprint.txt: describes the matching rule, the blocker and the data
+ * sets. A checkpoint is only resumed if the fingerprint of the new run is
+ * equal.</li>
+ * <li>correspondences.csv: all correspondences that were found so far
+ * (appended).</li>
+ * <li>progress.csv: one line per checkpoint with the number of processed
+ * pairs and the length of correspondences.csv at that time (appended).</li>
+ * </ul>
+ * 
+ * Both data files are only appended to, so a checkpoint costs one flush and a
+ * single line, independent of the number of correspondences. When a run is
+ * resumed, correspondences that were written after the last checkpoint are
+ * truncated and the processed pairs are skipped. This requires the blocker to
+ * create the pairs in the same order for the same input.
+ * 
+ * If a file cannot be written, the error is reported and the matching
+ * continues without checkpoints.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+class MatchingCheckpoint<RecordType extends Matchable> {
+
+	private static final String FINGERPRINT_FILE = "fingerprint.txt";
+	private static final String CORRESPONDENCES_FILE = "correspondences.csv";
+	private static final String PROGRESS_FILE = "progress.csv";
+
+	private File directory;
+	private long pairsPerCheckpoint;
+	private String fingerprint;
+	private List<DataSet<RecordType>> datasets;
+
+	private CSVWriter correspondenceWriter;
+	private Writer progressWriter;
+	private long processedPairs = 0;
+	private long nextCheckpoint = 0;
+	private boolean failed = false;
+
+	/**
+	 * Creates a checkpoint for a matching run
+	 * 
+	 * @param directory
+	 *            the directory that contains the checkpoint files
+	 * @param pairsPerCheckpoint
+	 *            the number of pairs that are processed between two
+	 *            checkpoints
+	 * @param fingerprint
+	 *            describes the configuration of the matching run
+	 * @param datasets
+	 *            the data sets that contain the matched records
+	 */
+	public MatchingCheckpoint(File directory, long pairsPerCheckpoint, String fingerprint,
+			List<DataSet<RecordType>> datasets) {
+		this.directory = directory;
+		this.pairsPerCheckpoint = pairsPerCheckpoint;
+		this.fingerprint = fingerprint;
+		this.datasets = datasets;
+	}
+
+	/**
+	 * Opens the checkpoint files. If the directory contains a checkpoint of a
+	 * run with the same fingerprint, the correspondences of this checkpoint
+	 * are added to restored. Otherwise, the existing files are replaced.
+	 * 
+	 * @param restored
+	 *            receives the correspondences of the last checkpoint
+	 * @return the number of pairs that were processed before the last
+	 *         checkpoint and must be skipped
+	 */
+	public long open(List<Correspondence<RecordType>> restored) {
+		try {
+			directory.mkdirs();
+
+			File fingerprintFile = new File(directory, FINGERPRINT_FILE);
+			File correspondenceFile = new File(directory, CORRESPONDENCES_FILE);
+			File progressFile = new File(directory, PROGRESS_FILE);
+
+			long[] progress = null;
+			if (fingerprintFile.exists() && fingerprint.equals(readFingerprint(fingerprintFile))) {
+				progress = readProgress(progressFile);
+			}
+
+			if (progress != null) {
+				processedPairs = progress[0];
+
+				// discard the correspondences after the last checkpoint
+				try (RandomAccessFile raf = new RandomAccessFile(correspondenceFile, "rw")) {
+					raf.setLength(progress[1]);
+				}
+
+				readCorrespondences(correspondenceFile, restored);
+			} else {
+				correspondenceFile.delete();
+				progressFile.delete();
+
+				try (Writer w = new FileWriter(fingerprintFile)) {
+					w.write(fingerprint);
+				}
+			}
+
+			correspondenceWriter = new CSVWriter(new FileWriter(correspondenceFile, true));
+			progressWriter = new FileWriter(progressFile, true);
+			nextCheckpoint = processedPairs + pairsPerCheckpoint;
+		} catch (IOException e) {
+			fail(e);
+			restored.clear();
+			processedPairs = 0;
+		}
+
+		return processedPairs;
+	}
+
+	/**
+	 * Appends a correspondence, it becomes part of the next checkpoint
+	 * 
+	 * @param cor
+	 */
+	public void add(Correspondence<RecordType> cor) {
+		if (!failed) {
+			correspondenceWriter.writeNext(new String[] { Integer.toString(getDataSetIndex(cor.getFirstRecord())),
+					cor.getFirstRecord().getIdentifier(), Integer.toString(getDataSetIndex(cor.getSecondRecord())),
+					cor.getSecondRecord().getIdentifier(), Double.toString(cor.getSimilarityScore()) });
+		}
+	}
+
+	/**
+	 * Reports that pairs have been processed and all their correspondences
+	 * have been added. Writes a checkpoint if enough pairs were processed
+	 * since the last one.
+	 * 
+	 * @param numberOfPairs
+	 */
+	public void processed(long numberOfPairs) {
+		processedPairs += numberOfPairs;
+
+		if (processedPairs >= nextCheckpoint) {
+			checkpoint();
+		}
+	}
+
+	/**
+	 * Writes a final checkpoint and closes the files
+	 */
+	public void close() {
+		if (!failed) {
+			checkpoint();
+			try {
+				correspondenceWriter.close();
+				progressWriter.close();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void checkpoint() {
+		if (!failed) {
+			try {
+				// the correspondences must be written before the progress line
+				// that refers to them
+				correspondenceWriter.flush();
+				long length = new File(directory, CORRESPONDENCES_FILE).length();
+
+				progressWriter.write(String.format("%d,%d\n", processedPairs, length));
+				progressWriter.flush();
+
+				nextCheckpoint = processedPairs + pairsPerCheckpoint;
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		System.err.println(String.format("Checkpointing in %s failed, continuing without checkpoints",
+				directory.getAbsolutePath()));
+		e.printStackTrace();
+		failed = true;
+	}
+
+	private int getDataSetIndex(RecordType record) {
+		for (int i = 0; i < datasets.size(); i++) {
+			if (datasets.get(i).getRecord(record.getIdentifier()) == record) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private String readFingerprint(File file) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = r.read(buffer)) != -1) {
+				sb.append(buffer, 0, read);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the last complete line of the progress file and truncates
+	 * incomplete lines
+	 * 
+	 * @param file
+	 * @return the number of processed pairs and the length of the
+	 *         correspondence file, or null if there is no checkpoint
+	 * @throws IOException
+	 */
+	private long[] readProgress(File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+
+		long[] progress = null;
+		long validLength = 0;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			String line;
+			while ((line = raf.readLine()) != null) {
+				// a line without line break was not written completely
+				if (raf.getFilePointer() == raf.length() && !endsWithLineBreak(raf)) {
+					break;
+				}
+
+				String[] values = line.split(",");
+				if (values.length == 2) {
+					try {
+						progress = new long[] { Long.parseLong(values[0]), Long.parseLong(values[1]) };
+						validLength = raf.getFilePointer();
+					} catch (NumberFormatException e) {
+						break;
+					}
+				} else {
+					break;
+				}
+			}
+
+			raf.setLength(validLength);
+		}
+
+		return progress;
+	}
+
+	private boolean endsWithLineBreak(RandomAccessFile raf) throws IOException {
+		long position = raf.getFilePointer();
+		raf.seek(raf.length() - 1);
+		boolean result = raf.read() == '\n';
+		raf.seek(position);
+		return result;
+	}
+
+	private void readCorrespondences(File file, List<Correspondence<RecordType>> restored) throws IOException {
+		try (CSVReader reader = new CSVReader(new FileReader(file))) {
+			String[] values;
+			while ((values = reader.readNext()) != null) {
+				if (values.length == 5) {
+					RecordType record1 = datasets.get(Integer.parseInt(values[0])).getRecord(values[1]);
+					RecordType record2 = datasets.get(Integer.parseInt(values[2])).getRecord(values[3]);
+
+					restored.add(new Correspondence<>(record1, record2, Double.parseDouble(values[4])));
+				}
+			}
+		}
+	}
+}
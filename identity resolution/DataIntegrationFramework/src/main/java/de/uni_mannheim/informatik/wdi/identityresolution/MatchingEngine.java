@@ -20,15 +20,28 @@ package de.uni_mannheim.informatik.wdi.identityresolution;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.joda.time.DateTime;
 
 import au.com.bytecode.opencsv.CSVWriter;
+import de.uni_mannheim.informatik.wdi.identityresolution.assignment.GreedyOneToOneAssignment;
+import de.uni_mannheim.informatik.wdi.identityresolution.assignment.OneToOneAssignment;
 import de.uni_mannheim.informatik.wdi.identityresolution.blocking.Blocker;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingEvaluator;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.PairIterator;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.PairTap;
+import de.uni_mannheim.informatik.wdi.identityresolution.partitioning.PartitionedMatchingEngine;
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.model.DataSet;
@@ -44,6 +57,22 @@ import de.uni_mannheim.informatik.wdi.utils.ProgressReporter;
  * {@link DataSet}s. In the first case, duplicate detection is performed. In the
  * second identity resolution is performed.
  * 
+ * By default, all candidate pairs are scored by the calling thread. If the
+ * parallelism is set to a value larger than 1, the candidate pairs are split
+ * into chunks which are scored by a work-stealing thread pool. The resulting
+ * correspondences are always in the same order as in a single-threaded run.
+ * In this mode, the {@link MatchingRule} and all {@link Comparator}s and
+ * {@link SimilarityMeasure}s that it uses must be thread-safe.
+ * 
+ * The candidate pairs are streamed from the {@link Blocker} to the matching
+ * rule and are not kept in memory. At most two chunks of pairs per thread are
+ * buffered, reading further pairs from the blocker waits until the oldest
+ * chunk is finished. Components that need to see all candidate pairs, such as
+ * the {@link BlockingEvaluator}, can be registered as {@link PairTap}.
+ * 
+ * To split a matching that does not fit into a single heap across several
+ * processes, see {@link PartitionedMatchingEngine}.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * @author Robert Meusel (robert@dwslab.de)
  * 
@@ -53,7 +82,25 @@ public class MatchingEngine<RecordType extends Matchable> {
 
 	protected MatchingRule<RecordType> rule;
 	protected Blocker<RecordType> blocker;
-	private List<Pair<RecordType, RecordType>> allPairs = null;
+	private List<PairTap<RecordType>> pairTaps = new ArrayList<>();
+	private int parallelism = 1;
+	private int topKPerRecord = 0;
+	private boolean topKBothSides = false;
+	private File checkpointDirectory = null;
+	private long pairsPerCheckpoint = 0;
+
+	/**
+	 * The number of candidate pairs that are handed to the thread pool as one
+	 * unit of work
+	 */
+	private static final int PAIRS_PER_CHUNK = 10000;
+
+	/**
+	 * The maximal number of pairs with the same first record that are scored
+	 * in one call of {@link MatchingRule#applyBatch(Object, List)} if the rule
+	 * is applied sequentially
+	 */
+	private static final int PAIRS_PER_BATCH = 1000;
 
 	/**
 	 * Creates a matching engine with the specified rule and blocker
@@ -66,8 +113,99 @@ public class MatchingEngine<RecordType extends Matchable> {
 		this.blocker = blocker;
 	}
 
-	public List<Pair<RecordType, RecordType>> getAllPairs() {
-		return allPairs;
+	/**
+	 * Restricts the result of the following runs to the k best
+	 * correspondences per record (see {@link TopKCorrespondences}). The
+	 * correspondences are filtered while the pairs are scored, so only
+	 * O(records x k) correspondences are kept in memory.
+	 * 
+	 * @param k
+	 *            the maximal number of correspondences per record, 0 to keep
+	 *            all correspondences
+	 * @param bothSides
+	 *            if false, only the records of the first data set are
+	 *            restricted. If true, a correspondence must be among the k
+	 *            best for both of its records.
+	 */
+	public void setTopKPerRecord(int k, boolean bothSides) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		topKPerRecord = k;
+		topKBothSides = bothSides;
+	}
+
+	public int getTopKPerRecord() {
+		return topKPerRecord;
+	}
+
+	/**
+	 * Enables checkpointing for the following runs. The progress of a run is
+	 * stored in the directory (see {@link MatchingCheckpoint}) every
+	 * pairsPerCheckpoint pairs. If a run is started with the same rule,
+	 * blocker and data sets as the run that wrote the checkpoint, it resumes
+	 * from the last checkpoint instead of starting over. A run that was
+	 * finished is not repeated, its result is read from the checkpoint. Use a
+	 * separate directory for each run.
+	 * 
+	 * @param directory
+	 *            the checkpoint directory, or null to disable checkpointing
+	 * @param pairsPerCheckpoint
+	 *            the number of pairs that are processed between two
+	 *            checkpoints
+	 */
+	public void setCheckpointing(File directory, long pairsPerCheckpoint) {
+		if (directory != null && pairsPerCheckpoint < 1) {
+			throw new IllegalArgumentException("The number of pairs per checkpoint must be at least 1");
+		}
+		checkpointDirectory = directory;
+		this.pairsPerCheckpoint = pairsPerCheckpoint;
+	}
+
+	public File getCheckpointDirectory() {
+		return checkpointDirectory;
+	}
+
+	/**
+	 * Registers a tap which is notified about every candidate pair that is
+	 * created by the blocker in the following runs.
+	 * 
+	 * @param tap
+	 */
+	public void addPairTap(PairTap<RecordType> tap) {
+		pairTaps.add(tap);
+	}
+
+	/**
+	 * Removes a tap registered with {@link #addPairTap(PairTap)}
+	 * 
+	 * @param tap
+	 */
+	public void removePairTap(PairTap<RecordType> tap) {
+		pairTaps.remove(tap);
+	}
+
+	/**
+	 * Returns the number of threads that are used to apply the matching rule
+	 * 
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that are used to apply the matching rule. A
+	 * value of 1 (the default) scores all pairs in the calling thread. Use
+	 * Runtime.getRuntime().availableProcessors() to use all cores.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
 	}
 
 	/**
@@ -93,31 +231,22 @@ public class MatchingEngine<RecordType extends Matchable> {
 
 		System.out.println(String.format("[%s] Starting Duplicate Detection", new DateTime(start).toString()));
 
-		List<Correspondence<RecordType>> result = new LinkedList<>();
+		// let the comparators preprocess the records
+		rule.prepare(dataset.getRecords());
 
 		// use the blocker to generate pairs
-		allPairs = blocker.generatePairs(dataset, symmetric);
-
-		System.out.println(
-				String.format("Duplicate Detection %,d x %,d elements; %,d blocked pairs (reduction ratio: %.2f)",
-						dataset.getSize(), dataset.getSize(), allPairs.size(), blocker.getReductionRatio()));
+		PairCounter pairs = new PairCounter(blocker.iteratePairs(dataset, symmetric));
 
 		// compare the pairs using the Duplicate Detection rule
-		ProgressReporter progress = new ProgressReporter(allPairs.size(), "Duplicate Detection");
-		for (Pair<RecordType, RecordType> pair : allPairs) {
-
-			// apply the Duplicate Detection rule
-			Correspondence<RecordType> cor = rule.apply(pair.getFirst(), pair.getSecond());
-			if (cor != null) {
-
-				// add the correspondences to the result
-				result.add(cor);
-			}
+		ResultCollector collector = new ResultCollector();
+		applyRule(pairs, "Duplicate Detection", collector,
+				createCheckpoint(String.format("Duplicate Detection (symmetric: %b)", symmetric), Arrays.asList(dataset)));
+		List<Correspondence<RecordType>> result = collector.getResult();
+		rule.clearPrepared();
 
-			// increment and report status
-			progress.incrementProgress();
-			progress.report();
-		}
+		System.out.println(
+				String.format("Duplicate Detection %,d x %,d elements; %,d blocked pairs (reduction ratio: %.2f)",
+						dataset.getSize(), dataset.getSize(), pairs.getCount(), blocker.getReductionRatio()));
 
 		// report total Duplicate Detection time
 		long end = System.currentTimeMillis();
@@ -139,52 +268,474 @@ public class MatchingEngine<RecordType extends Matchable> {
 	 *            The first data set
 	 * @param dataset2
 	 *            The second data set
+	 * @param applyTop1
+	 *            if true, the result is reduced to a one-to-one mapping using
+	 *            the {@link GreedyOneToOneAssignment}
 	 * @return A list of correspondences
 	 */
 	public List<Correspondence<RecordType>> runMatching(DataSet<RecordType> dataset1, DataSet<RecordType> dataset2,
 			boolean applyTop1) {
+		return runMatching(dataset1, dataset2, applyTop1 ? new GreedyOneToOneAssignment<RecordType>() : null);
+	}
+
+	/**
+	 * Runs the matching on the given data sets and reduces the result to a
+	 * one-to-one mapping
+	 * 
+	 * @param dataset1
+	 *            The first data set
+	 * @param dataset2
+	 *            The second data set
+	 * @param assignment
+	 *            the strategy that selects the one-to-one mapping, or null to
+	 *            return all correspondences
+	 * @return A list of correspondences
+	 */
+	public List<Correspondence<RecordType>> runMatching(DataSet<RecordType> dataset1, DataSet<RecordType> dataset2,
+			OneToOneAssignment<RecordType> assignment) {
 		long start = System.currentTimeMillis();
 
 		System.out.println(String.format("[%s] Starting Matching", new DateTime(start).toString()));
 
-		List<Correspondence<RecordType>> result = new LinkedList<>();
+		// let the comparators preprocess the records
+		rule.prepare(dataset1.getRecords());
+		rule.prepare(dataset2.getRecords());
 
 		// use the blocker to generate pairs
-		allPairs = blocker.generatePairs(dataset1, dataset2);
+		PairCounter pairs = new PairCounter(blocker.iteratePairs(dataset1, dataset2));
+
+		// compare the pairs using the matching rule
+		ResultCollector collector = new ResultCollector();
+		applyRule(pairs, "Matching", collector, createCheckpoint("Matching", Arrays.asList(dataset1, dataset2)));
+		List<Correspondence<RecordType>> result = collector.getResult();
+		rule.clearPrepared();
 
 		System.out.println(String.format("Matching %,d x %,d elements; %,d blocked pairs (reduction ratio: %s)",
-				dataset1.getSize(), dataset2.getSize(), allPairs.size(), Double.toString(blocker.getReductionRatio())));
+				dataset1.getSize(), dataset2.getSize(), pairs.getCount(), Double.toString(blocker.getReductionRatio())));
 
-		// compare the pairs using the matching rule
-		ProgressReporter progress = new ProgressReporter(allPairs.size(), "Matching");
-		for (Pair<RecordType, RecordType> pair : allPairs) {
+		if (assignment != null) {
+			System.out.println(String.format("Applying %s on %,d correspondences",
+					assignment.getClass().getSimpleName(), result.size()));
+			result = assignment.assign(result);
+		}
 
-			// apply the matching rule
-			Correspondence<RecordType> cor = rule.apply(pair.getFirst(), pair.getSecond());
-			if (cor != null) {
+		// report total matching time
+		long end = System.currentTimeMillis();
+		long delta = end - start;
+		System.out.println(String.format("[%s] Matching finished after %s; found %,d correspondences.",
+				new DateTime(end).toString(), DurationFormatUtils.formatDurationHMS(delta), result.size()));
 
-				// add the correspondences to the result
-				result.add(cor);
-			}
+		return result;
+	}
 
-			// increment and report status
-			progress.incrementProgress();
-			progress.report();
+	/**
+	 * Matches several combinations of data sets in a single run. Every data set
+	 * is prepared for the matching rule once, and the blocker keeps the index
+	 * it builds for a data set (see {@link Blocker#setRetainIndexes(boolean)}),
+	 * so a data set that takes part in several combinations is indexed only
+	 * once. The indexes are released afterwards, unless the blocker already
+	 * retained its indexes before. The candidate pairs of all combinations are
+	 * scored in one pass, which keeps all threads busy also for small
+	 * combinations.
+	 * 
+	 * A record must only be contained in one of the data sets.
+	 * 
+	 * @param sourcePairs
+	 *            the combinations of data sets that are matched
+	 * @return the correspondences of each combination, in the order of
+	 *         sourcePairs. The keys are the elements of sourcePairs.
+	 */
+	public Map<Pair<DataSet<RecordType>, DataSet<RecordType>>, List<Correspondence<RecordType>>> runMultiSourceMatching(
+			List<Pair<DataSet<RecordType>, DataSet<RecordType>>> sourcePairs) {
+		long start = System.currentTimeMillis();
+
+		System.out.println(String.format("[%s] Starting Multi-Source Matching of %d combinations",
+				new DateTime(start).toString(), sourcePairs.size()));
+
+		// find the data set of every record and let the comparators preprocess
+		// each data set once
+		Map<RecordType, DataSet<RecordType>> sources = new IdentityHashMap<>();
+		Map<DataSet<RecordType>, Integer> prepared = new IdentityHashMap<>();
+		List<DataSet<RecordType>> datasets = new ArrayList<>();
+		StringBuilder combinations = new StringBuilder();
+		for (Pair<DataSet<RecordType>, DataSet<RecordType>> sourcePair : sourcePairs) {
+			for (DataSet<RecordType> dataset : Arrays.asList(sourcePair.getFirst(), sourcePair.getSecond())) {
+				if (!prepared.containsKey(dataset)) {
+					prepared.put(dataset, datasets.size());
+					datasets.add(dataset);
+					rule.prepare(dataset.getRecords());
+
+					for (RecordType record : dataset.getRecords()) {
+						sources.put(record, dataset);
+					}
+				}
+			}
+			combinations.append(String.format(" %d-%d", prepared.get(sourcePair.getFirst()),
+					prepared.get(sourcePair.getSecond())));
 		}
 
-		if (applyTop1) {
-			result = applyTop1(result);
+		MultiSourceCollector collector = new MultiSourceCollector(sourcePairs, sources);
+		final Iterator<Pair<DataSet<RecordType>, DataSet<RecordType>>> sourcePairIterator = sourcePairs.iterator();
+
+		// the caller may retain the indexes for later runs already
+		boolean retainIndexes = blocker.isRetainIndexes();
+		blocker.setRetainIndexes(true);
+		try {
+			// chain the candidate pairs of all combinations
+			PairCounter pairs = new PairCounter(new PairIterator<RecordType>() {
+
+				private Iterator<Pair<RecordType, RecordType>> current = null;
+
+				@Override
+				protected Pair<RecordType, RecordType> computeNext() {
+					while (current == null || !current.hasNext()) {
+						if (!sourcePairIterator.hasNext()) {
+							return null;
+						}
+						Pair<DataSet<RecordType>, DataSet<RecordType>> sourcePair = sourcePairIterator.next();
+						current = blocker.iteratePairs(sourcePair.getFirst(), sourcePair.getSecond());
+					}
+					return current.next();
+				}
+
+				@Override
+				public void close() {
+					PairIterator.close(current);
+				}
+			});
+
+			// compare the pairs using the matching rule
+			applyRule(pairs, "Multi-Source Matching", collector,
+					createCheckpoint("Multi-Source Matching:" + combinations.toString(), datasets));
+
+			System.out.println(String.format("Multi-Source Matching of %,d data sets; %,d blocked pairs",
+					prepared.size(), pairs.getCount()));
+		} finally {
+			if (!retainIndexes) {
+				blocker.setRetainIndexes(false);
+			}
+			rule.clearPrepared();
 		}
 
+		Map<Pair<DataSet<RecordType>, DataSet<RecordType>>, List<Correspondence<RecordType>>> result = collector
+				.getResults();
+
 		// report total matching time
 		long end = System.currentTimeMillis();
 		long delta = end - start;
-		System.out.println(String.format("[%s] Matching finished after %s; found %,d correspondences.",
-				new DateTime(end).toString(), DurationFormatUtils.formatDurationHMS(delta), result.size()));
+		int total = 0;
+		for (List<Correspondence<RecordType>> correspondences : result.values()) {
+			total += correspondences.size();
+		}
+		System.out.println(String.format("[%s] Multi-Source Matching finished after %s; found %,d correspondences.",
+				new DateTime(end).toString(), DurationFormatUtils.formatDurationHMS(delta), total));
 
 		return result;
 	}
 
+	/**
+	 * Applies the matching rule to all given pairs and passes the resulting
+	 * correspondences to the collector in the order of the pairs.
+	 * 
+	 * @param pairs
+	 *            the candidate pairs, which are consumed while the rule is
+	 *            applied and closed afterwards
+	 * @param taskName
+	 *            the name that is used for progress reporting
+	 * @param collector
+	 *            receives the correspondences
+	 * @param checkpoint
+	 *            the checkpoint of the run, or null
+	 */
+	private void applyRule(PairCounter pairs, String taskName, ResultCollector collector,
+			MatchingCheckpoint<RecordType> checkpoint) {
+		try {
+			// the number of pairs is unknown until the blocker is finished
+			ProgressReporter progress = new ProgressReporter(0, taskName);
+
+			if (checkpoint != null) {
+				List<Correspondence<RecordType>> restored = new ArrayList<>();
+				long processed = checkpoint.open(restored);
+
+				if (processed > 0) {
+					for (Correspondence<RecordType> cor : restored) {
+						collector.add(cor);
+					}
+
+					// skip the pairs that were processed before the checkpoint
+					long skipped = 0;
+					while (skipped < processed && pairs.hasNext()) {
+						notifyPairTaps(pairs.next());
+						skipped++;
+					}
+
+					System.out.println(String.format("Resuming %s from checkpoint: skipped %,d pairs, restored %,d correspondences",
+							taskName, skipped, restored.size()));
+				}
+			}
+
+			if (parallelism == 1) {
+				// collect the pairs of the current first record, so they can be
+				// scored with a single batch call
+				List<Pair<RecordType, RecordType>> batch = new ArrayList<>();
+				List<Correspondence<RecordType>> batchResult = new ArrayList<>();
+
+				while (pairs.hasNext() || !batch.isEmpty()) {
+					Pair<RecordType, RecordType> pair = null;
+					if (pairs.hasNext()) {
+						pair = pairs.next();
+						notifyPairTaps(pair);
+					}
+
+					if (!batch.isEmpty() && (pair == null || pair.getFirst() != batch.get(0).getFirst()
+							|| batch.size() == PAIRS_PER_BATCH)) {
+						// apply the rule
+						MatchingTask.applyRule(rule, batch, 0, batch.size(), batchResult);
+
+						// add the correspondences to the result
+						collect(batchResult, batch.size(), collector, checkpoint);
+
+						// increment and report status
+						progress.incrementProgress(batch.size());
+						progress.report();
+
+						batch.clear();
+						batchResult.clear();
+					}
+
+					if (pair != null) {
+						batch.add(pair);
+					}
+				}
+			} else {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				try {
+					// keep at most two chunks per thread in flight, collect the
+					// results of the chunks in the order they were created
+					LinkedList<MatchingTask<RecordType>> running = new LinkedList<>();
+
+					while (pairs.hasNext() || !running.isEmpty()) {
+						while (pairs.hasNext() && running.size() < 2 * parallelism) {
+							List<Pair<RecordType, RecordType>> chunk = new ArrayList<>(PAIRS_PER_CHUNK);
+							while (pairs.hasNext() && chunk.size() < PAIRS_PER_CHUNK) {
+								Pair<RecordType, RecordType> pair = pairs.next();
+								notifyPairTaps(pair);
+								chunk.add(pair);
+							}
+
+							MatchingTask<RecordType> task = new MatchingTask<>(rule, chunk, 0, chunk.size());
+							pool.execute(task);
+							running.add(task);
+						}
+
+						MatchingTask<RecordType> task = running.removeFirst();
+						collect(task.join(), task.getNumberOfPairs(), collector, checkpoint);
+
+						// increment and report status
+						progress.incrementProgress(task.getNumberOfPairs());
+						progress.report();
+					}
+				} finally {
+					pool.shutdown();
+				}
+			}
+
+			if (checkpoint != null) {
+				checkpoint.close();
+			}
+		} finally {
+			// releases the resources of the blocker if the rule was not
+			// applied to all pairs
+			pairs.close();
+		}
+	}
+
+	/**
+	 * Adds the correspondences that resulted from a number of pairs to the
+	 * collector and the checkpoint
+	 * 
+	 * @param correspondences
+	 * @param numberOfPairs
+	 * @param collector
+	 * @param checkpoint
+	 */
+	private void collect(List<Correspondence<RecordType>> correspondences, int numberOfPairs,
+			ResultCollector collector, MatchingCheckpoint<RecordType> checkpoint) {
+		for (Correspondence<RecordType> cor : correspondences) {
+			collector.add(cor);
+			if (checkpoint != null) {
+				checkpoint.add(cor);
+			}
+		}
+
+		if (checkpoint != null) {
+			checkpoint.processed(numberOfPairs);
+		}
+	}
+
+	/**
+	 * Creates the checkpoint for a run if checkpointing is enabled. The
+	 * fingerprint of the run consists of the description, the matching rule,
+	 * the blocker and the identifiers of the records in the data sets.
+	 * 
+	 * @param description
+	 *            describes the type of the run
+	 * @param datasets
+	 *            the data sets of the run
+	 * @return the checkpoint or null if checkpointing is disabled
+	 */
+	private MatchingCheckpoint<RecordType> createCheckpoint(String description, List<DataSet<RecordType>> datasets) {
+		if (checkpointDirectory == null) {
+			return null;
+		}
+
+		StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(description).append("\n");
+		fingerprint.append(rule.getFingerprint()).append("\n");
+		fingerprint.append(blocker.getFingerprint()).append("\n");
+		fingerprint.append(String.format("top-k: %d (both sides: %b)\n", topKPerRecord, topKBothSides));
+		for (DataSet<RecordType> dataset : datasets) {
+			fingerprint.append(
+					String.format("data set: %d records (%016x)\n", dataset.getSize(), dataset.getFingerprint()));
+		}
+
+		return new MatchingCheckpoint<>(checkpointDirectory, pairsPerCheckpoint, fingerprint.toString(), datasets);
+	}
+
+	private void notifyPairTaps(Pair<RecordType, RecordType> pair) {
+		for (PairTap<RecordType> tap : pairTaps) {
+			tap.pairGenerated(pair);
+		}
+	}
+
+	/**
+	 * Collects the correspondences of a matching run, keeping only the top-k
+	 * correspondences per record if configured
+	 */
+	private class ResultCollector {
+
+		private List<Correspondence<RecordType>> result = new ArrayList<>();
+		private TopKCorrespondences<RecordType> topK = null;
+
+		public ResultCollector() {
+			if (topKPerRecord > 0) {
+				topK = new TopKCorrespondences<>(topKPerRecord, topKBothSides);
+			}
+		}
+
+		public void add(Correspondence<RecordType> cor) {
+			if (topK == null) {
+				result.add(cor);
+			} else {
+				topK.add(cor);
+			}
+		}
+
+		public List<Correspondence<RecordType>> getResult() {
+			if (topK == null) {
+				return result;
+			} else {
+				return topK.getResult();
+			}
+		}
+	}
+
+	/**
+	 * Routes the correspondences of a multi-source matching to one
+	 * {@link ResultCollector} per combination of data sets
+	 */
+	private class MultiSourceCollector extends ResultCollector {
+
+		private Map<RecordType, DataSet<RecordType>> sources;
+		private Map<DataSet<RecordType>, Map<DataSet<RecordType>, ResultCollector>> collectors = new IdentityHashMap<>();
+		private Map<Pair<DataSet<RecordType>, DataSet<RecordType>>, ResultCollector> collectorsBySourcePair = new LinkedHashMap<>();
+
+		public MultiSourceCollector(List<Pair<DataSet<RecordType>, DataSet<RecordType>>> sourcePairs,
+				Map<RecordType, DataSet<RecordType>> sources) {
+			this.sources = sources;
+
+			for (Pair<DataSet<RecordType>, DataSet<RecordType>> sourcePair : sourcePairs) {
+				Map<DataSet<RecordType>, ResultCollector> map = collectors.get(sourcePair.getFirst());
+				if (map == null) {
+					map = new IdentityHashMap<>();
+					collectors.put(sourcePair.getFirst(), map);
+				}
+
+				ResultCollector collector = map.get(sourcePair.getSecond());
+				if (collector == null) {
+					collector = new ResultCollector();
+					map.put(sourcePair.getSecond(), collector);
+				}
+
+				collectorsBySourcePair.put(sourcePair, collector);
+			}
+		}
+
+		@Override
+		public void add(Correspondence<RecordType> cor) {
+			DataSet<RecordType> source1 = sources.get(cor.getFirstRecord());
+			DataSet<RecordType> source2 = sources.get(cor.getSecondRecord());
+
+			ResultCollector collector = getCollector(source1, source2);
+			if (collector == null) {
+				// some blockers do not keep the order of the data sets
+				collector = getCollector(source2, source1);
+			}
+			collector.add(cor);
+		}
+
+		private ResultCollector getCollector(DataSet<RecordType> source1, DataSet<RecordType> source2) {
+			Map<DataSet<RecordType>, ResultCollector> map = collectors.get(source1);
+			return map == null ? null : map.get(source2);
+		}
+
+		public Map<Pair<DataSet<RecordType>, DataSet<RecordType>>, List<Correspondence<RecordType>>> getResults() {
+			Map<Pair<DataSet<RecordType>, DataSet<RecordType>>, List<Correspondence<RecordType>>> results = new LinkedHashMap<>();
+			for (Map.Entry<Pair<DataSet<RecordType>, DataSet<RecordType>>, ResultCollector> entry : collectorsBySourcePair
+					.entrySet()) {
+				results.put(entry.getKey(), entry.getValue().getResult());
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Counts the pairs that are read from the blocker
+	 */
+	private class PairCounter implements Iterator<Pair<RecordType, RecordType>> {
+
+		private Iterator<Pair<RecordType, RecordType>> pairs;
+		private long count = 0;
+
+		public PairCounter(Iterator<Pair<RecordType, RecordType>> pairs) {
+			this.pairs = pairs;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public void close() {
+			PairIterator.close(pairs);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return pairs.hasNext();
+		}
+
+		@Override
+		public Pair<RecordType, RecordType> next() {
+			count++;
+			return pairs.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
 	/**
 	 * Generates a data set containing features that can be used to learn
 	 * matching rules.
@@ -275,47 +826,4 @@ public class MatchingEngine<RecordType extends Matchable> {
 
 		w.close();
 	}
-
-	private List<Correspondence<RecordType>> applyTop1(List<Correspondence<RecordType>> correspondences) {
-		System.out.println(String.format("Applying Top1 on %,d correspondences", correspondences.size()));
-
-		List<Correspondence<RecordType>> result = new LinkedList<>();
-		// sort the stuff
-		Collections.sort(correspondences, new java.util.Comparator<Correspondence<RecordType>>() {
-
-			@Override
-			public int compare(Correspondence<RecordType> o1, Correspondence<RecordType> o2) {
-				if (o1.getSimilarityScore() != o2.getSimilarityScore()) {
-					return Double.compare(o1.getSimilarityScore(), o2.getSimilarityScore());
-				} else {
-					if (!o1.getFirstRecord().getIdentifier().equals(o2.getFirstRecord().getIdentifier())) {
-						return o1.getFirstRecord().getIdentifier().compareTo(o2.getFirstRecord().getIdentifier());
-					} else {
-						if (!o1.getSecondRecord().getIdentifier().equals(o2.getSecondRecord().getIdentifier())) {
-							return o1.getSecondRecord().getIdentifier().compareTo(o2.getSecondRecord().getIdentifier());
-						} else {
-							return 0;
-						}
-					}
-				}
-			}
-		});
-		ProgressReporter reporter = new ProgressReporter(correspondences.size(), "Applying Top1");
-		List<String> recordsFirst = new LinkedList<>();
-		List<String> recordsSecond = new LinkedList<>();
-		for (Correspondence<RecordType> correspondence : correspondences) {
-			// if either the first nor the second record is already in an other
-			// correspondence, we can add this.
-			if ((!recordsFirst.contains(correspondence.getFirstRecord().getIdentifier()))
-					&& (!recordsSecond.contains(correspondence.getSecondRecord().getIdentifier()))) {
-				result.add(correspondence);
-				recordsFirst.add(correspondence.getFirstRecord().getIdentifier());
-				recordsSecond.add(correspondence.getSecondRecord().getIdentifier());
-			}
-			reporter.incrementProgress();
-			reporter.report();
-		}
-
-		return result;
-	}
 }
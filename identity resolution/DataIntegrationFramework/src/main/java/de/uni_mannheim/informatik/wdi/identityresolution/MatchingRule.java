@@ -17,11 +17,19 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.uni_mannheim.informatik.wdi.model.DefaultRecord;
 
 /**
  * Super class for all matching rules.
  * 
+ * Matching rules follow the same thread-safety contract as {@link Comparator}s:
+ * {@link #apply(Object, Object)} can be called concurrently by the
+ * {@link MatchingEngine}, so the configuration of a rule (threshold,
+ * comparators, weights) must not be changed while a matching is running.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  * @param <RecordType>
@@ -53,6 +61,42 @@ public abstract class MatchingRule<RecordType> extends Comparator<RecordType> {
 		}
 	}
 
+	/**
+	 * Applies the rule to all pairs of record1 and a record from records2,
+	 * using {@link #compareBatch(Object, List, double[])}. Returns the same
+	 * correspondences as calling {@link #apply(Object, Object)} for each
+	 * pair, in the order of records2.
+	 * 
+	 * @param record1
+	 * @param records2
+	 * @return
+	 */
+	public List<Correspondence<RecordType>> applyBatch(RecordType record1, List<RecordType> records2) {
+		double[] similarities = new double[records2.size()];
+		compareBatch(record1, records2, similarities);
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		for (int i = 0; i < records2.size(); i++) {
+			if (similarities[i] >= getFinalThreshold()) {
+				result.add(new Correspondence<>(record1, records2.get(i), similarities[i]));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a description of the configuration of this rule. A matching run
+	 * is only resumed from a checkpoint if the fingerprint of the rule did
+	 * not change. Sub classes should add all parameters that change the
+	 * result of the rule.
+	 * 
+	 * @return
+	 */
+	public String getFingerprint() {
+		return String.format("%s(threshold: %s)", getClass().getName(), Double.toString(finalThreshold));
+	}
+
 	public abstract DefaultRecord generateFeatures(RecordType record1,
 			RecordType record2);
 }
@@ -0,0 +1,147 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Applies a {@link MatchingRule} to a range of candidate pairs. The range is
+ * split recursively, so idle worker threads of the executing
+ * {@link java.util.concurrent.ForkJoinPool} can steal the remaining halves.
+ * Every leaf task collects its correspondences in its own list and the lists
+ * are concatenated from left to right, so the result has the same order as a
+ * sequential run over the same pairs.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+class MatchingTask<RecordType extends Matchable> extends RecursiveTask<List<Correspondence<RecordType>>> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Ranges smaller than this are not split any further
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 512;
+
+	private MatchingRule<RecordType> rule;
+	private List<Pair<RecordType, RecordType>> pairs;
+	private int from;
+	private int to;
+
+	/**
+	 * Creates a task that applies the rule to pairs.get(from) ...
+	 * pairs.get(to-1). The list must support fast random access.
+	 * 
+	 * @param rule
+	 * @param pairs
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 */
+	public MatchingTask(MatchingRule<RecordType> rule, List<Pair<RecordType, RecordType>> pairs, int from, int to) {
+		this.rule = rule;
+		this.pairs = pairs;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Returns the number of pairs processed by this task
+	 * 
+	 * @return
+	 */
+	public int getNumberOfPairs() {
+		return to - from;
+	}
+
+	/**
+	 * Applies the rule to pairs.get(from) ... pairs.get(to-1) and adds the
+	 * correspondences to result. Consecutive pairs with the same first record
+	 * are scored with a single call of
+	 * {@link MatchingRule#applyBatch(Object, List)}.
+	 * 
+	 * @param rule
+	 * @param pairs
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 * @param result
+	 */
+	static <RecordType extends Matchable> void applyRule(MatchingRule<RecordType> rule,
+			List<Pair<RecordType, RecordType>> pairs, int from, int to, List<Correspondence<RecordType>> result) {
+		int i = from;
+		while (i < to) {
+			RecordType first = pairs.get(i).getFirst();
+
+			int end = i + 1;
+			while (end < to && pairs.get(end).getFirst() == first) {
+				end++;
+			}
+
+			if (end - i == 1) {
+				Correspondence<RecordType> cor = rule.apply(first, pairs.get(i).getSecond());
+				if (cor != null) {
+					result.add(cor);
+				}
+			} else {
+				List<RecordType> seconds = new ArrayList<>(end - i);
+				for (int j = i; j < end; j++) {
+					seconds.add(pairs.get(j).getSecond());
+				}
+				result.addAll(rule.applyBatch(first, seconds));
+			}
+
+			i = end;
+		}
+	}
+
+	@Override
+	protected List<Correspondence<RecordType>> compute() {
+		if (to - from <= SEQUENTIAL_THRESHOLD) {
+			List<Correspondence<RecordType>> result = new ArrayList<>();
+
+			applyRule(rule, pairs, from, to, result);
+
+			return result;
+		} else {
+			int mid = (from + to) >>> 1;
+
+			MatchingTask<RecordType> left = new MatchingTask<>(rule, pairs, from, mid);
+			MatchingTask<RecordType> right = new MatchingTask<>(rule, pairs, mid, to);
+
+			// the right half is processed by this thread, the left half can be
+			// stolen by another worker
+			left.fork();
+			List<Correspondence<RecordType>> rightResult = right.compute();
+			List<Correspondence<RecordType>> result = left.join();
+
+			result.addAll(rightResult);
+
+			return result;
+		}
+	}
+}
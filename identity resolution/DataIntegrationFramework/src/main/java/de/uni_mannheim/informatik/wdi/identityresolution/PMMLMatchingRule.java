@@ -19,6 +19,7 @@ package de.uni_mannheim.informatik.wdi.identityresolution;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -139,6 +140,29 @@ public class PMMLMatchingRule<RecordType extends Matchable>
 		comparators.add(comparator);
 	}
 
+	@Override
+	public String getFingerprint() {
+		StringBuilder sb = new StringBuilder(super.getFingerprint());
+		for (Comparator<RecordType> comp : comparators) {
+			sb.append(" ").append(comp.getClass().getName());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public void prepare(Collection<RecordType> records) {
+		for (Comparator<RecordType> comp : comparators) {
+			comp.prepare(records);
+		}
+	}
+
+	@Override
+	public void clearPrepared() {
+		for (Comparator<RecordType> comp : comparators) {
+			comp.clearPrepared();
+		}
+	}
+
 	@Override
 	public double compare(RecordType record1, RecordType record2) {
 		// if no evaluator is know set equal weights of the similarities
@@ -0,0 +1,114 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Super class for {@link Comparator}s that transform every record into a
+ * prepared representation (like token arrays or normalised strings) before
+ * comparing it. The representation is created once per record in
+ * {@link #prepare(Collection)} and then reused for all pairs the record takes
+ * part in, instead of being recreated in every call of
+ * {@link #compare(Object, Object)}.
+ * 
+ * The prepared representations are only written in
+ * {@link #prepare(Collection)}, which is called before the matching starts, so
+ * compare() can be called concurrently. Records that were not prepared are
+ * transformed on the fly without being cached.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ * @param <PreparedType>
+ *            the type of the prepared representation
+ */
+public abstract class PreparedComparator<RecordType, PreparedType> extends Comparator<RecordType> {
+
+	private Map<RecordType, PreparedType> prepared = new IdentityHashMap<>();
+
+	/**
+	 * Creates the prepared representation of a record
+	 * 
+	 * @param record
+	 *            the record
+	 * @return the prepared representation
+	 */
+	protected abstract PreparedType prepareRecord(RecordType record);
+
+	/**
+	 * Compares the prepared representations of two records and returns a
+	 * similarity value
+	 * 
+	 * @param prepared1
+	 *            the prepared representation of the first record
+	 * @param prepared2
+	 *            the prepared representation of the second record
+	 * @return the similarity of the records
+	 */
+	protected abstract double comparePrepared(PreparedType prepared1, PreparedType prepared2);
+
+	@Override
+	public double compare(RecordType record1, RecordType record2) {
+		return comparePrepared(getPrepared(record1), getPrepared(record2));
+	}
+
+	@Override
+	public void compareBatch(RecordType record1, List<RecordType> records2, double[] similarities) {
+		PreparedType prepared1 = getPrepared(record1);
+
+		for (int i = 0; i < records2.size(); i++) {
+			similarities[i] = comparePrepared(prepared1, getPrepared(records2.get(i)));
+		}
+	}
+
+	@Override
+	public void prepare(Collection<RecordType> records) {
+		for (RecordType record : records) {
+			if (!prepared.containsKey(record)) {
+				prepared.put(record, prepareRecord(record));
+			}
+		}
+	}
+
+	@Override
+	public void clearPrepared() {
+		prepared = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Returns the prepared representation of a record, which is created on
+	 * the fly if the record was not prepared before
+	 * 
+	 * @param record
+	 * @return
+	 */
+	protected PreparedType getPrepared(RecordType record) {
+		PreparedType p = prepared.get(record);
+
+		if (p == null && !prepared.containsKey(record)) {
+			p = prepareRecord(record);
+		}
+
+		return p;
+	}
+
+}
@@ -0,0 +1,160 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Keeps the k best {@link Correspondence}s for every record while the
+ * correspondences are created. For each record, a min-heap of at most k
+ * correspondences is kept, so the required memory depends on the number of
+ * records and k, but not on the number of correspondences that are added.
+ * 
+ * If only the first records are considered, the result contains the k best
+ * correspondences of each first record. If both sides are considered, a
+ * correspondence is only kept if it is among the k best correspondences of its
+ * first and of its second record.
+ * 
+ * Ties are broken by the identifiers of the records, so the result does not
+ * depend on the order in which the correspondences are added.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class TopKCorrespondences<RecordType extends Matchable> {
+
+	private int k;
+	private boolean bothSides;
+	private Map<String, PriorityQueue<Correspondence<RecordType>>> topKFirst = new LinkedHashMap<>();
+	private Map<String, PriorityQueue<Correspondence<RecordType>>> topKSecond = new LinkedHashMap<>();
+
+	/**
+	 * Orders correspondences from the worst to the best one
+	 */
+	private Comparator<Correspondence<RecordType>> worstFirst = new Comparator<Correspondence<RecordType>>() {
+
+		@Override
+		public int compare(Correspondence<RecordType> o1, Correspondence<RecordType> o2) {
+			int result = Double.compare(o1.getSimilarityScore(), o2.getSimilarityScore());
+			if (result == 0) {
+				result = -o1.getFirstRecord().getIdentifier().compareTo(o2.getFirstRecord().getIdentifier());
+			}
+			if (result == 0) {
+				result = -o1.getSecondRecord().getIdentifier().compareTo(o2.getSecondRecord().getIdentifier());
+			}
+			return result;
+		}
+	};
+
+	/**
+	 * @param k
+	 *            the maximal number of correspondences per record
+	 * @param bothSides
+	 *            if true, the k best correspondences are determined for the
+	 *            first and for the second records
+	 */
+	public TopKCorrespondences(int k, boolean bothSides) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1");
+		}
+		this.k = k;
+		this.bothSides = bothSides;
+	}
+
+	public int getK() {
+		return k;
+	}
+
+	public boolean isBothSides() {
+		return bothSides;
+	}
+
+	/**
+	 * Adds a correspondence, which is discarded immediately if the records
+	 * already have k better correspondences
+	 * 
+	 * @param correspondence
+	 */
+	public void add(Correspondence<RecordType> correspondence) {
+		offer(topKFirst, correspondence.getFirstRecord().getIdentifier(), correspondence);
+
+		if (bothSides) {
+			offer(topKSecond, correspondence.getSecondRecord().getIdentifier(), correspondence);
+		}
+	}
+
+	private void offer(Map<String, PriorityQueue<Correspondence<RecordType>>> topK, String identifier,
+			Correspondence<RecordType> correspondence) {
+		PriorityQueue<Correspondence<RecordType>> heap = topK.get(identifier);
+
+		if (heap == null) {
+			heap = new PriorityQueue<>(k + 1, worstFirst);
+			topK.put(identifier, heap);
+		}
+
+		if (heap.size() < k) {
+			heap.add(correspondence);
+		} else if (worstFirst.compare(correspondence, heap.peek()) > 0) {
+			// replace the worst correspondence
+			heap.poll();
+			heap.add(correspondence);
+		}
+	}
+
+	/**
+	 * Returns the selected correspondences, grouped by the first record (in
+	 * the order in which the records were first seen) and sorted by
+	 * descending similarity score within each group.
+	 * 
+	 * @return
+	 */
+	public List<Correspondence<RecordType>> getResult() {
+		Set<Correspondence<RecordType>> selectedSecond = null;
+		if (bothSides) {
+			selectedSecond = Collections.newSetFromMap(new IdentityHashMap<Correspondence<RecordType>, Boolean>());
+			for (PriorityQueue<Correspondence<RecordType>> heap : topKSecond.values()) {
+				selectedSecond.addAll(heap);
+			}
+		}
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		for (PriorityQueue<Correspondence<RecordType>> heap : topKFirst.values()) {
+			List<Correspondence<RecordType>> sorted = new ArrayList<>(heap);
+			Collections.sort(sorted, Collections.reverseOrder(worstFirst));
+
+			for (Correspondence<RecordType> correspondence : sorted) {
+				if (selectedSecond == null || selectedSecond.contains(correspondence)) {
+					result.add(correspondence);
+				}
+			}
+		}
+
+		return result;
+	}
+}
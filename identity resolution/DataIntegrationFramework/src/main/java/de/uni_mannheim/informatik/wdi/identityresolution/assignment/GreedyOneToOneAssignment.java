@@ -0,0 +1,64 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.assignment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Greedy {@link OneToOneAssignment}: the correspondences are processed by
+ * descending similarity score and a correspondence is selected if none of its
+ * records has been selected before. Membership of the records is checked in
+ * hash sets, so the run time is dominated by sorting (O(n log n)).
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class GreedyOneToOneAssignment<RecordType extends Matchable> extends OneToOneAssignment<RecordType> {
+
+	@Override
+	public List<Correspondence<RecordType>> assign(Collection<Correspondence<RecordType>> correspondences) {
+		List<Correspondence<RecordType>> sorted = new ArrayList<>(correspondences);
+		sortByScore(sorted);
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		HashSet<String> recordsFirst = new HashSet<>();
+		HashSet<String> recordsSecond = new HashSet<>();
+
+		for (Correspondence<RecordType> correspondence : sorted) {
+			// if neither the first nor the second record is already in another
+			// correspondence, we can add this.
+			String id1 = correspondence.getFirstRecord().getIdentifier();
+			String id2 = correspondence.getSecondRecord().getIdentifier();
+			if (!recordsFirst.contains(id1) && !recordsSecond.contains(id2)) {
+				result.add(correspondence);
+				recordsFirst.add(id1);
+				recordsSecond.add(id2);
+			}
+		}
+
+		return result;
+	}
+
+}
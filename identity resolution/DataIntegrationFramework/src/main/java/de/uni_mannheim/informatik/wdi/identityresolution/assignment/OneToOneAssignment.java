@@ -0,0 +1,95 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.assignment;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Super class for all strategies that reduce a set of {@link Correspondence}s
+ * to a one-to-one mapping, i.e., every record of the first and of the second
+ * data set is contained in at most one of the resulting correspondences.
+ * 
+ * All implementations return the selected correspondences ordered by
+ * descending similarity score, ties are broken by the identifiers of the
+ * records, so the result does not depend on the order of the input.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class OneToOneAssignment<RecordType extends Matchable> {
+
+	/**
+	 * Selects a one-to-one subset of the given correspondences
+	 * 
+	 * @param correspondences
+	 *            the correspondences, the first record of each correspondence
+	 *            must be from the first data set and the second record from
+	 *            the second data set
+	 * @return the selected correspondences
+	 */
+	public abstract List<Correspondence<RecordType>> assign(Collection<Correspondence<RecordType>> correspondences);
+
+	/**
+	 * Sorts the correspondences by descending similarity score, then by the
+	 * identifiers of the first and second record
+	 * 
+	 * @param correspondences
+	 */
+	protected void sortByScore(List<Correspondence<RecordType>> correspondences) {
+		Collections.sort(correspondences, new Comparator<Correspondence<RecordType>>() {
+
+			@Override
+			public int compare(Correspondence<RecordType> o1, Correspondence<RecordType> o2) {
+				int result = -Double.compare(o1.getSimilarityScore(), o2.getSimilarityScore());
+				if (result == 0) {
+					result = o1.getFirstRecord().getIdentifier().compareTo(o2.getFirstRecord().getIdentifier());
+				}
+				if (result == 0) {
+					result = o1.getSecondRecord().getIdentifier().compareTo(o2.getSecondRecord().getIdentifier());
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Returns true if c1 is preferred over c2 according to the order defined
+	 * by {@link #sortByScore(List)}
+	 * 
+	 * @param c1
+	 * @param c2
+	 * @return
+	 */
+	protected boolean isBetter(Correspondence<RecordType> c1, Correspondence<RecordType> c2) {
+		if (c1.getSimilarityScore() != c2.getSimilarityScore()) {
+			return c1.getSimilarityScore() > c2.getSimilarityScore();
+		}
+		int result = c1.getFirstRecord().getIdentifier().compareTo(c2.getFirstRecord().getIdentifier());
+		if (result == 0) {
+			result = c1.getSecondRecord().getIdentifier().compareTo(c2.getSecondRecord().getIdentifier());
+		}
+		return result < 0;
+	}
+}
@@ -0,0 +1,305 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link OneToOneAssignment} that selects the correspondences with the maximal
+ * total similarity score (maximum-weight bipartite matching).
+ * 
+ * The correspondences are first split into the connected components of the
+ * bipartite graph formed by the records and the correspondences. Each
+ * component is solved independently with the Hungarian algorithm, which needs
+ * O(n^3) time and O(n^2) memory for a component with n records. A component
+ * with more than maxComponentSize records is rejected with an
+ * {@link IllegalArgumentException}, unless the greedy fallback is enabled: then
+ * it is assigned greedily (see {@link GreedyOneToOneAssignment}) and reported
+ * by {@link #getGreedyComponents()}. Correspondences with a score of 0 or less
+ * are never selected.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class OptimalOneToOneAssignment<RecordType extends Matchable> extends OneToOneAssignment<RecordType> {
+
+	private int maxComponentSize;
+	private boolean greedyFallback;
+	private List<List<Correspondence<RecordType>>> greedyComponents = new ArrayList<>();
+
+	/**
+	 * Creates an assignment that solves components of up to 2,000 records
+	 * optimally and rejects larger components.
+	 */
+	public OptimalOneToOneAssignment() {
+		this(2000);
+	}
+
+	/**
+	 * Creates an assignment that rejects components with more than
+	 * maxComponentSize records.
+	 * 
+	 * @param maxComponentSize
+	 *            the maximal number of records in a connected component that
+	 *            is solved optimally
+	 */
+	public OptimalOneToOneAssignment(int maxComponentSize) {
+		this(maxComponentSize, false);
+	}
+
+	/**
+	 * @param maxComponentSize
+	 *            the maximal number of records in a connected component that
+	 *            is solved optimally
+	 * @param greedyFallback
+	 *            if true, larger components are assigned greedily, otherwise
+	 *            they are rejected
+	 */
+	public OptimalOneToOneAssignment(int maxComponentSize, boolean greedyFallback) {
+		this.maxComponentSize = maxComponentSize;
+		this.greedyFallback = greedyFallback;
+	}
+
+	/**
+	 * Returns the components of the last call of
+	 * {@link #assign(Collection)} that exceeded the maximal size and were
+	 * assigned greedily. The result of these components is not necessarily
+	 * optimal.
+	 * 
+	 * @return
+	 */
+	public List<List<Correspondence<RecordType>>> getGreedyComponents() {
+		return greedyComponents;
+	}
+
+	@Override
+	public List<Correspondence<RecordType>> assign(Collection<Correspondence<RecordType>> correspondences) {
+		// assign a node id to every record, first data set: 0..n-1, second
+		// data set: n..m
+		Map<String, Integer> nodesFirst = new HashMap<>();
+		Map<String, Integer> nodesSecond = new HashMap<>();
+		for (Correspondence<RecordType> cor : correspondences) {
+			String id1 = cor.getFirstRecord().getIdentifier();
+			if (!nodesFirst.containsKey(id1)) {
+				nodesFirst.put(id1, nodesFirst.size());
+			}
+		}
+		for (Correspondence<RecordType> cor : correspondences) {
+			String id2 = cor.getSecondRecord().getIdentifier();
+			if (!nodesSecond.containsKey(id2)) {
+				nodesSecond.put(id2, nodesFirst.size() + nodesSecond.size());
+			}
+		}
+
+		// find the connected components
+		int[] parent = new int[nodesFirst.size() + nodesSecond.size()];
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+		}
+		for (Correspondence<RecordType> cor : correspondences) {
+			int n1 = find(parent, nodesFirst.get(cor.getFirstRecord().getIdentifier()));
+			int n2 = find(parent, nodesSecond.get(cor.getSecondRecord().getIdentifier()));
+			if (n1 != n2) {
+				parent[n2] = n1;
+			}
+		}
+
+		Map<Integer, List<Correspondence<RecordType>>> components = new HashMap<>();
+		for (Correspondence<RecordType> cor : correspondences) {
+			int root = find(parent, nodesFirst.get(cor.getFirstRecord().getIdentifier()));
+			List<Correspondence<RecordType>> component = components.get(root);
+			if (component == null) {
+				component = new ArrayList<>();
+				components.put(root, component);
+			}
+			component.add(cor);
+		}
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		GreedyOneToOneAssignment<RecordType> greedy = new GreedyOneToOneAssignment<>();
+		greedyComponents = new ArrayList<>();
+		for (List<Correspondence<RecordType>> component : components.values()) {
+			if (component.size() == 1) {
+				if (component.get(0).getSimilarityScore() > 0) {
+					result.add(component.get(0));
+				}
+			} else {
+				List<Correspondence<RecordType>> assigned = assignComponent(component);
+
+				if (assigned == null) {
+					if (!greedyFallback) {
+						throw new IllegalArgumentException(String.format(
+								"A component with %,d correspondences exceeds the maximal size of %,d records",
+								component.size(), maxComponentSize));
+					}
+					greedyComponents.add(component);
+					assigned = greedy.assign(component);
+				}
+
+				result.addAll(assigned);
+			}
+		}
+
+		sortByScore(result);
+		return result;
+	}
+
+	/**
+	 * Solves the assignment problem for one connected component
+	 * 
+	 * @param component
+	 * @return the selected correspondences or null if the component is too
+	 *         large
+	 */
+	private List<Correspondence<RecordType>> assignComponent(List<Correspondence<RecordType>> component) {
+		Map<String, Integer> rows = new HashMap<>();
+		Map<String, Integer> columns = new HashMap<>();
+		for (Correspondence<RecordType> cor : component) {
+			String id1 = cor.getFirstRecord().getIdentifier();
+			String id2 = cor.getSecondRecord().getIdentifier();
+			if (!rows.containsKey(id1)) {
+				rows.put(id1, rows.size());
+			}
+			if (!columns.containsKey(id2)) {
+				columns.put(id2, columns.size());
+			}
+		}
+
+		if (rows.size() + columns.size() > maxComponentSize) {
+			return null;
+		}
+
+		// the Hungarian algorithm requires at most as many rows as columns
+		boolean transposed = rows.size() > columns.size();
+		int n = transposed ? columns.size() : rows.size();
+		int m = transposed ? rows.size() : columns.size();
+
+		// costs are the negated scores, missing correspondences have cost 0
+		double[][] cost = new double[n][m];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Correspondence<RecordType>[][] edges = new Correspondence[n][m];
+		for (Correspondence<RecordType> cor : component) {
+			int r = rows.get(cor.getFirstRecord().getIdentifier());
+			int c = columns.get(cor.getSecondRecord().getIdentifier());
+			if (transposed) {
+				int tmp = r;
+				r = c;
+				c = tmp;
+			}
+			if (cor.getSimilarityScore() > 0 && (edges[r][c] == null || isBetter(cor, edges[r][c]))) {
+				edges[r][c] = cor;
+				cost[r][c] = -cor.getSimilarityScore();
+			}
+		}
+
+		int[] assignment = solve(cost, n, m);
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		for (int r = 0; r < n; r++) {
+			if (assignment[r] >= 0 && edges[r][assignment[r]] != null) {
+				result.add(edges[r][assignment[r]]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Hungarian algorithm (with potentials) for a cost matrix with n <= m
+	 * 
+	 * @return the column assigned to each row
+	 */
+	private int[] solve(double[][] cost, int n, int m) {
+		// 1-based arrays, index 0 is used as sentinel
+		double[] u = new double[n + 1];
+		double[] v = new double[m + 1];
+		int[] p = new int[m + 1];
+		int[] way = new int[m + 1];
+		double[] minv = new double[m + 1];
+		boolean[] used = new boolean[m + 1];
+
+		for (int i = 1; i <= n; i++) {
+			p[0] = i;
+			int j0 = 0;
+			Arrays.fill(minv, Double.POSITIVE_INFINITY);
+			Arrays.fill(used, false);
+
+			do {
+				used[j0] = true;
+				int i0 = p[j0];
+				double delta = Double.POSITIVE_INFINITY;
+				int j1 = 0;
+				for (int j = 1; j <= m; j++) {
+					if (!used[j]) {
+						double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+						if (cur < minv[j]) {
+							minv[j] = cur;
+							way[j] = j0;
+						}
+						if (minv[j] < delta) {
+							delta = minv[j];
+							j1 = j;
+						}
+					}
+				}
+				for (int j = 0; j <= m; j++) {
+					if (used[j]) {
+						u[p[j]] += delta;
+						v[j] -= delta;
+					} else {
+						minv[j] -= delta;
+					}
+				}
+				j0 = j1;
+			} while (p[j0] != 0);
+
+			do {
+				int j1 = way[j0];
+				p[j0] = p[j1];
+				j0 = j1;
+			} while (j0 != 0);
+		}
+
+		int[] assignment = new int[n];
+		Arrays.fill(assignment, -1);
+		for (int j = 1; j <= m; j++) {
+			if (p[j] != 0) {
+				assignment[p[j] - 1] = j - 1;
+			}
+		}
+		return assignment;
+	}
+
+	private int find(int[] parent, int node) {
+		while (parent[node] != node) {
+			// path halving
+			parent[node] = parent[parent[node]];
+			node = parent[node];
+		}
+		return node;
+	}
+
+}
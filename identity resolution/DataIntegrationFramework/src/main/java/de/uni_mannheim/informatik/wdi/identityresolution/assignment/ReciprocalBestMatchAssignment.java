@@ -0,0 +1,71 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.assignment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link OneToOneAssignment} that only keeps reciprocal best matches: a
+ * correspondence is selected if the second record is the best match for the
+ * first record and the first record is also the best match for the second
+ * record. Runs in linear time.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class ReciprocalBestMatchAssignment<RecordType extends Matchable> extends OneToOneAssignment<RecordType> {
+
+	@Override
+	public List<Correspondence<RecordType>> assign(Collection<Correspondence<RecordType>> correspondences) {
+		HashMap<String, Correspondence<RecordType>> bestForFirst = new HashMap<>();
+		HashMap<String, Correspondence<RecordType>> bestForSecond = new HashMap<>();
+
+		for (Correspondence<RecordType> cor : correspondences) {
+			String id1 = cor.getFirstRecord().getIdentifier();
+			String id2 = cor.getSecondRecord().getIdentifier();
+
+			Correspondence<RecordType> best1 = bestForFirst.get(id1);
+			if (best1 == null || isBetter(cor, best1)) {
+				bestForFirst.put(id1, cor);
+			}
+
+			Correspondence<RecordType> best2 = bestForSecond.get(id2);
+			if (best2 == null || isBetter(cor, best2)) {
+				bestForSecond.put(id2, cor);
+			}
+		}
+
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		for (Correspondence<RecordType> cor : bestForFirst.values()) {
+			if (bestForSecond.get(cor.getSecondRecord().getIdentifier()) == cor) {
+				result.add(cor);
+			}
+		}
+
+		sortByScore(result);
+		return result;
+	}
+
+}
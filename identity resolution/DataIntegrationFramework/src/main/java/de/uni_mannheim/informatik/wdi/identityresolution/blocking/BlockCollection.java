@@ -0,0 +1,234 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.List;
+import java.util.Map;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * The blocks that a multi-key {@link Blocker} created for a blocking
+ * operation, with all records referenced by their positions. Every record of
+ * the first data set is compared to the records in the blocks of its keys,
+ * i.e. the records of the second data set with the same key.
+ * 
+ * Created from the {@link InvertedIndex}es of the data sets and used to
+ * iterate over the pairs (see {@link BlockCollectionPairIterator}) or to build
+ * the blocking graph of the {@link MetaBlocker}.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+class BlockCollection<RecordType extends Matchable> {
+
+	/**
+	 * the records of the first data set
+	 */
+	List<RecordType> records1;
+
+	/**
+	 * the records of the second data set (the same list for duplicate
+	 * detection)
+	 */
+	List<RecordType> records2;
+
+	/**
+	 * the ids of the blocks of each record of the first data set
+	 */
+	int[][] recordBlocks;
+
+	/**
+	 * the positions of the records of the second data set in each block, in
+	 * ascending order, or null if the block was dropped or has no records in
+	 * the second data set
+	 */
+	int[][] blocks;
+
+	/**
+	 * the number of comparisons in each block
+	 */
+	long[] comparisons;
+
+	/**
+	 * the number of blocks (that were not dropped) of each record of the
+	 * first and second data set
+	 */
+	int[] numberOfBlocks1;
+	int[] numberOfBlocks2;
+
+	/**
+	 * true if both data sets are the same
+	 */
+	boolean sameDataSet;
+
+	/**
+	 * true if only one of the pairs (a,b) and (b,a) is created
+	 */
+	boolean symmetric;
+
+	/**
+	 * the number of blocks that were dropped because they contained too many
+	 * records
+	 */
+	int numberOfPurgedBlocks = 0;
+
+	/**
+	 * Creates the blocks for the comparison of two data sets. Blocks with
+	 * more records than the maximal block size are dropped.
+	 * 
+	 * @param index1
+	 *            the index of the first data set
+	 * @param index2
+	 *            the index of the second data set
+	 * @param maxBlockSize
+	 * @return
+	 */
+	static <RecordType extends Matchable> BlockCollection<RecordType> create(InvertedIndex<RecordType> index1,
+			InvertedIndex<RecordType> index2, int maxBlockSize) {
+		BlockCollection<RecordType> collection = new BlockCollection<>();
+		collection.records1 = index1.records;
+		collection.records2 = index2.records;
+		collection.recordBlocks = index1.recordBlocks;
+		collection.blocks = new int[index1.blocks.length][];
+		collection.comparisons = new long[index1.blocks.length];
+
+		// find the block of the second data set for every block of the first
+		// data set
+		boolean[] retained2 = new boolean[index2.blocks.length];
+		for (Map.Entry<Object, Integer> entry : index1.blockIds.entrySet()) {
+			Integer id2 = index2.blockIds.get(entry.getKey());
+			if (id2 != null) {
+				int[] block1 = index1.blocks[entry.getValue()];
+				int[] block2 = index2.blocks[id2];
+
+				if ((long) block1.length + block2.length <= maxBlockSize) {
+					collection.blocks[entry.getValue()] = block2;
+					collection.comparisons[entry.getValue()] = (long) block1.length * block2.length;
+					retained2[id2] = true;
+				} else {
+					collection.numberOfPurgedBlocks++;
+				}
+			}
+		}
+
+		collection.numberOfBlocks1 = countBlocks(index1.recordBlocks, collection.blocks);
+		collection.numberOfBlocks2 = new int[index2.records.size()];
+		for (int i = 0; i < index2.recordBlocks.length; i++) {
+			for (int b : index2.recordBlocks[i]) {
+				if (retained2[b]) {
+					collection.numberOfBlocks2[i]++;
+				}
+			}
+		}
+
+		return collection;
+	}
+
+	/**
+	 * Creates the blocks for the duplicate detection in a data set. Blocks
+	 * with more records than the maximal block size are dropped.
+	 * 
+	 * @param index
+	 * @param isSymmetric
+	 * @param maxBlockSize
+	 * @return
+	 */
+	static <RecordType extends Matchable> BlockCollection<RecordType> create(InvertedIndex<RecordType> index,
+			boolean isSymmetric, int maxBlockSize) {
+		BlockCollection<RecordType> collection = new BlockCollection<>();
+		collection.records1 = index.records;
+		collection.records2 = index.records;
+		collection.recordBlocks = index.recordBlocks;
+		collection.blocks = new int[index.blocks.length][];
+		collection.comparisons = new long[index.blocks.length];
+		collection.sameDataSet = true;
+		collection.symmetric = isSymmetric;
+
+		for (int b = 0; b < index.blocks.length; b++) {
+			long size = index.blocks[b].length;
+			if (size <= maxBlockSize) {
+				collection.blocks[b] = index.blocks[b];
+				collection.comparisons[b] = isSymmetric ? size * (size - 1) / 2 : size * (size - 1);
+			} else {
+				collection.numberOfPurgedBlocks++;
+			}
+		}
+
+		collection.numberOfBlocks1 = countBlocks(index.recordBlocks, collection.blocks);
+		collection.numberOfBlocks2 = collection.numberOfBlocks1;
+
+		return collection;
+	}
+
+	/**
+	 * Counts the blocks of each record which were not dropped
+	 * 
+	 * @param recordBlocks
+	 * @param blocks
+	 * @return
+	 */
+	private static int[] countBlocks(int[][] recordBlocks, int[][] blocks) {
+		int[] counts = new int[recordBlocks.length];
+		for (int i = 0; i < recordBlocks.length; i++) {
+			for (int b : recordBlocks[i]) {
+				if (blocks[b] != null) {
+					counts[i]++;
+				}
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns true if the record of the first data set at position1 should be
+	 * compared to the record of the second data set at position2 if they share
+	 * a block
+	 * 
+	 * @param position1
+	 * @param position2
+	 * @return
+	 */
+	boolean isCandidate(int position1, int position2) {
+		if (sameDataSet) {
+			return symmetric ? position2 > position1 : position2 != position1;
+		} else {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the number of blocks of all records of both data sets, which is
+	 * the sum of the block sizes
+	 * 
+	 * @return
+	 */
+	long getTotalBlockAssignments() {
+		long sum = 0;
+		for (int n : numberOfBlocks1) {
+			sum += n;
+		}
+		if (!sameDataSet) {
+			for (int n : numberOfBlocks2) {
+				sum += n;
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,88 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Arrays;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Creates the pairs of a {@link BlockCollection} one record after another.
+ * For each record of the first data set, the candidates are collected from its
+ * blocks. Candidates that were already found via another block are skipped.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+abstract class BlockCollectionPairIterator<RecordType extends Matchable> extends PairIterator<RecordType> {
+
+	private BlockCollection<RecordType> collection;
+
+	/**
+	 * marks[candidate] == record + 1 if the candidate was already collected
+	 * for the current record, so the marks never have to be reset
+	 */
+	private int[] marks;
+	private int[] candidates = new int[16];
+	private int numberOfCandidates = 0;
+	private int position = 0;
+	private int record = -1;
+
+	public BlockCollectionPairIterator(BlockCollection<RecordType> collection) {
+		this.collection = collection;
+		this.marks = new int[collection.records2.size()];
+	}
+
+	@Override
+	protected Pair<RecordType, RecordType> computeNext() {
+		while (position == numberOfCandidates) {
+			if (++record == collection.records1.size()) {
+				return null;
+			}
+			collectCandidates();
+		}
+
+		return new Pair<RecordType, RecordType>(collection.records1.get(record),
+				collection.records2.get(candidates[position++]));
+	}
+
+	private void collectCandidates() {
+		int mark = record + 1;
+		numberOfCandidates = 0;
+		position = 0;
+
+		for (int b : collection.recordBlocks[record]) {
+			int[] block = collection.blocks[b];
+			if (block == null) {
+				continue;
+			}
+
+			for (int candidate : block) {
+				if (marks[candidate] != mark && collection.isCandidate(record, candidate)) {
+					marks[candidate] = mark;
+					if (numberOfCandidates == candidates.length) {
+						candidates = Arrays.copyOf(candidates, candidates.length * 2);
+					}
+					candidates[numberOfCandidates++] = candidate;
+				}
+			}
+		}
+	}
+}
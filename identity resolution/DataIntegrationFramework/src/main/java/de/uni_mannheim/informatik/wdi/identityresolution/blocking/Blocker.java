@@ -17,7 +17,11 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.model.DataSet;
@@ -32,6 +36,20 @@ import de.uni_mannheim.informatik.wdi.model.Record;
  * {@link DataSet}s, where it is used to determ the candidate pairs for identity
  * resolution.
  * 
+ * Pairs can either be generated as a complete list or streamed through an
+ * {@link Iterator} ({@link #iteratePairs(DataSet, DataSet)}), which creates
+ * them on demand. Sub classes that override the iteratePairs(...) methods with
+ * a lazy {@link PairIterator} allow the matching of data sets whose candidate
+ * pairs do not fit into memory. The default implementations simply iterate
+ * over the result of generatePairs(...).
+ * 
+ * If several blocking operations use the same data sets (like the
+ * multi-source matching of the MatchingEngine), sub classes can keep the index
+ * they build for a data set (blocking keys, blocks, sorted key lists) with
+ * {@link #retainIndex(DataSet, Object)} while
+ * {@link #setRetainIndexes(boolean)} is enabled, and re-use it in the
+ * following operations.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * @author Robert Meusel (robert@dwslab.de)
  * 
@@ -41,6 +59,59 @@ public abstract class Blocker<RecordType extends Matchable> {
 
 	private double reductionRatio = 1.0;
 
+	private Map<DataSet<RecordType>, Object> retainedIndexes = null;
+
+	/**
+	 * Enables or disables the re-use of the indexes that are built for data
+	 * sets. Disabling it releases all retained indexes. The data sets must
+	 * not be changed while the re-use is enabled.
+	 * 
+	 * @param retainIndexes
+	 */
+	public void setRetainIndexes(boolean retainIndexes) {
+		if (retainIndexes) {
+			if (retainedIndexes == null) {
+				retainedIndexes = new IdentityHashMap<>();
+			}
+		} else {
+			retainedIndexes = null;
+		}
+	}
+
+	public boolean isRetainIndexes() {
+		return retainedIndexes != null;
+	}
+
+	/**
+	 * Returns the index that was retained for the data set, or null if there
+	 * is none
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected <IndexType> IndexType getRetainedIndex(DataSet<RecordType> dataset) {
+		if (retainedIndexes == null) {
+			return null;
+		} else {
+			return (IndexType) retainedIndexes.get(dataset);
+		}
+	}
+
+	/**
+	 * Keeps the index of the data set for the following blocking operations,
+	 * if the re-use of indexes is enabled. The index must not be modified
+	 * afterwards.
+	 * 
+	 * @param dataset
+	 * @param index
+	 */
+	protected void retainIndex(DataSet<RecordType> dataset, Object index) {
+		if (retainedIndexes != null) {
+			retainedIndexes.put(dataset, index);
+		}
+	}
+
 	/**
 	 * Returns the reduction ratio of the last blocking operation. Only
 	 * available after calculatePerformance(...) has been called.
@@ -51,6 +122,18 @@ public abstract class Blocker<RecordType extends Matchable> {
 		return reductionRatio;
 	}
 
+	/**
+	 * Returns a description of the configuration of this blocker. A matching
+	 * run is only resumed from a checkpoint if the fingerprint of the blocker
+	 * did not change. Sub classes with parameters should add all parameters
+	 * that change the pairs or their order.
+	 * 
+	 * @return
+	 */
+	public String getFingerprint() {
+		return getClass().getName();
+	}
+
 	/**
 	 * Generates the pairs of {@link Record}s between two {@link DataSet}s that
 	 * should be compared according to this blocking strategy.
@@ -81,6 +164,54 @@ public abstract class Blocker<RecordType extends Matchable> {
 	 */
 	public abstract List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric);
 
+	/**
+	 * Streams the pairs of {@link Record}s between two {@link DataSet}s that
+	 * should be compared according to this blocking strategy. The reduction
+	 * ratio is available after the iterator has been consumed completely.
+	 * 
+	 * @param dataset1
+	 *            the first data set
+	 * @param dataset2
+	 *            the second data set
+	 * @return an iterator over the pairs that result from the blocking
+	 */
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(DataSet<RecordType> dataset1,
+			DataSet<RecordType> dataset2) {
+		return generatePairs(dataset1, dataset2).iterator();
+	}
+
+	/**
+	 * Streams the pairs of {@link Record}s within a {@link DataSet} that should
+	 * be compared according to this blocking strategy. The reduction ratio is
+	 * available after the iterator has been consumed completely.
+	 * 
+	 * @param dataset
+	 *            the dataset including the {@link Record}s which should be
+	 *            compared.
+	 * @param isSymmetric
+	 *            states if it can be assumed that the later comparison of a and
+	 *            b is equal to the comparison of b and a.
+	 * @return an iterator over the pairs that result from the blocking
+	 */
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		return generatePairs(dataset, isSymmetric).iterator();
+	}
+
+	/**
+	 * Collects all pairs of the iterator in a list. Can be used by sub classes
+	 * which implement generatePairs(...) based on iteratePairs(...).
+	 * 
+	 * @param pairs
+	 * @return
+	 */
+	protected List<Pair<RecordType, RecordType>> collectPairs(Iterator<Pair<RecordType, RecordType>> pairs) {
+		List<Pair<RecordType, RecordType>> result = new LinkedList<>();
+		while (pairs.hasNext()) {
+			result.add(pairs.next());
+		}
+		return result;
+	}
+
 	/**
 	 * Calculates the reduction ratio. Must be called by all sub classes in
 	 * generatePairs(...).
@@ -94,10 +225,26 @@ public abstract class Blocker<RecordType extends Matchable> {
 	 */
 	protected void calculatePerformance(DataSet<RecordType> dataset1, DataSet<RecordType> dataset2,
 			List<Pair<RecordType, RecordType>> blockedPairs) {
+		calculatePerformance(dataset1, dataset2, blockedPairs.size());
+	}
+
+	/**
+	 * Calculates the reduction ratio from the number of blocked pairs. Must be
+	 * called by all sub classes once their {@link PairIterator} is exhausted.
+	 * 
+	 * @param dataset1
+	 *            the first data set
+	 * @param dataset2
+	 *            the second data set
+	 * @param numberOfBlockedPairs
+	 *            the number of pairs that resulted from the blocking
+	 */
+	protected void calculatePerformance(DataSet<RecordType> dataset1, DataSet<RecordType> dataset2,
+			long numberOfBlockedPairs) {
 		long maxPairs = (long) dataset1.getSize() * (long) dataset2.getSize();
 
 		// reductionRatio = (double) maxPairs / (double) blockedPairs.size();
 
-		reductionRatio = 1.0 - ((double) blockedPairs.size() / (double) maxPairs);
+		reductionRatio = 1.0 - ((double) numberOfBlockedPairs / (double) maxPairs);
 	}
 }
@@ -21,25 +21,39 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine;
 import de.uni_mannheim.informatik.wdi.model.Matchable;
 import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
 import de.uni_mannheim.informatik.wdi.model.Pair;
-import de.uni_mannheim.informatik.wdi.model.Performance;
 
 /**
  * Evaluates a set of {@link Correspondence}s against a
  * {@link MatchingGoldStandard}.
  * 
+ * The evaluator can either evaluate a complete list of pairs (see
+ * {@link #evaluateBlocking(List, MatchingGoldStandard)}) or be registered as
+ * {@link PairTap} at the {@link MatchingEngine}, in which case it observes the
+ * pairs while they are streamed from the blocker to the matching rule. In the
+ * latter case, {@link #startEvaluation(MatchingGoldStandard)} must be called
+ * before the matching and {@link #finishEvaluation()} afterwards.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * @author Simon Geisler (simon-geisler@t-online.de)
  * 
  * @param <RecordType>
  */
-public class BlockingEvaluator<RecordType extends Matchable> {
+public class BlockingEvaluator<RecordType extends Matchable> implements PairTap<RecordType> {
 
 	private boolean verbose = false;
 	private BlockingKeyGenerator<RecordType> blockingFunction = null;
 
+	private MatchingGoldStandard goldStandard = null;
+	private int correct = 0;
+	private int matched = 0;
+	// keep a list of all unmatched positives for later output
+	private List<Pair<String, String>> positives = null;
+
 	public BlockingEvaluator() {
 	}
 
@@ -60,53 +74,76 @@ public class BlockingEvaluator<RecordType extends Matchable> {
 	public BlockingPerformance evaluateBlocking(
 			List<Pair<RecordType, RecordType>> blockingPairs,
 			MatchingGoldStandard goldStandard) {
-		int correct = 0;
-		int matched = 0;
-		int correct_max = goldStandard.getPositiveExamples().size();
-
-		// keep a list of all unmatched positives for later output
-		List<Pair<String, String>> positives = new ArrayList<>(goldStandard.getPositiveExamples());
+		startEvaluation(goldStandard);
 
 		for (Pair<RecordType, RecordType> pair : blockingPairs) {
-			if (goldStandard.containsPositive(pair.getFirst(), pair.getSecond())) {
-				correct++;
-				matched++;
-
-				if (verbose) {
-					System.out.println(String
-							.format("[correct] %s:%s,%s:%s", pair.getFirst().getIdentifier(),
-									blockingFunction.getBlockingKey(pair.getFirst()),
-									pair.getSecond().getIdentifier(), 
-									blockingFunction.getBlockingKey(pair.getSecond())));
-
-					// remove pair from positives
-					Iterator<Pair<String, String>> it = positives.iterator();
-					while (it.hasNext()) {
-						Pair<String, String> p = it.next();
-						String id1 = pair.getFirst().getIdentifier();
-						String id2 = pair.getSecond().getIdentifier();
-
-						if (p.getFirst().equals(id1)
-								&& p.getSecond().equals(id2)
-								|| p.getFirst().equals(id2)
-								&& p.getSecond().equals(id1)) {
-							it.remove();
-						}
+			pairGenerated(pair);
+		}
+
+		return finishEvaluation();
+	}
+
+	/**
+	 * Starts an incremental evaluation against the gold standard. All pairs
+	 * passed to {@link #pairGenerated(Pair)} afterwards are evaluated.
+	 * 
+	 * @param goldStandard
+	 *            the gold standard
+	 */
+	public void startEvaluation(MatchingGoldStandard goldStandard) {
+		this.goldStandard = goldStandard;
+		correct = 0;
+		matched = 0;
+		positives = new ArrayList<>(goldStandard.getPositiveExamples());
+	}
+
+	@Override
+	public void pairGenerated(Pair<RecordType, RecordType> pair) {
+		if (goldStandard.containsPositive(pair.getFirst(), pair.getSecond())) {
+			correct++;
+			matched++;
+
+			if (verbose) {
+				System.out.println(String
+						.format("[correct] %s:%s,%s:%s", pair.getFirst().getIdentifier(),
+								blockingFunction.getBlockingKey(pair.getFirst()),
+								pair.getSecond().getIdentifier(), 
+								blockingFunction.getBlockingKey(pair.getSecond())));
+
+				// remove pair from positives
+				Iterator<Pair<String, String>> it = positives.iterator();
+				while (it.hasNext()) {
+					Pair<String, String> p = it.next();
+					String id1 = pair.getFirst().getIdentifier();
+					String id2 = pair.getSecond().getIdentifier();
+
+					if (p.getFirst().equals(id1)
+							&& p.getSecond().equals(id2)
+							|| p.getFirst().equals(id2)
+							&& p.getSecond().equals(id1)) {
+						it.remove();
 					}
 				}
-			} else if (goldStandard.containsNegative(pair.getFirst(), pair.getSecond())) {
-				matched++;
-
-				if (verbose) {
-					System.out.println(String
-							.format("[correct] %s:%s,%s:%s", pair.getFirst().getIdentifier(),
-									blockingFunction.getBlockingKey(pair.getFirst()),
-									pair.getSecond().getIdentifier(), 
-									blockingFunction.getBlockingKey(pair.getSecond())));
-				}
+			}
+		} else if (goldStandard.containsNegative(pair.getFirst(), pair.getSecond())) {
+			matched++;
+
+			if (verbose) {
+				System.out.println(String
+						.format("[correct] %s:%s,%s:%s", pair.getFirst().getIdentifier(),
+								blockingFunction.getBlockingKey(pair.getFirst()),
+								pair.getSecond().getIdentifier(), 
+								blockingFunction.getBlockingKey(pair.getSecond())));
 			}
 		}
+	}
 
+	/**
+	 * Finishes an incremental evaluation and returns its result
+	 * 
+	 * @return the result of the evaluation
+	 */
+	public BlockingPerformance finishEvaluation() {
 		if (verbose) {
 			// print all missing positive examples
 			for (Pair<String, String> p : positives) {
@@ -115,7 +152,7 @@ public class BlockingEvaluator<RecordType extends Matchable> {
 			}
 		}
 
-		return new BlockingPerformance(correct, matched, correct_max);
+		return new BlockingPerformance(correct, matched, goldStandard.getPositiveExamples().size());
 	}
 
 }
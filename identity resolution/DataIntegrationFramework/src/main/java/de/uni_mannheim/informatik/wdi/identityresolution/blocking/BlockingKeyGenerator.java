@@ -38,4 +38,16 @@ public abstract class BlockingKeyGenerator<RecordType extends Matchable> {
 	 */
 	public abstract String getBlockingKey(RecordType instance);
 
+	/**
+	 * Returns a description of the configuration of this generator. Cached
+	 * blocking keys (see {@link CachingBlockingKeyGenerator}) are only reused
+	 * if the fingerprint did not change. Sub classes with parameters should
+	 * add all parameters that change the keys.
+	 * 
+	 * @return
+	 */
+	public String getFingerprint() {
+		return getClass().getName();
+	}
+
 }
@@ -0,0 +1,211 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * The estimated costs of blocking with a {@link BlockingKeyGenerator}, as
+ * computed by the {@link BlockingPlanner} before any pair is generated.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class BlockingPlan<RecordType extends Matchable> {
+
+	private BlockingKeyGenerator<RecordType> blockingFunction;
+	private SortedMap<Integer, Integer> blockSizes1;
+	private SortedMap<Integer, Integer> blockSizes2;
+	private long numberOfPairs;
+	private long largestBlock;
+	private long estimatedMemory;
+	private double nanosPerPair;
+	private double pairCompleteness;
+	private String rejection;
+
+	BlockingPlan(BlockingKeyGenerator<RecordType> blockingFunction,
+			SortedMap<Integer, Integer> blockSizes1,
+			SortedMap<Integer, Integer> blockSizes2, long numberOfPairs,
+			long largestBlock, long estimatedMemory, double nanosPerPair,
+			double pairCompleteness, String rejection) {
+		this.blockingFunction = blockingFunction;
+		this.blockSizes1 = blockSizes1;
+		this.blockSizes2 = blockSizes2;
+		this.numberOfPairs = numberOfPairs;
+		this.largestBlock = largestBlock;
+		this.estimatedMemory = estimatedMemory;
+		this.nanosPerPair = nanosPerPair;
+		this.pairCompleteness = pairCompleteness;
+		this.rejection = rejection;
+	}
+
+	public BlockingKeyGenerator<RecordType> getBlockingFunction() {
+		return blockingFunction;
+	}
+
+	/**
+	 * Returns the histogram of the block sizes of the first data set: the
+	 * number of blocks (value) with a certain number of records (key)
+	 * 
+	 * @return
+	 */
+	public SortedMap<Integer, Integer> getBlockSizes1() {
+		return blockSizes1;
+	}
+
+	/**
+	 * Returns the histogram of the block sizes of the second data set, which
+	 * is the same as {@link #getBlockSizes1()} for a single data set
+	 * 
+	 * @return
+	 */
+	public SortedMap<Integer, Integer> getBlockSizes2() {
+		return blockSizes2;
+	}
+
+	/**
+	 * Returns the exact number of pairs that a {@link StandardBlocker} with
+	 * the blocking function creates
+	 * 
+	 * @return
+	 */
+	public long getNumberOfPairs() {
+		return numberOfPairs;
+	}
+
+	/**
+	 * Returns the number of pairs of the largest block
+	 * 
+	 * @return
+	 */
+	public long getLargestBlock() {
+		return largestBlock;
+	}
+
+	/**
+	 * Returns the estimated number of bytes needed to hold all pairs in the
+	 * list that is returned by generatePairs(...)
+	 * 
+	 * @return
+	 */
+	public long getEstimatedMemory() {
+		return estimatedMemory;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds that the matching rule needed
+	 * for one of the sampled pairs, or NaN if no matching rule was given
+	 * 
+	 * @return
+	 */
+	public double getNanosPerPair() {
+		return nanosPerPair;
+	}
+
+	/**
+	 * Returns the estimated time in milliseconds that a single thread needs
+	 * to apply the matching rule to all pairs, or NaN if no matching rule was
+	 * given
+	 * 
+	 * @return
+	 */
+	public double getEstimatedMatchingTime() {
+		return nanosPerPair * numberOfPairs / 1e6;
+	}
+
+	/**
+	 * Returns the fraction of the positive examples of the gold standard that
+	 * have the same blocking key, or NaN if no gold standard was given
+	 * 
+	 * @return
+	 */
+	public double getPairCompleteness() {
+		return pairCompleteness;
+	}
+
+	/**
+	 * Returns true if the plan is within the budget of the planner
+	 * 
+	 * @return
+	 */
+	public boolean isAccepted() {
+		return rejection == null;
+	}
+
+	/**
+	 * Returns the reason why the plan exceeds the budget of the planner, or
+	 * null if it was accepted
+	 * 
+	 * @return
+	 */
+	public String getRejection() {
+		return rejection;
+	}
+
+	/**
+	 * Creates a {@link StandardBlocker} with the blocking function
+	 * 
+	 * @return
+	 */
+	public StandardBlocker<RecordType> createBlocker() {
+		return new StandardBlocker<>(blockingFunction);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(String.format("%s: %,d pairs (largest block: %,d), %,d MB",
+				blockingFunction.getClass().getSimpleName(), numberOfPairs,
+				largestBlock, estimatedMemory / (1024 * 1024)));
+		if (!Double.isNaN(nanosPerPair)) {
+			sb.append(String.format(", %,.0f ms matching",
+					getEstimatedMatchingTime()));
+		}
+		if (!Double.isNaN(pairCompleteness)) {
+			sb.append(String.format(", pair completeness %.4f",
+					pairCompleteness));
+		}
+		if (rejection != null) {
+			sb.append(" [rejected: ").append(rejection).append("]");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a block size histogram as "size:blocks" entries
+	 * 
+	 * @param blockSizes
+	 * @return
+	 */
+	public static String formatBlockSizes(SortedMap<Integer, Integer> blockSizes) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<Integer, Integer> entry : blockSizes.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(" ");
+			}
+			sb.append(entry.getKey()).append(":").append(entry.getValue());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,444 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.LinearCombinationMatchingRule;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingRule;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Estimates the costs of blocking with a {@link BlockingKeyGenerator} before
+ * any pair is generated. The planner computes the blocking keys of all records
+ * once and groups them into blocks, which takes linear time. From the block
+ * sizes, it calculates the exact number of pairs of a {@link StandardBlocker}
+ * and the memory needed for them.
+ * 
+ * If a {@link MatchingRule} is given, the rule is applied to a random sample
+ * of the pairs to estimate the matching time. The sampled records are
+ * prepared for the rule (see {@link MatchingRule#prepare(java.util.Collection)})
+ * and the rule is applied once to all pairs before it is timed, so the
+ * estimate reflects the matching of prepared records in a warm JVM. Afterwards,
+ * the prepared records are released and the statistics of a
+ * {@link LinearCombinationMatchingRule} are reset, so the sample does not
+ * decide its evaluation order. If a
+ * {@link MatchingGoldStandard} is given, the planner also calculates the
+ * fraction of the positive examples that end up in the same block.
+ * 
+ * Plans that exceed the maximal number of pairs or the maximal matching time
+ * are rejected. {@link #recommend(List, DataSet, DataSet)} chooses the best
+ * accepted plan from several candidates.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class BlockingPlanner<RecordType extends Matchable> {
+
+	/**
+	 * The size of a {@link Pair} and of its entry in a
+	 * {@link java.util.LinkedList}, assuming compressed references
+	 */
+	private static final int BYTES_PER_PAIR = 48;
+
+	private long maxPairs = Long.MAX_VALUE;
+	private double maxMatchingTime = Double.POSITIVE_INFINITY;
+
+	private MatchingRule<RecordType> rule = null;
+	private int sampleSize = 1000;
+	private MatchingGoldStandard goldStandard = null;
+
+	/**
+	 * Sets the maximal number of pairs of an accepted plan
+	 * 
+	 * @param maxPairs
+	 */
+	public void setMaxPairs(long maxPairs) {
+		this.maxPairs = maxPairs;
+	}
+
+	/**
+	 * Sets the maximal estimated matching time (in milliseconds) of an
+	 * accepted plan. Only used if a matching rule is given.
+	 * 
+	 * @param maxMatchingTime
+	 */
+	public void setMaxMatchingTime(double maxMatchingTime) {
+		this.maxMatchingTime = maxMatchingTime;
+	}
+
+	/**
+	 * Sets the matching rule that is used to estimate the matching time
+	 * 
+	 * @param rule
+	 * @param sampleSize
+	 *            the number of pairs that are compared for the estimate
+	 */
+	public void setMatchingRule(MatchingRule<RecordType> rule, int sampleSize) {
+		this.rule = rule;
+		this.sampleSize = sampleSize;
+	}
+
+	/**
+	 * Sets the gold standard that is used to calculate the pair completeness
+	 * 
+	 * @param goldStandard
+	 */
+	public void setGoldStandard(MatchingGoldStandard goldStandard) {
+		this.goldStandard = goldStandard;
+	}
+
+	/**
+	 * Estimates the costs of blocking two data sets with the blocking function
+	 * 
+	 * @param blockingFunction
+	 * @param dataset1
+	 * @param dataset2
+	 * @return
+	 */
+	public BlockingPlan<RecordType> plan(
+			BlockingKeyGenerator<RecordType> blockingFunction,
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		Map<String, List<RecordType>> blocks1 = createBlocks(blockingFunction,
+				dataset1);
+		Map<String, List<RecordType>> blocks2 = createBlocks(blockingFunction,
+				dataset2);
+
+		List<List<RecordType>> firsts = new ArrayList<>();
+		List<List<RecordType>> seconds = new ArrayList<>();
+		for (Map.Entry<String, List<RecordType>> entry : blocks1.entrySet()) {
+			List<RecordType> block2 = blocks2.get(entry.getKey());
+			if (block2 != null) {
+				firsts.add(entry.getValue());
+				seconds.add(block2);
+			}
+		}
+
+		return createPlan(blockingFunction, getBlockSizes(blocks1),
+				getBlockSizes(blocks2), firsts, seconds, dataset1, dataset2);
+	}
+
+	/**
+	 * Estimates the costs of blocking one data set with the blocking function
+	 * 
+	 * @param blockingFunction
+	 * @param dataset
+	 * @param isSymmetric
+	 *            see {@link Blocker#generatePairs(DataSet, boolean)}
+	 * @return
+	 */
+	public BlockingPlan<RecordType> plan(
+			BlockingKeyGenerator<RecordType> blockingFunction,
+			DataSet<RecordType> dataset, boolean isSymmetric) {
+		Map<String, List<RecordType>> blocks = createBlocks(blockingFunction,
+				dataset);
+
+		List<List<RecordType>> firsts = new ArrayList<>(blocks.values());
+		// symmetric blocks are marked by a missing second block
+		List<List<RecordType>> seconds = new ArrayList<>(firsts.size());
+		for (List<RecordType> block : firsts) {
+			seconds.add(isSymmetric ? null : block);
+		}
+
+		SortedMap<Integer, Integer> blockSizes = getBlockSizes(blocks);
+
+		return createPlan(blockingFunction, blockSizes, blockSizes, firsts,
+				seconds, dataset, dataset);
+	}
+
+	/**
+	 * Plans all candidates and returns the best accepted plan, or null if all
+	 * plans were rejected. With a gold standard, the plan with the highest
+	 * pair completeness (and then the fewest pairs) is chosen. Otherwise, the
+	 * plan with the most pairs is chosen, as it is the least likely to miss
+	 * matches.
+	 * 
+	 * @param candidates
+	 * @param dataset1
+	 * @param dataset2
+	 * @return
+	 */
+	public BlockingPlan<RecordType> recommend(
+			List<BlockingKeyGenerator<RecordType>> candidates,
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		List<BlockingPlan<RecordType>> plans = new ArrayList<>();
+		for (BlockingKeyGenerator<RecordType> candidate : candidates) {
+			plans.add(plan(candidate, dataset1, dataset2));
+		}
+		return chooseBest(plans);
+	}
+
+	/**
+	 * Plans all candidates for one data set and returns the best accepted
+	 * plan, or null if all plans were rejected. See
+	 * {@link #recommend(List, DataSet, DataSet)}.
+	 * 
+	 * @param candidates
+	 * @param dataset
+	 * @param isSymmetric
+	 * @return
+	 */
+	public BlockingPlan<RecordType> recommend(
+			List<BlockingKeyGenerator<RecordType>> candidates,
+			DataSet<RecordType> dataset, boolean isSymmetric) {
+		List<BlockingPlan<RecordType>> plans = new ArrayList<>();
+		for (BlockingKeyGenerator<RecordType> candidate : candidates) {
+			plans.add(plan(candidate, dataset, isSymmetric));
+		}
+		return chooseBest(plans);
+	}
+
+	private BlockingPlan<RecordType> chooseBest(
+			List<BlockingPlan<RecordType>> plans) {
+		BlockingPlan<RecordType> best = null;
+
+		for (BlockingPlan<RecordType> plan : plans) {
+			if (!plan.isAccepted()) {
+				continue;
+			}
+
+			if (best == null) {
+				best = plan;
+			} else if (goldStandard != null) {
+				if (plan.getPairCompleteness() > best.getPairCompleteness()
+						|| plan.getPairCompleteness() == best
+								.getPairCompleteness()
+						&& plan.getNumberOfPairs() < best.getNumberOfPairs()) {
+					best = plan;
+				}
+			} else if (plan.getNumberOfPairs() > best.getNumberOfPairs()) {
+				best = plan;
+			}
+		}
+
+		return best;
+	}
+
+	private Map<String, List<RecordType>> createBlocks(
+			BlockingKeyGenerator<RecordType> blockingFunction,
+			DataSet<RecordType> dataset) {
+		Map<String, List<RecordType>> blocks = new HashMap<>();
+
+		for (RecordType record : dataset.getRecords()) {
+			String key = blockingFunction.getBlockingKey(record);
+
+			List<RecordType> block = blocks.get(key);
+			if (block == null) {
+				block = new ArrayList<>();
+				blocks.put(key, block);
+			}
+			block.add(record);
+		}
+
+		return blocks;
+	}
+
+	private SortedMap<Integer, Integer> getBlockSizes(
+			Map<String, List<RecordType>> blocks) {
+		SortedMap<Integer, Integer> blockSizes = new TreeMap<>();
+
+		for (List<RecordType> block : blocks.values()) {
+			Integer count = blockSizes.get(block.size());
+			blockSizes.put(block.size(), count == null ? 1 : count + 1);
+		}
+
+		return blockSizes;
+	}
+
+	/**
+	 * Returns the number of pairs of a block
+	 * 
+	 * @param first
+	 * @param second
+	 *            the block of the second data set, or null for the pairs
+	 *            within the first block
+	 * @return
+	 */
+	private static long getNumberOfPairs(List<?> first, List<?> second) {
+		long n = first.size();
+		if (second == null) {
+			return n * (n - 1) / 2;
+		} else {
+			return n * second.size();
+		}
+	}
+
+	private BlockingPlan<RecordType> createPlan(
+			BlockingKeyGenerator<RecordType> blockingFunction,
+			SortedMap<Integer, Integer> blockSizes1,
+			SortedMap<Integer, Integer> blockSizes2,
+			List<List<RecordType>> firsts, List<List<RecordType>> seconds,
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		// the blocks that create pairs and the number of pairs up to and
+		// including each of them, for sampling
+		List<List<RecordType>> sampleFirsts = new ArrayList<>();
+		List<List<RecordType>> sampleSeconds = new ArrayList<>();
+		long[] cumulativePairs = new long[firsts.size()];
+		long numberOfPairs = 0;
+		long largestBlock = 0;
+		for (int i = 0; i < firsts.size(); i++) {
+			long pairs = getNumberOfPairs(firsts.get(i), seconds.get(i));
+			if (pairs > 0) {
+				numberOfPairs += pairs;
+				largestBlock = Math.max(largestBlock, pairs);
+				cumulativePairs[sampleFirsts.size()] = numberOfPairs;
+				sampleFirsts.add(firsts.get(i));
+				sampleSeconds.add(seconds.get(i));
+			}
+		}
+
+		double nanosPerPair = Double.NaN;
+		if (rule != null) {
+			nanosPerPair = measureMatchingCost(sampleFirsts, sampleSeconds,
+					Arrays.copyOf(cumulativePairs, sampleFirsts.size()),
+					numberOfPairs);
+		}
+
+		double pairCompleteness = Double.NaN;
+		if (goldStandard != null) {
+			pairCompleteness = getPairCompleteness(blockingFunction, dataset1,
+					dataset2);
+		}
+
+		String rejection = null;
+		double matchingTime = nanosPerPair * numberOfPairs / 1e6;
+		if (numberOfPairs > maxPairs) {
+			rejection = String.format("%,d pairs exceed the maximum of %,d",
+					numberOfPairs, maxPairs);
+		} else if (!Double.isNaN(nanosPerPair)
+				&& matchingTime > maxMatchingTime) {
+			rejection = String.format(
+					"%,.0f ms matching time exceed the maximum of %,.0f ms",
+					matchingTime, maxMatchingTime);
+		}
+
+		return new BlockingPlan<>(blockingFunction, blockSizes1, blockSizes2,
+				numberOfPairs, largestBlock, numberOfPairs * BYTES_PER_PAIR,
+				nanosPerPair, pairCompleteness, rejection);
+	}
+
+	/**
+	 * Applies the matching rule to random pairs of the blocks and returns the
+	 * average time per pair in nanoseconds
+	 */
+	private double measureMatchingCost(List<List<RecordType>> firsts,
+			List<List<RecordType>> seconds, long[] cumulativePairs,
+			long numberOfPairs) {
+		if (numberOfPairs == 0 || sampleSize <= 0) {
+			return 0.0;
+		}
+
+		// draw the sample first, so only the rule is timed
+		Random random = new Random(0);
+		List<Pair<RecordType, RecordType>> sample = new ArrayList<>(sampleSize);
+		for (int i = 0; i < sampleSize; i++) {
+			long p = (long) (random.nextDouble() * numberOfPairs);
+			int b = Arrays.binarySearch(cumulativePairs, p + 1);
+			if (b < 0) {
+				b = -b - 1;
+			}
+
+			List<RecordType> first = firsts.get(b);
+			List<RecordType> second = seconds.get(b);
+			if (second == null) {
+				int r1 = random.nextInt(first.size());
+				int r2 = random.nextInt(first.size() - 1);
+				sample.add(new Pair<>(first.get(r1), first.get(r2 < r1 ? r2
+						: r2 + 1)));
+			} else {
+				sample.add(new Pair<>(first.get(random.nextInt(first.size())),
+						second.get(random.nextInt(second.size()))));
+			}
+		}
+
+		// prepare the records like the matching engine does
+		Set<RecordType> records = Collections
+				.newSetFromMap(new IdentityHashMap<RecordType, Boolean>());
+		for (Pair<RecordType, RecordType> pair : sample) {
+			records.add(pair.getFirst());
+			records.add(pair.getSecond());
+		}
+		rule.prepare(records);
+
+		try {
+			// warm up, so the JIT compiler has seen the comparators
+			for (Pair<RecordType, RecordType> pair : sample) {
+				rule.apply(pair.getFirst(), pair.getSecond());
+			}
+
+			long start = System.nanoTime();
+			for (Pair<RecordType, RecordType> pair : sample) {
+				rule.apply(pair.getFirst(), pair.getSecond());
+			}
+			long duration = System.nanoTime() - start;
+
+			return (double) duration / sample.size();
+		} finally {
+			rule.clearPrepared();
+			if (rule instanceof LinearCombinationMatchingRule) {
+				((LinearCombinationMatchingRule<RecordType>) rule)
+						.resetStatistics();
+			}
+		}
+	}
+
+	private double getPairCompleteness(
+			BlockingKeyGenerator<RecordType> blockingFunction,
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		List<Pair<String, String>> positives = goldStandard
+				.getPositiveExamples();
+		if (positives.isEmpty()) {
+			return Double.NaN;
+		}
+
+		int correct = 0;
+		for (Pair<String, String> p : positives) {
+			RecordType record1 = dataset1.getRecord(p.getFirst());
+			RecordType record2 = dataset2.getRecord(p.getSecond());
+			if (record1 == null || record2 == null) {
+				// the example can be in either order
+				record1 = dataset1.getRecord(p.getSecond());
+				record2 = dataset2.getRecord(p.getFirst());
+			}
+
+			if (record1 != null && record2 != null) {
+				String key1 = blockingFunction.getBlockingKey(record1);
+				String key2 = blockingFunction.getBlockingKey(record2);
+				if (key1 == null ? key2 == null : key1.equals(key2)) {
+					correct++;
+				}
+			}
+		}
+
+		return (double) correct / positives.size();
+	}
+}
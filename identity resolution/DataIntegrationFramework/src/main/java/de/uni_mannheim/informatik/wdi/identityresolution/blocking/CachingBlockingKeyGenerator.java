@@ -0,0 +1,271 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link BlockingKeyGenerator} that memoizes the blocking keys of another
+ * generator. The keys are stored by the provenance and the identifier of the
+ * records, so the same instance can be passed to the {@link Blocker} and the
+ * {@link BlockingEvaluator} and used for repeated runs on the same
+ * {@link DataSet}s: every key is only computed once.
+ * 
+ * With {@link #prepare(DataSet, File)}, the keys of a data set are also
+ * written to a file and read from this file in later runs. The file contains
+ * a fingerprint of the generator (see
+ * {@link BlockingKeyGenerator#getFingerprint()}) and of the data set (see
+ * {@link DataSet#getFingerprint()}, which covers the identifiers and the
+ * attribute values of the records), the keys are only read if both did not
+ * change.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class CachingBlockingKeyGenerator<RecordType extends Matchable> extends
+		BlockingKeyGenerator<RecordType> {
+
+	private static final String FILE_FORMAT = "blocking-keys-1";
+
+	/**
+	 * Marks records without blocking key, the maps cannot contain null
+	 */
+	private static final String NO_KEY = new String();
+
+	private BlockingKeyGenerator<RecordType> blockingFunction;
+
+	private RecordValueCache<String> keys = new RecordValueCache<>();
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a cache for the given generator
+	 * 
+	 * @param blockingFunction
+	 *            the generator that creates the blocking keys
+	 */
+	public CachingBlockingKeyGenerator(
+			BlockingKeyGenerator<RecordType> blockingFunction) {
+		this.blockingFunction = blockingFunction;
+	}
+
+	@Override
+	public String getBlockingKey(RecordType instance) {
+		String key = keys.get(instance);
+
+		if (key != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+
+			key = blockingFunction.getBlockingKey(instance);
+			if (key == null) {
+				key = NO_KEY;
+			}
+
+			keys.put(instance, key);
+		}
+
+		return key == NO_KEY ? null : key;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return blockingFunction.getFingerprint();
+	}
+
+	/**
+	 * Computes the blocking keys of all records of the data set that are not
+	 * cached yet
+	 * 
+	 * @param dataset
+	 */
+	public void prepare(DataSet<RecordType> dataset) {
+		for (RecordType record : dataset.getRecords()) {
+			getBlockingKey(record);
+		}
+	}
+
+	/**
+	 * Reads the blocking keys of all records of the data set from the file.
+	 * If the file does not exist or was created for another generator or
+	 * data set, the keys are computed and the file is replaced.
+	 * 
+	 * @param dataset
+	 * @param file
+	 * @return true if the keys were read from the file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public boolean prepare(DataSet<RecordType> dataset, File file)
+			throws IOException {
+		String fingerprint = getFingerprint(dataset);
+
+		if (file.exists() && readKeys(dataset, file, fingerprint)) {
+			return true;
+		}
+
+		prepare(dataset);
+		writeKeys(dataset, file, fingerprint);
+
+		return false;
+	}
+
+	/**
+	 * Returns the number of keys that were answered from the cache
+	 * 
+	 * @return
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of keys that were computed by the generator
+	 * 
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of records in the cache
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		return keys.getSize();
+	}
+
+	/**
+	 * Removes all keys from the cache and resets the statistics. Files
+	 * written by {@link #prepare(DataSet, File)} are not deleted.
+	 */
+	public void clear() {
+		keys.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	private String getFingerprint(DataSet<RecordType> dataset) {
+		return String.format("%s\ndata set: %d records (%016x)",
+				getFingerprint(), dataset.getSize(), dataset.getFingerprint());
+	}
+
+	/**
+	 * Reads the keys from the file and adds them to the cache
+	 * 
+	 * @param dataset
+	 * @param file
+	 * @param fingerprint
+	 * @return false if the file does not belong to the data set or is
+	 *         incomplete, nothing is added to the cache in this case
+	 * @throws IOException
+	 */
+	private boolean readKeys(DataSet<RecordType> dataset, File file,
+			String fingerprint) throws IOException {
+		Map<RecordType, String> result = new HashMap<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file))))) {
+			if (!FILE_FORMAT.equals(in.readUTF())
+					|| !fingerprint.equals(in.readUTF())) {
+				return false;
+			}
+
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				RecordType record = dataset.getRecord(in.readUTF());
+				String key = in.readBoolean() ? in.readUTF() : NO_KEY;
+
+				if (record == null) {
+					return false;
+				}
+				result.put(record, key);
+			}
+		} catch (EOFException | UTFDataFormatException | ZipException e) {
+			// the file was not written completely
+			return false;
+		}
+
+		for (Map.Entry<RecordType, String> entry : result.entrySet()) {
+			keys.put(entry.getKey(), entry.getValue());
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the cached keys of all records of the data set to the file. The
+	 * keys are written to a temporary file first, so an interrupted run does
+	 * not leave an incomplete file behind.
+	 * 
+	 * @param dataset
+	 * @param file
+	 * @param fingerprint
+	 * @throws IOException
+	 */
+	private void writeKeys(DataSet<RecordType> dataset, File file,
+			String fingerprint) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(
+						new FileOutputStream(tmp))))) {
+			out.writeUTF(FILE_FORMAT);
+			out.writeUTF(fingerprint);
+			out.writeInt(dataset.getSize());
+
+			for (RecordType record : dataset.getRecords()) {
+				String key = keys.get(record);
+
+				out.writeUTF(record.getIdentifier());
+				out.writeBoolean(key != NO_KEY);
+				if (key != NO_KEY) {
+					out.writeUTF(key);
+				}
+			}
+		}
+
+		Files.move(tmp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+}
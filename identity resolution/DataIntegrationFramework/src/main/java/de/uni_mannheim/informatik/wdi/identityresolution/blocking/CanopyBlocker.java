@@ -0,0 +1,309 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * {@link Blocker} that groups the records into overlapping canopies with a
+ * cheap similarity measure and compares only the records within the same
+ * canopy. The cheap measure is the cosine similarity of the TF-IDF vectors of
+ * the tokens that are created by a {@link MultiBlockingKeyGenerator}.
+ * 
+ * The canopies are created one after another: the next record that is not yet
+ * removed becomes the centre of a new canopy. All records with a similarity of
+ * at least the loose threshold to the centre are added to the canopy, the
+ * records with a similarity of at least the tight threshold are removed and
+ * can neither become a centre nor join another canopy. The similar records of
+ * a centre are found via an inverted index of the tokens, so only records
+ * that share a token with the centre are considered.
+ * 
+ * The inverted index is built once per {@link DataSet} and can be retained
+ * (see {@link #setRetainIndexes(boolean)}). The IDF values are calculated over
+ * all records of the blocking operation.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class CanopyBlocker<RecordType extends Matchable> extends Blocker<RecordType> {
+
+	private MultiBlockingKeyGenerator<RecordType> tokenGenerator;
+	private double looseThreshold;
+	private double tightThreshold;
+	private int numberOfCanopies = 0;
+
+	/**
+	 * @param tokenGenerator
+	 *            creates the tokens of the records
+	 * @param looseThreshold
+	 *            the minimal similarity to the centre of a canopy to be added
+	 *            to the canopy
+	 * @param tightThreshold
+	 *            the minimal similarity to the centre of a canopy to be
+	 *            removed from all further canopies, must be at least the loose
+	 *            threshold
+	 */
+	public CanopyBlocker(MultiBlockingKeyGenerator<RecordType> tokenGenerator, double looseThreshold,
+			double tightThreshold) {
+		if (tightThreshold < looseThreshold) {
+			throw new IllegalArgumentException("The tight threshold must not be lower than the loose threshold");
+		}
+		this.tokenGenerator = tokenGenerator;
+		this.looseThreshold = looseThreshold;
+		this.tightThreshold = tightThreshold;
+	}
+
+	/**
+	 * Returns the number of canopies with more than one record that were
+	 * created by the last blocking operation
+	 * 
+	 * @return
+	 */
+	public int getNumberOfCanopies() {
+		return numberOfCanopies;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, loose threshold: %s, tight threshold: %s)", super.getFingerprint(),
+				tokenGenerator.getFingerprint(), Double.toString(looseThreshold), Double.toString(tightThreshold));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset1,
+			DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		InvertedIndex<RecordType> index1 = createIndex(dataset1);
+		InvertedIndex<RecordType> index2 = createIndex(dataset2);
+
+		List<List<Integer>> canopies = createCanopies(index1, index2);
+		int n1 = index1.records.size();
+
+		BlockCollection<RecordType> collection = BlockCollection.create(new InvertedIndex<>(index1.records,
+				canopies.subList(0, n1)), new InvertedIndex<>(index2.records, canopies.subList(n1, canopies.size())),
+				Integer.MAX_VALUE);
+
+		return new BlockCollectionPairIterator<RecordType>(collection) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset,
+			boolean isSymmetric) {
+		InvertedIndex<RecordType> index = createIndex(dataset);
+
+		List<List<Integer>> canopies = createCanopies(index, null);
+
+		BlockCollection<RecordType> collection = BlockCollection.create(
+				new InvertedIndex<>(index.records, canopies), isSymmetric, Integer.MAX_VALUE);
+
+		return new BlockCollectionPairIterator<RecordType>(collection) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	/**
+	 * Creates the inverted index of the tokens of a data set, or returns the
+	 * retained index of the data set
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	private InvertedIndex<RecordType> createIndex(DataSet<RecordType> dataset) {
+		InvertedIndex<RecordType> index = getRetainedIndex(dataset);
+		if (index != null) {
+			return index;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getRecords());
+		List<Collection<String>> tokens = new ArrayList<>(records.size());
+		for (RecordType record : records) {
+			tokens.add(tokenGenerator.getBlockingKeys(record));
+		}
+
+		index = new InvertedIndex<>(records, tokens);
+
+		retainIndex(dataset, index);
+
+		return index;
+	}
+
+	/**
+	 * Creates the canopies for the records of one or two data sets. The
+	 * records of the second data set follow the records of the first data
+	 * set.
+	 * 
+	 * @param index1
+	 *            the index of the first data set
+	 * @param index2
+	 *            the index of the second data set, or null
+	 * @return the ids of the canopies of each record
+	 */
+	private List<List<Integer>> createCanopies(InvertedIndex<RecordType> index1, InvertedIndex<RecordType> index2) {
+		int n1 = index1.records.size();
+		int n = n1 + (index2 == null ? 0 : index2.records.size());
+
+		// combine the postings of both data sets, the tokens of the first data
+		// set keep their ids
+		List<int[]> postings = new ArrayList<>(Arrays.asList(index1.blocks));
+		int[][] tokens = new int[n][];
+		System.arraycopy(index1.recordBlocks, 0, tokens, 0, n1);
+
+		if (index2 != null) {
+			int[] tokenIds = new int[index2.blocks.length];
+			for (Map.Entry<Object, Integer> entry : index2.blockIds.entrySet()) {
+				int[] block = index2.blocks[entry.getValue()];
+				int[] shifted = new int[block.length];
+				for (int i = 0; i < block.length; i++) {
+					shifted[i] = block[i] + n1;
+				}
+
+				Integer id = index1.blockIds.get(entry.getKey());
+				if (id == null) {
+					id = postings.size();
+					postings.add(shifted);
+				} else {
+					int[] block1 = postings.get(id);
+					int[] combined = Arrays.copyOf(block1, block1.length + shifted.length);
+					System.arraycopy(shifted, 0, combined, block1.length, shifted.length);
+					postings.set(id, combined);
+				}
+				tokenIds[entry.getValue()] = id;
+			}
+
+			for (int i = 0; i < index2.recordBlocks.length; i++) {
+				int[] ids = new int[index2.recordBlocks[i].length];
+				for (int k = 0; k < ids.length; k++) {
+					ids[k] = tokenIds[index2.recordBlocks[i][k]];
+				}
+				tokens[n1 + i] = ids;
+			}
+		}
+
+		// the squared IDF of each token and the length of each TF-IDF vector
+		double[] weights = new double[postings.size()];
+		for (int t = 0; t < weights.length; t++) {
+			double idf = Math.log((double) n / postings.get(t).length);
+			weights[t] = idf * idf;
+		}
+		double[] norms = new double[n];
+		for (int i = 0; i < n; i++) {
+			double sum = 0.0;
+			for (int t : tokens[i]) {
+				sum += weights[t];
+			}
+			norms[i] = Math.sqrt(sum);
+		}
+
+		List<List<Integer>> canopies = new ArrayList<>(Collections.nCopies(n, Collections.<Integer> emptyList()));
+		boolean[] removed = new boolean[n];
+		double[] dotProducts = new double[n];
+		int[] neighbours = new int[16];
+		List<Integer> members = new ArrayList<>();
+		numberOfCanopies = 0;
+
+		for (int centre = 0; centre < n; centre++) {
+			if (removed[centre]) {
+				continue;
+			}
+			removed[centre] = true;
+
+			if (norms[centre] == 0.0) {
+				continue;
+			}
+
+			// calculate the dot products with all records that share a token
+			int numberOfNeighbours = 0;
+			for (int t : tokens[centre]) {
+				if (weights[t] == 0.0) {
+					// the token occurs in all records
+					continue;
+				}
+				for (int neighbour : postings.get(t)) {
+					if (removed[neighbour]) {
+						continue;
+					}
+					if (dotProducts[neighbour] == 0.0) {
+						if (numberOfNeighbours == neighbours.length) {
+							neighbours = Arrays.copyOf(neighbours, neighbours.length * 2);
+						}
+						neighbours[numberOfNeighbours++] = neighbour;
+					}
+					dotProducts[neighbour] += weights[t];
+				}
+			}
+
+			members.clear();
+			members.add(centre);
+			for (int k = 0; k < numberOfNeighbours; k++) {
+				int neighbour = neighbours[k];
+				double similarity = dotProducts[neighbour] / (norms[centre] * norms[neighbour]);
+				dotProducts[neighbour] = 0.0;
+
+				if (similarity >= looseThreshold) {
+					members.add(neighbour);
+					if (similarity >= tightThreshold) {
+						removed[neighbour] = true;
+					}
+				}
+			}
+
+			if (members.size() > 1) {
+				for (int member : members) {
+					if (canopies.get(member).isEmpty()) {
+						canopies.set(member, new ArrayList<Integer>(1));
+					}
+					canopies.get(member).add(numberOfCanopies);
+				}
+				numberOfCanopies++;
+			}
+		}
+
+		return canopies;
+	}
+}
@@ -0,0 +1,222 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Combines the pairs of two {@link Blocker}s, like a {@link RangeBlocker} on
+ * the revenue and a {@link StandardBlocker} on the country.
+ * 
+ * The union contains the pairs of both blockers, where the pairs of the first
+ * blocker come first and pairs that were already returned are skipped. The
+ * intersection contains the pairs of the first blocker that were also created
+ * by the second blocker, in the order of the first blocker. Two pairs are
+ * equal if they contain the same records, for a symmetric data set in any
+ * order. The pairs are de-duplicated by the positions of their records, the
+ * union keeps the pairs of the first blocker and the intersection the pairs
+ * of the second blocker in a {@link LongHashSet}.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class CombinedBlocker<RecordType extends Matchable> extends
+		Blocker<RecordType> {
+
+	public enum Combination {
+		UNION, INTERSECTION
+	}
+
+	private Blocker<RecordType> first;
+	private Blocker<RecordType> second;
+	private Combination combination;
+
+	public CombinedBlocker(Blocker<RecordType> first,
+			Blocker<RecordType> second, Combination combination) {
+		this.first = first;
+		this.second = second;
+		this.combination = combination;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, %s, %s)", super.getFingerprint(),
+				first.getFingerprint(), second.getFingerprint(), combination);
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(
+			DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		final Map<RecordType, Integer> positions1 = getPositions(dataset1);
+		final Map<RecordType, Integer> positions2 = getPositions(dataset2);
+
+		PairKeys keys = new PairKeys() {
+
+			@Override
+			public long getKey(Pair<RecordType, RecordType> pair) {
+				Integer p1 = positions1.get(pair.getFirst());
+				if (p1 == null) {
+					// a pair in the order (dataset2, dataset1)
+					return LongHashSet.pairKey(
+							positions1.get(pair.getSecond()),
+							positions2.get(pair.getFirst()));
+				} else {
+					return LongHashSet.pairKey(p1,
+							positions2.get(pair.getSecond()));
+				}
+			}
+		};
+
+		return new CombinedPairIterator(first.iteratePairs(dataset1, dataset2),
+				second.iteratePairs(dataset1, dataset2), keys) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset, final boolean isSymmetric) {
+		final Map<RecordType, Integer> positions = getPositions(dataset);
+
+		PairKeys keys = new PairKeys() {
+
+			@Override
+			public long getKey(Pair<RecordType, RecordType> pair) {
+				int p1 = positions.get(pair.getFirst());
+				int p2 = positions.get(pair.getSecond());
+				if (isSymmetric && p2 < p1) {
+					return LongHashSet.pairKey(p2, p1);
+				} else {
+					return LongHashSet.pairKey(p1, p2);
+				}
+			}
+		};
+
+		return new CombinedPairIterator(first.iteratePairs(dataset,
+				isSymmetric), second.iteratePairs(dataset, isSymmetric), keys) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	private Map<RecordType, Integer> getPositions(DataSet<RecordType> dataset) {
+		Map<RecordType, Integer> positions = new IdentityHashMap<>(
+				dataset.getSize());
+		for (RecordType record : dataset.getRecords()) {
+			positions.put(record, positions.size());
+		}
+		return positions;
+	}
+
+	/**
+	 * Maps a pair to a key that is equal for equal pairs
+	 */
+	private abstract class PairKeys {
+
+		public abstract long getKey(Pair<RecordType, RecordType> pair);
+	}
+
+	private class CombinedPairIterator extends PairIterator<RecordType> {
+
+		private Iterator<Pair<RecordType, RecordType>> pairs1;
+		private Iterator<Pair<RecordType, RecordType>> pairs2;
+		private PairKeys keys;
+		private LongHashSet seen = null;
+
+		public CombinedPairIterator(
+				Iterator<Pair<RecordType, RecordType>> pairs1,
+				Iterator<Pair<RecordType, RecordType>> pairs2, PairKeys keys) {
+			this.pairs1 = pairs1;
+			this.pairs2 = pairs2;
+			this.keys = keys;
+		}
+
+		@Override
+		protected Pair<RecordType, RecordType> computeNext() {
+			if (seen == null) {
+				seen = new LongHashSet();
+
+				if (combination == Combination.INTERSECTION) {
+					// the pairs of the second blocker must be known before
+					// the first pair can be returned
+					while (pairs2.hasNext()) {
+						seen.add(keys.getKey(pairs2.next()));
+					}
+				}
+			}
+
+			if (combination == Combination.INTERSECTION) {
+				while (pairs1.hasNext()) {
+					Pair<RecordType, RecordType> pair = pairs1.next();
+					if (seen.contains(keys.getKey(pair))) {
+						return pair;
+					}
+				}
+			} else {
+				while (pairs1.hasNext()) {
+					Pair<RecordType, RecordType> pair = pairs1.next();
+					if (seen.add(keys.getKey(pair))) {
+						return pair;
+					}
+				}
+				while (pairs2.hasNext()) {
+					Pair<RecordType, RecordType> pair = pairs2.next();
+					if (seen.add(keys.getKey(pair))) {
+						return pair;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		@Override
+		public void close() {
+			PairIterator.close(pairs1);
+			PairIterator.close(pairs2);
+		}
+	}
+}
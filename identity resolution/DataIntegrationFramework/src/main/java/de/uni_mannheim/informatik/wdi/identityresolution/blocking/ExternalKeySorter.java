@@ -0,0 +1,366 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts (blocking key, record identifier) entries that do not fit into memory.
+ * The entries are collected in runs of a fixed size, every run is sorted and
+ * written to a temporary file, and the runs are merged while the entries are
+ * read. If all entries fit into a single run, no file is written. The files
+ * are deleted by {@link #close()}, which must also be called if not all
+ * entries were read.
+ * 
+ * Entries are sorted by their keys (null first), then by their data set and
+ * then by the order in which they were added, which is the order of an
+ * in-memory stable sort.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+class ExternalKeySorter implements Closeable {
+
+	/**
+	 * An entry of the sorted stream
+	 */
+	static class Entry {
+
+		final String key;
+		final String identifier;
+		final int dataset;
+		final long position;
+
+		Entry(String key, String identifier, int dataset, long position) {
+			this.key = key;
+			this.identifier = identifier;
+			this.dataset = dataset;
+			this.position = position;
+		}
+	}
+
+	static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			int result;
+			if (o1.key == null) {
+				result = o2.key == null ? 0 : -1;
+			} else if (o2.key == null) {
+				result = 1;
+			} else {
+				result = o1.key.compareTo(o2.key);
+			}
+
+			if (result == 0) {
+				result = Integer.compare(o1.dataset, o2.dataset);
+			}
+			if (result == 0) {
+				result = Long.compare(o1.position, o2.position);
+			}
+			return result;
+		}
+	};
+
+	private File parentDirectory;
+	private int entriesPerRun;
+
+	private File directory = null;
+	private List<Entry> buffer = new ArrayList<>();
+	private List<File> runs = new ArrayList<>();
+	private long numberOfEntries = 0;
+
+	private boolean merging = false;
+	private int bufferPosition = 0;
+	private PriorityQueue<RunReader> readers = null;
+
+	/**
+	 * @param parentDirectory
+	 *            the directory for the temporary files, or null for the
+	 *            default temporary directory
+	 * @param entriesPerRun
+	 *            the maximal number of entries that are kept in memory
+	 */
+	public ExternalKeySorter(File parentDirectory, int entriesPerRun) {
+		this.parentDirectory = parentDirectory;
+		this.entriesPerRun = entriesPerRun;
+	}
+
+	/**
+	 * Adds an entry, must not be called after {@link #next()}
+	 * 
+	 * @param key
+	 * @param identifier
+	 * @param dataset
+	 * @throws IOException
+	 */
+	public void add(String key, String identifier, int dataset)
+			throws IOException {
+		buffer.add(new Entry(key, identifier, dataset, numberOfEntries++));
+
+		if (buffer.size() >= entriesPerRun) {
+			writeRun();
+		}
+	}
+
+	/**
+	 * Returns the number of files that were written
+	 * 
+	 * @return
+	 */
+	public int getNumberOfRuns() {
+		return runs.size();
+	}
+
+	/**
+	 * Returns the next entry in sorted order
+	 * 
+	 * @return the next entry or null if all entries were returned
+	 * @throws IOException
+	 */
+	public Entry next() throws IOException {
+		if (!merging) {
+			startMerge();
+		}
+
+		if (readers == null) {
+			if (bufferPosition < buffer.size()) {
+				return buffer.get(bufferPosition++);
+			} else {
+				return null;
+			}
+		}
+
+		RunReader reader = readers.poll();
+		if (reader == null) {
+			return null;
+		}
+
+		Entry entry = reader.current;
+		if (reader.advance()) {
+			readers.add(reader);
+		} else {
+			reader.close();
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Closes all files and deletes them. The files are also deleted if a file
+	 * cannot be closed.
+	 * 
+	 * @throws IOException
+	 *             if a file cannot be closed, the exceptions of further files
+	 *             are added as suppressed exceptions
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+
+		if (readers != null) {
+			for (RunReader reader : readers) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			readers.clear();
+		}
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		if (directory != null) {
+			directory.delete();
+			directory = null;
+		}
+		buffer = Collections.emptyList();
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Closes the sorter after the failure. If the files cannot be closed, the
+	 * exception is added to the failure as suppressed exception.
+	 * 
+	 * @param failure
+	 */
+	public void close(Throwable failure) {
+		try {
+			close();
+		} catch (IOException e) {
+			failure.addSuppressed(e);
+		}
+	}
+
+	private void startMerge() throws IOException {
+		merging = true;
+
+		if (runs.isEmpty()) {
+			// everything fits into memory
+			Collections.sort(buffer, ORDER);
+			return;
+		}
+
+		if (!buffer.isEmpty()) {
+			writeRun();
+		}
+
+		readers = new PriorityQueue<>(runs.size(), new Comparator<RunReader>() {
+
+			@Override
+			public int compare(RunReader o1, RunReader o2) {
+				return ORDER.compare(o1.current, o2.current);
+			}
+		});
+
+		for (File run : runs) {
+			RunReader reader = new RunReader(run);
+			if (reader.advance()) {
+				readers.add(reader);
+			} else {
+				reader.close();
+			}
+		}
+	}
+
+	private void writeRun() throws IOException {
+		if (directory == null) {
+			directory = parentDirectory == null ? Files.createTempDirectory(
+					"keys").toFile() : Files.createTempDirectory(
+					parentDirectory.toPath(), "keys").toFile();
+		}
+
+		Collections.sort(buffer, ORDER);
+
+		File run = new File(directory, String.format("run-%d.bin", runs.size()));
+		runs.add(run);
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(run)))) {
+			for (Entry entry : buffer) {
+				writeString(out, entry.key);
+				writeString(out, entry.identifier);
+				out.writeInt(entry.dataset);
+				out.writeLong(entry.position);
+			}
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the length of the string followed by its UTF-8 bytes, or -1 for
+	 * null. Unlike {@link DataOutputStream#writeUTF(String)}, the length is
+	 * not limited to 64 KB.
+	 * 
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a string that was written by
+	 * {@link #writeString(DataOutputStream, String)}
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		} else {
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Reads the entries of a run one by one
+	 */
+	private static class RunReader {
+
+		private DataInputStream in;
+		private Entry current = null;
+
+		public RunReader(File run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(run)));
+		}
+
+		/**
+		 * Reads the next entry
+		 * 
+		 * @return false if the run has no more entries
+		 * @throws IOException
+		 */
+		public boolean advance() throws IOException {
+			String key;
+			try {
+				key = readString(in);
+			} catch (EOFException e) {
+				return false;
+			}
+
+			current = new Entry(key, readString(in), in.readInt(),
+					in.readLong());
+			return true;
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
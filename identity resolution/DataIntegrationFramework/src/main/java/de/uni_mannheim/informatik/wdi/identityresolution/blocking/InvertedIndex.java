@@ -0,0 +1,105 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * An inverted index from blocking keys to the records of a data set. The
+ * records are referenced by their positions in the list of records and the
+ * keys by the ids of their blocks.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+class InvertedIndex<RecordType extends Matchable> {
+
+	/**
+	 * the records of the data set
+	 */
+	List<RecordType> records;
+
+	/**
+	 * the id of the block of each key
+	 */
+	Map<Object, Integer> blockIds = new HashMap<>();
+
+	/**
+	 * the positions of the records in each block, in ascending order
+	 */
+	int[][] blocks;
+
+	/**
+	 * the ids of the blocks of each record
+	 */
+	int[][] recordBlocks;
+
+	/**
+	 * Creates the index
+	 * 
+	 * @param records
+	 *            the records of the data set
+	 * @param keys
+	 *            the distinct keys of each record
+	 */
+	public InvertedIndex(List<RecordType> records, List<? extends Collection<?>> keys) {
+		this.records = records;
+		recordBlocks = new int[records.size()][];
+
+		// assign an id to every key and count the records of each block
+		int[] sizes = new int[16];
+		for (int i = 0; i < records.size(); i++) {
+			int[] ids = new int[keys.get(i).size()];
+			int k = 0;
+
+			for (Object key : keys.get(i)) {
+				Integer id = blockIds.get(key);
+				if (id == null) {
+					id = blockIds.size();
+					blockIds.put(key, id);
+					if (id == sizes.length) {
+						sizes = Arrays.copyOf(sizes, sizes.length * 2);
+					}
+				}
+				sizes[id]++;
+				ids[k++] = id;
+			}
+
+			recordBlocks[i] = ids;
+		}
+
+		// add the positions of the records to their blocks
+		blocks = new int[blockIds.size()][];
+		for (int b = 0; b < blocks.length; b++) {
+			blocks[b] = new int[sizes[b]];
+		}
+		int[] filled = new int[blocks.length];
+		for (int i = 0; i < recordBlocks.length; i++) {
+			for (int b : recordBlocks[i]) {
+				blocks[b][filled[b]++] = i;
+			}
+		}
+	}
+}
@@ -0,0 +1,354 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * {@link Blocker} based on locality-sensitive hashing (MinHash) for the
+ * Jaccard similarity of token sets. The tokens of a record are created by a
+ * {@link MultiBlockingKeyGenerator} (like a {@link TokenBlockingKeyGenerator}
+ * for the attribute that is compared by a Jaccard comparator).
+ * 
+ * Every record gets a signature of n MinHash values. The signature is divided
+ * into b bands of r rows and every band is hashed into a bucket. Two records
+ * are compared if they share a bucket in at least one band, which happens with
+ * probability 1-(1-s^r)^b for records with a Jaccard similarity of s. The
+ * number of bands and rows is chosen for a target similarity threshold, such
+ * that the probability of missing a pair above the threshold and the
+ * probability of comparing a pair below the threshold are both small.
+ * 
+ * The signatures are computed in parallel. Buckets are identified by a 64 bit
+ * hash of their band, so different bands end up in the same bucket only with
+ * negligible probability.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class LSHBlocker<RecordType extends Matchable> extends Blocker<RecordType> {
+
+	/**
+	 * Parts of a data set with fewer records than this are not split any
+	 * further when computing the signatures
+	 */
+	private static final int RECORDS_PER_TASK = 256;
+
+	private MultiBlockingKeyGenerator<RecordType> tokenGenerator;
+	private int numberOfHashFunctions;
+	private int numberOfBands;
+	private int rowsPerBand;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * the parameters of the hash functions h(x) = (a*x + b) >>> 32
+	 */
+	private long[] a;
+	private long[] b;
+
+	/**
+	 * Creates a blocker with 128 hash functions
+	 * 
+	 * @param tokenGenerator
+	 *            creates the tokens of the records
+	 * @param threshold
+	 *            the Jaccard similarity above which pairs should be found
+	 */
+	public LSHBlocker(MultiBlockingKeyGenerator<RecordType> tokenGenerator, double threshold) {
+		this(tokenGenerator, threshold, 128);
+	}
+
+	/**
+	 * @param tokenGenerator
+	 *            creates the tokens of the records
+	 * @param threshold
+	 *            the Jaccard similarity above which pairs should be found
+	 * @param numberOfHashFunctions
+	 *            the length of the signatures, more hash functions make the
+	 *            blocking more precise, but slower
+	 */
+	public LSHBlocker(MultiBlockingKeyGenerator<RecordType> tokenGenerator, double threshold,
+			int numberOfHashFunctions) {
+		this.tokenGenerator = tokenGenerator;
+		this.numberOfHashFunctions = numberOfHashFunctions;
+
+		int[] parameters = chooseBandsAndRows(threshold, numberOfHashFunctions);
+		numberOfBands = parameters[0];
+		rowsPerBand = parameters[1];
+
+		// a fixed seed creates the same pairs in every run
+		Random random = new Random(numberOfHashFunctions);
+		int length = numberOfBands * rowsPerBand;
+		a = new long[length];
+		b = new long[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = random.nextLong() | 1L;
+			b[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * Chooses the number of bands b and rows per band r with b*r <= n, which
+	 * minimize the sum of the probability of comparing pairs below the
+	 * threshold and the probability of not comparing pairs above the threshold
+	 * 
+	 * @param threshold
+	 * @param numberOfHashFunctions
+	 * @return {b, r}
+	 */
+	static int[] chooseBandsAndRows(double threshold, int numberOfHashFunctions) {
+		if (threshold <= 0.0 || threshold >= 1.0) {
+			throw new IllegalArgumentException("The threshold must be between 0 and 1");
+		}
+
+		int[] best = null;
+		double bestError = Double.MAX_VALUE;
+
+		for (int rows = 1; rows <= numberOfHashFunctions; rows++) {
+			int bands = numberOfHashFunctions / rows;
+
+			// integrate the probabilities of false positives and false
+			// negatives over the similarity
+			double error = 0.0;
+			int steps = 100;
+			for (int i = 0; i < steps; i++) {
+				double s = (i + 0.5) / steps;
+				double p = 1.0 - Math.pow(1.0 - Math.pow(s, rows), bands);
+				error += (s < threshold ? p : 1.0 - p) / steps;
+			}
+
+			if (error < bestError) {
+				bestError = error;
+				best = new int[] { bands, rows };
+			}
+		}
+
+		return best;
+	}
+
+	public int getNumberOfBands() {
+		return numberOfBands;
+	}
+
+	public int getRowsPerBand() {
+		return rowsPerBand;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, hash functions: %d, bands: %d, rows: %d)", super.getFingerprint(),
+				tokenGenerator.getFingerprint(), numberOfHashFunctions, numberOfBands, rowsPerBand);
+	}
+
+	/**
+	 * Returns the number of threads that are used to compute the signatures
+	 * 
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute the signatures. The
+	 * default is the number of available processors. The
+	 * {@link MultiBlockingKeyGenerator} must be thread-safe if the
+	 * parallelism is greater than 1.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset1,
+			DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		BlockCollection<RecordType> collection = BlockCollection.create(createIndex(dataset1), createIndex(dataset2),
+				Integer.MAX_VALUE);
+
+		return new BlockCollectionPairIterator<RecordType>(collection) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset,
+			boolean isSymmetric) {
+		BlockCollection<RecordType> collection = BlockCollection.create(createIndex(dataset), isSymmetric,
+				Integer.MAX_VALUE);
+
+		return new BlockCollectionPairIterator<RecordType>(collection) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	/**
+	 * Computes the signatures of all records and adds them to the buckets of
+	 * their bands, or returns the retained index of the data set
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	private InvertedIndex<RecordType> createIndex(DataSet<RecordType> dataset) {
+		InvertedIndex<RecordType> index = getRetainedIndex(dataset);
+		if (index != null) {
+			return index;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getRecords());
+		int[][] signatures = new int[records.size()][];
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new SignatureTask(records, signatures, 0, records.size()));
+		} finally {
+			pool.shutdown();
+		}
+
+		List<List<Long>> buckets = new ArrayList<>(records.size());
+		for (int[] signature : signatures) {
+			buckets.add(getBuckets(signature));
+		}
+
+		index = new InvertedIndex<>(records, buckets);
+
+		retainIndex(dataset, index);
+
+		return index;
+	}
+
+	/**
+	 * Computes the MinHash signature of a record
+	 * 
+	 * @param record
+	 * @return the signature, or null if the record has no tokens
+	 */
+	int[] getSignature(RecordType record) {
+		Collection<String> tokens = tokenGenerator.getBlockingKeys(record);
+		if (tokens.isEmpty()) {
+			return null;
+		}
+
+		int[] signature = new int[a.length];
+		for (int i = 0; i < signature.length; i++) {
+			signature[i] = Integer.MAX_VALUE;
+		}
+
+		for (String token : tokens) {
+			long x = token.hashCode();
+			for (int i = 0; i < signature.length; i++) {
+				int h = (int) ((a[i] * x + b[i]) >>> 33);
+				if (h < signature[i]) {
+					signature[i] = h;
+				}
+			}
+		}
+
+		return signature;
+	}
+
+	/**
+	 * Returns the buckets of all bands of a signature
+	 * 
+	 * @param signature
+	 * @return
+	 */
+	private List<Long> getBuckets(int[] signature) {
+		List<Long> buckets = new ArrayList<>(numberOfBands);
+
+		if (signature != null) {
+			for (int band = 0; band < numberOfBands; band++) {
+				long h = band;
+				for (int row = 0; row < rowsPerBand; row++) {
+					h = h * 0x9E3779B97F4A7C15L + signature[band * rowsPerBand + row];
+					h ^= h >>> 29;
+				}
+				buckets.add(h);
+			}
+		}
+
+		return buckets;
+	}
+
+	/**
+	 * Computes the signatures of a range of records. The range is split
+	 * recursively.
+	 */
+	private class SignatureTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<RecordType> records;
+		private int[][] signatures;
+		private int from;
+		private int to;
+
+		public SignatureTask(List<RecordType> records, int[][] signatures, int from, int to) {
+			this.records = records;
+			this.signatures = signatures;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					signatures[i] = getSignature(records.get(i));
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SignatureTask(records, signatures, from, mid), new SignatureTask(records, signatures,
+						mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive long values based on open addressing. Used to
+ * de-duplicate pairs of records by their positions (see
+ * {@link #pairKey(int, int)}), without creating a {@link Long} or a pair
+ * object for every pair.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+class LongHashSet {
+
+	/**
+	 * Marks an empty slot. The value itself is tracked by containsEmpty.
+	 */
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] slots;
+	private int size = 0;
+	private boolean containsEmpty = false;
+
+	public LongHashSet() {
+		this(16);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of values that can be added before the set grows
+	 */
+	public LongHashSet(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		slots = new long[capacity];
+		Arrays.fill(slots, EMPTY);
+	}
+
+	/**
+	 * Returns the key of the pair of positions (first, second)
+	 * 
+	 * @param first
+	 * @param second
+	 * @return
+	 */
+	public static long pairKey(int first, int second) {
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+
+	/**
+	 * Adds the value to the set
+	 * 
+	 * @param value
+	 * @return true if the value was not contained in the set
+	 */
+	public boolean add(long value) {
+		if (value == EMPTY) {
+			if (containsEmpty) {
+				return false;
+			}
+			containsEmpty = true;
+			size++;
+			return true;
+		}
+
+		int mask = slots.length - 1;
+		int i = hash(value) & mask;
+		while (slots[i] != EMPTY) {
+			if (slots[i] == value) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+
+		slots[i] = value;
+		size++;
+
+		if (size * 2 > slots.length) {
+			grow();
+		}
+
+		return true;
+	}
+
+	public boolean contains(long value) {
+		if (value == EMPTY) {
+			return containsEmpty;
+		}
+
+		int mask = slots.length - 1;
+		int i = hash(value) & mask;
+		while (slots[i] != EMPTY) {
+			if (slots[i] == value) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all values. The capacity of the set is kept.
+	 */
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(slots, EMPTY);
+			size = 0;
+			containsEmpty = false;
+		}
+	}
+
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length * 2];
+		Arrays.fill(slots, EMPTY);
+
+		int mask = slots.length - 1;
+		for (long value : old) {
+			if (value != EMPTY) {
+				int i = hash(value) & mask;
+				while (slots[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				slots[i] = value;
+			}
+		}
+	}
+
+	private static int hash(long value) {
+		// mix the bits, so pairs with the same first position spread over the
+		// whole table
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,442 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Meta-blocking on top of the blocks of a {@link TokenBlocker}. The blocks
+ * define a blocking graph: every record is a node and two records are
+ * connected by an edge if they share at least one block. Each edge is
+ * weighted by a {@link WeightingScheme}, and only the edges that survive the
+ * {@link PruningScheme} are returned as pairs. As most pairs from redundant
+ * blocks are non-matches, this removes many comparisons before any comparator
+ * is applied.
+ * 
+ * The graph is never materialized. It is processed node by node: the edges of
+ * a record are collected in arrays indexed by the positions of the other
+ * records, weighted and pruned, before the next record is processed. The
+ * pruning thresholds are determined in a first pass over all nodes, the pairs
+ * are created lazily in a second pass.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class MetaBlocker<RecordType extends Matchable> extends Blocker<RecordType> {
+
+	/**
+	 * The weight of an edge between two records
+	 */
+	public enum WeightingScheme {
+		/**
+		 * the number of blocks that both records share
+		 */
+		COMMON_BLOCKS,
+		/**
+		 * the number of common blocks divided by the number of blocks of
+		 * either record
+		 */
+		JACCARD,
+		/**
+		 * the sum of 1/(number of comparisons) of all common blocks, i.e.
+		 * sharing small blocks counts more than sharing large blocks
+		 */
+		ARCS
+	}
+
+	/**
+	 * The selection of the edges that are kept
+	 */
+	public enum PruningScheme {
+		/**
+		 * keeps all edges with a weight of at least the average weight of all
+		 * edges
+		 */
+		WEIGHT_EDGE,
+		/**
+		 * keeps the k edges with the highest weights of each record, where k
+		 * is the average number of blocks per record minus 1. An edge is kept
+		 * if it is among the top k edges of either of its records.
+		 */
+		CARDINALITY_NODE
+	}
+
+	private TokenBlocker<RecordType> blocker;
+	private WeightingScheme weighting;
+	private PruningScheme pruning;
+
+	/**
+	 * @param blocker
+	 *            creates the blocks
+	 * @param weighting
+	 *            the weights of the edges
+	 * @param pruning
+	 *            selects the edges that are kept
+	 */
+	public MetaBlocker(TokenBlocker<RecordType> blocker, WeightingScheme weighting, PruningScheme pruning) {
+		this.blocker = blocker;
+		this.weighting = weighting;
+		this.pruning = pruning;
+	}
+
+	@Override
+	public void setRetainIndexes(boolean retainIndexes) {
+		super.setRetainIndexes(retainIndexes);
+		blocker.setRetainIndexes(retainIndexes);
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, %s, %s)", super.getFingerprint(), blocker.getFingerprint(), weighting,
+				pruning);
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset1,
+			DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		return new PrunedPairIterator(blocker.createBlockCollection(dataset1, dataset2)) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset,
+			boolean isSymmetric) {
+		return new PrunedPairIterator(blocker.createBlockCollection(dataset, isSymmetric)) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	/**
+	 * The edges of a single node of the blocking graph. All arrays are
+	 * indexed by the position of the neighbour in the second data set and
+	 * re-used for all nodes.
+	 */
+	private class Neighbourhood {
+
+		private BlockCollection<RecordType> collection;
+
+		/**
+		 * the number of common blocks with each neighbour
+		 */
+		private int[] commonBlocks;
+
+		/**
+		 * the ARCS weight of each neighbour
+		 */
+		private double[] arcs;
+
+		/**
+		 * the positions of the neighbours of the current node
+		 */
+		private int[] neighbours = new int[16];
+		private int size = 0;
+		private int node = -1;
+
+		public Neighbourhood(BlockCollection<RecordType> collection) {
+			this.collection = collection;
+			commonBlocks = new int[collection.records2.size()];
+			if (weighting == WeightingScheme.ARCS) {
+				arcs = new double[collection.records2.size()];
+			}
+		}
+
+		/**
+		 * Collects the edges of a node
+		 * 
+		 * @param node
+		 *            the position of the record in the first data set
+		 * @param allNeighbours
+		 *            if true, the edges to all other records are collected,
+		 *            otherwise only the edges to the candidates of the node
+		 *            (see {@link BlockCollection#isCandidate(int, int)})
+		 */
+		public void load(int node, boolean allNeighbours) {
+			// reset the previous node
+			for (int k = 0; k < size; k++) {
+				commonBlocks[neighbours[k]] = 0;
+				if (arcs != null) {
+					arcs[neighbours[k]] = 0.0;
+				}
+			}
+			size = 0;
+			this.node = node;
+
+			for (int b : collection.recordBlocks[node]) {
+				int[] block = collection.blocks[b];
+				if (block == null) {
+					continue;
+				}
+
+				for (int neighbour : block) {
+					if (allNeighbours ? (collection.sameDataSet && neighbour == node) : !collection.isCandidate(
+							node, neighbour)) {
+						continue;
+					}
+
+					if (commonBlocks[neighbour]++ == 0) {
+						if (size == neighbours.length) {
+							neighbours = Arrays.copyOf(neighbours, neighbours.length * 2);
+						}
+						neighbours[size++] = neighbour;
+					}
+					if (arcs != null) {
+						arcs[neighbour] += 1.0 / collection.comparisons[b];
+					}
+				}
+			}
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int getNeighbour(int k) {
+			return neighbours[k];
+		}
+
+		/**
+		 * Returns the weight of the edge to the k-th neighbour
+		 * 
+		 * @param k
+		 * @return
+		 */
+		public double getWeight(int k) {
+			int neighbour = neighbours[k];
+			int common = commonBlocks[neighbour];
+
+			switch (weighting) {
+			case JACCARD:
+				return (double) common
+						/ (double) (collection.numberOfBlocks1[node] + collection.numberOfBlocks2[neighbour] - common);
+			case ARCS:
+				return arcs[neighbour];
+			default:
+				return common;
+			}
+		}
+	}
+
+	/**
+	 * Determines the pruning thresholds in its constructor and creates the
+	 * pairs of the edges that are kept one node after another
+	 */
+	private abstract class PrunedPairIterator extends PairIterator<RecordType> {
+
+		private BlockCollection<RecordType> collection;
+		private Neighbourhood neighbourhood;
+
+		/**
+		 * the minimal weight of an edge (weight edge pruning)
+		 */
+		private double threshold;
+
+		/**
+		 * the minimal weight of an edge of each node of the first and second
+		 * data set (cardinality node pruning)
+		 */
+		private double[] thresholds1;
+		private double[] thresholds2;
+
+		private int[] candidates = new int[16];
+		private int numberOfCandidates = 0;
+		private int position = 0;
+		private int record = -1;
+
+		public PrunedPairIterator(BlockCollection<RecordType> collection) {
+			this.collection = collection;
+			neighbourhood = new Neighbourhood(collection);
+
+			if (pruning == PruningScheme.WEIGHT_EDGE) {
+				calculateAverageWeight();
+			} else {
+				calculateNodeThresholds();
+			}
+		}
+
+		private void calculateAverageWeight() {
+			double sum = 0.0;
+			long edges = 0;
+
+			for (int i = 0; i < collection.records1.size(); i++) {
+				neighbourhood.load(i, false);
+				for (int k = 0; k < neighbourhood.size(); k++) {
+					sum += neighbourhood.getWeight(k);
+				}
+				edges += neighbourhood.size();
+			}
+
+			threshold = edges == 0 ? 0.0 : sum / edges;
+		}
+
+		private void calculateNodeThresholds() {
+			long nodes = collection.records1.size();
+			if (!collection.sameDataSet) {
+				nodes += collection.records2.size();
+			}
+			int k = nodes == 0 ? 1 : (int) Math.max(1, collection.getTotalBlockAssignments() / nodes - 1);
+
+			thresholds1 = new double[collection.records1.size()];
+
+			// a min-heap with the k highest weights of each record of the
+			// second data set
+			double[] heaps = null;
+			int[] heapSizes = null;
+			if (!collection.sameDataSet) {
+				heaps = new double[collection.records2.size() * k];
+				heapSizes = new int[collection.records2.size()];
+			}
+
+			double[] weights = new double[16];
+			for (int i = 0; i < collection.records1.size(); i++) {
+				neighbourhood.load(i, true);
+
+				if (weights.length < neighbourhood.size()) {
+					weights = new double[Math.max(neighbourhood.size(), weights.length * 2)];
+				}
+				for (int n = 0; n < neighbourhood.size(); n++) {
+					weights[n] = neighbourhood.getWeight(n);
+
+					if (heaps != null) {
+						offer(heaps, neighbourhood.getNeighbour(n) * k, heapSizes, neighbourhood.getNeighbour(n), k,
+								weights[n]);
+					}
+				}
+
+				// the k-th highest weight of the node
+				if (neighbourhood.size() > k) {
+					Arrays.sort(weights, 0, neighbourhood.size());
+					thresholds1[i] = weights[neighbourhood.size() - k];
+				}
+			}
+
+			if (collection.sameDataSet) {
+				thresholds2 = thresholds1;
+			} else {
+				thresholds2 = new double[collection.records2.size()];
+				for (int j = 0; j < thresholds2.length; j++) {
+					if (heapSizes[j] == k) {
+						thresholds2[j] = heaps[j * k];
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds a weight to a min-heap of at most k weights, which starts at
+		 * the offset of the heaps array
+		 */
+		private void offer(double[] heaps, int offset, int[] heapSizes, int heap, int k, double weight) {
+			int size = heapSizes[heap];
+
+			if (size < k) {
+				// sift up
+				int i = size;
+				while (i > 0 && heaps[offset + (i - 1) / 2] > weight) {
+					heaps[offset + i] = heaps[offset + (i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				heaps[offset + i] = weight;
+				heapSizes[heap] = size + 1;
+			} else if (weight > heaps[offset]) {
+				// replace the minimum and sift down
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= k) {
+						break;
+					}
+					if (child + 1 < k && heaps[offset + child + 1] < heaps[offset + child]) {
+						child++;
+					}
+					if (heaps[offset + child] >= weight) {
+						break;
+					}
+					heaps[offset + i] = heaps[offset + child];
+					i = child;
+				}
+				heaps[offset + i] = weight;
+			}
+		}
+
+		@Override
+		protected Pair<RecordType, RecordType> computeNext() {
+			while (position == numberOfCandidates) {
+				if (++record == collection.records1.size()) {
+					return null;
+				}
+				collectCandidates();
+			}
+
+			return new Pair<RecordType, RecordType>(collection.records1.get(record),
+					collection.records2.get(candidates[position++]));
+		}
+
+		private void collectCandidates() {
+			numberOfCandidates = 0;
+			position = 0;
+
+			neighbourhood.load(record, false);
+
+			for (int k = 0; k < neighbourhood.size(); k++) {
+				int neighbour = neighbourhood.getNeighbour(k);
+				double weight = neighbourhood.getWeight(k);
+
+				boolean keep;
+				if (pruning == PruningScheme.WEIGHT_EDGE) {
+					keep = weight >= threshold;
+				} else {
+					keep = weight >= thresholds1[record] || weight >= thresholds2[neighbour];
+				}
+
+				if (keep) {
+					if (numberOfCandidates == candidates.length) {
+						candidates = Arrays.copyOf(candidates, candidates.length * 2);
+					}
+					candidates[numberOfCandidates++] = neighbour;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Collection;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Record;
+
+/**
+ * Super class for all blocking functions that assign several blocking keys to
+ * a {@link Record}, like one key for every token of its name. Two records are
+ * compared if they share at least one key (see {@link TokenBlocker}).
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class MultiBlockingKeyGenerator<RecordType extends Matchable> {
+
+	/**
+	 * Returns the blocking keys for the given record. The keys should be
+	 * distinct.
+	 * 
+	 * @param instance
+	 * @return the keys, or an empty collection if the record should not be
+	 *         compared at all
+	 */
+	public abstract Collection<String> getBlockingKeys(RecordType instance);
+
+	/**
+	 * Returns a description of the configuration of this generator, which is
+	 * part of the fingerprint of the blockers that use it (see
+	 * {@link Blocker#getFingerprint()}). Sub classes with parameters should
+	 * add all parameters that change the keys.
+	 * 
+	 * @return
+	 */
+	public String getFingerprint() {
+		return getClass().getName();
+	}
+
+}
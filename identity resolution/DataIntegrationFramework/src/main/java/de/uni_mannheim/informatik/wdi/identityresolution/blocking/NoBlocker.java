@@ -17,6 +17,7 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 
+import java.util.Iterator;
 import java.util.List;
 
 import de.uni_mannheim.informatik.wdi.model.DataSet;
@@ -64,4 +65,21 @@ public class NoBlocker<RecordType extends Matchable> extends
 		return blocker.generatePairs(dataset, isSymmetric);
 	}
 
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		return blocker.iteratePairs(dataset1, dataset2);
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			DataSet<RecordType> dataset, boolean isSymmetric) {
+		return blocker.iteratePairs(dataset, isSymmetric);
+	}
+
+	@Override
+	public double getReductionRatio() {
+		return blocker.getReductionRatio();
+	}
+
 }
@@ -0,0 +1,54 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Record;
+
+/**
+ * Super class for all blocking functions that assign a numeric value to a
+ * {@link Record}, like its revenue or the year it was founded. Two records
+ * are compared if their values are close enough (see {@link RangeBlocker}).
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class NumericBlockingKeyGenerator<RecordType extends Matchable> {
+
+	/**
+	 * Returns the blocking value for the given record
+	 * 
+	 * @param instance
+	 * @return the value, or null if the record should not be compared at all
+	 */
+	public abstract Double getBlockingValue(RecordType instance);
+
+	/**
+	 * Returns a description of the configuration of this generator, which is
+	 * part of the fingerprint of the {@link RangeBlocker} (see
+	 * {@link Blocker#getFingerprint()}). Sub classes with parameters should
+	 * add all parameters that change the values.
+	 * 
+	 * @return
+	 */
+	public String getFingerprint() {
+		return getClass().getName();
+	}
+
+}
@@ -0,0 +1,128 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Base class for the lazy pair iterators returned by
+ * {@link Blocker#iteratePairs(de.uni_mannheim.informatik.wdi.model.DataSet, de.uni_mannheim.informatik.wdi.model.DataSet)}.
+ * Sub classes only implement {@link #computeNext()}, which creates the next
+ * pair on demand. No pair is created before it is requested, so a consumer
+ * that processes the pairs one by one never holds more than a single pair.
+ * 
+ * Sub classes should return all pairs that share their first record one after
+ * another (like all pairs of one record with the records of its block), so
+ * the {@link de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine}
+ * can score them with a single call of
+ * {@link de.uni_mannheim.informatik.wdi.identityresolution.Comparator#compareBatch(Object, java.util.List, double[])}.
+ * 
+ * Iterators that hold resources until they are consumed (like the temporary
+ * files of an external sort) release them in {@link #close()}, which
+ * consumers call if they stop before the last pair.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class PairIterator<RecordType extends Matchable> implements Iterator<Pair<RecordType, RecordType>>,
+		Closeable {
+
+	private Pair<RecordType, RecordType> next = null;
+	private boolean finished = false;
+	private long numberOfPairs = 0;
+
+	/**
+	 * Creates the next pair
+	 * 
+	 * @return the next pair or null if there are no more pairs
+	 */
+	protected abstract Pair<RecordType, RecordType> computeNext();
+
+	/**
+	 * Called once after the last pair was returned. Can be used by blockers to
+	 * calculate the performance.
+	 * 
+	 * @param numberOfPairs
+	 *            the total number of pairs that were returned
+	 */
+	protected void finished(long numberOfPairs) {
+	}
+
+	/**
+	 * Returns the number of pairs that have been returned so far
+	 * 
+	 * @return
+	 */
+	public long getNumberOfPairs() {
+		return numberOfPairs;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			next = computeNext();
+
+			if (next == null) {
+				finished = true;
+				finished(numberOfPairs);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Pair<RecordType, RecordType> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Pair<RecordType, RecordType> result = next;
+		next = null;
+		numberOfPairs++;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Releases the resources of the iterator. Can be called several times and
+	 * also after the iterator has been consumed.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Closes the iterator if it is a {@link PairIterator}
+	 * 
+	 * @param pairs
+	 */
+	public static void close(Iterator<?> pairs) {
+		if (pairs instanceof PairIterator) {
+			((PairIterator<?>) pairs).close();
+		}
+	}
+}
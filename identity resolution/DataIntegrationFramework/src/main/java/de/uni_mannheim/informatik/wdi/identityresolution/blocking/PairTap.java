@@ -0,0 +1,46 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+
+/**
+ * Observes the candidate pairs produced by a {@link Blocker} while they are
+ * streamed through the {@link MatchingEngine}. Allows evaluating the blocking
+ * (e.g. with the {@link BlockingEvaluator}) without keeping all pairs in
+ * memory.
+ * 
+ * The {@link MatchingEngine} calls all taps from a single thread in the order
+ * in which the blocker created the pairs.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public interface PairTap<RecordType extends Matchable> {
+
+	/**
+	 * Called for every candidate pair that was created by the blocker
+	 * 
+	 * @param pair
+	 */
+	void pairGenerated(Pair<RecordType, RecordType> pair);
+
+}
@@ -0,0 +1,181 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Q-gram based {@link Blocker}, which tolerates typos in the blocking keys.
+ * The blocking key of a record (created by a {@link BlockingKeyGenerator}) is
+ * split into its q-grams. Every sub-list of the q-grams that contains at least
+ * threshold * (number of q-grams) of them, in their original order, becomes a
+ * key of the record. Two records are compared if they share at least one of
+ * these keys, i.e. if their blocking keys only differ in a few q-grams.
+ * 
+ * Only the first {@value #MAX_QGRAMS} q-grams of a blocking key are used, as
+ * the number of sub-lists grows exponentially with the number of q-grams. The
+ * keys are computed in parallel by default.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class QGramBlocker<RecordType extends Matchable> extends TokenBlocker<RecordType> {
+
+	/**
+	 * The maximal number of q-grams of a blocking key that are used
+	 */
+	public static final int MAX_QGRAMS = 15;
+
+	/**
+	 * Creates a blocker that does not drop any blocks
+	 * 
+	 * @param blockingFunction
+	 *            creates the blocking keys
+	 * @param q
+	 *            the length of the q-grams
+	 * @param threshold
+	 *            the fraction of the q-grams that two keys must share, between
+	 *            0 and 1
+	 */
+	public QGramBlocker(BlockingKeyGenerator<RecordType> blockingFunction, int q, double threshold) {
+		this(blockingFunction, q, threshold, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param blockingFunction
+	 *            creates the blocking keys
+	 * @param q
+	 *            the length of the q-grams
+	 * @param threshold
+	 *            the fraction of the q-grams that two keys must share, between
+	 *            0 and 1
+	 * @param maxBlockSize
+	 *            blocks with more records are dropped
+	 */
+	public QGramBlocker(BlockingKeyGenerator<RecordType> blockingFunction, int q, double threshold,
+			int maxBlockSize) {
+		super(new QGramKeyGenerator<>(blockingFunction, q, threshold), maxBlockSize);
+		setParallelism(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns all sub-lists of the q-grams of the key with at least
+	 * threshold * (number of q-grams) q-grams, each q-gram list concatenated
+	 * to a string
+	 * 
+	 * @param key
+	 * @param q
+	 * @param threshold
+	 * @return
+	 */
+	static Set<String> getSubLists(String key, int q, double threshold) {
+		if (key == null || key.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		List<String> qgrams = new ArrayList<>();
+		if (key.length() <= q) {
+			qgrams.add(key);
+		} else {
+			for (int i = 0; i + q <= key.length() && qgrams.size() < MAX_QGRAMS; i++) {
+				qgrams.add(key.substring(i, i + q));
+			}
+		}
+
+		int minLength = Math.max(1, (int) Math.floor(qgrams.size() * threshold));
+
+		Set<String> subLists = new LinkedHashSet<>();
+		addSubLists(qgrams, 0, new StringBuilder(), 0, minLength, subLists);
+		return subLists;
+	}
+
+	/**
+	 * Adds all sub-lists that start with the given prefix and continue with
+	 * q-grams from position i on
+	 * 
+	 * @param qgrams
+	 * @param i
+	 * @param prefix
+	 *            the concatenated q-grams that were selected so far
+	 * @param selected
+	 *            the number of q-grams in the prefix
+	 * @param minLength
+	 * @param subLists
+	 */
+	private static void addSubLists(List<String> qgrams, int i, StringBuilder prefix, int selected, int minLength,
+			Set<String> subLists) {
+		// stop if the remaining q-grams are not enough to reach the minimal
+		// length
+		if (selected + qgrams.size() - i < minLength) {
+			return;
+		}
+
+		if (i == qgrams.size()) {
+			subLists.add(prefix.toString());
+			return;
+		}
+
+		int length = prefix.length();
+
+		// select the q-gram
+		prefix.append(qgrams.get(i));
+		addSubLists(qgrams, i + 1, prefix, selected + 1, minLength, subLists);
+		prefix.setLength(length);
+
+		// skip the q-gram
+		addSubLists(qgrams, i + 1, prefix, selected, minLength, subLists);
+	}
+
+	/**
+	 * Creates the sub-lists of the q-grams of the blocking key of a record
+	 */
+	private static class QGramKeyGenerator<RecordType extends Matchable> extends MultiBlockingKeyGenerator<RecordType> {
+
+		private BlockingKeyGenerator<RecordType> blockingFunction;
+		private int q;
+		private double threshold;
+
+		public QGramKeyGenerator(BlockingKeyGenerator<RecordType> blockingFunction, int q, double threshold) {
+			if (q < 1) {
+				throw new IllegalArgumentException("q must be at least 1");
+			}
+			this.blockingFunction = blockingFunction;
+			this.q = q;
+			this.threshold = threshold;
+		}
+
+		@Override
+		public Collection<String> getBlockingKeys(RecordType instance) {
+			return getSubLists(blockingFunction.getBlockingKey(instance), q, threshold);
+		}
+
+		@Override
+		public String getFingerprint() {
+			return String.format("%s(%s, q: %d, threshold: %s)", super.getFingerprint(),
+					blockingFunction.getFingerprint(), q, Double.toString(threshold));
+		}
+	}
+}
@@ -0,0 +1,376 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.model.Record;
+
+/**
+ * Implementation of a {@link Blocker} for numeric values (see
+ * {@link NumericBlockingKeyGenerator}), where {@link Record}s are compared if
+ * their values differ by at most a tolerance. Unlike blocking keys created
+ * from ranges of values (like decades), there are no fixed boundaries that
+ * separate close values.
+ * 
+ * The tolerance is either absolute (|a-b| <= tolerance) or relative (|a-b| <=
+ * tolerance * max(|a|,|b|), like
+ * {@link de.uni_mannheim.informatik.wdi.identityresolution.similarity.numeric.PercentageSimilarity}
+ * ). With the log scale, which is useful for money values, the values are
+ * transformed to sign(x)*log(1+|x|) before the tolerance is applied.
+ * 
+ * The values of a data set are sorted once. For every record, the records
+ * with a value within the tolerance are found by a binary search in the
+ * sorted values. Records without a value are not compared. All pairs of a
+ * record are returned one after another.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class RangeBlocker<RecordType extends Matchable> extends
+		Blocker<RecordType> {
+
+	/**
+	 * Ranges with at most this many values are sorted by insertion
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private NumericBlockingKeyGenerator<RecordType> blockingFunction;
+	private double tolerance;
+	private boolean relative;
+	private boolean logScale = false;
+
+	/**
+	 * @param blockingFunction
+	 * @param tolerance
+	 *            the maximal difference of two values that are compared
+	 * @param relative
+	 *            true if the tolerance is a fraction of the larger value
+	 *            (must be less than 1), false if it is an absolute difference
+	 */
+	public RangeBlocker(
+			NumericBlockingKeyGenerator<RecordType> blockingFunction,
+			double tolerance, boolean relative) {
+		if (tolerance < 0 || relative && tolerance >= 1) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid tolerance: %s", Double.toString(tolerance)));
+		}
+		this.blockingFunction = blockingFunction;
+		this.tolerance = tolerance;
+		this.relative = relative;
+	}
+
+	/**
+	 * Applies the tolerance to the logarithm of the values
+	 * 
+	 * @param logScale
+	 */
+	public void setLogScale(boolean logScale) {
+		this.logScale = logScale;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, tolerance: %s, relative: %b, log scale: %b)",
+				super.getFingerprint(), blockingFunction.getFingerprint(),
+				Double.toString(tolerance), relative, logScale);
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(
+			DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		return new RangePairIterator(createSortedValues(dataset1),
+				createSortedValues(dataset2), false) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset, boolean isSymmetric) {
+		SortedValues values = createSortedValues(dataset);
+
+		return new RangePairIterator(values, values, isSymmetric) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	/**
+	 * The records of a data set that have a value, sorted by their values
+	 */
+	private class SortedValues {
+
+		private List<RecordType> records;
+		private double[] values;
+
+		/**
+		 * states if the values were transformed to the log scale
+		 */
+		private boolean logScale;
+	}
+
+	/**
+	 * Computes the values of all records and sorts them, or returns the
+	 * retained values of the data set if they were computed with the current
+	 * scale
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	private SortedValues createSortedValues(DataSet<RecordType> dataset) {
+		SortedValues sortedValues = getRetainedIndex(dataset);
+		if (sortedValues != null && sortedValues.logScale == logScale) {
+			return sortedValues;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getSize());
+		double[] values = new double[dataset.getSize()];
+		for (RecordType record : dataset.getRecords()) {
+			Double value = blockingFunction.getBlockingValue(record);
+			if (value != null && !value.isNaN()) {
+				values[records.size()] = transform(value);
+				records.add(record);
+			}
+		}
+
+		int size = records.size();
+		values = Arrays.copyOf(values, size);
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		sort(values, order, new double[size], new int[size], 0, size);
+
+		sortedValues = new SortedValues();
+		sortedValues.logScale = logScale;
+		sortedValues.records = new ArrayList<>(size);
+		sortedValues.values = values;
+		for (int i = 0; i < size; i++) {
+			sortedValues.records.add(records.get(order[i]));
+		}
+
+		retainIndex(dataset, sortedValues);
+
+		return sortedValues;
+	}
+
+	/**
+	 * Sorts values[from] ... values[to-1] and applies the same permutation to
+	 * order. The sort is a stable merge sort, small ranges are sorted by
+	 * insertion.
+	 */
+	static void sort(double[] values, int[] order, double[] valueBuffer,
+			int[] orderBuffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				double value = values[i];
+				int position = order[i];
+				int j = i - 1;
+				while (j >= from && Double.compare(value, values[j]) < 0) {
+					values[j + 1] = values[j];
+					order[j + 1] = order[j];
+					j--;
+				}
+				values[j + 1] = value;
+				order[j + 1] = position;
+			}
+			return;
+		}
+
+		int mid = (from + to) >>> 1;
+		sort(values, order, valueBuffer, orderBuffer, from, mid);
+		sort(values, order, valueBuffer, orderBuffer, mid, to);
+		if (Double.compare(values[mid], values[mid - 1]) >= 0) {
+			// already in order
+			return;
+		}
+
+		int i = from;
+		int j = mid;
+		int k = from;
+		while (i < mid && j < to) {
+			if (Double.compare(values[j], values[i]) < 0) {
+				valueBuffer[k] = values[j];
+				orderBuffer[k++] = order[j++];
+			} else {
+				valueBuffer[k] = values[i];
+				orderBuffer[k++] = order[i++];
+			}
+		}
+		while (i < mid) {
+			valueBuffer[k] = values[i];
+			orderBuffer[k++] = order[i++];
+		}
+		while (j < to) {
+			valueBuffer[k] = values[j];
+			orderBuffer[k++] = order[j++];
+		}
+		System.arraycopy(valueBuffer, from, values, from, to - from);
+		System.arraycopy(orderBuffer, from, order, from, to - from);
+	}
+
+	private double transform(double value) {
+		if (logScale) {
+			return Math.signum(value) * Math.log1p(Math.abs(value));
+		} else {
+			return value;
+		}
+	}
+
+	/**
+	 * Returns the maximal difference between the value and a value that is
+	 * within the tolerance
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private double getMaxDifference(double value) {
+		if (relative) {
+			// max(|a|,|b|) <= |a| + |a-b| <= |a| + tolerance * max(|a|,|b|)
+			return tolerance * Math.abs(value) / (1 - tolerance);
+		} else {
+			return tolerance;
+		}
+	}
+
+	private boolean isWithinTolerance(double value1, double value2) {
+		double difference = Math.abs(value1 - value2);
+		if (relative) {
+			return difference <= tolerance
+					* Math.max(Math.abs(value1), Math.abs(value2));
+		} else {
+			return difference <= tolerance;
+		}
+	}
+
+	/**
+	 * Returns the index of the first value that is not less than the value
+	 * 
+	 * @param values
+	 *            sorted values
+	 * @param value
+	 * @return
+	 */
+	static int lowerBound(double[] values, double value) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Pairs every record of the first sorted values with the records of the
+	 * second sorted values within the tolerance
+	 */
+	private class RangePairIterator extends PairIterator<RecordType> {
+
+		private SortedValues first;
+		private SortedValues second;
+		private boolean symmetric;
+
+		private int i = 0;
+		private int j = -1;
+		private double upperBound;
+
+		/**
+		 * @param first
+		 * @param second
+		 *            the same object as first for a single data set
+		 * @param symmetric
+		 *            true if only one of the pairs (a,b) and (b,a) should be
+		 *            created
+		 */
+		public RangePairIterator(SortedValues first, SortedValues second,
+				boolean symmetric) {
+			this.first = first;
+			this.second = second;
+			this.symmetric = symmetric;
+		}
+
+		@Override
+		protected Pair<RecordType, RecordType> computeNext() {
+			while (i < first.values.length) {
+				double value = first.values[i];
+
+				if (j < 0) {
+					// the bounds are widened against rounding errors, the
+					// exact check follows
+					double difference = getMaxDifference(value) * (1 + 1e-9);
+					upperBound = value + difference;
+					if (symmetric) {
+						// the records before i have already been paired with i
+						j = i + 1;
+					} else {
+						j = lowerBound(second.values, value - difference);
+					}
+				}
+
+				while (j < second.values.length
+						&& second.values[j] <= upperBound) {
+					int k = j++;
+
+					if ((first != second || k != i)
+							&& isWithinTolerance(value, second.values[k])) {
+						return new Pair<RecordType, RecordType>(
+								first.records.get(i), second.records.get(k));
+					}
+				}
+
+				i++;
+				j = -1;
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Record;
+
+/**
+ * Stores a value per {@link Record}, like its blocking key, by the provenance
+ * and the identifier of the record. Records of different data sets can have
+ * the same identifier, so there is one map per provenance. The values of a
+ * record are not removed if the record changes. The cache is thread-safe.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <ValueType>
+ */
+public class RecordValueCache<ValueType> {
+
+	/**
+	 * provenance -> identifier -> value
+	 */
+	private ConcurrentHashMap<String, ConcurrentHashMap<String, ValueType>> values = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the value of the record
+	 * 
+	 * @param record
+	 * @return the value or null if the record is not in the cache
+	 */
+	public ValueType get(Matchable record) {
+		return getValues(record.getProvenance()).get(record.getIdentifier());
+	}
+
+	/**
+	 * Sets the value of the record, which must not be null
+	 * 
+	 * @param record
+	 * @param value
+	 */
+	public void put(Matchable record, ValueType value) {
+		getValues(record.getProvenance()).put(record.getIdentifier(), value);
+	}
+
+	/**
+	 * Returns the number of records in the cache
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Map<String, ValueType> valuesOfProvenance : values.values()) {
+			size += valuesOfProvenance.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all values from the cache
+	 */
+	public void clear() {
+		values.clear();
+	}
+
+	private ConcurrentHashMap<String, ValueType> getValues(String provenance) {
+		if (provenance == null) {
+			provenance = "";
+		}
+
+		ConcurrentHashMap<String, ValueType> valuesOfProvenance = values
+				.get(provenance);
+		if (valuesOfProvenance == null) {
+			valuesOfProvenance = new ConcurrentHashMap<>();
+			ConcurrentHashMap<String, ValueType> existing = values
+					.putIfAbsent(provenance, valuesOfProvenance);
+			if (existing != null) {
+				valuesOfProvenance = existing;
+			}
+		}
+		return valuesOfProvenance;
+	}
+
+}
@@ -17,12 +17,22 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.model.DataSet;
 import de.uni_mannheim.informatik.wdi.model.Matchable;
 import de.uni_mannheim.informatik.wdi.model.Pair;
@@ -33,112 +43,1252 @@ import de.uni_mannheim.informatik.wdi.model.Record;
  * the blocking key of the {@link BlockingKeyGenerator} compares only the
  * surrounding {@link Record}s.
  * 
+ * The records are sorted by their blocking keys and every record is compared
+ * to the following windowSize-1 records. For two data sets, both data sets
+ * are sorted together and only the records of the other data set are counted.
+ * 
+ * With several {@link BlockingKeyGenerator}s (multi-pass), the records are
+ * sorted once per key and a pair is compared if it is in the same window in
+ * any of the passes. With an adaptive window (see
+ * {@link #setAdaptiveWindow(SimilarityMeasure, double, int, int)}), the window
+ * of a record ends at the first following record whose key is not similar to
+ * its own key, so it can be larger than windowSize in dense regions of similar
+ * keys and smaller (down to a minimal size) where the keys change quickly.
+ * 
+ * The pairs are created record by record: all pairs of a record (from all
+ * passes) are collected and de-duplicated before they are returned. No pair is
+ * returned twice and no record is paired with itself. For two data sets, the
+ * first record of every pair is from the first data set.
+ * 
+ * With a parallelism greater than 1, the keys are computed and sorted and the
+ * windows are determined concurrently. generatePairs(...) then splits the
+ * sorted records into contiguous partitions and creates the pairs of each
+ * partition in its own task. A partition reads the windows of the neighbouring
+ * records beyond its boundaries, but every pair is only created by one of its
+ * records, so no pair is created twice. The result is identical to a
+ * sequential run, including the order of the pairs. The
+ * {@link BlockingKeyGenerator}s and the key similarity must be thread-safe in
+ * this case.
+ * 
+ * For data sets whose keys do not fit into memory, the keys can be sorted
+ * externally (see {@link #setExternalSort(File, int)}). The pairs are then
+ * created while the window slides over the merged runs, and the records are
+ * looked up by their identifiers when a pair is returned.
+ * 
  * @author Robert Meusel (robert@dwslab.de)
+ * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  * @param <RecordType>
  */
 public class SortedNeighbourhoodBlocker<RecordType extends Matchable> extends
 		Blocker<RecordType> {
 
-	private BlockingKeyGenerator<RecordType> blockingFunction;
+	/**
+	 * Ranges with fewer records than this are not split any further when
+	 * computing the keys, sorting them and determining the windows
+	 */
+	private static final int RECORDS_PER_TASK = 1024;
+
+	/**
+	 * Ranges with at most this many positions are sorted by insertion
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private List<BlockingKeyGenerator<RecordType>> blockingFunctions;
 	private int windowSize;
 
+	private SimilarityMeasure<String> keySimilarity = null;
+	private double minKeySimilarity;
+	private int minWindowSize;
+	private int maxWindowSize;
+
+	private File externalSortDirectory = null;
+	private int recordsPerRun = 0;
+
+	private int parallelism = 1;
+
 	public SortedNeighbourhoodBlocker(
 			BlockingKeyGenerator<RecordType> blockingFunction, int windowSize) {
-		this.blockingFunction = blockingFunction;
+		this(Collections.singletonList(blockingFunction), windowSize);
+	}
+
+	/**
+	 * Creates a multi-pass blocker, which sorts the records once for each
+	 * blocking function
+	 * 
+	 * @param blockingFunctions
+	 * @param windowSize
+	 */
+	public SortedNeighbourhoodBlocker(
+			List<BlockingKeyGenerator<RecordType>> blockingFunctions,
+			int windowSize) {
+		if (blockingFunctions.isEmpty()) {
+			throw new IllegalArgumentException(
+					"At least one blocking function is required");
+		}
+		this.blockingFunctions = new ArrayList<>(blockingFunctions);
 		this.windowSize = windowSize;
 	}
 
+	/**
+	 * Enables the adaptive window. The window of a record always contains
+	 * windowSize records and is extended by the following records as long as
+	 * the similarity of their keys to the key of the record is at least
+	 * minKeySimilarity, but to no more than maxWindowSize records.
+	 * 
+	 * @param keySimilarity
+	 *            the similarity of two blocking keys, or null to disable the
+	 *            adaptive window
+	 * @param minKeySimilarity
+	 * @param maxWindowSize
+	 */
+	public void setAdaptiveWindow(SimilarityMeasure<String> keySimilarity,
+			double minKeySimilarity, int maxWindowSize) {
+		setAdaptiveWindow(keySimilarity, minKeySimilarity, windowSize,
+				maxWindowSize);
+	}
+
+	/**
+	 * Enables the adaptive window. The window of a record always contains
+	 * minWindowSize records. It is then extended by the following records as
+	 * long as the similarity of their keys to the key of the record is at
+	 * least minKeySimilarity, but to no more than maxWindowSize records. The
+	 * window ends at the first record with a less similar key, even if it
+	 * contains fewer than windowSize records.
+	 * 
+	 * @param keySimilarity
+	 *            the similarity of two blocking keys, or null to disable the
+	 *            adaptive window
+	 * @param minKeySimilarity
+	 * @param minWindowSize
+	 *            the size of the smallest window, at most windowSize
+	 * @param maxWindowSize
+	 *            the size of the largest window, at least windowSize
+	 */
+	public void setAdaptiveWindow(SimilarityMeasure<String> keySimilarity,
+			double minKeySimilarity, int minWindowSize, int maxWindowSize) {
+		this.keySimilarity = keySimilarity;
+		this.minKeySimilarity = minKeySimilarity;
+		this.minWindowSize = Math.min(windowSize, minWindowSize);
+		this.maxWindowSize = Math.max(windowSize, maxWindowSize);
+	}
+
+	/**
+	 * Returns the number of threads that are used to prepare the windows and
+	 * to generate the pairs
+	 * 
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute and sort the keys,
+	 * to determine the windows and by generatePairs(...) to create the pairs.
+	 * A value of 1 (the default) does all work in the calling thread. The
+	 * iterators returned by iteratePairs(...) always create their pairs
+	 * sequentially. Not used with the external sort.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Enables the external sort. The blocking keys are sorted in runs of
+	 * recordsPerRun records, which are written to temporary files and merged
+	 * while the pairs are created. The memory needed for the keys is then
+	 * bounded by the run size and the window instead of the size of the data
+	 * sets (for two data sets, records of the same data set that follow each
+	 * other without a record of the other data set in between are kept as
+	 * well). The files are deleted when the iterator returned by
+	 * iteratePairs(...) has been consumed or closed (see
+	 * {@link PairIterator#close()}), and when the JVM exits otherwise.
+	 * 
+	 * With the external sort, the pairs are returned as the window slides
+	 * over the records: every record is paired with the preceding records
+	 * whose window reaches it. The pairs are the same as with the in-memory
+	 * sort, but in a different order. Only a single blocking function is
+	 * supported and the keys are not retained.
+	 * 
+	 * @param directory
+	 *            the directory for the temporary files, or null for the
+	 *            default temporary directory
+	 * @param recordsPerRun
+	 *            the number of records that are sorted in memory, or 0 to
+	 *            disable the external sort (the default)
+	 */
+	public void setExternalSort(File directory, int recordsPerRun) {
+		if (recordsPerRun > 0 && blockingFunctions.size() > 1) {
+			throw new IllegalStateException(
+					"The external sort supports only a single blocking function");
+		}
+		this.externalSortDirectory = directory;
+		this.recordsPerRun = Math.max(0, recordsPerRun);
+	}
+
+	@Override
+	public String getFingerprint() {
+		StringBuilder sb = new StringBuilder(super.getFingerprint());
+		sb.append("(");
+		for (BlockingKeyGenerator<RecordType> blockingFunction : blockingFunctions) {
+			sb.append(blockingFunction.getFingerprint()).append(", ");
+		}
+		sb.append(String.format("window: %d", windowSize));
+		if (keySimilarity != null) {
+			sb.append(String.format(", adaptive window: %s %s %d-%d",
+					keySimilarity.getClass().getName(),
+					Double.toString(minKeySimilarity), minWindowSize,
+					maxWindowSize));
+		}
+		// the external sort returns the pairs in a different order
+		sb.append(String.format(", external sort: %b)", recordsPerRun > 0));
+		return sb.toString();
+	}
+
 	@Override
 	public List<Pair<RecordType, RecordType>> generatePairs(
 			DataSet<RecordType> dataset, boolean isSymmetric) {
-		List<Pair<RecordType, RecordType>> result = new LinkedList<>();
+		if (parallelism == 1 || recordsPerRun > 0) {
+			return collectPairs(iteratePairs(dataset, isSymmetric));
+		}
+
+		List<Pair<RecordType, RecordType>> result = generatePairs(createIterator(
+				dataset, isSymmetric));
+
+		calculatePerformance(dataset, dataset, result.size());
+
+		return result;
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		if (parallelism == 1 || recordsPerRun > 0) {
+			return collectPairs(iteratePairs(dataset1, dataset2));
+		}
+
+		List<Pair<RecordType, RecordType>> result = generatePairs(createIterator(
+				dataset1, dataset2));
+
+		calculatePerformance(dataset1, dataset2, result.size());
+
+		return result;
+	}
+
+	/**
+	 * Creates the pairs of contiguous partitions of the sorted records
+	 * concurrently and concatenates them in the order of the partitions
+	 * 
+	 * @param pairs
+	 * @return
+	 */
+	private List<Pair<RecordType, RecordType>> generatePairs(
+			NeighbourhoodPairIterator pairs) {
+		int n = pairs.first.order.length;
+		int numberOfPartitions = Math.max(1,
+				Math.min(parallelism * 4, n / RECORDS_PER_TASK));
+
+		List<Callable<List<Pair<RecordType, RecordType>>>> tasks = new ArrayList<>(
+				numberOfPartitions);
+		for (int p = 0; p < numberOfPartitions; p++) {
+			final NeighbourhoodPairIterator partition = pairs.partition(
+					(int) ((long) n * p / numberOfPartitions),
+					(int) ((long) n * (p + 1) / numberOfPartitions));
+
+			tasks.add(new Callable<List<Pair<RecordType, RecordType>>>() {
+
+				@Override
+				public List<Pair<RecordType, RecordType>> call()
+						throws Exception {
+					List<Pair<RecordType, RecordType>> result = new ArrayList<>();
+					while (partition.hasNext()) {
+						result.add(partition.next());
+					}
+					return result;
+				}
+			});
+		}
+
+		List<Pair<RecordType, RecordType>> result = new ArrayList<>();
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<List<Pair<RecordType, RecordType>>> f : pool
+					.invokeAll(tasks)) {
+				result.addAll(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		return result;
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset, boolean isSymmetric) {
+		if (recordsPerRun > 0) {
+			List<DataSet<RecordType>> datasets = Collections
+					.singletonList(dataset);
+			return new ExternalPairIterator(datasets, sortExternally(datasets),
+					isSymmetric ? ExternalPairIterator.SYMMETRIC
+							: ExternalPairIterator.BOTH_DIRECTIONS) {
+
+				@Override
+				protected void finished(long numberOfPairs) {
+					super.finished(numberOfPairs);
+					calculatePerformance(dataset, dataset, numberOfPairs);
+				}
+			};
+		}
+
+		return createIterator(dataset, isSymmetric);
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(
+			final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		if (recordsPerRun > 0) {
+			List<DataSet<RecordType>> datasets = Arrays.asList(dataset1,
+					dataset2);
+			return new ExternalPairIterator(datasets, sortExternally(datasets),
+					ExternalPairIterator.TWO_DATA_SETS) {
+
+				@Override
+				protected void finished(long numberOfPairs) {
+					super.finished(numberOfPairs);
+					calculatePerformance(dataset1, dataset2, numberOfPairs);
+				}
+			};
+		}
+
+		return createIterator(dataset1, dataset2);
+	}
 
-		// add all instances to one list, and compute the keys
-		ArrayList<Pair<String, RecordType>> keyIdentifierList = new ArrayList<Pair<String, RecordType>>();
-		for (RecordType record : dataset.getRecords()) {
-			keyIdentifierList.add(new Pair<String, RecordType>(blockingFunction
-					.getBlockingKey(record), record));
+	private NeighbourhoodPairIterator createIterator(
+			final DataSet<RecordType> dataset, boolean isSymmetric) {
+		ForkJoinPool pool = createPool(dataset.getSize());
+		try {
+			List<SortedKeys> index = createSortedKeyLists(dataset, pool);
+
+			List<Pass> passes = new ArrayList<>(index.size());
+			for (SortedKeys keys : index) {
+				passes.add(new Pass(keys.keys, keys.order, -1, pool));
+			}
+
+			return new NeighbourhoodPairIterator(index.get(0).records,
+					index.get(0).records.size(), passes, isSymmetric, 0,
+					index.get(0).records.size()) {
+
+				@Override
+				protected void finished(long numberOfPairs) {
+					calculatePerformance(dataset, dataset, numberOfPairs);
+				}
+			};
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
-		// sort the list by the keys
-		Comparator<Pair<String, RecordType>> pairComparator = new Comparator<Pair<String, RecordType>>() {
+	}
+
+	private NeighbourhoodPairIterator createIterator(
+			final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		ForkJoinPool pool = createPool(dataset1.getSize()
+				+ dataset2.getSize());
+		try {
+			List<SortedKeys> index1 = createSortedKeyLists(dataset1, pool);
+			List<SortedKeys> index2 = createSortedKeyLists(dataset2, pool);
+
+			// the records of the second data set follow the records of the
+			// first data set
+			int n1 = index1.get(0).records.size();
+			List<RecordType> records = new ArrayList<>(index1.get(0).records);
+			records.addAll(index2.get(0).records);
+
+			List<Pass> passes = new ArrayList<>(index1.size());
+			for (int p = 0; p < index1.size(); p++) {
+				SortedKeys keys1 = index1.get(p);
+				SortedKeys keys2 = index2.get(p);
+
+				String[] keys = Arrays.copyOf(keys1.keys, records.size());
+				System.arraycopy(keys2.keys, 0, keys, n1, keys2.keys.length);
 
-			@Override
-			public int compare(Pair<String, RecordType> o1,
-					Pair<String, RecordType> o2) {
-				return o1.getFirst().compareTo(o2.getFirst());
+				passes.add(new Pass(keys, merge(keys1, keys2, n1), n1, pool));
 			}
 
-		};
-		Collections.sort(keyIdentifierList, pairComparator);
-		if (isSymmetric) {
-			for (int i = 0; i < keyIdentifierList.size() - 1; i++) {
-				for (int j = i + 1; ((j - i) < windowSize)
-						&& (j < keyIdentifierList.size()); j++) {
-					result.add(new Pair<RecordType, RecordType>(
-							keyIdentifierList.get(i).getSecond(),
-							keyIdentifierList.get(j).getSecond()));
+			return new NeighbourhoodPairIterator(records, n1, passes, false,
+					0, records.size()) {
+
+				@Override
+				protected void finished(long numberOfPairs) {
+					calculatePerformance(dataset1, dataset2, numberOfPairs);
 				}
+			};
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
 			}
+		}
+	}
+
+	/**
+	 * Creates the pool for the preparation of the windows, or returns null
+	 * if the preparation runs in the calling thread
+	 * 
+	 * @param numberOfRecords
+	 * @return
+	 */
+	private ForkJoinPool createPool(int numberOfRecords) {
+		if (parallelism > 1 && numberOfRecords > RECORDS_PER_TASK) {
+			return new ForkJoinPool(parallelism);
 		} else {
-			for (int i = 0; i < keyIdentifierList.size() - 1; i++) {
-				for (int j = Math.max(0, i - windowSize + 1); ((j - i) < windowSize)
-						&& (j < keyIdentifierList.size()); j++) {
-					result.add(new Pair<RecordType, RecordType>(
-							keyIdentifierList.get(i).getSecond(),
-							keyIdentifierList.get(j).getSecond()));
+			return null;
+		}
+	}
+
+	/**
+	 * The blocking keys of the records of a data set for one blocking
+	 * function and the positions of the records sorted by their keys
+	 */
+	private class SortedKeys {
+
+		private List<RecordType> records;
+		private String[] keys;
+		private int[] order;
+	}
+
+	/**
+	 * Computes the blocking keys of all records and sorts them by their keys
+	 * for every blocking function, or returns the retained lists of the data
+	 * set
+	 * 
+	 * @param dataset
+	 * @param pool
+	 *            the pool for concurrent tasks, or null
+	 * @return
+	 */
+	private List<SortedKeys> createSortedKeyLists(DataSet<RecordType> dataset,
+			ForkJoinPool pool) {
+		List<SortedKeys> index = getRetainedIndex(dataset);
+		if (index != null) {
+			return index;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getRecords());
+		index = new ArrayList<>(blockingFunctions.size());
+
+		for (BlockingKeyGenerator<RecordType> blockingFunction : blockingFunctions) {
+			SortedKeys sortedKeys = new SortedKeys();
+			sortedKeys.records = records;
+			sortedKeys.keys = new String[records.size()];
+			sortedKeys.order = new int[records.size()];
+			for (int i = 0; i < sortedKeys.order.length; i++) {
+				sortedKeys.order[i] = i;
+			}
+
+			// sort the positions by the keys (stable, so records with equal
+			// keys keep their order)
+			if (pool == null) {
+				computeKeys(blockingFunction, records, sortedKeys.keys, 0,
+						records.size());
+				sort(sortedKeys.keys, sortedKeys.order,
+						new int[records.size()], 0, records.size());
+			} else {
+				pool.invoke(new KeyTask(blockingFunction, records,
+						sortedKeys.keys, 0, records.size()));
+				pool.invoke(new SortTask(sortedKeys.keys, sortedKeys.order,
+						new int[records.size()], 0, records.size()));
+			}
+
+			index.add(sortedKeys);
+		}
+
+		retainIndex(dataset, index);
+
+		return index;
+	}
+
+	private void computeKeys(BlockingKeyGenerator<RecordType> blockingFunction,
+			List<RecordType> records, String[] keys, int from, int to) {
+		for (int i = from; i < to; i++) {
+			keys[i] = blockingFunction.getBlockingKey(records.get(i));
+		}
+	}
+
+	/**
+	 * Sorts order[from] ... order[to-1] by the keys of the positions. The
+	 * sort is a stable merge sort on the primitive positions, small ranges are
+	 * sorted by insertion.
+	 * 
+	 * @param keys
+	 * @param order
+	 * @param buffer
+	 *            temporary space with the same length as order
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 */
+	private static void sort(String[] keys, int[] order, int[] buffer,
+			int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int position = order[i];
+				String key = keys[position];
+				int j = i - 1;
+				while (j >= from && compareKeys(key, keys[order[j]]) < 0) {
+					order[j + 1] = order[j];
+					j--;
 				}
+				order[j + 1] = position;
 			}
+			return;
 		}
 
-		calculatePerformance(dataset, dataset, result);
-		return result;
+		int mid = (from + to) >>> 1;
+		sort(keys, order, buffer, from, mid);
+		sort(keys, order, buffer, mid, to);
+		merge(keys, order, buffer, from, mid, to);
 	}
 
-	@Override
-	public List<Pair<RecordType, RecordType>> generatePairs(
-			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
-		List<Pair<RecordType, RecordType>> result = new LinkedList<>();
+	/**
+	 * Merges the sorted ranges order[from] ... order[mid-1] and order[mid] ...
+	 * order[to-1]. On equal keys the left range comes first.
+	 */
+	private static void merge(String[] keys, int[] order, int[] buffer,
+			int from, int mid, int to) {
+		if (compareKeys(keys[order[mid]], keys[order[mid - 1]]) >= 0) {
+			// already in order
+			return;
+		}
 
-		// add all instances to one list, and compute the keys
-		ArrayList<Pair<String, RecordType>> keyIdentifierList = new ArrayList<Pair<String, RecordType>>();
-		for (RecordType record : dataset1.getRecords()) {
-			keyIdentifierList.add(new Pair<String, RecordType>(blockingFunction
-					.getBlockingKey(record), record));
+		int i = from;
+		int j = mid;
+		int k = from;
+		while (i < mid && j < to) {
+			if (compareKeys(keys[order[j]], keys[order[i]]) < 0) {
+				buffer[k++] = order[j++];
+			} else {
+				buffer[k++] = order[i++];
+			}
 		}
+		while (i < mid) {
+			buffer[k++] = order[i++];
+		}
+		while (j < to) {
+			buffer[k++] = order[j++];
+		}
+		System.arraycopy(buffer, from, order, from, to - from);
+	}
+
+	/**
+	 * Computes the keys of a range of records. The range is split
+	 * recursively.
+	 */
+	private class KeyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
 
-		for (RecordType record : dataset2.getRecords()) {
-			keyIdentifierList.add(new Pair<String, RecordType>(blockingFunction
-					.getBlockingKey(record), record));
+		private BlockingKeyGenerator<RecordType> blockingFunction;
+		private List<RecordType> records;
+		private String[] keys;
+		private int from;
+		private int to;
+
+		public KeyTask(BlockingKeyGenerator<RecordType> blockingFunction,
+				List<RecordType> records, String[] keys, int from, int to) {
+			this.blockingFunction = blockingFunction;
+			this.records = records;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
 		}
-		// sort the list by the keys
-		Comparator<Pair<String, RecordType>> pairComparator = new Comparator<Pair<String, RecordType>>() {
 
-			@Override
-			public int compare(Pair<String, RecordType> o1,
-					Pair<String, RecordType> o2) {
-				return o1.getFirst().compareTo(o2.getFirst());
+		@Override
+		protected void compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				computeKeys(blockingFunction, records, keys, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new KeyTask(blockingFunction, records, keys, from,
+						mid), new KeyTask(blockingFunction, records, keys, mid,
+						to));
 			}
+		}
+	}
+
+	/**
+	 * Sorts a range of positions by their keys. Both halves are sorted
+	 * concurrently and then merged; on equal keys the left half comes first,
+	 * so the result is the same as the sequential stable sort.
+	 */
+	private static class SortTask extends RecursiveAction {
 
-		};
-		Collections.sort(keyIdentifierList, pairComparator);
+		private static final long serialVersionUID = 1L;
 
-		for (int i = 0; i < keyIdentifierList.size() - 1; i++) {
-			RecordType r1 = keyIdentifierList.get(i).getSecond();
-			int counter = 1;
-			int j = i;
-			while ((counter < windowSize)
-					&& (j < (keyIdentifierList.size() - 1))) {
-				RecordType r2 = keyIdentifierList.get(++j).getSecond();
-				// check if they belong *not* to the same dataset
-				if (!r2.getProvenance().equals(r1.getProvenance())) {
-					result.add(new Pair<RecordType, RecordType>(r1, r2));
-					counter++;
+		private String[] keys;
+		private int[] order;
+		private int[] buffer;
+		private int from;
+		private int to;
+
+		public SortTask(String[] keys, int[] order, int[] buffer, int from,
+				int to) {
+			this.keys = keys;
+			this.order = order;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				sort(keys, order, buffer, from, to);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new SortTask(keys, order, buffer, from, mid),
+					new SortTask(keys, order, buffer, mid, to));
+			merge(keys, order, buffer, from, mid, to);
+		}
+	}
+
+	/**
+	 * Returns true if a record with the given key belongs to the window of a
+	 * record with the key, which already contains size records
+	 * 
+	 * @param key
+	 * @param otherKey
+	 * @param size
+	 * @return
+	 */
+	private boolean isInWindow(String key, String otherKey, int size) {
+		if (keySimilarity == null) {
+			return size < windowSize;
+		} else if (size < minWindowSize) {
+			return true;
+		} else if (size < maxWindowSize && key != null && otherKey != null) {
+			return keySimilarity.calculate(key, otherKey) >= minKeySimilarity;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the blocking keys of all records of the data sets to an
+	 * {@link ExternalKeySorter}
+	 * 
+	 * @param datasets
+	 * @return
+	 */
+	private ExternalKeySorter sortExternally(
+			List<DataSet<RecordType>> datasets) {
+		BlockingKeyGenerator<RecordType> blockingFunction = blockingFunctions
+				.get(0);
+		ExternalKeySorter sorter = new ExternalKeySorter(
+				externalSortDirectory, recordsPerRun);
+
+		try {
+			for (int d = 0; d < datasets.size(); d++) {
+				for (RecordType record : datasets.get(d).getRecords()) {
+					sorter.add(blockingFunction.getBlockingKey(record),
+							record.getIdentifier(), d);
 				}
 			}
+		} catch (IOException e) {
+			sorter.close(e);
+			throw new RuntimeException(e);
+		} catch (RuntimeException e) {
+			sorter.close(e);
+			throw e;
+		}
+
+		return sorter;
+	}
+
+	/**
+	 * Compares two blocking keys, null is sorted before all other keys
+	 */
+	private static int compareKeys(String key1, String key2) {
+		if (key1 == null) {
+			return key2 == null ? 0 : -1;
+		} else if (key2 == null) {
+			return 1;
+		} else {
+			return key1.compareTo(key2);
+		}
+	}
+
+	/**
+	 * Merges the sorted orders of two data sets. Records with equal keys keep
+	 * their order, the records of the first data set come first. The result
+	 * is the same as sorting the records of both data sets together.
+	 * 
+	 * @param keys1
+	 * @param keys2
+	 * @param n1
+	 *            the offset of the positions of the second data set
+	 * @return
+	 */
+	private int[] merge(SortedKeys keys1, SortedKeys keys2, int n1) {
+		int[] result = new int[keys1.order.length + keys2.order.length];
+
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < keys1.order.length && j < keys2.order.length) {
+			if (compareKeys(keys2.keys[keys2.order[j]],
+					keys1.keys[keys1.order[i]]) < 0) {
+				result[k++] = keys2.order[j++] + n1;
+			} else {
+				result[k++] = keys1.order[i++];
+			}
+		}
+		while (i < keys1.order.length) {
+			result[k++] = keys1.order[i++];
+		}
+		while (j < keys2.order.length) {
+			result[k++] = keys2.order[j++] + n1;
 		}
 
-		calculatePerformance(dataset1, dataset2, result);
 		return result;
 	}
+
+	/**
+	 * The windows of one pass. Every record is paired with the records
+	 * following it in the sorted order up to the end of its window, and with
+	 * the records before it whose windows reach it.
+	 */
+	private class Pass {
+
+		/**
+		 * the positions of the records sorted by their keys
+		 */
+		private int[] order;
+
+		/**
+		 * the rank of each record in the sorted order
+		 */
+		private int[] ranks;
+
+		/**
+		 * the rank of the last record in the window of each rank
+		 */
+		private int[] ends;
+
+		/**
+		 * the lowest rank whose window contains each rank
+		 */
+		private int[] starts;
+
+		/**
+		 * the first position of the second data set, or -1 for a single data
+		 * set
+		 */
+		private int n1;
+
+		/**
+		 * for two data sets: the ranks of the records of the first data set
+		 * (at the indices 0 ... n1-1) and of the second data set (at n1 ...),
+		 * each in ascending order; null for a single data set
+		 */
+		private int[] partnerRanks;
+
+		/**
+		 * for two data sets: the index in partnerRanks of the first partner
+		 * with a higher rank than each rank
+		 */
+		private int[] nextPartners;
+
+		/**
+		 * @param keys
+		 * @param order
+		 * @param n1
+		 * @param pool
+		 *            the pool for concurrent tasks, or null
+		 */
+		public Pass(String[] keys, int[] order, int n1, ForkJoinPool pool) {
+			this.order = order;
+			this.n1 = n1;
+
+			ranks = new int[order.length];
+			for (int r = 0; r < order.length; r++) {
+				ranks[order[r]] = r;
+			}
+
+			if (n1 >= 0) {
+				partnerRanks = new int[order.length];
+				nextPartners = new int[order.length];
+				int i1 = 0;
+				int i2 = n1;
+				for (int r = 0; r < order.length; r++) {
+					if (order[r] < n1) {
+						nextPartners[r] = i2;
+						partnerRanks[i1++] = r;
+					} else {
+						nextPartners[r] = i1;
+						partnerRanks[i2++] = r;
+					}
+				}
+			}
+
+			ends = new int[order.length];
+			if (pool == null) {
+				computeEnds(keys, 0, order.length);
+			} else {
+				pool.invoke(new EndsTask(this, keys, 0, order.length));
+			}
+
+			computeStarts();
+		}
+
+		/**
+		 * Returns the index of the first partner with a higher rank than the
+		 * rank. The partners of a rank are the ranks
+		 * {@link #getPartnerRank(int)} of the indices from
+		 * {@link #getFirstPartner(int)} to {@link #getLastPartner(int)}-1,
+		 * i.e. all other ranks for a single data set and the ranks of the
+		 * other data set for two data sets.
+		 */
+		private int getNextPartner(int rank) {
+			return partnerRanks == null ? rank + 1 : nextPartners[rank];
+		}
+
+		private int getPartnerRank(int index) {
+			return partnerRanks == null ? index : partnerRanks[index];
+		}
+
+		private int getFirstPartner(int rank) {
+			return partnerRanks == null || order[rank] >= n1 ? 0 : n1;
+		}
+
+		private int getLastPartner(int rank) {
+			return partnerRanks == null || order[rank] < n1 ? order.length
+					: n1;
+		}
+
+		/**
+		 * Determines the ends of the windows of the ranks from ... to-1. Only
+		 * the partners of a rank are visited, so runs of records from the same
+		 * data set do not slow down the scan.
+		 */
+		private void computeEnds(String[] keys, int from, int to) {
+			for (int r = from; r < to; r++) {
+				String key = keys[order[r]];
+				int end = r;
+				int size = 1;
+
+				for (int i = getNextPartner(r), last = getLastPartner(r); i < last; i++) {
+					int j = getPartnerRank(i);
+					if (!isInWindow(key, keys[order[j]], size)) {
+						break;
+					}
+					end = j;
+					size++;
+				}
+
+				ends[r] = end;
+			}
+		}
+
+		/**
+		 * Determines the starts from the ends. The windows are visited in
+		 * ascending order, so the first window that contains a rank has the
+		 * lowest rank. Partners that were already reached by a previous window
+		 * of the same data set are skipped, so every rank is assigned once.
+		 */
+		private void computeStarts() {
+			starts = new int[order.length];
+			for (int r = 0; r < order.length; r++) {
+				starts[r] = r;
+			}
+
+			// for the windows of each data set: the index of the first
+			// partner that was not reached by a previous window
+			int[] assigned = new int[2];
+
+			for (int k = 0; k < order.length; k++) {
+				int side = partnerRanks == null || order[k] < n1 ? 0 : 1;
+				int i = Math.max(getNextPartner(k), assigned[side]);
+				int last = getLastPartner(k);
+				while (i < last && getPartnerRank(i) <= ends[k]) {
+					starts[getPartnerRank(i)] = k;
+					i++;
+				}
+				assigned[side] = Math.max(assigned[side], i);
+			}
+		}
+
+		/**
+		 * Adds the positions of the records that share a window with the
+		 * record at the position to the candidates
+		 * 
+		 * @param position
+		 * @param candidates
+		 */
+		public void addNeighbours(int position, NeighbourhoodPairIterator candidates) {
+			int r = ranks[position];
+			int next = getNextPartner(r);
+
+			// the window of the record
+			for (int i = next, last = getLastPartner(r); i < last; i++) {
+				int j = getPartnerRank(i);
+				if (j > ends[r]) {
+					break;
+				}
+				candidates.addCandidate(order[j]);
+			}
+
+			// the windows of lower ranks that contain the record
+			for (int i = next - 1, first = getFirstPartner(r); i >= first; i--) {
+				int k = getPartnerRank(i);
+				if (k < starts[r]) {
+					break;
+				}
+				if (ends[k] >= r) {
+					candidates.addCandidate(order[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines the ends of the windows of a range of ranks. The range is
+	 * split recursively.
+	 */
+	private class EndsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Pass pass;
+		private String[] keys;
+		private int from;
+		private int to;
+
+		public EndsTask(Pass pass, String[] keys, int from, int to) {
+			this.pass = pass;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				pass.computeEnds(keys, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new EndsTask(pass, keys, from, mid), new EndsTask(
+						pass, keys, mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Creates the pairs of one record after another, in the sorted order of
+	 * the first pass. The candidates of a record from all passes are
+	 * de-duplicated.
+	 */
+	private class NeighbourhoodPairIterator extends
+			PairIterator<RecordType> {
+
+		private List<RecordType> records;
+		private int n1;
+		private List<Pass> passes;
+		private Pass first;
+		private boolean symmetric;
+
+		/**
+		 * marks[candidate] == rank + 1 if the candidate was already added for
+		 * the record at the current rank, so the marks never have to be reset
+		 */
+		private int[] marks;
+		private int[] candidates = new int[16];
+		private int numberOfCandidates = 0;
+		private int position = 0;
+		private int rank;
+		private int toRank;
+		private int record;
+
+		/**
+		 * @param records
+		 *            the records of both data sets
+		 * @param n1
+		 *            the number of records of the first data set, only these
+		 *            records are the first records of the pairs
+		 * @param passes
+		 * @param symmetric
+		 *            true if only one of the pairs (a,b) and (b,a) should be
+		 *            created
+		 * @param fromRank
+		 *            the rank (in the first pass) of the first record whose
+		 *            pairs are created
+		 * @param toRank
+		 *            the rank after the last record whose pairs are created
+		 */
+		public NeighbourhoodPairIterator(List<RecordType> records, int n1,
+				List<Pass> passes, boolean symmetric, int fromRank, int toRank) {
+			this.records = records;
+			this.n1 = n1;
+			this.passes = passes;
+			this.first = passes.get(0);
+			this.symmetric = symmetric;
+			this.rank = fromRank - 1;
+			this.toRank = toRank;
+			this.marks = new int[records.size()];
+		}
+
+		/**
+		 * Returns an iterator over the pairs of the records with a rank from
+		 * fromRank to toRank-1, which can be used concurrently with this
+		 * iterator
+		 * 
+		 * @param fromRank
+		 * @param toRank
+		 * @return
+		 */
+		public NeighbourhoodPairIterator partition(int fromRank, int toRank) {
+			return new NeighbourhoodPairIterator(records, n1, passes,
+					symmetric, fromRank, toRank);
+		}
+
+		@Override
+		protected Pair<RecordType, RecordType> computeNext() {
+			while (position == numberOfCandidates) {
+				if (++rank >= toRank) {
+					return null;
+				}
+				record = first.order[rank];
+				if (record >= n1) {
+					// records of the second data set are only candidates
+					continue;
+				}
+
+				numberOfCandidates = 0;
+				position = 0;
+				for (Pass pass : passes) {
+					pass.addNeighbours(record, this);
+				}
+			}
+
+			return new Pair<RecordType, RecordType>(records.get(record),
+					records.get(candidates[position++]));
+		}
+
+		private void addCandidate(int candidate) {
+			if (candidate == record) {
+				return;
+			}
+			// in symmetric mode, the pair is created by the record that comes
+			// first in the order of the first pass
+			if (symmetric && first.ranks[candidate] < rank) {
+				return;
+			}
+
+			if (marks[candidate] != rank + 1) {
+				marks[candidate] = rank + 1;
+				if (numberOfCandidates == candidates.length) {
+					candidates = Arrays.copyOf(candidates,
+							candidates.length * 2);
+				}
+				candidates[numberOfCandidates++] = candidate;
+			}
+		}
+	}
+
+	/**
+	 * The records whose window can still be extended during an external sort,
+	 * in the sorted order, and the number of records in their windows
+	 */
+	private static class OpenWindows {
+
+		private ExternalKeySorter.Entry[] entries = new ExternalKeySorter.Entry[16];
+		private int[] sizes = new int[16];
+		private int count = 0;
+
+		public void add(ExternalKeySorter.Entry entry) {
+			if (count == entries.length) {
+				entries = Arrays.copyOf(entries, count * 2);
+				sizes = Arrays.copyOf(sizes, count * 2);
+			}
+			entries[count] = entry;
+			sizes[count] = 1;
+			count++;
+		}
+
+		/**
+		 * Removes all windows from the position on
+		 */
+		public void truncate(int count) {
+			Arrays.fill(entries, count, this.count, null);
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Slides the window over the externally sorted keys. Every new record is
+	 * paired with the preceding records whose window is still open, the
+	 * records are looked up when a pair is returned.
+	 */
+	private abstract class ExternalPairIterator extends
+			PairIterator<RecordType> {
+
+		/**
+		 * only (a,b) is returned, where a follows b in the sorted order
+		 */
+		static final int SYMMETRIC = 0;
+
+		/**
+		 * both (a,b) and (b,a) are returned
+		 */
+		static final int BOTH_DIRECTIONS = 1;
+
+		/**
+		 * the first record is always from the first data set
+		 */
+		static final int TWO_DATA_SETS = 2;
+
+		private List<DataSet<RecordType>> datasets;
+		private ExternalKeySorter sorter;
+		private int mode;
+
+		/**
+		 * the records whose window can still be extended, per data set for two
+		 * data sets, so a record only visits the windows it can belong to
+		 */
+		private OpenWindows[] open;
+
+		private Queue<Pair<RecordType, RecordType>> pending = new ArrayDeque<>();
+
+		public ExternalPairIterator(List<DataSet<RecordType>> datasets,
+				ExternalKeySorter sorter, int mode) {
+			this.datasets = datasets;
+			this.sorter = sorter;
+			this.mode = mode;
+
+			if (mode == TWO_DATA_SETS) {
+				open = new OpenWindows[] { new OpenWindows(), new OpenWindows() };
+			} else {
+				open = new OpenWindows[] { new OpenWindows() };
+			}
+		}
+
+		@Override
+		protected Pair<RecordType, RecordType> computeNext() {
+			try {
+				while (pending.isEmpty()) {
+					ExternalKeySorter.Entry entry = sorter.next();
+					if (entry == null) {
+						return null;
+					}
+					slide(entry);
+				}
+			} catch (IOException e) {
+				sorter.close(e);
+				throw new RuntimeException(e);
+			}
+
+			return pending.poll();
+		}
+
+		@Override
+		protected void finished(long numberOfPairs) {
+			close();
+		}
+
+		@Override
+		public void close() {
+			try {
+				sorter.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private void slide(ExternalKeySorter.Entry entry) {
+			RecordType record = null;
+			List<RecordType> reversed = null;
+
+			// the windows of the other data set, or of all records
+			OpenWindows windows = open[mode == TWO_DATA_SETS ? 1 - entry.dataset
+					: 0];
+			int kept = 0;
+
+			for (int i = 0; i < windows.count; i++) {
+				ExternalKeySorter.Entry other = windows.entries[i];
+				int size = windows.sizes[i];
+
+				if (isInWindow(other.key, entry.key, size)) {
+					if (record == null) {
+						record = resolve(entry);
+					}
+					RecordType otherRecord = resolve(other);
+
+					if (mode == TWO_DATA_SETS && entry.dataset > 0) {
+						pending.add(new Pair<>(otherRecord, record));
+					} else {
+						pending.add(new Pair<>(record, otherRecord));
+					}
+
+					if (mode == BOTH_DIRECTIONS) {
+						if (reversed == null) {
+							reversed = new ArrayList<>();
+						}
+						reversed.add(otherRecord);
+					}
+
+					size++;
+				}
+
+				// keep the window unless it is complete
+				if (size > windows.sizes[i] && canGrow(size)) {
+					windows.entries[kept] = other;
+					windows.sizes[kept] = size;
+					kept++;
+				}
+			}
+			windows.truncate(kept);
+
+			if (reversed != null) {
+				for (RecordType otherRecord : reversed) {
+					pending.add(new Pair<>(otherRecord, record));
+				}
+			}
+
+			if (canGrow(1)) {
+				open[mode == TWO_DATA_SETS ? entry.dataset : 0].add(entry);
+			}
+		}
+
+		/**
+		 * Returns true if a window with size records can be extended
+		 */
+		private boolean canGrow(int size) {
+			if (keySimilarity == null) {
+				return size < windowSize;
+			} else {
+				return size < maxWindowSize;
+			}
+		}
+
+		private RecordType resolve(ExternalKeySorter.Entry entry) {
+			return datasets.get(entry.dataset).getRecord(entry.identifier);
+		}
+	}
 }
@@ -18,21 +18,42 @@
 package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 import de.uni_mannheim.informatik.wdi.model.DataSet;
 import de.uni_mannheim.informatik.wdi.model.Matchable;
 import de.uni_mannheim.informatik.wdi.model.Pair;
 import de.uni_mannheim.informatik.wdi.model.Record;
-import de.uni_mannheim.informatik.wdi.utils.ProgressReporter;
 
 /**
  * Implementation of a simple {@link Blocker} based on blocking keys, where only
  * {@link Record}s with an equal blocking key (generated by the
  * {@link BlockingKeyGenerator}) are compared.
  * 
+ * For duplicate detection in symmetric mode, the records are grouped by their
+ * blocking keys once and only the pairs within each block are generated, so
+ * the number of key comparisons does not grow with the square of the data set
+ * size.
+ * 
+ * With a parallelism greater than 1, the blocking keys are computed
+ * concurrently: every thread groups a part of the records and the partial
+ * blocks are merged afterwards. generatePairs(...) then creates the pairs of
+ * the blocks as independent tasks, starting with the largest blocks so no
+ * thread is left with a huge block at the end. The {@link BlockingKeyGenerator}
+ * must be thread-safe in this case. The result contains the same pairs as a
+ * sequential run.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * @author Robert Meusel (robert@dwslab.de)
  * 
@@ -40,93 +61,421 @@ import de.uni_mannheim.informatik.wdi.utils.ProgressReporter;
  */
 public class StandardBlocker<RecordType extends Matchable> extends Blocker<RecordType> {
 
+	/**
+	 * Blocks with fewer pairs than this are combined into one task
+	 */
+	private static final int PAIRS_PER_TASK = 4096;
+
+	/**
+	 * Parts of a data set with fewer records than this are not split any
+	 * further when computing the blocking keys
+	 */
+	private static final int RECORDS_PER_TASK = 1024;
+
 	private BlockingKeyGenerator<RecordType> blockingFunction;
+	private int parallelism = 1;
 
 	public StandardBlocker(BlockingKeyGenerator<RecordType> blockingFunction) {
 		this.blockingFunction = blockingFunction;
 	}
 
+	/**
+	 * Returns the number of threads that are used to compute the blocking keys
+	 * and to generate the pairs
+	 * 
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute the blocking keys
+	 * and by generatePairs(...) to create the pairs of the blocks. A value of
+	 * 1 (the default) does all work in the calling thread. The iterators
+	 * returned by iteratePairs(...) always create their pairs sequentially.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s)", super.getFingerprint(), blockingFunction.getFingerprint());
+	}
+
 	@Override
 	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset1,
 			DataSet<RecordType> dataset2) {
-		// initialize blocking keys
-		HashMap<String, List<RecordType>> blocks = new HashMap<>();
+		if (parallelism == 1) {
+			return collectPairs(iteratePairs(dataset1, dataset2));
+		}
 
-		for (RecordType record : dataset1.getRecords()) {
-			String key = blockingFunction.getBlockingKey(record);
+		HashMap<String, List<RecordType>> blocks = createBlocks(dataset1);
+		HashMap<String, List<RecordType>> blocks2 = createBlocks(dataset2);
 
-			List<RecordType> records = blocks.get(key);
-			if (records == null) {
-				records = new ArrayList<>();
-				blocks.put(key, records);
+		// the cross product of each pair of blocks, in the order of the
+		// sequential iterator
+		List<BlockPairs<RecordType>> jobs = new ArrayList<>();
+		for (Map.Entry<String, List<RecordType>> entry : blocks.entrySet()) {
+			List<RecordType> block2 = blocks2.get(entry.getKey());
+			if (block2 != null) {
+				jobs.add(new BlockPairs<RecordType>(entry.getValue(), block2));
 			}
-			records.add(record);
 		}
 
-		HashMap<String, List<RecordType>> blocks2 = new HashMap<>();
+		List<Pair<RecordType, RecordType>> result = generatePairs(jobs);
 
-		for (RecordType record : dataset2.getRecords()) {
-			String key = blockingFunction.getBlockingKey(record);
+		calculatePerformance(dataset1, dataset2, result.size());
+
+		return result;
+	}
 
-			List<RecordType> records = blocks2.get(key);
-			if (records == null) {
-				records = new ArrayList<>();
-				blocks2.put(key, records);
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		if (!isSymmetric || parallelism == 1) {
+			return collectPairs(iteratePairs(dataset, isSymmetric));
+		}
+
+		List<BlockPairs<RecordType>> jobs = new ArrayList<>();
+		for (List<RecordType> block : createBlocks(dataset).values()) {
+			jobs.add(new BlockPairs<RecordType>(block, null));
+		}
+
+		List<Pair<RecordType, RecordType>> result = generatePairs(jobs);
+
+		calculatePerformance(dataset, dataset, result.size());
+
+		return result;
+	}
+
+	/**
+	 * Creates the pairs of all blocks concurrently. The largest blocks are
+	 * processed first, small blocks are combined into tasks of at least
+	 * PAIRS_PER_TASK pairs.
+	 * 
+	 * @param jobs
+	 *            the blocks in the order of the result
+	 * @return
+	 */
+	private List<Pair<RecordType, RecordType>> generatePairs(List<BlockPairs<RecordType>> jobs) {
+		// the position of the first pair of each block in the result
+		long numberOfPairs = 0;
+		for (BlockPairs<RecordType> job : jobs) {
+			job.offset = (int) numberOfPairs;
+			numberOfPairs += job.numberOfPairs;
+			if (numberOfPairs > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Too many pairs for a list, use iteratePairs(...) instead");
 			}
-			records.add(record);
 		}
 
-		List<Pair<RecordType, RecordType>> result = new LinkedList<>();
-		ProgressReporter reporter = new ProgressReporter(blocks.keySet().size(), "Calculating blocking pairs");
-		for (String key1 : blocks.keySet()) {
-			List<RecordType> block = blocks.get(key1);
-			List<RecordType> block2 = blocks2.get(key1);
+		// every block writes its pairs to its own range of the result
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		final Pair<RecordType, RecordType>[] result = new Pair[(int) numberOfPairs];
 
-			if (block2 != null) {
-				for (RecordType r1 : block) {
-					for (RecordType r2 : block2) {
-						result.add(new Pair<RecordType, RecordType>(r1, r2));
+		List<BlockPairs<RecordType>> sorted = new ArrayList<>(jobs);
+		Collections.sort(sorted, new Comparator<BlockPairs<RecordType>>() {
+
+			@Override
+			public int compare(BlockPairs<RecordType> o1, BlockPairs<RecordType> o2) {
+				return Long.compare(o2.numberOfPairs, o1.numberOfPairs);
+			}
+		});
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		int from = 0;
+		while (from < sorted.size()) {
+			int to = from;
+			long pairs = 0;
+			while (to < sorted.size() && pairs < PAIRS_PER_TASK) {
+				pairs += sorted.get(to++).numberOfPairs;
+			}
+
+			final List<BlockPairs<RecordType>> task = sorted.subList(from, to);
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					for (BlockPairs<RecordType> job : task) {
+						job.write(result);
 					}
+					return null;
 				}
-			}
-			reporter.incrementProgress();
-			reporter.report();
+			});
+
+			from = to;
 		}
 
-		calculatePerformance(dataset1, dataset2, result);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
 
-		return result;
+		return Arrays.asList(result);
 	}
 
 	@Override
-	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		// initialize blocking keys
+		final HashMap<String, List<RecordType>> blocks = createBlocks(dataset1);
+		final HashMap<String, List<RecordType>> blocks2 = createBlocks(dataset2);
+
+		// create the cross product of each pair of blocks on demand
+		return new PairIterator<RecordType>() {
+
+			private Iterator<Map.Entry<String, List<RecordType>>> blockIterator = blocks.entrySet().iterator();
+			private List<RecordType> block = null;
+			private List<RecordType> block2 = null;
+			private int i = 0;
+			private int j = 0;
+
+			@Override
+			protected Pair<RecordType, RecordType> computeNext() {
+				while (block == null || i >= block.size()) {
+					if (!blockIterator.hasNext()) {
+						return null;
+					}
+					Map.Entry<String, List<RecordType>> entry = blockIterator.next();
+					block = entry.getValue();
+					block2 = blocks2.get(entry.getKey());
+					i = 0;
+					j = 0;
+
+					if (block2 == null) {
+						block = null;
+					}
+				}
 
-		List<Pair<RecordType, RecordType>> result = new LinkedList<>();
-		if (isSymmetric) {
-			// initialize blocking keys
-			HashMap<RecordType, String> blockingKeys = new HashMap<>();
-			for (RecordType r1 : dataset.getRecords()) {
-				blockingKeys.put(r1, blockingFunction.getBlockingKey(r1));
+				Pair<RecordType, RecordType> p = new Pair<RecordType, RecordType>(block.get(i), block2.get(j));
+
+				if (++j == block2.size()) {
+					j = 0;
+					i++;
+				}
+
+				return p;
 			}
 
-			ArrayList<RecordType> datasetRecords = new ArrayList<RecordType>(dataset.getRecords());
-			for (int i = 0; i < dataset.getSize() - 1; i++) {
-				RecordType r1 = datasetRecords.get(i);
-				String key1 = blockingKeys.get(r1);
-				for (int j = i + 1; j < dataset.getSize(); j++) {
-					RecordType r2 = datasetRecords.get(j);
-					String key2 = blockingKeys.get(r2);
-					if (r1 != r2 && key1.equals(key2)) {
-						result.add(new Pair<RecordType, RecordType>(r1, r2));
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset,
+			boolean isSymmetric) {
+		if (!isSymmetric) {
+			return iteratePairs(dataset, dataset);
+		}
+
+		// group the records by their blocking keys
+		final List<List<RecordType>> blocks = new ArrayList<>(createBlocks(dataset).values());
+
+		// create the pairs within each block on demand
+		return new PairIterator<RecordType>() {
+
+			private int b = 0;
+			private int i = 0;
+			private int j = 0;
+
+			@Override
+			protected Pair<RecordType, RecordType> computeNext() {
+				while (b < blocks.size()) {
+					List<RecordType> block = blocks.get(b);
+
+					if (++j < block.size()) {
+						return new Pair<RecordType, RecordType>(block.get(i), block.get(j));
+					}
+
+					if (++i < block.size() - 1) {
+						j = i;
+					} else {
+						b++;
+						i = 0;
+						j = 0;
 					}
 				}
+				return null;
+			}
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
 			}
+		};
+	}
+
+	/**
+	 * Groups the records of a data set by their blocking keys, or returns the
+	 * retained blocks of the data set
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	private HashMap<String, List<RecordType>> createBlocks(DataSet<RecordType> dataset) {
+		HashMap<String, List<RecordType>> blocks = getRetainedIndex(dataset);
+		if (blocks != null) {
+			return blocks;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getRecords());
+
+		if (parallelism == 1 || records.size() <= RECORDS_PER_TASK) {
+			blocks = createBlocks(records, 0, records.size());
 		} else {
-			result = generatePairs(dataset, dataset);
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				blocks = pool.invoke(new CreateBlocksTask(records, 0, records.size()));
+			} finally {
+				pool.shutdown();
+			}
 		}
 
-		calculatePerformance(dataset, dataset, result);
+		retainIndex(dataset, blocks);
 
-		return result;
+		return blocks;
+	}
+
+	/**
+	 * Groups records.get(from) ... records.get(to-1) by their blocking keys
+	 * 
+	 * @param records
+	 * @param from
+	 *            inclusive
+	 * @param to
+	 *            exclusive
+	 * @return
+	 */
+	private HashMap<String, List<RecordType>> createBlocks(List<RecordType> records, int from, int to) {
+		HashMap<String, List<RecordType>> blocks = new HashMap<>();
+
+		for (int i = from; i < to; i++) {
+			RecordType record = records.get(i);
+			String key = blockingFunction.getBlockingKey(record);
+
+			List<RecordType> block = blocks.get(key);
+			if (block == null) {
+				block = new ArrayList<>();
+				blocks.put(key, block);
+			}
+			block.add(record);
+		}
+
+		return blocks;
+	}
+
+	/**
+	 * Groups a range of records by their blocking keys. The range is split
+	 * recursively, the blocks of the right half are appended to the blocks of
+	 * the left half, so every block keeps the order of the records.
+	 */
+	private class CreateBlocksTask extends RecursiveTask<HashMap<String, List<RecordType>>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<RecordType> records;
+		private int from;
+		private int to;
+
+		public CreateBlocksTask(List<RecordType> records, int from, int to) {
+			this.records = records;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected HashMap<String, List<RecordType>> compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				return createBlocks(records, from, to);
+			} else {
+				int mid = (from + to) >>> 1;
+
+				CreateBlocksTask left = new CreateBlocksTask(records, from, mid);
+				CreateBlocksTask right = new CreateBlocksTask(records, mid, to);
+
+				left.fork();
+				HashMap<String, List<RecordType>> rightBlocks = right.compute();
+				HashMap<String, List<RecordType>> blocks = left.join();
+
+				for (Map.Entry<String, List<RecordType>> entry : rightBlocks.entrySet()) {
+					List<RecordType> block = blocks.get(entry.getKey());
+					if (block == null) {
+						blocks.put(entry.getKey(), entry.getValue());
+					} else {
+						block.addAll(entry.getValue());
+					}
+				}
+
+				return blocks;
+			}
+		}
+	}
+
+	/**
+	 * The pairs of one block: either the cross product of two blocks or all
+	 * pairs within a single block
+	 */
+	private static class BlockPairs<RecordType extends Matchable> {
+
+		private List<RecordType> block1;
+		private List<RecordType> block2;
+		private long numberOfPairs;
+		private int offset;
+
+		/**
+		 * @param block1
+		 * @param block2
+		 *            the second block, or null for the pairs within block1
+		 */
+		public BlockPairs(List<RecordType> block1, List<RecordType> block2) {
+			this.block1 = block1;
+			this.block2 = block2;
+
+			long size = block1.size();
+			if (block2 == null) {
+				numberOfPairs = size * (size - 1) / 2;
+			} else {
+				numberOfPairs = size * block2.size();
+			}
+		}
+
+		/**
+		 * Writes the pairs to result, starting at the offset
+		 * 
+		 * @param result
+		 */
+		public void write(Pair<RecordType, RecordType>[] result) {
+			int k = offset;
+
+			for (int i = 0; i < block1.size(); i++) {
+				RecordType r1 = block1.get(i);
+				if (block2 == null) {
+					for (int j = i + 1; j < block1.size(); j++) {
+						result[k++] = new Pair<RecordType, RecordType>(r1, block1.get(j));
+					}
+				} else {
+					for (RecordType r2 : block2) {
+						result[k++] = new Pair<RecordType, RecordType>(r1, r2);
+					}
+				}
+			}
+		}
 	}
 }
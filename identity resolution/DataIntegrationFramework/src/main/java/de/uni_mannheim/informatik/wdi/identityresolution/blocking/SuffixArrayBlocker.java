@@ -0,0 +1,111 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Suffix-array based {@link Blocker}, which tolerates errors at the beginning
+ * of the blocking keys. Every suffix of the blocking key of a record (created
+ * by a {@link BlockingKeyGenerator}) with at least the minimal suffix length
+ * becomes a key of the record, and two records are compared if their blocking
+ * keys share such a suffix. Short suffixes are shared by many unrelated
+ * records, so blocks with more records than the maximal block size are
+ * dropped.
+ * 
+ * Instead of sorting the suffixes into an array, the blocks of all suffixes
+ * are kept in an inverted index, which results in the same blocks. The keys
+ * are computed in parallel by default.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class SuffixArrayBlocker<RecordType extends Matchable> extends TokenBlocker<RecordType> {
+
+	/**
+	 * @param blockingFunction
+	 *            creates the blocking keys
+	 * @param minSuffixLength
+	 *            the minimal length of a suffix. Keys that are shorter are
+	 *            used as they are.
+	 * @param maxBlockSize
+	 *            blocks with more records are dropped
+	 */
+	public SuffixArrayBlocker(BlockingKeyGenerator<RecordType> blockingFunction, int minSuffixLength,
+			int maxBlockSize) {
+		super(new SuffixKeyGenerator<>(blockingFunction, minSuffixLength), maxBlockSize);
+		setParallelism(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns all suffixes of the key with at least the minimal length
+	 * 
+	 * @param key
+	 * @param minSuffixLength
+	 * @return
+	 */
+	static List<String> getSuffixes(String key, int minSuffixLength) {
+		if (key == null || key.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<String> suffixes = new ArrayList<>();
+		if (key.length() <= minSuffixLength) {
+			suffixes.add(key);
+		} else {
+			for (int i = 0; i + minSuffixLength <= key.length(); i++) {
+				suffixes.add(key.substring(i));
+			}
+		}
+		return suffixes;
+	}
+
+	/**
+	 * Creates the suffixes of the blocking key of a record
+	 */
+	private static class SuffixKeyGenerator<RecordType extends Matchable> extends MultiBlockingKeyGenerator<RecordType> {
+
+		private BlockingKeyGenerator<RecordType> blockingFunction;
+		private int minSuffixLength;
+
+		public SuffixKeyGenerator(BlockingKeyGenerator<RecordType> blockingFunction, int minSuffixLength) {
+			if (minSuffixLength < 1) {
+				throw new IllegalArgumentException("The minimal suffix length must be at least 1");
+			}
+			this.blockingFunction = blockingFunction;
+			this.minSuffixLength = minSuffixLength;
+		}
+
+		@Override
+		public Collection<String> getBlockingKeys(RecordType instance) {
+			return getSuffixes(blockingFunction.getBlockingKey(instance), minSuffixLength);
+		}
+
+		@Override
+		public String getFingerprint() {
+			return String.format("%s(%s, min. suffix length: %d)", super.getFingerprint(),
+					blockingFunction.getFingerprint(), minSuffixLength);
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.model.Record;
+
+/**
+ * {@link Blocker} based on a {@link MultiBlockingKeyGenerator}. Every record
+ * is added to the blocks of all its keys (an inverted index from key to
+ * records) and two {@link Record}s are compared if they share at least one
+ * key. Pairs that share several keys are only generated once.
+ * 
+ * Keys that occur in very many records (like "inc" or "the" in company names)
+ * do not help to find matches, but create most of the pairs. Blocks with more
+ * records than the maximal block size are therefore dropped (block purging).
+ * For two data sets, the size of a block is the number of records from both
+ * data sets.
+ * 
+ * The pairs are created record by record, so all pairs of a record are
+ * returned one after another. With a parallelism greater than 1, the keys of
+ * the records are computed concurrently.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class TokenBlocker<RecordType extends Matchable> extends Blocker<RecordType> {
+
+	/**
+	 * Parts of a data set with fewer records than this are not split any
+	 * further when computing the keys
+	 */
+	private static final int RECORDS_PER_TASK = 256;
+
+	private MultiBlockingKeyGenerator<RecordType> blockingFunction;
+	private int maxBlockSize;
+	private int numberOfPurgedBlocks = 0;
+	private int parallelism = 1;
+
+	/**
+	 * Creates a blocker that does not drop any blocks
+	 * 
+	 * @param blockingFunction
+	 */
+	public TokenBlocker(MultiBlockingKeyGenerator<RecordType> blockingFunction) {
+		this(blockingFunction, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param blockingFunction
+	 *            creates the keys of the records
+	 * @param maxBlockSize
+	 *            blocks with more records are dropped
+	 */
+	public TokenBlocker(MultiBlockingKeyGenerator<RecordType> blockingFunction, int maxBlockSize) {
+		this.blockingFunction = blockingFunction;
+		this.maxBlockSize = maxBlockSize;
+	}
+
+	/**
+	 * Returns the number of blocks that were dropped by the last blocking
+	 * operation because they contained too many records
+	 * 
+	 * @return
+	 */
+	public int getNumberOfPurgedBlocks() {
+		return numberOfPurgedBlocks;
+	}
+
+	/**
+	 * Returns the number of threads that are used to compute the keys
+	 * 
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads that are used to compute the keys of the
+	 * records. A value of 1 (the default) computes all keys in the calling
+	 * thread. The {@link MultiBlockingKeyGenerator} must be thread-safe if
+	 * the parallelism is greater than 1.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(%s, max. block size: %d)", super.getFingerprint(),
+				blockingFunction.getFingerprint(), maxBlockSize);
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset1,
+			DataSet<RecordType> dataset2) {
+		return collectPairs(iteratePairs(dataset1, dataset2));
+	}
+
+	@Override
+	public List<Pair<RecordType, RecordType>> generatePairs(DataSet<RecordType> dataset, boolean isSymmetric) {
+		return collectPairs(iteratePairs(dataset, isSymmetric));
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset1,
+			final DataSet<RecordType> dataset2) {
+		return new BlockCollectionPairIterator<RecordType>(createBlockCollection(dataset1, dataset2)) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset1, dataset2, numberOfPairs);
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Pair<RecordType, RecordType>> iteratePairs(final DataSet<RecordType> dataset,
+			boolean isSymmetric) {
+		return new BlockCollectionPairIterator<RecordType>(createBlockCollection(dataset, isSymmetric)) {
+
+			@Override
+			protected void finished(long numberOfPairs) {
+				calculatePerformance(dataset, dataset, numberOfPairs);
+			}
+		};
+	}
+
+	/**
+	 * Creates the blocks for the comparison of two data sets
+	 * 
+	 * @param dataset1
+	 * @param dataset2
+	 * @return
+	 */
+	BlockCollection<RecordType> createBlockCollection(DataSet<RecordType> dataset1, DataSet<RecordType> dataset2) {
+		BlockCollection<RecordType> collection = BlockCollection.create(createIndex(dataset1), createIndex(dataset2),
+				maxBlockSize);
+		numberOfPurgedBlocks = collection.numberOfPurgedBlocks;
+		return collection;
+	}
+
+	/**
+	 * Creates the blocks for the duplicate detection in a data set
+	 * 
+	 * @param dataset
+	 * @param isSymmetric
+	 * @return
+	 */
+	BlockCollection<RecordType> createBlockCollection(DataSet<RecordType> dataset, boolean isSymmetric) {
+		BlockCollection<RecordType> collection = BlockCollection.create(createIndex(dataset), isSymmetric,
+				maxBlockSize);
+		numberOfPurgedBlocks = collection.numberOfPurgedBlocks;
+		return collection;
+	}
+
+	/**
+	 * Creates the inverted index of a data set, or returns the retained index
+	 * of the data set
+	 * 
+	 * @param dataset
+	 * @return
+	 */
+	private InvertedIndex<RecordType> createIndex(DataSet<RecordType> dataset) {
+		InvertedIndex<RecordType> index = getRetainedIndex(dataset);
+		if (index != null) {
+			return index;
+		}
+
+		List<RecordType> records = new ArrayList<>(dataset.getRecords());
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Collection<String>[] keys = new Collection[records.size()];
+
+		if (parallelism == 1 || records.size() <= RECORDS_PER_TASK) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = blockingFunction.getBlockingKeys(records.get(i));
+			}
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(new KeyTask(records, keys, 0, keys.length));
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		index = new InvertedIndex<>(records, Arrays.asList(keys));
+
+		retainIndex(dataset, index);
+
+		return index;
+	}
+
+	/**
+	 * Computes the keys of a range of records. The range is split
+	 * recursively.
+	 */
+	private class KeyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<RecordType> records;
+		private Collection<String>[] keys;
+		private int from;
+		private int to;
+
+		public KeyTask(List<RecordType> records, Collection<String>[] keys, int from, int to) {
+			this.records = records;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= RECORDS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					keys[i] = blockingFunction.getBlockingKeys(records.get(i));
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new KeyTask(records, keys, from, mid), new KeyTask(records, keys, mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link MultiBlockingKeyGenerator} which uses every token of a value as a
+ * blocking key. The value is converted to lower case and split at all
+ * characters that are neither letters nor digits. Tokens shorter than the
+ * minimal token length are ignored.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class TokenBlockingKeyGenerator<RecordType extends Matchable> extends
+		MultiBlockingKeyGenerator<RecordType> {
+
+	private int minTokenLength;
+
+	public TokenBlockingKeyGenerator() {
+		this(2);
+	}
+
+	/**
+	 * @param minTokenLength
+	 *            the minimal length of a token to be used as key
+	 */
+	public TokenBlockingKeyGenerator(int minTokenLength) {
+		this.minTokenLength = minTokenLength;
+	}
+
+	/**
+	 * Returns the value of the record that is tokenized
+	 * 
+	 * @param instance
+	 * @return the value or null
+	 */
+	protected abstract String getValue(RecordType instance);
+
+	@Override
+	public Collection<String> getBlockingKeys(RecordType instance) {
+		String value = getValue(instance);
+
+		if (value == null) {
+			return Collections.emptySet();
+		}
+
+		Set<String> keys = new LinkedHashSet<>();
+		for (String token : value.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+			if (token.length() >= minTokenLength) {
+				keys.add(token);
+			}
+		}
+
+		return keys;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s(min. token length: %d)",
+				super.getFingerprint(), minTokenLength);
+	}
+
+}
@@ -0,0 +1,805 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+/**
+ * {@link PhoneticEncoder} that implements Lawrence Philips' Double Metaphone
+ * algorithm. It creates a primary code and, for names with several plausible
+ * pronunciations, an alternate code. For example, "Smith" is encoded as SM0
+ * and XMT, "Schmidt" as XMT and SMT, so both names share a code. The code 0
+ * stands for "th". By default, the codes are truncated to 4 characters.
+ * 
+ * The rules follow the original implementation, with two differences caused
+ * by the normalisation of the values (see {@link PhoneticEncoder}): the rules
+ * for prefixes followed by a space ("San ", "Van ") never apply, and a final
+ * J of a name has no alternate code.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+public class DoubleMetaphoneEncoder extends PhoneticEncoder {
+
+	private static final int DEFAULT_CODE_LENGTH = 4;
+
+	private static final String[] SILENT_START = { "GN", "KN", "PN", "WR",
+			"PS" };
+	private static final String[] L_R_N_M_B_H_F_V_W = { "L", "R", "N", "M",
+			"B", "H", "F", "V", "W" };
+	private static final String[] ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER = { "ES",
+			"EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER" };
+	private static final String[] L_T_K_S_N_M_B_Z = { "L", "T", "K", "S", "N",
+			"M", "B", "Z" };
+
+	private static final String[] A_O_U_E = { "A", "O", "U", "E" };
+	private static final String[] B_D_H = { "B", "D", "H" };
+	private static final String[] B_H = { "B", "H" };
+	private static final String[] C_G_L_R_T = { "C", "G", "L", "R", "T" };
+	private static final String[] C_K_Q = { "C", "K", "Q" };
+	private static final String[] C_X = { "C", "X" };
+	private static final String[] E_I = { "E", "I" };
+	private static final String[] E_I_H = { "I", "E", "H" };
+	private static final String[] E_I_Y = { "E", "I", "Y" };
+	private static final String[] M_N_L_W = { "M", "N", "L", "W" };
+	private static final String[] P_B = { "P", "B" };
+	private static final String[] S_K_L = { "S", "K", "L" };
+	private static final String[] S_Z = { "S", "Z" };
+	private static final String[] T_D = { "T", "D" };
+	private static final String[] T_S = { "T", "S" };
+	private static final String[] A_O = { "A", "O" };
+
+	private static final String[] AI_OI = { "AI", "OI" };
+	private static final String[] AS_OS = { "AS", "OS" };
+	private static final String[] AU_OU = { "AU", "OU" };
+	private static final String[] CE_CI = { "CE", "CI" };
+	private static final String[] CI_CE_CY = { "CI", "CE", "CY" };
+	private static final String[] CK_CG_CQ = { "CK", "CG", "CQ" };
+	private static final String[] DT_DD = { "DT", "DD" };
+	private static final String[] ER_EN = { "ER", "EN" };
+	private static final String[] ME_MA = { "ME", "MA" };
+	private static final String[] OM_AM = { "OM", "AM" };
+	private static final String[] OO_ER_EN_UY_ED_EM = { "OO", "ER", "EN",
+			"UY", "ED", "EM" };
+	private static final String[] ZO_ZI_ZA = { "ZO", "ZI", "ZA" };
+
+	private static final String[] AGGI_OGGI = { "AGGI", "OGGI" };
+	private static final String[] CIO_CIE_CIA = { "CIO", "CIE", "CIA" };
+	private static final String[] EWSKI_EWSKY_OWSKI_OWSKY = { "EWSKI",
+			"EWSKY", "OWSKI", "OWSKY" };
+	private static final String[] HARAC_HARIS = { "HARAC", "HARIS" };
+	private static final String[] HEIM_HOEK_HOLM_HOLZ = { "HEIM", "HOEK",
+			"HOLM", "HOLZ" };
+	private static final String[] HOR_HYM_HIA_HEM = { "HOR", "HYM", "HIA",
+			"HEM" };
+	private static final String[] IAU_EAU = { "IAU", "EAU" };
+	private static final String[] ILLO_ILLA_ALLE = { "ILLO", "ILLA", "ALLE" };
+	private static final String[] ISL_YSL = { "ISL", "YSL" };
+	private static final String[] ORCHES_ARCHIT_ORCHID = { "ORCHES",
+			"ARCHIT", "ORCHID" };
+	private static final String[] RGY_OGY = { "RGY", "OGY" };
+	private static final String[] SIO_SIA = { "SIO", "SIA" };
+	private static final String[] TIA_TCH = { "TIA", "TCH" };
+	private static final String[] UCCEE_UCCES = { "UCCEE", "UCCES" };
+	private static final String[] BACHER_MACHER = { "BACHER", "MACHER" };
+	private static final String[] DANGER_RANGER_MANGER = { "DANGER",
+			"RANGER", "MANGER" };
+	private static final String[] WICZ_WITZ = { "WICZ", "WITZ" };
+
+	/**
+	 * The state of an encoding, one instance is reused by every thread
+	 */
+	private static class Encoding {
+
+		private char[] value;
+		private int length;
+		private boolean slavoGermanic;
+
+		private int maxLength;
+		private char[] primary = new char[MAX_CODE_LENGTH];
+		private int primaryLength;
+		private char[] alternate = new char[MAX_CODE_LENGTH];
+		private int alternateLength;
+
+		public void encode(char[] value, int length, int maxLength) {
+			this.value = value;
+			this.length = length;
+			this.maxLength = maxLength;
+			primaryLength = 0;
+			alternateLength = 0;
+
+			slavoGermanic = indexOf("W") >= 0 || indexOf("K") >= 0
+					|| indexOf("CZ") >= 0;
+
+			int index = containsAny(0, SILENT_START) ? 1 : 0;
+
+			while (!isComplete() && index < length) {
+				switch (value[index]) {
+				case 'A':
+				case 'E':
+				case 'I':
+				case 'O':
+				case 'U':
+				case 'Y':
+					if (index == 0) {
+						append('A');
+					}
+					index++;
+					break;
+				case 'B':
+					append('P');
+					index = charAt(index + 1) == 'B' ? index + 2 : index + 1;
+					break;
+				case 'C':
+					index = handleC(index);
+					break;
+				case 'D':
+					index = handleD(index);
+					break;
+				case 'F':
+					append('F');
+					index = charAt(index + 1) == 'F' ? index + 2 : index + 1;
+					break;
+				case 'G':
+					index = handleG(index);
+					break;
+				case 'H':
+					index = handleH(index);
+					break;
+				case 'J':
+					index = handleJ(index);
+					break;
+				case 'K':
+					append('K');
+					index = charAt(index + 1) == 'K' ? index + 2 : index + 1;
+					break;
+				case 'L':
+					index = handleL(index);
+					break;
+				case 'M':
+					append('M');
+					index = conditionM0(index) ? index + 2 : index + 1;
+					break;
+				case 'N':
+					append('N');
+					index = charAt(index + 1) == 'N' ? index + 2 : index + 1;
+					break;
+				case 'P':
+					index = handleP(index);
+					break;
+				case 'Q':
+					append('K');
+					index = charAt(index + 1) == 'Q' ? index + 2 : index + 1;
+					break;
+				case 'R':
+					index = handleR(index);
+					break;
+				case 'S':
+					index = handleS(index);
+					break;
+				case 'T':
+					index = handleT(index);
+					break;
+				case 'V':
+					append('F');
+					index = charAt(index + 1) == 'V' ? index + 2 : index + 1;
+					break;
+				case 'W':
+					index = handleW(index);
+					break;
+				case 'X':
+					index = handleX(index);
+					break;
+				case 'Z':
+					index = handleZ(index);
+					break;
+				default:
+					index++;
+				}
+			}
+		}
+
+		private int handleC(int index) {
+			if (conditionC0(index)) {
+				append('K');
+				index += 2;
+			} else if (index == 0 && contains(index, "CAESAR")) {
+				append('S');
+				index += 2;
+			} else if (contains(index, "CH")) {
+				index = handleCH(index);
+			} else if (contains(index, "CZ") && !contains(index - 2, "WICZ")) {
+				// "Czerny"
+				append('S', 'X');
+				index += 2;
+			} else if (contains(index + 1, "CIA")) {
+				// "focaccia"
+				append('X');
+				index += 3;
+			} else if (contains(index, "CC")
+					&& !(index == 1 && charAt(0) == 'M')) {
+				// double "cc" but not "McClelland"
+				index = handleCC(index);
+			} else if (containsAny(index, CK_CG_CQ)) {
+				append('K');
+				index += 2;
+			} else if (containsAny(index, CI_CE_CY)) {
+				// Italian vs. English
+				if (containsAny(index, CIO_CIE_CIA)) {
+					append('S', 'X');
+				} else {
+					append('S');
+				}
+				index += 2;
+			} else {
+				append('K');
+				if (containsAny(index + 1, C_K_Q)
+						&& !containsAny(index + 1, CE_CI)) {
+					index += 2;
+				} else {
+					index++;
+				}
+			}
+			return index;
+		}
+
+		private int handleCC(int index) {
+			if (containsAny(index + 2, E_I_H) && !contains(index + 2, "HU")) {
+				// "bellocchio" but not "bacchus"
+				if ((index == 1 && charAt(index - 1) == 'A')
+						|| containsAny(index - 1, UCCEE_UCCES)) {
+					// "accident", "accede", "succeed"
+					append("KS");
+				} else {
+					// "bacci", "bertucci", other Italian
+					append('X');
+				}
+				index += 3;
+			} else {
+				// Pierce's rule
+				append('K');
+				index += 2;
+			}
+			return index;
+		}
+
+		private int handleCH(int index) {
+			if (index > 0 && contains(index, "CHAE")) {
+				// "Michael"
+				append('K', 'X');
+			} else if (conditionCH0(index) || conditionCH1(index)) {
+				// Greek roots ("chemistry", "chorus") and Germanic
+				append('K');
+			} else if (index > 0) {
+				if (contains(0, "MC")) {
+					append('K');
+				} else {
+					append('X', 'K');
+				}
+			} else {
+				append('X');
+			}
+			return index + 2;
+		}
+
+		private int handleD(int index) {
+			if (contains(index, "DG")) {
+				if (containsAny(index + 2, E_I_Y)) {
+					// "edge"
+					append('J');
+					index += 3;
+				} else {
+					// "Edgar"
+					append("TK");
+					index += 2;
+				}
+			} else if (containsAny(index, DT_DD)) {
+				append('T');
+				index += 2;
+			} else {
+				append('T');
+				index++;
+			}
+			return index;
+		}
+
+		private int handleG(int index) {
+			if (charAt(index + 1) == 'H') {
+				index = handleGH(index);
+			} else if (charAt(index + 1) == 'N') {
+				if (index == 1 && isVowel(charAt(0)) && !slavoGermanic) {
+					append("KN", "N");
+				} else if (!contains(index + 2, "EY")
+						&& charAt(index + 1) != 'Y' && !slavoGermanic) {
+					append("N", "KN");
+				} else {
+					append("KN");
+				}
+				index += 2;
+			} else if (contains(index + 1, "LI") && !slavoGermanic) {
+				append("KL", "L");
+				index += 2;
+			} else if (index == 0
+					&& (charAt(index + 1) == 'Y' || containsAny(index + 1,
+							ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER))) {
+				// -ges-, -gep-, -gel-, -gie- at the beginning
+				append('K', 'J');
+				index += 2;
+			} else if ((contains(index + 1, "ER") || charAt(index + 1) == 'Y')
+					&& !containsAny(0, DANGER_RANGER_MANGER)
+					&& !containsAny(index - 1, E_I)
+					&& !containsAny(index - 1, RGY_OGY)) {
+				// -ger-, -gy-
+				append('K', 'J');
+				index += 2;
+			} else if (containsAny(index + 1, E_I_Y)
+					|| containsAny(index - 1, AGGI_OGGI)) {
+				// Italian "biaggi"
+				if (contains(0, "SCH") || contains(index + 1, "ET")) {
+					// obvious Germanic
+					append('K');
+				} else if (contains(index + 1, "IER")) {
+					append('J');
+				} else {
+					append('J', 'K');
+				}
+				index += 2;
+			} else if (charAt(index + 1) == 'G') {
+				append('K');
+				index += 2;
+			} else {
+				append('K');
+				index++;
+			}
+			return index;
+		}
+
+		private int handleGH(int index) {
+			if (index > 0 && !isVowel(charAt(index - 1))) {
+				append('K');
+			} else if (index == 0) {
+				if (charAt(index + 2) == 'I') {
+					append('J');
+				} else {
+					append('K');
+				}
+			} else if ((index > 1 && containsAny(index - 2, B_D_H))
+					|| (index > 2 && containsAny(index - 3, B_D_H))
+					|| (index > 3 && containsAny(index - 4, B_H))) {
+				// Parker's rule, "hugh"
+			} else if (index > 2 && charAt(index - 1) == 'U'
+					&& containsAny(index - 3, C_G_L_R_T)) {
+				// "laugh", "McLaughlin", "cough", "rough", "tough"
+				append('F');
+			} else if (index > 0 && charAt(index - 1) != 'I') {
+				append('K');
+			}
+			return index + 2;
+		}
+
+		private int handleH(int index) {
+			// only keep if first and before a vowel or between two vowels
+			if ((index == 0 || isVowel(charAt(index - 1)))
+					&& isVowel(charAt(index + 1))) {
+				append('H');
+				// also takes care of "HH"
+				return index + 2;
+			} else {
+				return index + 1;
+			}
+		}
+
+		private int handleJ(int index) {
+			if (contains(index, "JOSE")) {
+				// obvious Spanish, "Jose"
+				if (length == 4) {
+					append('H');
+				} else {
+					append('J', 'H');
+				}
+				index++;
+			} else {
+				if (index == 0) {
+					append('J', 'A');
+				} else if (isVowel(charAt(index - 1)) && !slavoGermanic
+						&& (charAt(index + 1) == 'A' || charAt(index + 1) == 'O')) {
+					append('J', 'H');
+				} else if (index == length - 1) {
+					appendPrimary('J');
+				} else if (!containsAny(index + 1, L_T_K_S_N_M_B_Z)
+						&& !containsAny(index - 1, S_K_L)) {
+					append('J');
+				}
+
+				index = charAt(index + 1) == 'J' ? index + 2 : index + 1;
+			}
+			return index;
+		}
+
+		private int handleL(int index) {
+			if (charAt(index + 1) == 'L') {
+				if (conditionL0(index)) {
+					appendPrimary('L');
+				} else {
+					append('L');
+				}
+				return index + 2;
+			} else {
+				append('L');
+				return index + 1;
+			}
+		}
+
+		private int handleP(int index) {
+			if (charAt(index + 1) == 'H') {
+				append('F');
+				return index + 2;
+			} else {
+				append('P');
+				return containsAny(index + 1, P_B) ? index + 2 : index + 1;
+			}
+		}
+
+		private int handleR(int index) {
+			if (index == length - 1 && !slavoGermanic
+					&& contains(index - 2, "IE")
+					&& !containsAny(index - 4, ME_MA)) {
+				// French, e.g. "Rogier"
+				appendAlternate('R');
+			} else {
+				append('R');
+			}
+			return charAt(index + 1) == 'R' ? index + 2 : index + 1;
+		}
+
+		private int handleS(int index) {
+			if (containsAny(index - 1, ISL_YSL)) {
+				// "island", "isle", "carlisle", "carlysle"
+				index++;
+			} else if (index == 0 && contains(index, "SUGAR")) {
+				append('X', 'S');
+				index++;
+			} else if (contains(index, "SH")) {
+				if (containsAny(index + 1, HEIM_HOEK_HOLM_HOLZ)) {
+					// Germanic
+					append('S');
+				} else {
+					append('X');
+				}
+				index += 2;
+			} else if (containsAny(index, SIO_SIA)) {
+				// Italian and Armenian
+				if (slavoGermanic) {
+					append('S');
+				} else {
+					append('S', 'X');
+				}
+				index += 3;
+			} else if ((index == 0 && containsAny(index + 1, M_N_L_W))
+					|| contains(index + 1, "Z")) {
+				// "smith" matches "schmidt", "snider" matches "schneider",
+				// -sz- in Slavic languages
+				append('S', 'X');
+				index = contains(index + 1, "Z") ? index + 2 : index + 1;
+			} else if (contains(index, "SC")) {
+				index = handleSC(index);
+			} else {
+				if (index == length - 1 && containsAny(index - 2, AI_OI)) {
+					// French, e.g. "resnais", "artois"
+					appendAlternate('S');
+				} else {
+					append('S');
+				}
+				index = containsAny(index + 1, S_Z) ? index + 2 : index + 1;
+			}
+			return index;
+		}
+
+		private int handleSC(int index) {
+			if (charAt(index + 2) == 'H') {
+				// Schlesinger's rule
+				if (containsAny(index + 3, OO_ER_EN_UY_ED_EM)) {
+					// Dutch origin, e.g. "school", "schooner"
+					if (containsAny(index + 3, ER_EN)) {
+						// "schermerhorn", "schenker"
+						append("X", "SK");
+					} else {
+						append("SK");
+					}
+				} else if (index == 0 && !isVowel(charAt(3))
+						&& charAt(3) != 'W') {
+					append('X', 'S');
+				} else {
+					append('X');
+				}
+			} else if (containsAny(index + 2, E_I_Y)) {
+				append('S');
+			} else {
+				append("SK");
+			}
+			return index + 3;
+		}
+
+		private int handleT(int index) {
+			if (contains(index, "TION") || containsAny(index, TIA_TCH)) {
+				append('X');
+				index += 3;
+			} else if (contains(index, "TH") || contains(index, "TTH")) {
+				if (containsAny(index + 2, OM_AM) || contains(0, "SCH")) {
+					// "thomas", "thames" or Germanic
+					append('T');
+				} else {
+					append('0', 'T');
+				}
+				index += 2;
+			} else {
+				append('T');
+				index = containsAny(index + 1, T_D) ? index + 2 : index + 1;
+			}
+			return index;
+		}
+
+		private int handleW(int index) {
+			if (contains(index, "WR")) {
+				append('R');
+				index += 2;
+			} else if (index == 0
+					&& (isVowel(charAt(index + 1)) || contains(index, "WH"))) {
+				if (isVowel(charAt(index + 1))) {
+					// "Wasserman" matches "Vasserman"
+					append('A', 'F');
+				} else {
+					// "Uomo" matches "Womo"
+					append('A');
+				}
+				index++;
+			} else if ((index == length - 1 && isVowel(charAt(index - 1)))
+					|| containsAny(index - 1, EWSKI_EWSKY_OWSKI_OWSKY)
+					|| contains(0, "SCH")) {
+				// "Arnow" matches "Arnoff"
+				appendAlternate('F');
+				index++;
+			} else if (containsAny(index, WICZ_WITZ)) {
+				// Polish, e.g. "Filipowicz"
+				append("TS", "FX");
+				index += 4;
+			} else {
+				index++;
+			}
+			return index;
+		}
+
+		private int handleX(int index) {
+			if (index == 0) {
+				append('S');
+				return index + 1;
+			} else {
+				if (!(index == length - 1 && (containsAny(index - 3, IAU_EAU) || containsAny(
+						index - 2, AU_OU)))) {
+					// but not French, e.g. "breaux"
+					append("KS");
+				}
+				return containsAny(index + 1, C_X) ? index + 2 : index + 1;
+			}
+		}
+
+		private int handleZ(int index) {
+			if (charAt(index + 1) == 'H') {
+				// Chinese pinyin, e.g. "Zhao"
+				append('J');
+				return index + 2;
+			} else {
+				if (containsAny(index + 1, ZO_ZI_ZA)
+						|| (slavoGermanic && index > 0 && charAt(index - 1) != 'T')) {
+					append("S", "TS");
+				} else {
+					append('S');
+				}
+				return charAt(index + 1) == 'Z' ? index + 2 : index + 1;
+			}
+		}
+
+		private boolean conditionC0(int index) {
+			if (contains(index, "CHIA")) {
+				return true;
+			} else if (index <= 1) {
+				return false;
+			} else if (isVowel(charAt(index - 2))) {
+				return false;
+			} else if (!contains(index - 1, "ACH")) {
+				return false;
+			} else {
+				char c = charAt(index + 2);
+				return (c != 'I' && c != 'E')
+						|| containsAny(index - 2, BACHER_MACHER);
+			}
+		}
+
+		private boolean conditionCH0(int index) {
+			if (index != 0) {
+				return false;
+			} else if (!containsAny(index + 1, HARAC_HARIS)
+					&& !containsAny(index + 1, HOR_HYM_HIA_HEM)) {
+				return false;
+			} else {
+				return !contains(0, "CHORE");
+			}
+		}
+
+		private boolean conditionCH1(int index) {
+			return contains(0, "SCH")
+					|| containsAny(index - 2, ORCHES_ARCHIT_ORCHID)
+					|| containsAny(index + 2, T_S)
+					|| ((containsAny(index - 1, A_O_U_E) || index == 0) && (containsAny(
+							index + 2, L_R_N_M_B_H_F_V_W) || index + 1 == length - 1));
+		}
+
+		private boolean conditionL0(int index) {
+			if (index == length - 3 && containsAny(index - 1, ILLO_ILLA_ALLE)) {
+				return true;
+			} else {
+				return (containsAny(length - 2, AS_OS) || containsAny(
+						length - 1, A_O)) && contains(index - 1, "ALLE");
+			}
+		}
+
+		private boolean conditionM0(int index) {
+			if (charAt(index + 1) == 'M') {
+				return true;
+			} else {
+				return contains(index - 1, "UMB")
+						&& (index + 1 == length - 1 || contains(index + 2,
+								"ER"));
+			}
+		}
+
+		private char charAt(int index) {
+			if (index < 0 || index >= length) {
+				return 0;
+			} else {
+				return value[index];
+			}
+		}
+
+		private boolean isVowel(char c) {
+			return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U'
+					|| c == 'Y';
+		}
+
+		/**
+		 * Checks if the value contains the string at the given position
+		 */
+		private boolean contains(int start, String s) {
+			if (start < 0 || start + s.length() > length) {
+				return false;
+			}
+			for (int i = 0; i < s.length(); i++) {
+				if (value[start + i] != s.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean containsAny(int start, String[] strings) {
+			for (String s : strings) {
+				if (contains(start, s)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private int indexOf(String s) {
+			for (int i = 0; i + s.length() <= length; i++) {
+				if (contains(i, s)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private boolean isComplete() {
+			return primaryLength >= maxLength && alternateLength >= maxLength;
+		}
+
+		private void append(char c) {
+			appendPrimary(c);
+			appendAlternate(c);
+		}
+
+		private void append(char primary, char alternate) {
+			appendPrimary(primary);
+			appendAlternate(alternate);
+		}
+
+		private void append(String s) {
+			append(s, s);
+		}
+
+		private void append(String primary, String alternate) {
+			for (int i = 0; i < primary.length(); i++) {
+				appendPrimary(primary.charAt(i));
+			}
+			for (int i = 0; i < alternate.length(); i++) {
+				appendAlternate(alternate.charAt(i));
+			}
+		}
+
+		private void appendPrimary(char c) {
+			if (primaryLength < maxLength) {
+				primary[primaryLength++] = c;
+			}
+		}
+
+		private void appendAlternate(char c) {
+			if (alternateLength < maxLength) {
+				alternate[alternateLength++] = c;
+			}
+		}
+
+	}
+
+	private static final ThreadLocal<Encoding> encodings = new ThreadLocal<Encoding>() {
+		@Override
+		protected Encoding initialValue() {
+			return new Encoding();
+		}
+	};
+
+	public DoubleMetaphoneEncoder() {
+		this(DEFAULT_CODE_LENGTH);
+	}
+
+	/**
+	 * @param maxCodeLength
+	 *            the maximal length of the codes, at most
+	 *            {@link PhoneticEncoder#MAX_CODE_LENGTH}
+	 */
+	public DoubleMetaphoneEncoder(int maxCodeLength) {
+		super(maxCodeLength);
+	}
+
+	@Override
+	public int getMaxCodes() {
+		return 2;
+	}
+
+	@Override
+	protected int encodeLetters(char[] letters, int length, long[] codes,
+			int offset) {
+		Encoding encoding = encodings.get();
+		encoding.encode(letters, length, getMaxCodeLength());
+
+		int count = 0;
+		if (encoding.primaryLength > 0) {
+			codes[offset + count++] = pack(encoding.primary,
+					encoding.primaryLength);
+		}
+		if (encoding.alternateLength > 0) {
+			long alternate = pack(encoding.alternate, encoding.alternateLength);
+			if (count == 0 || alternate != codes[offset]) {
+				codes[offset + count++] = alternate;
+			}
+		}
+
+		// do not keep a reference to the buffer of the value
+		encoding.value = null;
+
+		return count;
+	}
+
+}
@@ -0,0 +1,171 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+/**
+ * {@link PhoneticEncoder} that implements the New York State Identification
+ * and Intelligence System (NYSIIS) algorithm. In contrast to Soundex, the
+ * code consists of letters only and keeps the vowels (as A), e.g. NAT for
+ * "Knuth" and MCANT for "MacIntosh". By default, the codes are truncated to
+ * the original length of 6 characters.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+public class NysiisEncoder extends PhoneticEncoder {
+
+	private static final int ORIGINAL_CODE_LENGTH = 6;
+
+	public NysiisEncoder() {
+		this(ORIGINAL_CODE_LENGTH);
+	}
+
+	/**
+	 * @param maxCodeLength
+	 *            the maximal length of the codes, at most
+	 *            {@link PhoneticEncoder#MAX_CODE_LENGTH}
+	 */
+	public NysiisEncoder(int maxCodeLength) {
+		super(maxCodeLength);
+	}
+
+	@Override
+	protected int encodeLetters(char[] value, int length, long[] codes,
+			int offset) {
+		// translate the first letters: MAC -> MCC, KN -> NN, K -> C,
+		// PH/PF -> FF, SCH -> SSS
+		if (startsWith(value, length, "MAC")) {
+			value[1] = 'C';
+		} else if (startsWith(value, length, "KN")) {
+			value[0] = 'N';
+		} else if (value[0] == 'K') {
+			value[0] = 'C';
+		} else if (startsWith(value, length, "PH")
+				|| startsWith(value, length, "PF")) {
+			value[0] = 'F';
+			value[1] = 'F';
+		} else if (startsWith(value, length, "SCH")) {
+			value[1] = 'S';
+			value[2] = 'S';
+		}
+
+		// translate the last letters: EE/IE -> Y, DT/RT/RD/NT/ND -> D
+		if (length >= 2) {
+			char secondLast = value[length - 2];
+			char last = value[length - 1];
+			if (last == 'E' && (secondLast == 'E' || secondLast == 'I')) {
+				value[length - 2] = 'Y';
+				length--;
+			} else if ((last == 'T' || last == 'D')
+					&& (secondLast == 'R' || secondLast == 'N')
+					|| last == 'T' && secondLast == 'D') {
+				value[length - 2] = 'D';
+				length--;
+			}
+		}
+
+		char[] key = getBuffer(1, length);
+		key[0] = value[0];
+		int keyLength = 1;
+
+		for (int i = 1; i < length; i++) {
+			char previous = value[i - 1];
+			char current = value[i];
+			char next = i < length - 1 ? value[i + 1] : ' ';
+			char afterNext = i < length - 2 ? value[i + 2] : ' ';
+
+			// the translations replace the letters in place, so they are
+			// also used as previous letter in the next step
+			if (current == 'E' && next == 'V') {
+				value[i] = 'A';
+				value[i + 1] = 'F';
+			} else if (isVowel(current)) {
+				value[i] = 'A';
+			} else if (current == 'Q') {
+				value[i] = 'G';
+			} else if (current == 'Z') {
+				value[i] = 'S';
+			} else if (current == 'M') {
+				value[i] = 'N';
+			} else if (current == 'K') {
+				if (next == 'N') {
+					value[i] = 'N';
+					value[i + 1] = 'N';
+				} else {
+					value[i] = 'C';
+				}
+			} else if (current == 'S' && next == 'C' && afterNext == 'H') {
+				value[i + 1] = 'S';
+				value[i + 2] = 'S';
+			} else if (current == 'P' && next == 'H') {
+				value[i] = 'F';
+				value[i + 1] = 'F';
+			} else if (current == 'H'
+					&& (!isVowel(previous) || !isVowel(next))) {
+				value[i] = previous;
+			} else if (current == 'W' && isVowel(previous)) {
+				value[i] = previous;
+			}
+
+			if (value[i] != value[i - 1]) {
+				key[keyLength++] = value[i];
+			}
+		}
+
+		if (keyLength > 1) {
+			// remove a final S, replace a final AY by Y and remove a final A
+			char last = key[keyLength - 1];
+			if (last == 'S') {
+				keyLength--;
+				last = key[keyLength - 1];
+			}
+			if (keyLength > 2 && last == 'Y' && key[keyLength - 2] == 'A') {
+				key[keyLength - 2] = 'Y';
+				keyLength--;
+			}
+			if (last == 'A') {
+				keyLength--;
+			}
+		}
+
+		if (keyLength == 0) {
+			// e.g. "AS"
+			return 0;
+		}
+
+		codes[offset] = pack(key, Math.min(keyLength, getMaxCodeLength()));
+		return 1;
+	}
+
+	private static boolean startsWith(char[] value, int length, String prefix) {
+		if (prefix.length() > length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (value[i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isVowel(char c) {
+		return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+	}
+
+}
@@ -0,0 +1,111 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link BlockingKeyGenerator} which uses the phonetic code of a value as
+ * blocking key, so records with spelling variants like "Meyer" and "Maier" are
+ * in the same block. The whole value is encoded (ignoring all characters
+ * that are not letters). If the encoder creates several codes, only the first
+ * (primary) code is used; see {@link PhoneticBlockingKeysGenerator} for a key
+ * per code and token.
+ * 
+ * The code is computed once per record, and records with the same code share
+ * one key instance. Use {@link #prepare(DataSet)} to encode all records of a
+ * data set before the blocking.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class PhoneticBlockingKeyGenerator<RecordType extends Matchable>
+		extends BlockingKeyGenerator<RecordType> {
+
+	private PhoneticEncoder encoder;
+	private PhoneticCodeStore codes = new PhoneticCodeStore();
+
+	/**
+	 * @param encoder
+	 *            the encoder that creates the phonetic codes
+	 */
+	public PhoneticBlockingKeyGenerator(PhoneticEncoder encoder) {
+		this.encoder = encoder;
+	}
+
+	/**
+	 * Returns the value of the record that is encoded
+	 * 
+	 * @param instance
+	 * @return the value or null
+	 */
+	protected abstract String getValue(RecordType instance);
+
+	@Override
+	public String getBlockingKey(RecordType instance) {
+		if (!codes.contains(instance)) {
+			codes.put(instance, encode(getValue(instance)));
+		}
+
+		return codes.getFirstKey(instance);
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s %s", super.getFingerprint(), encoder);
+	}
+
+	/**
+	 * Encodes all records of the data set that are not encoded yet
+	 * 
+	 * @param dataset
+	 */
+	public void prepare(DataSet<RecordType> dataset) {
+		for (RecordType record : dataset.getRecords()) {
+			if (!codes.contains(record)) {
+				codes.put(record, encode(getValue(record)));
+			}
+		}
+	}
+
+	/**
+	 * Removes the codes of all records
+	 */
+	public void clear() {
+		codes.clear();
+	}
+
+	private long[] encode(String value) {
+		if (value == null) {
+			return PhoneticCodeStore.NO_CODES;
+		}
+
+		long[] result = new long[encoder.getMaxCodes()];
+		if (encoder.encode(value, 0, value.length(), result, 0) == 0) {
+			return PhoneticCodeStore.NO_CODES;
+		} else if (result.length > 1) {
+			return new long[] { result[0] };
+		} else {
+			return result;
+		}
+	}
+
+}
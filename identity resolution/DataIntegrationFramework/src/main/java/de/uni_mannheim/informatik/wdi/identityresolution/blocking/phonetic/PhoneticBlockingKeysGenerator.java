@@ -0,0 +1,167 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.MultiBlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.TokenBlocker;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * {@link MultiBlockingKeyGenerator} which uses the phonetic codes of all
+ * tokens of a value as blocking keys, so two records are compared by the
+ * {@link TokenBlocker} if any of their tokens sound similar. Tokens are
+ * separated by all characters that are neither letters nor digits, tokens
+ * shorter than the minimal token length are ignored. If the encoder creates
+ * several codes for a token (like {@link DoubleMetaphoneEncoder}), all codes
+ * are used.
+ * 
+ * The codes are computed once per record, the keys of all records are kept in
+ * a flat array per provenance. Use {@link #prepare(DataSet)} to encode all
+ * records of a data set before the blocking.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public abstract class PhoneticBlockingKeysGenerator<RecordType extends Matchable>
+		extends MultiBlockingKeyGenerator<RecordType> {
+
+	private PhoneticEncoder encoder;
+	private int minTokenLength;
+	private PhoneticCodeStore codes = new PhoneticCodeStore();
+
+	/**
+	 * @param encoder
+	 *            the encoder that creates the phonetic codes
+	 */
+	public PhoneticBlockingKeysGenerator(PhoneticEncoder encoder) {
+		this(encoder, 2);
+	}
+
+	/**
+	 * @param encoder
+	 *            the encoder that creates the phonetic codes
+	 * @param minTokenLength
+	 *            the minimal length of a token to be encoded
+	 */
+	public PhoneticBlockingKeysGenerator(PhoneticEncoder encoder,
+			int minTokenLength) {
+		this.encoder = encoder;
+		this.minTokenLength = minTokenLength;
+	}
+
+	/**
+	 * Returns the value of the record that is tokenized and encoded
+	 * 
+	 * @param instance
+	 * @return the value or null
+	 */
+	protected abstract String getValue(RecordType instance);
+
+	@Override
+	public Collection<String> getBlockingKeys(RecordType instance) {
+		Collection<String> keys = codes.getKeys(instance);
+
+		if (keys == null) {
+			codes.put(instance, encode(getValue(instance)));
+			keys = codes.getKeys(instance);
+		}
+
+		return keys;
+	}
+
+	@Override
+	public String getFingerprint() {
+		return String.format("%s %s(min. token length: %d)",
+				super.getFingerprint(), encoder, minTokenLength);
+	}
+
+	/**
+	 * Encodes all records of the data set that are not encoded yet
+	 * 
+	 * @param dataset
+	 */
+	public void prepare(DataSet<RecordType> dataset) {
+		for (RecordType record : dataset.getRecords()) {
+			if (!codes.contains(record)) {
+				codes.put(record, encode(getValue(record)));
+			}
+		}
+	}
+
+	/**
+	 * Removes the codes of all records
+	 */
+	public void clear() {
+		codes.clear();
+	}
+
+	private long[] encode(String value) {
+		if (value == null) {
+			return PhoneticCodeStore.NO_CODES;
+		}
+
+		// every token has at least minTokenLength characters and a separator
+		int maxTokens = value.length() / (Math.max(minTokenLength, 1) + 1) + 1;
+		long[] result = new long[maxTokens * encoder.getMaxCodes()];
+		int count = 0;
+
+		int start = 0;
+		while (start < value.length()) {
+			while (start < value.length()
+					&& !Character.isLetterOrDigit(value.charAt(start))) {
+				start++;
+			}
+			int end = start;
+			while (end < value.length()
+					&& Character.isLetterOrDigit(value.charAt(end))) {
+				end++;
+			}
+
+			if (end - start >= minTokenLength) {
+				int first = count;
+				int added = encoder.encode(value, start, end, result, first);
+
+				// keep the codes distinct
+				for (int i = first; i < first + added; i++) {
+					boolean exists = false;
+					for (int j = 0; j < count && !exists; j++) {
+						exists = result[j] == result[i];
+					}
+					if (!exists) {
+						result[count++] = result[i];
+					}
+				}
+			}
+
+			start = end;
+		}
+
+		if (count == 0) {
+			return PhoneticCodeStore.NO_CODES;
+		} else {
+			return count == result.length ? result : Arrays.copyOf(result,
+					count);
+		}
+	}
+
+}
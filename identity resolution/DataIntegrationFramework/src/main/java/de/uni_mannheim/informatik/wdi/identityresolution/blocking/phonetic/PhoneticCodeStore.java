@@ -0,0 +1,329 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Stores the phonetic blocking keys of records. The records of each
+ * provenance are numbered in the order in which they are added, and the keys
+ * of all its records are kept in one flat array, in which the keys of record
+ * n start at offsets[n]. The number of a record is found by its identifier in
+ * an open addressing table, so no object is created per record.
+ * 
+ * The packed codes are converted to keys when a record is added. Every
+ * distinct code is only converted once (see {@link PhoneticEncoder#toString(long)}),
+ * so records with the same code share the key instance. The store is
+ * thread-safe.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+class PhoneticCodeStore {
+
+	public static final long[] NO_CODES = new long[0];
+
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * provenance -> the keys of its records
+	 */
+	private Map<String, RecordKeys> records = new HashMap<>();
+
+	/**
+	 * the distinct codes and their keys in an open addressing table, empty
+	 * slots have no key
+	 */
+	private long[] codes = new long[16];
+	private String[] keys = new String[16];
+	private int numberOfCodes = 0;
+
+	/**
+	 * Returns true if the codes of the record were added
+	 * 
+	 * @param record
+	 * @return
+	 */
+	public boolean contains(Matchable record) {
+		lock.readLock().lock();
+		try {
+			RecordKeys recordKeys = records.get(getProvenance(record));
+			return recordKeys != null
+					&& recordKeys.find(record.getIdentifier()) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the codes of a record. The codes of a record that was already added
+	 * are not replaced.
+	 * 
+	 * @param record
+	 * @param codesOfRecord
+	 */
+	public void put(Matchable record, long[] codesOfRecord) {
+		lock.writeLock().lock();
+		try {
+			String provenance = getProvenance(record);
+			RecordKeys recordKeys = records.get(provenance);
+			if (recordKeys == null) {
+				recordKeys = new RecordKeys();
+				records.put(provenance, recordKeys);
+			}
+
+			if (recordKeys.find(record.getIdentifier()) < 0) {
+				String[] keysOfRecord = new String[codesOfRecord.length];
+				for (int i = 0; i < codesOfRecord.length; i++) {
+					keysOfRecord[i] = getKey(codesOfRecord[i]);
+				}
+				recordKeys.add(record.getIdentifier(), keysOfRecord);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the key of the first code of the record
+	 * 
+	 * @param record
+	 * @return the key or null if the record has no codes or was not added
+	 */
+	public String getFirstKey(Matchable record) {
+		lock.readLock().lock();
+		try {
+			RecordKeys recordKeys = records.get(getProvenance(record));
+			int number = recordKeys == null ? -1 : recordKeys.find(record
+					.getIdentifier());
+			if (number < 0
+					|| recordKeys.offsets[number] == recordKeys.offsets[number + 1]) {
+				return null;
+			} else {
+				return recordKeys.keys[recordKeys.offsets[number]];
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the keys of all codes of the record
+	 * 
+	 * @param record
+	 * @return the keys or null if the record was not added
+	 */
+	public Collection<String> getKeys(Matchable record) {
+		lock.readLock().lock();
+		try {
+			RecordKeys recordKeys = records.get(getProvenance(record));
+			int number = recordKeys == null ? -1 : recordKeys.find(record
+					.getIdentifier());
+			if (number < 0) {
+				return null;
+			}
+
+			int from = recordKeys.offsets[number];
+			int to = recordKeys.offsets[number + 1];
+			if (from == to) {
+				return Collections.emptyList();
+			}
+
+			List<String> result = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				result.add(recordKeys.keys[i]);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of records in the store
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		lock.readLock().lock();
+		try {
+			int size = 0;
+			for (RecordKeys recordKeys : records.values()) {
+				size += recordKeys.size;
+			}
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			records.clear();
+			codes = new long[16];
+			keys = new String[16];
+			numberOfCodes = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static String getProvenance(Matchable record) {
+		return record.getProvenance() == null ? "" : record.getProvenance();
+	}
+
+	/**
+	 * Returns the key of the code, the caller must hold the write lock
+	 */
+	private String getKey(long code) {
+		int mask = codes.length - 1;
+		int i = hash(code) & mask;
+		while (keys[i] != null) {
+			if (codes[i] == code) {
+				return keys[i];
+			}
+			i = (i + 1) & mask;
+		}
+
+		String key = PhoneticEncoder.toString(code);
+		codes[i] = code;
+		keys[i] = key;
+		numberOfCodes++;
+
+		if (numberOfCodes * 2 > codes.length) {
+			long[] oldCodes = codes;
+			String[] oldKeys = keys;
+			codes = new long[oldCodes.length * 2];
+			keys = new String[oldKeys.length * 2];
+			mask = codes.length - 1;
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldKeys[j] != null) {
+					int k = hash(oldCodes[j]) & mask;
+					while (keys[k] != null) {
+						k = (k + 1) & mask;
+					}
+					codes[k] = oldCodes[j];
+					keys[k] = oldKeys[j];
+				}
+			}
+		}
+
+		return key;
+	}
+
+	private static int hash(long code) {
+		long h = code * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * The keys of the records of one provenance
+	 */
+	private static class RecordKeys {
+
+		/**
+		 * the identifiers and their record numbers in an open addressing
+		 * table, empty slots have no identifier
+		 */
+		private String[] identifiers = new String[16];
+		private int[] numbers = new int[16];
+
+		/**
+		 * the number of records
+		 */
+		private int size = 0;
+
+		/**
+		 * the keys of record n are keys[offsets[n]] ... keys[offsets[n+1]-1]
+		 */
+		private int[] offsets = new int[17];
+		private String[] keys = new String[16];
+
+		/**
+		 * Returns the number of the record with the identifier or -1
+		 */
+		public int find(String identifier) {
+			int mask = identifiers.length - 1;
+			int i = hash(identifier) & mask;
+			while (identifiers[i] != null) {
+				if (identifiers[i].equals(identifier)) {
+					return numbers[i];
+				}
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		public void add(String identifier, String[] keysOfRecord) {
+			int number = size++;
+
+			if (size + 1 > offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			int from = offsets[number];
+			if (from + keysOfRecord.length > keys.length) {
+				keys = Arrays.copyOf(keys,
+						Math.max(keys.length * 2, from + keysOfRecord.length));
+			}
+			System.arraycopy(keysOfRecord, 0, keys, from, keysOfRecord.length);
+			offsets[number + 1] = from + keysOfRecord.length;
+
+			if (size * 2 > identifiers.length) {
+				String[] oldIdentifiers = identifiers;
+				int[] oldNumbers = numbers;
+				identifiers = new String[oldIdentifiers.length * 2];
+				numbers = new int[oldNumbers.length * 2];
+				for (int j = 0; j < oldIdentifiers.length; j++) {
+					if (oldIdentifiers[j] != null) {
+						insert(oldIdentifiers[j], oldNumbers[j]);
+					}
+				}
+			}
+			insert(identifier, number);
+		}
+
+		private static int hash(String identifier) {
+			// spread the bits, similar identifiers differ in the last
+			// characters
+			int h = identifier.hashCode();
+			return h ^ (h >>> 16);
+		}
+
+		private void insert(String identifier, int number) {
+			int mask = identifiers.length - 1;
+			int i = hash(identifier) & mask;
+			while (identifiers[i] != null) {
+				i = (i + 1) & mask;
+			}
+			identifiers[i] = identifier;
+			numbers[i] = number;
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+/**
+ * Super class for all phonetic encoders, which map a name to a short code
+ * that is the same for names which sound similar, like "Meyer" and "Maier".
+ * 
+ * Before encoding, the value is reduced to its letters: letters are converted
+ * to upper case, the accented letters of Latin-1 are replaced by the letter
+ * without accent and all other characters are removed. The encoders work on
+ * thread local char arrays and do not create any objects, so they can be used
+ * by several threads and for large data sets. A code consists of upper case
+ * letters and digits and is packed into a long (6 bits per character), which
+ * is converted to a {@link String} with {@link #toString(long)}.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+public abstract class PhoneticEncoder {
+
+	/**
+	 * The maximal length of a code that can be packed into a long
+	 */
+	public static final int MAX_CODE_LENGTH = 10;
+
+	/**
+	 * The letters without accent for the characters U+00C0 to U+00FF, 0 for
+	 * characters that are removed
+	 */
+	private static final String LATIN_1 = "AAAAAAACEEEEIIIIDNOOOOO\0OUUUUY\0S"
+			+ "AAAAAAACEEEEIIIIDNOOOOO\0OUUUUY\0Y";
+
+	private static final int BUFFERS = 3;
+
+	private static final ThreadLocal<char[][]> buffers = new ThreadLocal<char[][]>() {
+		@Override
+		protected char[][] initialValue() {
+			char[][] b = new char[BUFFERS][];
+			for (int i = 0; i < BUFFERS; i++) {
+				b[i] = new char[32];
+			}
+			return b;
+		}
+	};
+
+	private int maxCodeLength;
+
+	/**
+	 * @param maxCodeLength
+	 *            the maximal length of the codes, longer codes are truncated
+	 */
+	protected PhoneticEncoder(int maxCodeLength) {
+		if (maxCodeLength < 1 || maxCodeLength > MAX_CODE_LENGTH) {
+			throw new IllegalArgumentException("Invalid code length: "
+					+ maxCodeLength);
+		}
+		this.maxCodeLength = maxCodeLength;
+	}
+
+	/**
+	 * Returns the maximal length of the codes
+	 * 
+	 * @return
+	 */
+	public int getMaxCodeLength() {
+		return maxCodeLength;
+	}
+
+	/**
+	 * Returns the maximal number of codes that are created for one value
+	 * 
+	 * @return
+	 */
+	public int getMaxCodes() {
+		return 1;
+	}
+
+	/**
+	 * Encodes the characters from start (inclusive) to end (exclusive) of the
+	 * value and writes the codes to the array, starting at the offset.
+	 * 
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param codes
+	 *            must have space for {@link #getMaxCodes()} codes after the
+	 *            offset
+	 * @param offset
+	 * @return the number of codes, 0 if the value does not contain any
+	 *         letters
+	 */
+	public int encode(CharSequence value, int start, int end, long[] codes,
+			int offset) {
+		char[] letters = getBuffer(0, end - start);
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			char c = normalize(value.charAt(i));
+			if (c != 0) {
+				letters[length++] = c;
+			}
+		}
+
+		if (length == 0) {
+			return 0;
+		} else {
+			return encodeLetters(letters, length, codes, offset);
+		}
+	}
+
+	/**
+	 * Encodes the value and returns the first code
+	 * 
+	 * @param value
+	 * @return the code or null if the value does not contain any letters
+	 */
+	public String encode(String value) {
+		long[] codes = new long[getMaxCodes()];
+		if (value == null || encode(value, 0, value.length(), codes, 0) == 0) {
+			return null;
+		} else {
+			return toString(codes[0]);
+		}
+	}
+
+	/**
+	 * Encodes the upper case letters of a value. Implementations may change
+	 * the letters.
+	 * 
+	 * @param letters
+	 * @param length
+	 *            the number of letters, at least 1
+	 * @param codes
+	 * @param offset
+	 * @return the number of codes
+	 */
+	protected abstract int encodeLetters(char[] letters, int length,
+			long[] codes, int offset);
+
+	/**
+	 * Returns a thread local char array with at least the given length. The
+	 * buffer 0 contains the letters of the value that is encoded, so
+	 * sub classes can use the buffers 1 and 2.
+	 * 
+	 * @param index
+	 * @param length
+	 * @return
+	 */
+	protected static char[] getBuffer(int index, int length) {
+		char[][] b = buffers.get();
+		if (b[index].length < length) {
+			b[index] = new char[Math.max(length, 2 * b[index].length)];
+		}
+		return b[index];
+	}
+
+	/**
+	 * Packs the characters of a code into a long
+	 * 
+	 * @param code
+	 *            upper case letters and digits
+	 * @param length
+	 *            the length of the code, at most {@link #MAX_CODE_LENGTH}
+	 * @return
+	 */
+	protected static long pack(char[] code, int length) {
+		long packed = 0;
+		for (int i = 0; i < length; i++) {
+			char c = code[i];
+			packed = (packed << 6) | (c <= '9' ? c - '0' + 1 : c - 'A' + 11);
+		}
+		return packed;
+	}
+
+	/**
+	 * Returns the {@link String} representation of a packed code
+	 * 
+	 * @param code
+	 * @return
+	 */
+	public static String toString(long code) {
+		char[] chars = new char[MAX_CODE_LENGTH];
+		int start = chars.length;
+		while (code != 0) {
+			int c = (int) (code & 63);
+			chars[--start] = c <= 10 ? (char) ('0' + c - 1)
+					: (char) ('A' + c - 11);
+			code >>>= 6;
+		}
+		return new String(chars, start, chars.length - start);
+	}
+
+	/**
+	 * Returns the upper case letter for a character, 0 if it is not a letter
+	 * 
+	 * @param c
+	 * @return
+	 */
+	private static char normalize(char c) {
+		if (c >= 'A' && c <= 'Z') {
+			return c;
+		} else if (c >= 'a' && c <= 'z') {
+			return (char) (c - 'a' + 'A');
+		} else if (c >= '\u00C0' && c <= '\u00FF') {
+			return LATIN_1.charAt(c - '\u00C0');
+		} else {
+			return 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s(%d)", getClass().getSimpleName(),
+				maxCodeLength);
+	}
+
+}
@@ -0,0 +1,70 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+/**
+ * {@link PhoneticEncoder} that implements American Soundex. The code is the
+ * first letter followed by three digits for the following consonants, e.g.
+ * R163 for "Robert" and "Rupert". Adjacent consonants with the same digit are
+ * only encoded once, also if they are separated by H or W.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+public class SoundexEncoder extends PhoneticEncoder {
+
+	/**
+	 * The digits of the letters A to Z, 0 for vowels (which separate
+	 * consonants with the same digit) and - for H and W (which do not)
+	 */
+	private static final String DIGITS = "0123012-02245501262301-202";
+
+	private static final int CODE_LENGTH = 4;
+
+	public SoundexEncoder() {
+		super(CODE_LENGTH);
+	}
+
+	@Override
+	protected int encodeLetters(char[] letters, int length, long[] codes,
+			int offset) {
+		char[] code = getBuffer(1, CODE_LENGTH);
+		code[0] = letters[0];
+		int codeLength = 1;
+
+		char last = DIGITS.charAt(letters[0] - 'A');
+		for (int i = 1; i < length && codeLength < CODE_LENGTH; i++) {
+			char digit = DIGITS.charAt(letters[i] - 'A');
+
+			if (digit != '-') {
+				if (digit != '0' && digit != last) {
+					code[codeLength++] = digit;
+				}
+				last = digit;
+			}
+		}
+
+		while (codeLength < CODE_LENGTH) {
+			code[codeLength++] = '0';
+		}
+
+		codes[offset] = pack(code, codeLength);
+		return 1;
+	}
+
+}
@@ -0,0 +1,262 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.partitioning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * The files that are exchanged between the {@link PartitionedMatchingEngine}
+ * and the {@link PartitionWorker}s. The work directory contains the
+ * description of the job and one directory per partition with the following
+ * files:
+ * 
+ * <ul>
+ * <li>records-&lt;data set&gt;.bin: the serialised records of the partition
+ * for every data set, terminated by null</li>
+ * <li>correspondences.csv: the result of the worker, written when the worker
+ * finished</li>
+ * <li>failed.txt: the error message if the worker failed</li>
+ * <li>worker.log: the output of a worker that was started by the
+ * coordinator</li>
+ * </ul>
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+class PartitionFiles {
+
+	public static final String JOB_FILE = "job.properties";
+	public static final String CORRESPONDENCES_FILE = "correspondences.csv";
+	public static final String FAILED_FILE = "failed.txt";
+	public static final String LOG_FILE = "worker.log";
+
+	public static final String JOB_CLASS = "job";
+	public static final String DATA_SETS = "datasets";
+	public static final String SYMMETRIC = "symmetric";
+	public static final String PARALLELISM = "parallelism";
+
+	/**
+	 * The object streams keep a reference to every written object, so they
+	 * are reset regularly
+	 */
+	private static final int RECORDS_PER_RESET = 1000;
+
+	/**
+	 * Writes the records of one data set to the file of a partition
+	 */
+	public static class RecordWriter implements Closeable {
+
+		private ObjectOutputStream out;
+		private int count = 0;
+
+		public RecordWriter(File file) throws IOException {
+			out = new ObjectOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+		}
+
+		public void write(Matchable record) throws IOException {
+			if (!(record instanceof Serializable)) {
+				throw new IllegalArgumentException(String.format(
+						"Record %s of %s is not serializable",
+						record.getIdentifier(), record.getClass().getName()));
+			}
+
+			out.writeObject(record);
+			if (++count % RECORDS_PER_RESET == 0) {
+				out.reset();
+			}
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.writeObject(null);
+			out.close();
+		}
+	}
+
+	public static File getPartitionDirectory(File workDirectory, int partition) {
+		return new File(workDirectory, String.format("partition-%05d",
+				partition));
+	}
+
+	public static File getRecordFile(File partitionDirectory, int dataset) {
+		return new File(partitionDirectory, String.format("records-%d.bin",
+				dataset));
+	}
+
+	/**
+	 * Reads the records of one data set of a partition
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <RecordType extends Matchable> DataSet<RecordType> readRecords(
+			File file) throws IOException {
+		DataSet<RecordType> dataset = new DataSet<>();
+
+		try (ObjectInputStream in = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			Object record;
+			while ((record = in.readObject()) != null) {
+				dataset.addRecord((RecordType) record);
+			}
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+
+		return dataset;
+	}
+
+	public static Properties readJob(File workDirectory) throws IOException {
+		Properties job = new Properties();
+		try (Reader r = new FileReader(new File(workDirectory, JOB_FILE))) {
+			job.load(r);
+		}
+		return job;
+	}
+
+	public static void writeJob(File workDirectory, Properties job)
+			throws IOException {
+		try (Writer w = new FileWriter(new File(workDirectory, JOB_FILE))) {
+			job.store(w, null);
+		}
+	}
+
+	/**
+	 * Writes the correspondences of a partition. The file is written under a
+	 * temporary name and renamed when it is complete, so its existence
+	 * signals that the worker finished.
+	 * 
+	 * @param correspondences
+	 * @param datasets
+	 *            the data sets of the partition, the records are written with
+	 *            the index of their data set
+	 * @param partitionDirectory
+	 * @throws IOException
+	 */
+	public static <RecordType extends Matchable> void writeCorrespondences(
+			List<Correspondence<RecordType>> correspondences,
+			List<DataSet<RecordType>> datasets, File partitionDirectory)
+			throws IOException {
+		File file = new File(partitionDirectory, CORRESPONDENCES_FILE);
+		File tmp = new File(partitionDirectory, CORRESPONDENCES_FILE + ".tmp");
+
+		try (CSVWriter w = new CSVWriter(new FileWriter(tmp))) {
+			for (Correspondence<RecordType> cor : correspondences) {
+				w.writeNext(new String[] {
+						Integer.toString(getDataSetIndex(datasets,
+								cor.getFirstRecord())),
+						cor.getFirstRecord().getIdentifier(),
+						Integer.toString(getDataSetIndex(datasets,
+								cor.getSecondRecord())),
+						cor.getSecondRecord().getIdentifier(),
+						Double.toString(cor.getSimilarityScore()) });
+			}
+		}
+
+		Files.move(tmp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads the correspondences of a partition and resolves their records in
+	 * the data sets
+	 * 
+	 * @param partitionDirectory
+	 * @param datasets
+	 * @param result
+	 *            receives the correspondences
+	 * @throws IOException
+	 */
+	public static <RecordType extends Matchable> void readCorrespondences(
+			File partitionDirectory, List<DataSet<RecordType>> datasets,
+			List<Correspondence<RecordType>> result) throws IOException {
+		try (CSVReader reader = new CSVReader(new FileReader(new File(
+				partitionDirectory, CORRESPONDENCES_FILE)))) {
+			String[] values;
+			while ((values = reader.readNext()) != null) {
+				if (values.length == 5) {
+					RecordType record1 = datasets.get(
+							Integer.parseInt(values[0])).getRecord(values[1]);
+					RecordType record2 = datasets.get(
+							Integer.parseInt(values[2])).getRecord(values[3]);
+
+					result.add(new Correspondence<>(record1, record2, Double
+							.parseDouble(values[4])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the files of a previous run from the partition directory
+	 * 
+	 * @param partitionDirectory
+	 * @param datasets
+	 *            the number of data sets
+	 */
+	public static void clean(File partitionDirectory, int datasets) {
+		for (int i = 0; i < datasets; i++) {
+			getRecordFile(partitionDirectory, i).delete();
+		}
+		new File(partitionDirectory, CORRESPONDENCES_FILE).delete();
+		new File(partitionDirectory, CORRESPONDENCES_FILE + ".tmp").delete();
+		new File(partitionDirectory, FAILED_FILE).delete();
+		new File(partitionDirectory, LOG_FILE).delete();
+	}
+
+	private static <RecordType extends Matchable> int getDataSetIndex(
+			List<DataSet<RecordType>> datasets, RecordType record) {
+		for (int i = 0; i < datasets.size(); i++) {
+			if (datasets.get(i).getRecord(record.getIdentifier()) == record) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,131 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.partitioning;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Executes the matching of one partition of a
+ * {@link PartitionedMatchingEngine}. The worker reads the records of the
+ * partition, compares all records with the same blocking key using a
+ * {@link MatchingEngine} and writes the correspondences to the partition
+ * directory. Workers are started by the coordinator, or manually on other
+ * machines that share the work directory:
+ * 
+ * <pre>
+ * java -cp &lt;class path&gt; de.uni_mannheim.informatik.wdi.identityresolution.partitioning.PartitionWorker &lt;work directory&gt; &lt;partition&gt;
+ * </pre>
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ */
+public class PartitionWorker {
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: PartitionWorker <work directory> <partition>");
+			System.exit(2);
+		}
+
+		File workDirectory = new File(args[0]);
+		int partition = Integer.parseInt(args[1]);
+
+		try {
+			run(workDirectory, partition);
+		} catch (Exception e) {
+			e.printStackTrace();
+
+			File partitionDirectory = PartitionFiles.getPartitionDirectory(
+					workDirectory, partition);
+			try (PrintWriter w = new PrintWriter(new FileWriter(new File(
+					partitionDirectory, PartitionFiles.FAILED_FILE)))) {
+				e.printStackTrace(w);
+			} catch (IOException e2) {
+				e2.printStackTrace();
+			}
+
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Executes the matching of a partition
+	 * 
+	 * @param workDirectory
+	 * @param partition
+	 * @throws Exception
+	 *             if the job cannot be created or the files cannot be read
+	 *             or written
+	 */
+	public static void run(File workDirectory, int partition) throws Exception {
+		Properties job = PartitionFiles.readJob(workDirectory);
+
+		@SuppressWarnings("unchecked")
+		PartitionedMatchingJob<Matchable> instance = (PartitionedMatchingJob<Matchable>) Class
+				.forName(job.getProperty(PartitionFiles.JOB_CLASS)).newInstance();
+
+		run(instance, job, PartitionFiles.getPartitionDirectory(workDirectory,
+				partition));
+	}
+
+	private static <RecordType extends Matchable> void run(
+			PartitionedMatchingJob<RecordType> job, Properties properties,
+			File partitionDirectory) throws Exception {
+		int numberOfDataSets = Integer.parseInt(properties
+				.getProperty(PartitionFiles.DATA_SETS));
+
+		List<DataSet<RecordType>> datasets = new ArrayList<>();
+		for (int i = 0; i < numberOfDataSets; i++) {
+			DataSet<RecordType> dataset = PartitionFiles
+					.readRecords(PartitionFiles.getRecordFile(
+							partitionDirectory, i));
+			datasets.add(dataset);
+		}
+
+		MatchingEngine<RecordType> engine = new MatchingEngine<>(
+				job.createMatchingRule(), new StandardBlocker<>(
+						job.createBlockingFunction()));
+		engine.setParallelism(Integer.parseInt(properties.getProperty(
+				PartitionFiles.PARALLELISM, "1")));
+
+		List<Correspondence<RecordType>> result;
+		if (numberOfDataSets == 1) {
+			result = engine.runDuplicateDetection(datasets.get(0), Boolean
+					.parseBoolean(properties
+							.getProperty(PartitionFiles.SYMMETRIC)));
+		} else {
+			result = engine.runMatching(datasets.get(0), datasets.get(1));
+		}
+
+		PartitionFiles.writeCorrespondences(result, datasets,
+				partitionDirectory);
+	}
+
+}
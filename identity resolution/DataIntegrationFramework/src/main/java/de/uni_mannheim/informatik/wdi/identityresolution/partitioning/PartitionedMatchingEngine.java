@@ -0,0 +1,464 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.partitioning;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+import org.joda.time.DateTime;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Executes a matching in several worker processes, so the records that are
+ * compared and the prepared values of the matching rule are split across
+ * several (smaller) heaps.
+ * 
+ * The coordinator assigns every record to a partition by the hash of its
+ * blocking key and writes the records of each partition to a file in the work
+ * directory (the shuffle). Then it starts one {@link PartitionWorker} process
+ * per partition, which compares all records of its partition with the same
+ * blocking key, and merges the correspondences of all workers. Records with
+ * the same blocking key are always in the same partition, so the result
+ * contains the same correspondences as a {@link MatchingEngine} with a
+ * {@link StandardBlocker} on the same blocking function, but in a different
+ * order.
+ * 
+ * The workers run on the local machine and use the class path of the
+ * coordinator. To use several machines that share the work directory, disable
+ * the launching of the workers ({@link #setLaunchWorkers(boolean)}) and start
+ * the workers manually: the coordinator prints their command lines and waits
+ * until the result of every partition exists.
+ * 
+ * The records must be {@link java.io.Serializable}, the matching rule and the
+ * blocking function are created in each process by the
+ * {@link PartitionedMatchingJob}.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public class PartitionedMatchingEngine<RecordType extends Matchable> {
+
+	/**
+	 * The interval in which the result files are checked if the workers are
+	 * not started by the coordinator
+	 */
+	private static final long POLL_INTERVAL = 1000;
+
+	/**
+	 * The interval in which the worker processes started by the coordinator
+	 * are checked
+	 */
+	private static final long WORKER_POLL_INTERVAL = 100;
+
+	private Class<? extends PartitionedMatchingJob<RecordType>> jobClass;
+	private int numberOfPartitions;
+	private File workDirectory;
+	private List<String> workerJvmOptions = Collections.emptyList();
+	private int maxConcurrentWorkers;
+	private int workerParallelism = 1;
+	private boolean launchWorkers = true;
+
+	/**
+	 * Creates a partitioned matching engine
+	 * 
+	 * @param jobClass
+	 *            the job that creates the matching rule and the blocking
+	 *            function
+	 * @param numberOfPartitions
+	 *            the number of partitions and worker processes
+	 * @param workDirectory
+	 *            the directory that contains the partitions. Files of a
+	 *            previous run in this directory are replaced.
+	 */
+	public PartitionedMatchingEngine(
+			Class<? extends PartitionedMatchingJob<RecordType>> jobClass,
+			int numberOfPartitions, File workDirectory) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException(
+					"The number of partitions must be at least 1");
+		}
+		this.jobClass = jobClass;
+		this.numberOfPartitions = numberOfPartitions;
+		this.workDirectory = workDirectory;
+		this.maxConcurrentWorkers = numberOfPartitions;
+	}
+
+	public int getNumberOfPartitions() {
+		return numberOfPartitions;
+	}
+
+	/**
+	 * Sets the options of the worker JVMs, e.g. "-Xmx1g"
+	 * 
+	 * @param options
+	 */
+	public void setWorkerJvmOptions(String... options) {
+		workerJvmOptions = Arrays.asList(options);
+	}
+
+	/**
+	 * Sets the number of workers that run at the same time. By default, all
+	 * workers are started at once. With more partitions than concurrent
+	 * workers, each worker gets a smaller part of the data.
+	 * 
+	 * @param maxConcurrentWorkers
+	 */
+	public void setMaxConcurrentWorkers(int maxConcurrentWorkers) {
+		if (maxConcurrentWorkers < 1) {
+			throw new IllegalArgumentException(
+					"The number of concurrent workers must be at least 1");
+		}
+		this.maxConcurrentWorkers = maxConcurrentWorkers;
+	}
+
+	/**
+	 * Sets the number of threads that each worker uses to apply the matching
+	 * rule (see {@link MatchingEngine#setParallelism(int)})
+	 * 
+	 * @param parallelism
+	 */
+	public void setWorkerParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		workerParallelism = parallelism;
+	}
+
+	/**
+	 * Specifies whether the coordinator starts the worker processes (the
+	 * default) or waits for workers that are started manually
+	 * 
+	 * @param launchWorkers
+	 */
+	public void setLaunchWorkers(boolean launchWorkers) {
+		this.launchWorkers = launchWorkers;
+	}
+
+	/**
+	 * Runs the duplicate detection on a data set
+	 * 
+	 * @param dataset
+	 * @param symmetric
+	 *            indicates if the matching rule is symmetric (see
+	 *            {@link MatchingEngine#runDuplicateDetection(DataSet, boolean)})
+	 * @return the correspondences of all partitions
+	 * @throws IOException
+	 *             if the partitions cannot be written or read
+	 */
+	public List<Correspondence<RecordType>> runDuplicateDetection(
+			DataSet<RecordType> dataset, boolean symmetric) throws IOException {
+		return run(Arrays.asList(dataset), symmetric, "Duplicate Detection");
+	}
+
+	/**
+	 * Runs the matching on the given data sets
+	 * 
+	 * @param dataset1
+	 * @param dataset2
+	 * @return the correspondences of all partitions
+	 * @throws IOException
+	 *             if the partitions cannot be written or read
+	 */
+	public List<Correspondence<RecordType>> runMatching(
+			DataSet<RecordType> dataset1, DataSet<RecordType> dataset2)
+			throws IOException {
+		return run(Arrays.asList(dataset1, dataset2), false, "Matching");
+	}
+
+	private List<Correspondence<RecordType>> run(
+			List<DataSet<RecordType>> datasets, boolean symmetric,
+			String taskName) throws IOException {
+		long start = System.currentTimeMillis();
+
+		System.out.println(String.format(
+				"[%s] Starting Partitioned %s with %d partitions",
+				new DateTime(start).toString(), taskName, numberOfPartitions));
+
+		workDirectory.mkdirs();
+		Properties job = new Properties();
+		job.setProperty(PartitionFiles.JOB_CLASS, jobClass.getName());
+		job.setProperty(PartitionFiles.DATA_SETS,
+				Integer.toString(datasets.size()));
+		job.setProperty(PartitionFiles.SYMMETRIC, Boolean.toString(symmetric));
+		job.setProperty(PartitionFiles.PARALLELISM,
+				Integer.toString(workerParallelism));
+		PartitionFiles.writeJob(workDirectory, job);
+
+		int[][] sizes = shuffle(datasets);
+
+		// partitions without pairs do not need a worker
+		List<Integer> partitions = new ArrayList<>();
+		for (int p = 0; p < numberOfPartitions; p++) {
+			File partitionDirectory = PartitionFiles.getPartitionDirectory(
+					workDirectory, p);
+			boolean empty = datasets.size() == 1 ? sizes[p][0] < 2
+					: sizes[p][0] == 0 || sizes[p][1] == 0;
+
+			if (empty) {
+				PartitionFiles.writeCorrespondences(
+						Collections.<Correspondence<RecordType>> emptyList(),
+						datasets, partitionDirectory);
+			} else {
+				partitions.add(p);
+			}
+		}
+
+		System.out.println(String.format(
+				"Shuffled %,d records; %d partitions with candidate pairs",
+				getNumberOfRecords(datasets), partitions.size()));
+
+		if (launchWorkers) {
+			launchWorkers(partitions);
+		} else {
+			waitForWorkers(partitions);
+		}
+
+		// merge the results
+		List<Correspondence<RecordType>> result = new ArrayList<>();
+		for (int p = 0; p < numberOfPartitions; p++) {
+			PartitionFiles.readCorrespondences(
+					PartitionFiles.getPartitionDirectory(workDirectory, p),
+					datasets, result);
+		}
+
+		long end = System.currentTimeMillis();
+		System.out.println(String.format(
+				"[%s] Partitioned %s finished after %s; found %,d correspondences.",
+				new DateTime(end).toString(), taskName,
+				DurationFormatUtils.formatDurationHMS(end - start),
+				result.size()));
+
+		return result;
+	}
+
+	/**
+	 * Writes the records of all data sets to the partitions
+	 * 
+	 * @param datasets
+	 * @return the number of records per partition and data set
+	 * @throws IOException
+	 */
+	private int[][] shuffle(List<DataSet<RecordType>> datasets)
+			throws IOException {
+		BlockingKeyGenerator<RecordType> blockingFunction = createJob()
+				.createBlockingFunction();
+		int[][] sizes = new int[numberOfPartitions][datasets.size()];
+
+		for (int p = 0; p < numberOfPartitions; p++) {
+			File partitionDirectory = PartitionFiles.getPartitionDirectory(
+					workDirectory, p);
+			partitionDirectory.mkdirs();
+			PartitionFiles.clean(partitionDirectory, datasets.size());
+		}
+
+		for (int d = 0; d < datasets.size(); d++) {
+			List<PartitionFiles.RecordWriter> writers = new ArrayList<>(
+					numberOfPartitions);
+			try {
+				for (int p = 0; p < numberOfPartitions; p++) {
+					writers.add(new PartitionFiles.RecordWriter(PartitionFiles
+							.getRecordFile(PartitionFiles
+									.getPartitionDirectory(workDirectory, p),
+									d)));
+				}
+
+				for (RecordType record : datasets.get(d).getRecords()) {
+					writers.get(
+							getPartition(blockingFunction
+									.getBlockingKey(record))).write(record);
+				}
+			} finally {
+				for (int p = 0; p < writers.size(); p++) {
+					sizes[p][d] = writers.get(p).getCount();
+					writers.get(p).close();
+				}
+			}
+		}
+
+		return sizes;
+	}
+
+	private int getPartition(String blockingKey) {
+		if (blockingKey == null) {
+			return 0;
+		} else {
+			return (blockingKey.hashCode() & Integer.MAX_VALUE)
+					% numberOfPartitions;
+		}
+	}
+
+	/**
+	 * Starts a worker process for every partition (at most
+	 * maxConcurrentWorkers at the same time) and waits until all finished
+	 * 
+	 * @param partitions
+	 * @throws IOException
+	 *             if a worker cannot be started or failed
+	 */
+	private void launchWorkers(List<Integer> partitions) throws IOException {
+		LinkedList<Integer> pending = new LinkedList<>(partitions);
+		Map<Integer, Process> running = new LinkedHashMap<>();
+
+		try {
+			while (!pending.isEmpty() || !running.isEmpty()) {
+				while (!pending.isEmpty()
+						&& running.size() < maxConcurrentWorkers) {
+					int partition = pending.removeFirst();
+					File log = new File(PartitionFiles.getPartitionDirectory(
+							workDirectory, partition), PartitionFiles.LOG_FILE);
+
+					ProcessBuilder builder = new ProcessBuilder(
+							getWorkerCommand(partition));
+					builder.redirectErrorStream(true);
+					builder.redirectOutput(log);
+					running.put(partition, builder.start());
+				}
+
+				// remove all workers that finished, so their slots are
+				// refilled no matter which worker finishes first
+				boolean anyFinished = false;
+				Iterator<Map.Entry<Integer, Process>> it = running.entrySet()
+						.iterator();
+				while (it.hasNext()) {
+					Map.Entry<Integer, Process> worker = it.next();
+					int exitValue;
+					try {
+						exitValue = worker.getValue().exitValue();
+					} catch (IllegalThreadStateException e) {
+						// the worker is still running
+						continue;
+					}
+					it.remove();
+					anyFinished = true;
+
+					if (exitValue != 0) {
+						throw new IOException(String.format(
+								"The worker of partition %d failed with exit code %d, see %s",
+								worker.getKey(), exitValue,
+								new File(PartitionFiles.getPartitionDirectory(
+										workDirectory, worker.getKey()),
+										PartitionFiles.LOG_FILE).getAbsolutePath()));
+					}
+				}
+
+				if (!anyFinished) {
+					Thread.sleep(WORKER_POLL_INTERVAL);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			for (Process process : running.values()) {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Waits until the results of all partitions exist
+	 * 
+	 * @param partitions
+	 * @throws IOException
+	 *             if a worker failed
+	 */
+	private void waitForWorkers(List<Integer> partitions) throws IOException {
+		System.out.println("Waiting for the workers, start them with:");
+		for (int partition : partitions) {
+			StringBuilder sb = new StringBuilder();
+			for (String s : getWorkerCommand(partition)) {
+				sb.append(s).append(" ");
+			}
+			System.out.println(sb.toString().trim());
+		}
+
+		LinkedList<Integer> pending = new LinkedList<>(partitions);
+		try {
+			while (!pending.isEmpty()) {
+				File partitionDirectory = PartitionFiles.getPartitionDirectory(
+						workDirectory, pending.getFirst());
+
+				if (new File(partitionDirectory,
+						PartitionFiles.CORRESPONDENCES_FILE).exists()) {
+					pending.removeFirst();
+				} else if (new File(partitionDirectory,
+						PartitionFiles.FAILED_FILE).exists()) {
+					throw new IOException(String.format(
+							"The worker of partition %d failed, see %s",
+							pending.getFirst(),
+							new File(partitionDirectory,
+									PartitionFiles.FAILED_FILE)
+									.getAbsolutePath()));
+				} else {
+					Thread.sleep(POLL_INTERVAL);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private List<String> getWorkerCommand(int partition) {
+		List<String> command = new ArrayList<>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"),
+				"java").getPath());
+		command.addAll(workerJvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PartitionWorker.class.getName());
+		command.add(workDirectory.getAbsolutePath());
+		command.add(Integer.toString(partition));
+		return command;
+	}
+
+	private PartitionedMatchingJob<RecordType> createJob() {
+		try {
+			return jobClass.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new IllegalArgumentException(String.format(
+					"Cannot create an instance of %s", jobClass.getName()), e);
+		}
+	}
+
+	private long getNumberOfRecords(List<DataSet<RecordType>> datasets) {
+		long records = 0;
+		for (DataSet<RecordType> dataset : datasets) {
+			records += dataset.getSize();
+		}
+		return records;
+	}
+
+}
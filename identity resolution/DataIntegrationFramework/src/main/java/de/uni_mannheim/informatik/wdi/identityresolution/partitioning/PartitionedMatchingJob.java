@@ -0,0 +1,53 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.partitioning;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingRule;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
+
+/**
+ * Describes a matching that is executed by the
+ * {@link PartitionedMatchingEngine}. The coordinator and every worker process
+ * create their own instance of the job, so implementations must be public and
+ * have a public constructor without parameters.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <RecordType>
+ */
+public interface PartitionedMatchingJob<RecordType extends Matchable> {
+
+	/**
+	 * Creates the matching rule that is applied by the workers
+	 * 
+	 * @return
+	 * @throws Exception
+	 */
+	MatchingRule<RecordType> createMatchingRule() throws Exception;
+
+	/**
+	 * Creates the blocking function. The coordinator assigns the records to
+	 * the partitions by their blocking keys, the workers compare all records
+	 * of a partition with the same blocking key.
+	 * 
+	 * @return
+	 */
+	BlockingKeyGenerator<RecordType> createBlockingFunction();
+
+}
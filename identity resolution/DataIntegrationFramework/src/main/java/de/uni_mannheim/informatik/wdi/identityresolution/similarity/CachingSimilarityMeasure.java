@@ -0,0 +1,226 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.similarity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SimilarityMeasure} that memoizes the results of another measure for
+ * pairs of values. This pays off for attributes with only a few distinct
+ * values (like countries or industries), where the same pair of values is
+ * compared for many pairs of records.
+ * 
+ * The cache is bounded: it is split into segments, each segment is locked
+ * independently and evicts its least recently used value pairs once it is
+ * full. For symmetric measures, (a,b) and (b,a) share one cache entry. Pairs
+ * containing null are not cached.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <DataType>
+ */
+public class CachingSimilarityMeasure<DataType> extends SimilarityMeasure<DataType> {
+
+	private static final int NUMBER_OF_SEGMENTS = 16;
+
+	private SimilarityMeasure<DataType> measure;
+	private boolean symmetric;
+	private List<Segment> segments;
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a cache for the given measure
+	 * 
+	 * @param measure
+	 *            the measure that calculates the similarities
+	 * @param maxSize
+	 *            the maximal number of value pairs in the cache
+	 * @param symmetric
+	 *            true if measure.calculate(a,b) = measure.calculate(b,a)
+	 */
+	public CachingSimilarityMeasure(SimilarityMeasure<DataType> measure, int maxSize, boolean symmetric) {
+		this.measure = measure;
+		this.symmetric = symmetric;
+
+		int segmentSize = Math.max(1, maxSize / NUMBER_OF_SEGMENTS);
+		segments = new ArrayList<>(NUMBER_OF_SEGMENTS);
+		for (int i = 0; i < NUMBER_OF_SEGMENTS; i++) {
+			segments.add(new Segment(segmentSize));
+		}
+	}
+
+	@Override
+	public double calculate(DataType first, DataType second) {
+		if (first == null || second == null) {
+			return measure.calculate(first, second);
+		}
+
+		ValuePair key = new ValuePair(first, second);
+		Segment segment = segments.get((key.hashCode() & 0x7fffffff) % segments.size());
+
+		Double similarity;
+		synchronized (segment) {
+			similarity = segment.get(key);
+		}
+
+		if (similarity != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+
+			// calculate outside of the lock, so other threads are not blocked
+			// by an expensive measure
+			similarity = measure.calculate(first, second);
+
+			synchronized (segment) {
+				segment.put(key, similarity);
+			}
+		}
+
+		return similarity;
+	}
+
+	/**
+	 * Returns the number of calculations that were answered from the cache
+	 * 
+	 * @return
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of calculations that were passed to the measure
+	 * (pairs containing null are not counted)
+	 * 
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the fraction of calculations that were answered from the cache
+	 * 
+	 * @return
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0.0 : (double) h / (double) total;
+	}
+
+	/**
+	 * Returns the number of value pairs in the cache
+	 * 
+	 * @return
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all value pairs from the cache and resets the statistics
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * A part of the cache that evicts its least recently used entry once it
+	 * is full
+	 */
+	private class Segment extends LinkedHashMap<ValuePair, Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		private int maxSize;
+
+		public Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ValuePair, Double> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	/**
+	 * The key of the cache. For symmetric measures, the order of the values
+	 * is ignored by equals() and hashCode().
+	 */
+	private class ValuePair {
+
+		private DataType first;
+		private DataType second;
+
+		public ValuePair(DataType first, DataType second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public int hashCode() {
+			int h1 = first.hashCode();
+			int h2 = second.hashCode();
+
+			if (symmetric) {
+				return (h1 ^ h2) * 31 + (h1 + h2);
+			} else {
+				return h1 * 31 + h2;
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CachingSimilarityMeasure.ValuePair)) {
+				return false;
+			}
+
+			@SuppressWarnings("unchecked")
+			ValuePair other = (ValuePair) obj;
+
+			if (first.equals(other.first) && second.equals(other.second)) {
+				return true;
+			} else {
+				return symmetric && first.equals(other.second) && second.equals(other.first);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/** 
+ *
+ * Copyright (C) 2015 Data and Web Science Group, University of Mannheim, Germany (code@dwslab.de)
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package de.uni_mannheim.informatik.wdi.identityresolution.similarity;
+
+/**
+ * Super class for similarity measures that work on a prepared representation
+ * of the values (like token arrays or character arrays). Comparators can
+ * create the representation once per record with {@link #prepare(Object)} and
+ * then call {@link #calculatePrepared(Object, Object)} for every pair.
+ * {@link #calculate(Object, Object)} prepares both values on every call and
+ * returns the same result.
+ * 
+ * prepare() and calculatePrepared() follow the thread-safety contract of
+ * {@link SimilarityMeasure#calculate(Object, Object)}.
+ * 
+ * @author Oliver Lehmberg (oli@dwslab.de)
+ * 
+ * @param <DataType>
+ * @param <PreparedType>
+ *            the type of the prepared representation
+ */
+public abstract class PreparedSimilarityMeasure<DataType, PreparedType> extends SimilarityMeasure<DataType> {
+
+	/**
+	 * Creates the prepared representation of a value
+	 * 
+	 * @param value
+	 *            the value, can be null
+	 * @return the prepared representation, null if the value is null
+	 */
+	public abstract PreparedType prepare(DataType value);
+
+	/**
+	 * Calculates the similarity of two prepared values
+	 * 
+	 * @param first
+	 *            the prepared first value
+	 * @param second
+	 *            the prepared second value
+	 * @return the similarity of first and second
+	 */
+	public abstract double calculatePrepared(PreparedType first, PreparedType second);
+
+	@Override
+	public double calculate(DataType first, DataType second) {
+		return calculatePrepared(prepare(first), prepare(second));
+	}
+
+}
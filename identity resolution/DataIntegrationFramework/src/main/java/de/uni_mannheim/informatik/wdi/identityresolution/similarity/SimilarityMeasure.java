@@ -20,6 +20,12 @@ package de.uni_mannheim.informatik.wdi.identityresolution.similarity;
 /**
  * The super class for all similarity measures
  * 
+ * Thread-safety: instances are shared by all threads of a parallel matching
+ * run, so {@link #calculate(Object, Object)} can be called concurrently.
+ * Implementations must not keep mutable state between calls. Helper objects
+ * that are not thread-safe must be created inside calculate() or kept per
+ * thread.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  * @param <DataType>
@@ -20,6 +20,7 @@ package de.uni_mannheim.informatik.wdi.identityresolution.similarity.date;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.PreparedSimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 
 /**
@@ -27,10 +28,17 @@ import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMe
  * on the number of days between them. The similarity is 0 if the difference
  * exceeds a maximal number of days
  * 
+ * The prepared representation of a date is its local time in milliseconds (the
+ * instant plus the offset of its time zone), so the number of days between
+ * two prepared dates is a subtraction and gives the same result as
+ * {@link Days#daysBetween(org.joda.time.ReadableInstant, org.joda.time.ReadableInstant)}.
+ * 
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class DaySimilarity extends SimilarityMeasure<DateTime> {
+public class DaySimilarity extends PreparedSimilarityMeasure<DateTime, Long> {
+
+	private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
 
 	private int maxDifference;
 
@@ -47,12 +55,21 @@ public class DaySimilarity extends SimilarityMeasure<DateTime> {
 	}
 
 	@Override
-	public double calculate(DateTime first, DateTime second) {
+	public Long prepare(DateTime value) {
+		if (value == null) {
+			return null;
+		} else {
+			return value.getMillis() + value.getZone().getOffset(value.getMillis());
+		}
+	}
+
+	@Override
+	public double calculatePrepared(Long first, Long second) {
 		if (first == null || second == null) {
 			return 0.0;
 		} else {
 
-			int diff = Math.abs(Days.daysBetween(first, second).getDays());
+			long diff = Math.abs((second - first) / MILLIS_PER_DAY);
 
 			double norm = Math.min((double) diff / (double) maxDifference, 1.0);
 
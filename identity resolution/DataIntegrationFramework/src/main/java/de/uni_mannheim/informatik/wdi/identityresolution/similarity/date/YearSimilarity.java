@@ -17,6 +17,8 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.similarity.date;
 
+import java.util.Arrays;
+
 import org.joda.time.DateTime;
 import org.joda.time.Years;
 
@@ -57,4 +59,40 @@ public class YearSimilarity extends SimilarityMeasure<DateTime> {
 		}
 	}
 
+	/**
+	 * Calculates the similarity of first and each of the first length dates
+	 * in seconds. The exact number of years is only calculated for dates
+	 * whose year is close to the year of first, all other dates have a
+	 * similarity of 0.
+	 * 
+	 * @param first
+	 *            the first date
+	 * @param seconds
+	 *            the second dates
+	 * @param length
+	 *            the number of second dates
+	 * @param similarities
+	 *            receives the similarity of first and seconds[i] at position i
+	 */
+	public void calculateBatch(DateTime first, DateTime[] seconds, int length, double[] similarities) {
+		if (first == null) {
+			Arrays.fill(similarities, 0, length, 0.0);
+			return;
+		}
+
+		int year = first.getYear();
+		for (int i = 0; i < length; i++) {
+			DateTime second = seconds[i];
+
+			// the number of years between the dates is at least the
+			// difference of their years minus one (minus two if they are in
+			// different time zones)
+			if (second == null || Math.abs(second.getYear() - year) - 2 >= maxDifference) {
+				similarities[i] = 0.0;
+			} else {
+				similarities[i] = calculate(first, second);
+			}
+		}
+	}
+
 }
@@ -51,6 +51,31 @@ public class PercentageSimilarity extends SimilarityMeasure<Double> {
 		}
 	}
 
+	/**
+	 * Calculates the similarity of first and each of the first length values
+	 * in seconds. Missing values are represented by {@link Double#NaN} and
+	 * have a similarity of 0.0, like null values in
+	 * {@link #calculate(Double, Double)}.
+	 * 
+	 * @param first
+	 *            the first value
+	 * @param seconds
+	 *            the second values
+	 * @param length
+	 *            the number of second values
+	 * @param similarities
+	 *            receives the similarity of first and seconds[i] at position i
+	 */
+	public void calculateBatch(double first, double[] seconds, int length, double[] similarities) {
+		for (int i = 0; i < length; i++) {
+			double second = seconds[i];
+			double pc = Math.abs(first - second) / Math.max(first, second);
+
+			// comparisons with NaN are false, so missing values result in 0.0
+			similarities[i] = pc < max_percentage ? 1 - pc / max_percentage : 0.0;
+		}
+	}
+
 	
 	
 }
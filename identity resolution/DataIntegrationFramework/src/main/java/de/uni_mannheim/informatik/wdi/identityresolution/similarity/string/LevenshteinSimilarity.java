@@ -17,31 +17,109 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.similarity.string;
 
-import com.wcohen.ss.Levenstein;
-
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.PreparedSimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 
 /**
  * {@link SimilarityMeasure}, that calculates the Levenshtein similarity between
  * two strings.
  * 
+ * The similarity is 1 - (edit distance / length of the longer string). The
+ * prepared representation of a string is its character array. The edit
+ * distance is calculated on the characters that remain after removing the
+ * common prefix and suffix, keeping only two rows of the distance matrix.
+ * Two empty strings have a similarity of 1.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  */
-public class LevenshteinSimilarity extends SimilarityMeasure<String> {
+public class LevenshteinSimilarity extends PreparedSimilarityMeasure<String, char[]> {
+
+	@Override
+	public char[] prepare(String value) {
+		if (value == null) {
+			return null;
+		} else {
+			return value.toCharArray();
+		}
+	}
 
 	@Override
-	public double calculate(String first, String second) {
+	public double calculatePrepared(char[] first, char[] second) {
 		if (first == null || second == null) {
 			return 0.0;
 		} else {
-			Levenstein l = new Levenstein();
+			int maxLength = Math.max(first.length, second.length);
+
+			if (maxLength == 0) {
+				return 1.0;
+			}
 
-			double score = Math.abs(l.score(first, second));
-			score = score / Math.max(first.length(), second.length());
+			double score = editDistance(first, second);
+			score = score / maxLength;
 
 			return 1 - score;
 		}
 	}
 
+	/**
+	 * Calculates the Levenshtein distance (unit costs for insertions,
+	 * deletions and substitutions)
+	 * 
+	 * @param s
+	 * @param t
+	 * @return
+	 */
+	private static int editDistance(char[] s, char[] t) {
+		// the characters of the common prefix and suffix do not change the
+		// distance
+		int start = 0;
+		int sEnd = s.length;
+		int tEnd = t.length;
+		while (start < sEnd && start < tEnd && s[start] == t[start]) {
+			start++;
+		}
+		while (sEnd > start && tEnd > start && s[sEnd - 1] == t[tEnd - 1]) {
+			sEnd--;
+			tEnd--;
+		}
+
+		// use the shorter string for the rows
+		if (sEnd - start < tEnd - start) {
+			char[] tmp = s;
+			s = t;
+			t = tmp;
+			int tmpEnd = sEnd;
+			sEnd = tEnd;
+			tEnd = tmpEnd;
+		}
+
+		int n = tEnd - start;
+		if (n == 0) {
+			return sEnd - start;
+		}
+
+		int[] previous = new int[n + 1];
+		int[] current = new int[n + 1];
+		for (int j = 0; j <= n; j++) {
+			previous[j] = j;
+		}
+
+		for (int i = 1; i <= sEnd - start; i++) {
+			char c = s[start + i - 1];
+			current[0] = i;
+
+			for (int j = 1; j <= n; j++) {
+				int cost = c == t[start + j - 1] ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+
+			int[] tmp = previous;
+			previous = current;
+			current = tmp;
+		}
+
+		return previous[n];
+	}
+
 }
@@ -17,28 +17,102 @@
  */
 package de.uni_mannheim.informatik.wdi.identityresolution.similarity.string;
 
-import com.wcohen.ss.Jaccard;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.wcohen.ss.api.Token;
 import com.wcohen.ss.tokens.SimpleTokenizer;
 
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.PreparedSimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.SimilarityMeasure;
 
 /**
  * {@link SimilarityMeasure}, that calculates the Jaccard similarity between two
  * strings.
  * 
+ * The strings are tokenised with a {@link SimpleTokenizer} (ignoring case and
+ * punctuation) and every distinct token is mapped to an id. The prepared
+ * representation of a string is the sorted array of its distinct token ids, so
+ * the similarity of two prepared strings is calculated by merging two int
+ * arrays. Two strings without any tokens have a similarity of 0.
+ * 
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  */
-public class TokenizingJaccardSimilarity extends SimilarityMeasure<String> {
+public class TokenizingJaccardSimilarity extends PreparedSimilarityMeasure<String, int[]> {
+
+	private ConcurrentHashMap<String, Integer> tokenIds = new ConcurrentHashMap<>();
+	private AtomicInteger nextTokenId = new AtomicInteger();
+
+	@Override
+	public int[] prepare(String value) {
+		if (value == null) {
+			return null;
+		}
+
+		// the tokenizer keeps internal state, so every call uses its own
+		// instance
+		Token[] tokens = new SimpleTokenizer(true, true).tokenize(value);
+
+		int[] ids = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			ids[i] = getTokenId(tokens[i].getValue());
+		}
+		Arrays.sort(ids);
+
+		// remove duplicate tokens
+		int distinct = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+
+		return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+	}
 
 	@Override
-	public double calculate(String first, String second) {
-		if(first==null || second==null) {
+	public double calculatePrepared(int[] first, int[] second) {
+		if (first == null || second == null) {
+			return 0.0;
+		}
+
+		int common = 0;
+		int i = 0;
+		int j = 0;
+		while (i < first.length && j < second.length) {
+			if (first[i] == second[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (first[i] < second[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+
+		int union = first.length + second.length - common;
+		if (union == 0) {
 			return 0.0;
-		} else {
-			Jaccard j = new Jaccard(new SimpleTokenizer(true, true));
-			return j.score(first, second);
 		}
+
+		return (double) common / (double) union;
+	}
+
+	private int getTokenId(String token) {
+		Integer id = tokenIds.get(token);
+
+		if (id == null) {
+			Integer newId = nextTokenId.getAndIncrement();
+			id = tokenIds.putIfAbsent(token, newId);
+			if (id == null) {
+				id = newId;
+			}
+		}
+
+		return id;
 	}
 
 }
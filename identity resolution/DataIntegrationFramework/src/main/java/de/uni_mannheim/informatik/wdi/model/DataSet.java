@@ -19,6 +19,7 @@ package de.uni_mannheim.informatik.wdi.model;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -26,6 +27,8 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -68,6 +71,9 @@ import de.uni_mannheim.informatik.wdi.utils.ProgressReporter;
  */
 public class DataSet<RecordType extends Matchable> {
 
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
 	/**
 	 * HashMap of an identifier and the actual {@link Record}.
 	 */
@@ -250,6 +256,56 @@ public class DataSet<RecordType extends Matchable> {
 		return records.size();
 	}
 
+	/**
+	 * Returns a 64-bit hash (FNV-1a) of the identifiers and contents of all
+	 * entries, in the order in which {@link #getRecords()} returns them. The
+	 * content of a {@link Serializable} entry is its serialized form, the
+	 * content of any other entry is its {@link Object#hashCode()}.
+	 * 
+	 * @return
+	 */
+	public long getFingerprint() {
+		long hash = FNV_OFFSET_BASIS;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		for (RecordType record : getRecords()) {
+			hash = hash(hash, record.getIdentifier().getBytes(StandardCharsets.UTF_8));
+
+			bytes.reset();
+			if (record instanceof Serializable) {
+				try {
+					ObjectOutputStream out = new ObjectOutputStream(bytes);
+					out.writeObject(record);
+					out.close();
+				} catch (IOException e) {
+					// a record with a field that cannot be serialised
+					bytes.reset();
+				}
+			}
+			if (bytes.size() == 0) {
+				int code = record.hashCode();
+				bytes.write(code >>> 24);
+				bytes.write(code >>> 16);
+				bytes.write(code >>> 8);
+				bytes.write(code);
+			}
+			hash = hash(hash, bytes.toByteArray());
+		}
+
+		return hash;
+	}
+
+	private static long hash(long hash, byte[] bytes) {
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		// separate the values, so that "ab"+"c" and "a"+"bc" differ
+		hash ^= bytes.length;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+
 	/**
 	 * Adds an entry to this data set. Any existing entry with the same
 	 * identifier will be replaced.
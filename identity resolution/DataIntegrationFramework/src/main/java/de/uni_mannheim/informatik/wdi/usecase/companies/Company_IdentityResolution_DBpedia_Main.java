@@ -58,26 +58,39 @@ public class Company_IdentityResolution_DBpedia_Main {
 		matchingRule.addComparator(new CompanyIndustryComparatorJaccard(), 0.1);
 		matchingRule.addComparator(new CompanyNameComparatorJaccard(), 0.9);
 		matchingRule.addComparator(new CompanyRevenueComparatorRelative(), 0.1);
+		// skip the remaining comparators once a pair cannot reach the threshold
+		matchingRule.setEarlyTermination(true);
 
 
 
-		BlockingKeyGenerator<Company> blockingKeyGenerator = new CompanyBlockingKeyByFirstCharGenerator();
+		// the blocker and the verbose blocking evaluator share the cached keys
+		BlockingKeyGenerator<Company> blockingKeyGenerator = new CachingBlockingKeyGenerator<>(
+				new CompanyBlockingKeyByFirstCharGenerator());
 
 		Blocker<Company> blocker = new SortedNeighbourhoodBlocker<>(blockingKeyGenerator, 1000);
 
 		// Initialize Matching Engine
 		MatchingEngine<Company> engine = new MatchingEngine<Company>(matchingRule, blocker);
 
+		// load the gold standard (test set)
+		MatchingGoldStandard forbes_dataset2 = new MatchingGoldStandard();
+		forbes_dataset2.loadFromCSVFile(new File("src/main/resources/goldstandard/forbes_dbpedia_mapping.csv"));
+
+		// evaluate the blocking while the pairs are generated
+		BlockingEvaluator<Company> blockingEvaluator = new BlockingEvaluator<>(blockingKeyGenerator, true);
+		blockingEvaluator.startEvaluation(forbes_dataset2);
+		engine.addPairTap(blockingEvaluator);
+
 		// Execute the matching
 		List<Correspondence<Company>> correspondences_Forbes_dataset2 = engine.runMatching(forbes, dataset2);
 
+		System.out.println(String.format("Early termination skipped %,d of %,d comparator calls",
+				matchingRule.getNumberOfSkippedComparisons(),
+				matchingRule.getNumberOfSkippedComparisons() + matchingRule.getNumberOfEvaluatedComparisons()));
+
 		// write the correspondences to the output file
 		engine.writeCorrespondences(correspondences_Forbes_dataset2, new File("src/main/resources/output/correspondences_Forbes_DBpedia.csv"));
 
-		// load the gold standard (test set)
-		MatchingGoldStandard forbes_dataset2 = new MatchingGoldStandard();
-		forbes_dataset2.loadFromCSVFile(new File("src/main/resources/goldstandard/forbes_dbpedia_mapping.csv"));
-
 		// evaluate your result
 		MatchingEvaluator<Company> evaluator = new MatchingEvaluator<Company>();
 
@@ -89,8 +102,7 @@ public class Company_IdentityResolution_DBpedia_Main {
 				new CompanyCSVFormatter());
 
 		// Evaluate blocking
-		BlockingEvaluator<Company> blockingEvaluator = new BlockingEvaluator<>(blockingKeyGenerator, true);
-		BlockingPerformance blockingPerformance = blockingEvaluator.evaluateBlocking(engine.getAllPairs(), forbes_dataset2);
+		BlockingPerformance blockingPerformance = blockingEvaluator.finishEvaluation();
 
 		// print the evaluation result
 		System.out.println("Forbes <-> DBpedia");
@@ -69,6 +69,15 @@ public class Company_IdentityResolution_DBpedia_PMML_Main {
 		// Initialize Matching Engine
 		MatchingEngine<Company> engine = new MatchingEngine<Company>(matchingRule, blocker);
 
+		// load the gold standard (test set)
+		MatchingGoldStandard forbes_dataset2 = new MatchingGoldStandard();
+		forbes_dataset2.loadFromCSVFile(new File("src/main/resources/goldstandard/forbes_dbpedia_mapping.csv"));
+
+		// evaluate the blocking while the pairs are generated
+		BlockingEvaluator<Company> blockingEvaluator = new BlockingEvaluator<>(blockingKeyGenerator, true);
+		blockingEvaluator.startEvaluation(forbes_dataset2);
+		engine.addPairTap(blockingEvaluator);
+
 		// Execute the matching
 		List<Correspondence<Company>> correspondences_Forbes_dataset2 = engine.runMatching(forbes, dataset2);
 
@@ -97,10 +106,6 @@ public class Company_IdentityResolution_DBpedia_PMML_Main {
 		// write the correspondences to the output file
 		engine.writeCorrespondences(correspondences_Forbes_dataset2, new File("src/main/resources/output/correspondences_Forbes_DBpedia.csv"));
 
-		// load the gold standard (test set)
-		MatchingGoldStandard forbes_dataset2 = new MatchingGoldStandard();
-		forbes_dataset2.loadFromCSVFile(new File("src/main/resources/goldstandard/forbes_dbpedia_mapping.csv"));
-
 		// create the data set for learning a matching rule (use this file in
 		// RapidMiner)
 		DataSet<DefaultRecord> features = engine
@@ -120,8 +125,7 @@ public class Company_IdentityResolution_DBpedia_PMML_Main {
 				new CompanyCSVFormatter());
 
 		// Evaluate blocking
-		BlockingEvaluator<Company> blockingEvaluator = new BlockingEvaluator<>(blockingKeyGenerator, true);
-		BlockingPerformance blockingPerformance = blockingEvaluator.evaluateBlocking(engine.getAllPairs(), forbes_dataset2);
+		BlockingPerformance blockingPerformance = blockingEvaluator.finishEvaluation();
 
 		// print the evaluation result
 		System.out.println("Forbes <-> DBpedia");
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -29,13 +30,18 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class CompanyCityComparatorJaccard extends Comparator<Company> {
+public class CompanyCityComparatorJaccard extends PreparedComparator<Company, int[]> {
 
 	private TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
 	@Override
-	public double compare(Company entity1, Company entity2) {
-		double similarity = sim.calculate(entity1.getCity(), entity2.getCity());
+	protected int[] prepareRecord(Company entity) {
+		return sim.prepare(entity.getCity());
+	}
+
+	@Override
+	protected double comparePrepared(int[] prepared1, int[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.CachingSimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -31,7 +32,12 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  */
 public class CompanyCountryComparatorLevenshtein extends Comparator<Company> {
 
-	private LevenshteinSimilarity sim = new LevenshteinSimilarity();
+	/**
+	 * there are only few distinct values, so the similarities of value pairs
+	 * are cached. The prepared form of the Levenshtein similarity is only the
+	 * character array, a cache hit is much cheaper than the edit distance.
+	 */
+	private CachingSimilarityMeasure<String> sim = new CachingSimilarityMeasure<>(new LevenshteinSimilarity(), 100000, true);
 
 	@Override
 	public double compare(Company entity1, Company entity2) {
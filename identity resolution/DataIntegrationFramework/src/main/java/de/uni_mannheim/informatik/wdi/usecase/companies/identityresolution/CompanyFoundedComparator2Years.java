@@ -17,6 +17,10 @@
  */
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
+import java.util.List;
+
+import org.joda.time.DateTime;
+
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.date.YearSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
@@ -39,4 +43,17 @@ public class CompanyFoundedComparator2Years extends Comparator<Company> {
 		return similarity * similarity;
 	}
 
+	@Override
+	public void compareBatch(Company record1, List<Company> records2, double[] similarities) {
+		DateTime[] dates = new DateTime[records2.size()];
+		for (int i = 0; i < dates.length; i++) {
+			dates[i] = records2.get(i).getFounded();
+		}
+		sim.calculateBatch(record1.getFounded(), dates, dates.length, similarities);
+
+		for (int i = 0; i < dates.length; i++) {
+			similarities[i] = similarities[i] * similarities[i];
+		}
+	}
+
 }
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.CachingSimilarityMeasure;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -31,7 +32,11 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  */
 public class CompanyIndustryComparatorLevenshtein extends Comparator<Company> {
 
-	private LevenshteinSimilarity sim = new LevenshteinSimilarity();
+	/**
+	 * the same industries occur in many records, so the similarity of each
+	 * pair of industries is only calculated once
+	 */
+	private CachingSimilarityMeasure<String> sim = new CachingSimilarityMeasure<>(new LevenshteinSimilarity(), 100000, true);
 
 	@Override
 	public double compare(Company entity1, Company entity2) {
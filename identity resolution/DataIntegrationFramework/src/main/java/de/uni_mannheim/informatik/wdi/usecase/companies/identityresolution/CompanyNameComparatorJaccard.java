@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -29,16 +30,31 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class CompanyNameComparatorJaccard extends Comparator<Company> {
+public class CompanyNameComparatorJaccard extends PreparedComparator<Company, int[][]> {
 
 	private TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
+	/**
+	 * Prepares the tokens of the full name and, for names starting with "Bank
+	 * of", the tokens of the rest of the name
+	 */
 	@Override
-	public double compare(Company entity1, Company entity2) {
-		if (entity1.getName().startsWith("Bank of") && (entity2.getName().startsWith("Bank of"))){
-			return sim.calculate(entity1.getName().substring(7), entity2.getName().substring(7));
+	protected int[][] prepareRecord(Company entity) {
+		int[] tokens = sim.prepare(entity.getName());
+		int[] tokensWithoutBank = null;
+		if (entity.getName().startsWith("Bank of")) {
+			tokensWithoutBank = sim.prepare(entity.getName().substring(7));
 		}
-		double similarity = sim.calculate(entity1.getName(), entity2.getName());
+
+		return new int[][] { tokens, tokensWithoutBank };
+	}
+
+	@Override
+	protected double comparePrepared(int[][] prepared1, int[][] prepared2) {
+		if (prepared1[1] != null && prepared2[1] != null) {
+			return sim.calculatePrepared(prepared1[1], prepared2[1]);
+		}
+		double similarity = sim.calculatePrepared(prepared1[0], prepared2[0]);
 
 		return similarity;
 	}
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -29,13 +30,18 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class CompanyNameComparatorLevenshtein extends Comparator<Company> {
+public class CompanyNameComparatorLevenshtein extends PreparedComparator<Company, char[]> {
 
 	private LevenshteinSimilarity sim = new LevenshteinSimilarity();
 
 	@Override
-	public double compare(Company entity1, Company entity2) {
-		double similarity = sim.calculate(entity1.getName(), entity2.getName());
+	protected char[] prepareRecord(Company entity) {
+		return sim.prepare(entity.getName());
+	}
+
+	@Override
+	protected double comparePrepared(char[] prepared1, char[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.EqualsSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 
@@ -30,13 +31,18 @@ import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class CompanyNameComparatorLongestTokenEqual extends Comparator<Company> {
+public class CompanyNameComparatorLongestTokenEqual extends PreparedComparator<Company, String> {
 
 	private EqualsSimilarity<String> sim = new EqualsSimilarity<String>();
 
 	@Override
-	public double compare(Company entity1, Company entity2) {
-		double similarity = sim.calculate(getLongestString(entity1.getName()), getLongestString(entity2.getName()));
+	protected String prepareRecord(Company entity) {
+		return getLongestString(entity.getName());
+	}
+
+	@Override
+	protected double comparePrepared(String prepared1, String prepared2) {
+		double similarity = sim.calculate(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -17,6 +17,8 @@
  */
 package de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution;
 
+import java.util.List;
+
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.numeric.PercentageSimilarity;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
@@ -41,4 +43,17 @@ public class CompanyRevenueComparatorRelative extends Comparator<Company> {
 		return similarity;
 	}
 
+	@Override
+	public void compareBatch(Company record1, List<Company> records2, double[] similarities) {
+		double[] revenues = new double[records2.size()];
+		for (int i = 0; i < revenues.length; i++) {
+			revenues[i] = toDouble(records2.get(i).getRevenue());
+		}
+		sim.calculateBatch(toDouble(record1.getRevenue()), revenues, revenues.length, similarities);
+	}
+
+	private static double toDouble(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
 }
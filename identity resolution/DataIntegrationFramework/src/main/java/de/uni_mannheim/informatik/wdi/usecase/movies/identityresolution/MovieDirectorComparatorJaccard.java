@@ -20,6 +20,7 @@ package de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution;
 import com.wcohen.ss.Jaccard;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
@@ -32,19 +33,20 @@ import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class MovieDirectorComparatorJaccard extends Comparator<Movie> {
+public class MovieDirectorComparatorJaccard extends PreparedComparator<Movie, int[]> {
 
 	TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
 	@Override
-	public double compare(Movie entity1, Movie entity2) {
+	protected int[] prepareRecord(Movie entity) {
+		return sim.prepare(entity.getDirector());
+	}
 
-		// preprocessing
-		String s1 = entity1.getDirector();
-		String s2 = entity2.getDirector();
+	@Override
+	protected double comparePrepared(int[] prepared1, int[] prepared2) {
 
 		// calculate similarity
-		double similarity = sim.calculate(s1, s2);
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		// postprocessing
 		if (similarity <= 0.3) {
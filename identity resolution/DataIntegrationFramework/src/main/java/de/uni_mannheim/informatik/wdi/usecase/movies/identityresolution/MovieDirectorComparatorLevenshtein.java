@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
@@ -29,13 +30,20 @@ import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  */
-public class MovieDirectorComparatorLevenshtein extends Comparator<Movie> {
+public class MovieDirectorComparatorLevenshtein extends PreparedComparator<Movie, char[]> {
 
 	private LevenshteinSimilarity sim = new LevenshteinSimilarity();
 
 	@Override
-	public double compare(Movie entity1, Movie entity2) {
-		return sim.calculate(entity1.getDirector(), entity2.getDirector());
+	protected char[] prepareRecord(Movie entity) {
+		return sim.prepare(entity.getDirector());
+	}
+
+	@Override
+	protected double comparePrepared(char[] prepared1, char[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
+
+		return similarity;
 	}
 
 
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
@@ -30,29 +31,29 @@ import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class MovieDirectorComparatorLowerCaseJaccard extends Comparator<Movie> {
+public class MovieDirectorComparatorLowerCaseJaccard extends PreparedComparator<Movie, int[]> {
 
 	TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
 	@Override
-	public double compare(Movie entity1, Movie entity2) {
+	protected int[] prepareRecord(Movie entity) {
 
 		// preprocessing
-		String s1 = entity1.getDirector();
-		if (s1 != null) {
-			s1 = s1.toLowerCase();
+		String s = entity.getDirector();
+		if (s != null) {
+			s = s.toLowerCase();
 		} else {
-			s1 = "";
-		}
-		String s2 = entity2.getDirector();
-		if (s2 != null) {
-			s2 = s2.toLowerCase();
-		} else {
-			s2 = "";
+			s = "";
 		}
 
+		return sim.prepare(s);
+	}
+
+	@Override
+	protected double comparePrepared(int[] prepared1, int[] prepared2) {
+
 		// calculate similarity
-		double similarity = sim.calculate(s1, s2);
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		// postprocessing
 		if (similarity <= 0.3) {
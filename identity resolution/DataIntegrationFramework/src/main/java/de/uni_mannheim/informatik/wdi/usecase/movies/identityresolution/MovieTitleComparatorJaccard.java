@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
@@ -28,14 +29,18 @@ import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class MovieTitleComparatorJaccard extends Comparator<Movie> {
+public class MovieTitleComparatorJaccard extends PreparedComparator<Movie, int[]> {
 
 	private TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
 	@Override
-	public double compare(Movie entity1, Movie entity2) {
-		double similarity = sim.calculate(entity1.getTitle(),
-				entity2.getTitle());
+	protected int[] prepareRecord(Movie entity) {
+		return sim.prepare(entity.getTitle());
+	}
+
+	@Override
+	protected double comparePrepared(int[] prepared1, int[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
@@ -28,14 +29,18 @@ import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
  * @author Oliver Lehmberg (oli@dwslab.de)
  * 
  */
-public class MovieTitleComparatorLevenshtein extends Comparator<Movie> {
+public class MovieTitleComparatorLevenshtein extends PreparedComparator<Movie, char[]> {
 
 	private LevenshteinSimilarity sim = new LevenshteinSimilarity();
 
 	@Override
-	public double compare(Movie entity1, Movie entity2) {
-		double similarity = sim.calculate(entity1.getTitle(),
-				entity2.getTitle());
+	protected char[] prepareRecord(Movie entity) {
+		return sim.prepare(entity.getTitle());
+	}
+
+	@Override
+	protected double comparePrepared(char[] prepared1, char[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -18,6 +18,7 @@
 package de.uni_mannheim.informatik.wdi.usecase.music.identityresolution;
 
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
+import de.uni_mannheim.informatik.wdi.identityresolution.PreparedComparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.TokenizingJaccardSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.music.model.Release;
 
@@ -29,13 +30,18 @@ import de.uni_mannheim.informatik.wdi.usecase.music.model.Release;
  * @author Robert Meusel (robert@dwslab.de)
  * 
  */
-public class ReleaseCountryComparatorJaccard extends Comparator<Release> {
+public class ReleaseCountryComparatorJaccard extends PreparedComparator<Release, int[]> {
 
 	private TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
 
 	@Override
-	public double compare(Release entity1, Release entity2) {
-		double similarity = sim.calculate(entity1.getCountry(), entity2.getCountry());
+	protected int[] prepareRecord(Release entity) {
+		return sim.prepare(entity.getCountry());
+	}
+
+	@Override
+	protected double comparePrepared(int[] prepared1, int[] prepared2) {
+		double similarity = sim.calculatePrepared(prepared1, prepared2);
 
 		return similarity;
 	}
@@ -17,6 +17,10 @@
  */
 package de.uni_mannheim.informatik.wdi.usecase.music.identityresolution;
 
+import java.util.List;
+
+import org.joda.time.DateTime;
+
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.date.YearSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.music.model.Release;
@@ -39,4 +43,17 @@ public class ReleaseDateComparator2Years extends Comparator<Release> {
 		return similarity * similarity;
 	}
 
+	@Override
+	public void compareBatch(Release record1, List<Release> records2, double[] similarities) {
+		DateTime[] dates = new DateTime[records2.size()];
+		for (int i = 0; i < dates.length; i++) {
+			dates[i] = records2.get(i).getDate();
+		}
+		sim.calculateBatch(record1.getDate(), dates, dates.length, similarities);
+
+		for (int i = 0; i < dates.length; i++) {
+			similarities[i] = similarities[i] * similarities[i];
+		}
+	}
+
 }
@@ -17,6 +17,8 @@
  */
 package de.uni_mannheim.informatik.wdi.usecase.music.identityresolution;
 
+import java.util.List;
+
 import de.uni_mannheim.informatik.wdi.identityresolution.Comparator;
 import de.uni_mannheim.informatik.wdi.identityresolution.similarity.numeric.PercentageSimilarity;
 import de.uni_mannheim.informatik.wdi.usecase.music.model.Release;
@@ -40,4 +42,13 @@ public class ReleaseDurationComparator10Percent extends Comparator<Release> {
 		return similarity;
 	}
 
+	@Override
+	public void compareBatch(Release record1, List<Release> records2, double[] similarities) {
+		double[] durations = new double[records2.size()];
+		for (int i = 0; i < durations.length; i++) {
+			durations[i] = records2.get(i).getDuration();
+		}
+		sim.calculateBatch(record1.getDuration(), durations, durations.length, similarities);
+	}
+
 }
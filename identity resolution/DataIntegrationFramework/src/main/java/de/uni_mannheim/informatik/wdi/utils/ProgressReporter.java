@@ -29,12 +29,19 @@ import org.joda.time.DateTime;
  */
 public class ProgressReporter {
 
-	private int done = 0;
+	private long done = 0;
 	private long lastTime = 0;
 	private int total = 0;
 	private long start = 0;
 	private String message;
 
+	/**
+	 * Creates a new progress reporter. If the total number of elements is not
+	 * known in advance, totalElements can be set to 0.
+	 * 
+	 * @param totalElements
+	 * @param message
+	 */
 	public ProgressReporter(int totalElements, String message) {
 		total = totalElements;
 		start = System.currentTimeMillis();
@@ -46,11 +53,22 @@ public class ProgressReporter {
 		done++;
 	}
 
+	public void incrementProgress(int elements) {
+		done += elements;
+	}
+
 	public void report() {
 		// report status every second
 		long now = System.currentTimeMillis();
 		long durationSoFar = now - start;
-		if ((now - lastTime) > 1000) {
+		if ((now - lastTime) > 1000 && total <= 0) {
+			// the total number of elements is unknown (streamed input)
+			System.out.println(String.format(
+					"[%s] %s: %,d elements completed after %s",
+					new DateTime(now).toString(), message, done,
+					DurationFormatUtils.formatDurationHMS(durationSoFar)));
+			lastTime = now;
+		} else if ((now - lastTime) > 1000) {
 			System.out.println(String.format(
 					"[%s] %s: %,d / %,d elements completed (%.2f%%) after %s",
 					new DateTime(now).toString(), message, done, total,
@@ -1,5 +1,8 @@
 package de.uni_mannheim.informatik.wdi.identityresolution;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.joda.time.DateTime;
@@ -47,4 +50,91 @@ public class LinearCombinationMatchingRuleTest extends TestCase {
 		assertNull(rule3.apply(movie2, movie3));		
 	}
 
+	public void testApplyWithEarlyTermination() throws Exception {
+		Movie movie1 = new Movie("movie1", "test");
+		Movie movie2 = new Movie("movie2", "test");
+		Movie movie3 = new Movie("movie3", "test");
+
+		movie1.setTitle("Star Wars IV");
+		movie2.setTitle("Star Wars V");
+		movie3.setTitle("Star Wars IV");
+
+		movie1.setDirector("George Lucas");
+		movie2.setDirector("Irvin Kershner");
+		movie3.setDirector("Irvin Kershner");
+
+		movie1.setDate(DateTime.parse("1977-05-25"));
+		movie2.setDate(DateTime.parse("1980-05-21"));
+		movie3.setDate(DateTime.parse("1977-05-25"));
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(0.0, 0.8);
+		rule.addComparator(new MovieDateComparator10Years(), 0.8);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.1);
+		rule.addComparator(new MovieDirectorComparatorLevenshtein(), 0.1);
+
+		LinearCombinationMatchingRule<Movie> lazyRule = new LinearCombinationMatchingRule<>(0.0, 0.8);
+		lazyRule.addComparator(new MovieDateComparator10Years(), 0.8);
+		lazyRule.addComparator(new MovieTitleComparatorLevenshtein(), 0.1);
+		lazyRule.addComparator(new MovieDirectorComparatorLevenshtein(), 0.1);
+		lazyRule.setEarlyTermination(true);
+
+		// run long enough to fix the evaluation order
+		Movie[] movies = new Movie[] { movie1, movie2, movie3 };
+		for (int n = 0; n < 1000; n++) {
+			for (Movie m1 : movies) {
+				for (Movie m2 : movies) {
+					Correspondence<Movie> expected = rule.apply(m1, m2);
+					Correspondence<Movie> actual = lazyRule.apply(m1, m2);
+
+					if (expected == null) {
+						assertNull(actual);
+					} else {
+						assertNotNull(actual);
+						assertEquals(expected.getSimilarityScore(), actual.getSimilarityScore(), 0.000001);
+					}
+				}
+			}
+		}
+
+		// the date difference between movie2 and the others rules out a match
+		// before the names are compared
+		assertTrue(lazyRule.getNumberOfSkippedComparisons() > 0);
+		assertEquals(9 * 1000 * 3, lazyRule.getNumberOfEvaluatedComparisons()
+				+ lazyRule.getNumberOfSkippedComparisons());
+	}
+
+	public void testApplyBatch() throws Exception {
+		List<Movie> movies = new ArrayList<>();
+		String[] titles = { "Star Wars IV", "Star Wars V", "Star Wars IV", "Star Trek" };
+		String[] directors = { "George Lucas", "Irvin Kershner", "George Lucas", null };
+		String[] dates = { "1977-05-25", "1980-05-21", "1977-05-25", "1979-12-07" };
+		for (int i = 0; i < titles.length; i++) {
+			Movie movie = new Movie("movie" + i, "test");
+			movie.setTitle(titles[i]);
+			movie.setDirector(directors[i]);
+			movie.setDate(DateTime.parse(dates[i]));
+			movies.add(movie);
+		}
+		movies.get(3).setDate(null);
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(0.0, 0.7);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.4);
+		rule.addComparator(new MovieDirectorComparatorLevenshtein(), 0.3);
+		rule.addComparator(new MovieDateComparator10Years(), 0.3);
+
+		for (Movie movie : movies) {
+			double[] similarities = new double[movies.size()];
+			rule.compareBatch(movie, movies, similarities);
+
+			for (int i = 0; i < movies.size(); i++) {
+				assertEquals(rule.compare(movie, movies.get(i)), similarities[i]);
+			}
+		}
+
+		List<Correspondence<Movie>> result = rule.applyBatch(movies.get(0), movies);
+		assertEquals(2, result.size());
+		assertEquals("movie0", result.get(0).getSecondRecord().getIdentifier());
+		assertEquals("movie2", result.get(1).getSecondRecord().getIdentifier());
+	}
+
 }
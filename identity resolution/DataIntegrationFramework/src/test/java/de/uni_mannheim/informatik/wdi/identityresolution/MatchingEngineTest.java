@@ -1,13 +1,24 @@
 package de.uni_mannheim.informatik.wdi.identityresolution;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
 import de.uni_mannheim.informatik.wdi.identityresolution.blocking.Blocker;
 import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
 import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StaticBlockingKeyGenerator;
 import de.uni_mannheim.informatik.wdi.model.DataSet;
 import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByDecadeGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByYearGenerator;
 import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieDateComparator10Years;
 import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieDirectorComparatorLevenshtein;
 import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieTitleComparatorLevenshtein;
@@ -38,6 +49,227 @@ public class MatchingEngineTest extends TestCase {
 		engine.runMatching(ds, ds2);
 	}
 
+	public void testRunMatchingParallel() throws Exception {
+		DataSet<Movie> ds = new DataSet<>();
+		File sourceFile1 = new File("usecase/movie/input/actors.xml");
+		ds.loadFromXML(sourceFile1, new MovieFactory(), "/movies/movie");
+
+		DataSet<Movie> ds2 = new DataSet<>();
+		File sourceFile2 = new File("usecase/movie/input/academy_awards.xml");
+		ds2.loadFromXML(sourceFile2, new MovieFactory(), "/movies/movie");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.5);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.5);
+		rule.addComparator(new MovieDirectorComparatorLevenshtein(), 0.25);
+		rule.addComparator(new MovieDateComparator10Years(), 0.25);
+
+		Blocker<Movie> blocker = new StandardBlocker<Movie>(
+				new StaticBlockingKeyGenerator<Movie>());
+		MatchingEngine<Movie> engine = new MatchingEngine<>(rule, blocker);
+
+		List<Correspondence<Movie>> sequential = engine.runMatching(ds, ds2);
+
+		engine.setParallelism(4);
+		List<Correspondence<Movie>> parallel = engine.runMatching(ds, ds2);
+
+		// the parallel result must be identical, including the order
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertSame(sequential.get(i).getFirstRecord(), parallel.get(i)
+					.getFirstRecord());
+			assertSame(sequential.get(i).getSecondRecord(), parallel.get(i)
+					.getSecondRecord());
+			assertEquals(sequential.get(i).getSimilarityScore(), parallel
+					.get(i).getSimilarityScore());
+		}
+	}
+
+	private DataSet<Movie> createDataSet(String provenance,
+			String... titlesAndDates) {
+		DataSet<Movie> ds = new DataSet<>();
+		for (int i = 0; i < titlesAndDates.length; i += 2) {
+			Movie m = new Movie(provenance + i / 2, provenance);
+			m.setTitle(titlesAndDates[i]);
+			m.setDate(DateTime.parse(titlesAndDates[i + 1]));
+			ds.addRecord(m);
+		}
+		return ds;
+	}
+
+	public void testRunMultiSourceMatching() throws Exception {
+		DataSet<Movie> ds = createDataSet("a", "Titanic", "1997-12-19",
+				"Fargo", "1996-03-08", "Gladiator", "2000-05-05", "Casablanca",
+				"1942-11-26");
+		DataSet<Movie> ds2 = createDataSet("b", "Titanic", "1997-11-01",
+				"Gladiator", "2000-05-01", "Argo", "2012-10-12", "Casablanca",
+				"1943-01-23");
+		DataSet<Movie> ds3 = createDataSet("c", "Fargo", "1996-04-01",
+				"Titanic", "1997-12-18", "Argo", "2012-10-04");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.5);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.5);
+		rule.addComparator(new MovieDateComparator10Years(), 0.5);
+
+		Blocker<Movie> blocker = new StandardBlocker<Movie>(
+				new MovieBlockingKeyByDecadeGenerator());
+		MatchingEngine<Movie> engine = new MatchingEngine<>(rule, blocker);
+
+		List<Pair<DataSet<Movie>, DataSet<Movie>>> sourcePairs = new ArrayList<>();
+		sourcePairs.add(new Pair<>(ds, ds2));
+		sourcePairs.add(new Pair<>(ds, ds3));
+		sourcePairs.add(new Pair<>(ds3, ds2));
+
+		engine.setParallelism(2);
+		Map<Pair<DataSet<Movie>, DataSet<Movie>>, List<Correspondence<Movie>>> result = engine
+				.runMultiSourceMatching(sourcePairs);
+		assertEquals(3, result.size());
+
+		// every combination has the same result as a separate run
+		engine.setParallelism(1);
+		for (Pair<DataSet<Movie>, DataSet<Movie>> sourcePair : sourcePairs) {
+			List<Correspondence<Movie>> expected = engine.runMatching(
+					sourcePair.getFirst(), sourcePair.getSecond());
+			List<Correspondence<Movie>> actual = result.get(sourcePair);
+
+			assertFalse(expected.isEmpty());
+			assertCorrespondences(expected, actual);
+		}
+		assertFalse(blocker.isRetainIndexes());
+
+		// a blocker that retained its indexes before keeps retaining them
+		blocker.setRetainIndexes(true);
+		engine.runMultiSourceMatching(sourcePairs);
+		assertTrue(blocker.isRetainIndexes());
+	}
+
+	public void testRunMatchingWithCheckpoints() throws Exception {
+		DataSet<Movie> ds = new DataSet<>();
+		File sourceFile1 = new File("usecase/movie/input/actors.xml");
+		ds.loadFromXML(sourceFile1, new MovieFactory(), "/movies/movie");
+
+		DataSet<Movie> ds2 = new DataSet<>();
+		File sourceFile2 = new File("usecase/movie/input/academy_awards.xml");
+		ds2.loadFromXML(sourceFile2, new MovieFactory(), "/movies/movie");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.5);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.5);
+		rule.addComparator(new MovieDirectorComparatorLevenshtein(), 0.25);
+		rule.addComparator(new MovieDateComparator10Years(), 0.25);
+
+		Blocker<Movie> blocker = new StandardBlocker<Movie>(
+				new StaticBlockingKeyGenerator<Movie>());
+		MatchingEngine<Movie> engine = new MatchingEngine<>(rule, blocker);
+
+		List<Correspondence<Movie>> expected = engine.runMatching(ds, ds2);
+
+		File directory = File.createTempFile("checkpoint", "");
+		directory.delete();
+		try {
+			engine.setCheckpointing(directory, 1000);
+			assertCorrespondences(expected, engine.runMatching(ds, ds2));
+
+			// simulate a run that was interrupted after the first checkpoint
+			File progress = new File(directory, "progress.csv");
+			List<String> lines = Files.readAllLines(progress.toPath(),
+					StandardCharsets.UTF_8);
+			assertTrue(lines.size() > 2);
+			Files.write(progress.toPath(), (lines.get(0) + "\n").getBytes(StandardCharsets.UTF_8));
+
+			assertCorrespondences(expected, engine.runMatching(ds, ds2));
+
+			// a finished run is read from the checkpoint
+			assertCorrespondences(expected, engine.runMatching(ds, ds2));
+		} finally {
+			for (File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	public void testRunMatchingWithChangedBlocker() throws Exception {
+		DataSet<Movie> ds = createDataSet("a", "Titanic", "1997-12-19",
+				"Fargo", "1996-03-08", "Gladiator", "2000-05-05");
+		DataSet<Movie> ds2 = createDataSet("b", "Titanic", "1999-11-01",
+				"Fargo", "1996-04-01", "Gladiator", "2000-05-01");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.5);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.5);
+		rule.addComparator(new MovieDateComparator10Years(), 0.5);
+
+		// both blockers have the same class, but create different pairs
+		MatchingEngine<Movie> byDecade = new MatchingEngine<>(rule,
+				new StandardBlocker<Movie>(new MovieBlockingKeyByDecadeGenerator()));
+		MatchingEngine<Movie> byYear = new MatchingEngine<>(rule,
+				new StandardBlocker<Movie>(new MovieBlockingKeyByYearGenerator()));
+		List<Correspondence<Movie>> expected = byYear.runMatching(ds, ds2);
+		assertEquals(2, expected.size());
+
+		File directory = File.createTempFile("checkpoint", "");
+		directory.delete();
+		try {
+			byDecade.setCheckpointing(directory, 1);
+			assertEquals(3, byDecade.runMatching(ds, ds2).size());
+
+			// the finished run of the other blocker must not be resumed
+			byYear.setCheckpointing(directory, 1);
+			assertCorrespondences(expected, byYear.runMatching(ds, ds2));
+		} finally {
+			for (File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	public void testRunMatchingWithChangedData() throws Exception {
+		DataSet<Movie> ds = createDataSet("a", "Titanic", "1997-12-19",
+				"Fargo", "1996-03-08", "Gladiator", "2000-05-05");
+		DataSet<Movie> ds2 = createDataSet("b", "Titanic", "1997-11-01",
+				"Fargo", "1996-04-01", "Gladiator", "2000-05-01");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.9);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 1.0);
+
+		MatchingEngine<Movie> engine = new MatchingEngine<>(rule,
+				new StandardBlocker<Movie>(new MovieBlockingKeyByDecadeGenerator()));
+
+		File directory = File.createTempFile("checkpoint", "");
+		directory.delete();
+		try {
+			engine.setCheckpointing(directory, 1);
+			assertEquals(3, engine.runMatching(ds, ds2).size());
+
+			// same identifiers, but a different value: the finished run must
+			// not be resumed
+			ds2.getRecord("b1").setTitle("Heat");
+			assertEquals(2, engine.runMatching(ds, ds2).size());
+		} finally {
+			for (File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	private void assertCorrespondences(List<Correspondence<Movie>> expected,
+			List<Correspondence<Movie>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i).getFirstRecord(), actual.get(i)
+					.getFirstRecord());
+			assertSame(expected.get(i).getSecondRecord(), actual.get(i)
+					.getSecondRecord());
+			assertEquals(expected.get(i).getSimilarityScore(), actual.get(i)
+					.getSimilarityScore(), 1e-6);
+		}
+	}
+
 	public void testRunDeduplication() throws Exception {
 		DataSet<Movie> ds = new DataSet<>();
 		File sourceFile1 = new File("usecase/movie/input/actors.xml");
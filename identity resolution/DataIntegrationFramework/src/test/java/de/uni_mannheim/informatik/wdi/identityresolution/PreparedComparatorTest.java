@@ -0,0 +1,52 @@
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class PreparedComparatorTest extends TestCase {
+
+	private static class LengthComparator extends PreparedComparator<String, Integer> {
+
+		private int prepared = 0;
+
+		@Override
+		protected Integer prepareRecord(String record) {
+			prepared++;
+			return record.length();
+		}
+
+		@Override
+		protected double comparePrepared(Integer prepared1, Integer prepared2) {
+			return prepared1.equals(prepared2) ? 1.0 : 0.0;
+		}
+	}
+
+	public void testCompare() {
+		LengthComparator comp = new LengthComparator();
+
+		List<String> records = new ArrayList<>();
+		records.add(new String("abc"));
+		records.add(new String("xyz"));
+		records.add(new String("abcd"));
+
+		comp.prepare(records);
+		assertEquals(3, comp.prepared);
+
+		// prepared records are not prepared again
+		assertEquals(1.0, comp.compare(records.get(0), records.get(1)));
+		assertEquals(0.0, comp.compare(records.get(0), records.get(2)));
+		comp.prepare(records);
+		assertEquals(3, comp.prepared);
+
+		// other records are prepared on the fly
+		assertEquals(1.0, comp.compare(records.get(0), "123"));
+		assertEquals(4, comp.prepared);
+
+		comp.clearPrepared();
+		assertEquals(0.0, comp.compare(records.get(0), records.get(2)));
+		assertEquals(6, comp.prepared);
+	}
+
+}
@@ -0,0 +1,96 @@
+package de.uni_mannheim.informatik.wdi.identityresolution;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.Blocker;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StaticBlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieDateComparator10Years;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieTitleComparatorLevenshtein;
+import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
+import de.uni_mannheim.informatik.wdi.usecase.movies.model.MovieFactory;
+
+public class TopKCorrespondencesTest extends TestCase {
+
+	public void testAdd() {
+		Movie a1 = new Movie("a1", "A");
+		Movie a2 = new Movie("a2", "A");
+		Movie b1 = new Movie("b1", "B");
+		Movie b2 = new Movie("b2", "B");
+		Movie b3 = new Movie("b3", "B");
+
+		TopKCorrespondences<Movie> topK = new TopKCorrespondences<>(2, false);
+		topK.add(new Correspondence<Movie>(a1, b1, 0.5));
+		topK.add(new Correspondence<Movie>(a1, b2, 0.9));
+		topK.add(new Correspondence<Movie>(a1, b3, 0.7));
+		topK.add(new Correspondence<Movie>(a2, b3, 0.6));
+
+		List<Correspondence<Movie>> result = topK.getResult();
+		assertEquals(3, result.size());
+		assertSame(b2, result.get(0).getSecondRecord());
+		assertSame(b3, result.get(1).getSecondRecord());
+		assertSame(a2, result.get(2).getFirstRecord());
+
+		// a2-b3 is the best match for a2, but not for b3
+		topK = new TopKCorrespondences<>(1, true);
+		topK.add(new Correspondence<Movie>(a1, b1, 0.5));
+		topK.add(new Correspondence<Movie>(a1, b3, 0.7));
+		topK.add(new Correspondence<Movie>(a2, b3, 0.6));
+		topK.add(new Correspondence<Movie>(a2, b2, 0.4));
+
+		result = topK.getResult();
+		assertEquals(1, result.size());
+		assertSame(a1, result.get(0).getFirstRecord());
+		assertSame(b3, result.get(0).getSecondRecord());
+	}
+
+	public void testRunMatchingWithTopK() throws Exception {
+		DataSet<Movie> ds = new DataSet<>();
+		ds.loadFromXML(new File("usecase/movie/input/actors.xml"),
+				new MovieFactory(), "/movies/movie");
+
+		DataSet<Movie> ds2 = new DataSet<>();
+		ds2.loadFromXML(new File("usecase/movie/input/academy_awards.xml"),
+				new MovieFactory(), "/movies/movie");
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0, 0.3);
+		rule.addComparator(new MovieTitleComparatorLevenshtein(), 0.5);
+		rule.addComparator(new MovieDateComparator10Years(), 0.5);
+
+		Blocker<Movie> blocker = new StandardBlocker<Movie>(
+				new StaticBlockingKeyGenerator<Movie>());
+		MatchingEngine<Movie> engine = new MatchingEngine<>(rule, blocker);
+		engine.setTopKPerRecord(3, false);
+
+		List<Correspondence<Movie>> sequential = engine.runMatching(ds, ds2);
+
+		Map<String, Integer> counts = new HashMap<>();
+		for (Correspondence<Movie> c : sequential) {
+			String id = c.getFirstRecord().getIdentifier();
+			Integer cnt = counts.get(id);
+			counts.put(id, cnt == null ? 1 : cnt + 1);
+		}
+		for (Integer cnt : counts.values()) {
+			assertTrue(cnt <= 3);
+		}
+
+		// the same correspondences must be selected in parallel mode
+		engine.setParallelism(4);
+		List<Correspondence<Movie>> parallel = engine.runMatching(ds, ds2);
+
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertSame(sequential.get(i).getFirstRecord(), parallel.get(i)
+					.getFirstRecord());
+			assertSame(sequential.get(i).getSecondRecord(), parallel.get(i)
+					.getSecondRecord());
+		}
+	}
+
+}
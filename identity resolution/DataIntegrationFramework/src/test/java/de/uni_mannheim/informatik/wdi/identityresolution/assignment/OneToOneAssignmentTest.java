@@ -0,0 +1,92 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.assignment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
+
+public class OneToOneAssignmentTest extends TestCase {
+
+	private Movie a1 = new Movie("a1", "A");
+	private Movie a2 = new Movie("a2", "A");
+	private Movie a3 = new Movie("a3", "A");
+	private Movie b1 = new Movie("b1", "B");
+	private Movie b2 = new Movie("b2", "B");
+	private Movie b3 = new Movie("b3", "B");
+
+	private List<Correspondence<Movie>> generateCorrespondences() {
+		List<Correspondence<Movie>> correspondences = new ArrayList<>();
+		// greedy selects a1-b1 (0.9) and a2-b2 (0.1), the optimal solution is
+		// a1-b2 and a2-b1 (0.8 + 0.8)
+		correspondences.add(new Correspondence<Movie>(a2, b2, 0.1));
+		correspondences.add(new Correspondence<Movie>(a1, b1, 0.9));
+		correspondences.add(new Correspondence<Movie>(a1, b2, 0.8));
+		correspondences.add(new Correspondence<Movie>(a2, b1, 0.8));
+		// separate component
+		correspondences.add(new Correspondence<Movie>(a3, b3, 0.5));
+		return correspondences;
+	}
+
+	public void testGreedy() {
+		List<Correspondence<Movie>> result = new GreedyOneToOneAssignment<Movie>()
+				.assign(generateCorrespondences());
+
+		assertEquals(3, result.size());
+		assertSame(a1, result.get(0).getFirstRecord());
+		assertSame(b1, result.get(0).getSecondRecord());
+		assertSame(a3, result.get(1).getFirstRecord());
+		assertSame(a2, result.get(2).getFirstRecord());
+		assertSame(b2, result.get(2).getSecondRecord());
+	}
+
+	public void testReciprocalBestMatch() {
+		List<Correspondence<Movie>> result = new ReciprocalBestMatchAssignment<Movie>()
+				.assign(generateCorrespondences());
+
+		// a2 and b2 are not each others best match
+		assertEquals(2, result.size());
+		assertSame(a1, result.get(0).getFirstRecord());
+		assertSame(b1, result.get(0).getSecondRecord());
+		assertSame(a3, result.get(1).getFirstRecord());
+	}
+
+	public void testOptimal() {
+		List<Correspondence<Movie>> result = new OptimalOneToOneAssignment<Movie>()
+				.assign(generateCorrespondences());
+
+		assertEquals(3, result.size());
+		double sum = 0.0;
+		for (Correspondence<Movie> c : result) {
+			sum += c.getSimilarityScore();
+		}
+		assertEquals(2.1, sum, 0.000001);
+		assertSame(a1, result.get(0).getFirstRecord());
+		assertSame(b2, result.get(0).getSecondRecord());
+		assertSame(a2, result.get(1).getFirstRecord());
+		assertSame(b1, result.get(1).getSecondRecord());
+	}
+
+	public void testOptimalFallsBackToGreedy() {
+		OptimalOneToOneAssignment<Movie> assignment = new OptimalOneToOneAssignment<Movie>(3, true);
+		List<Correspondence<Movie>> result = assignment.assign(generateCorrespondences());
+
+		assertEquals(3, result.size());
+		assertSame(b1, result.get(0).getSecondRecord());
+
+		// only the component of a1, a2, b1 and b2 is too large
+		assertEquals(1, assignment.getGreedyComponents().size());
+		assertEquals(4, assignment.getGreedyComponents().get(0).size());
+	}
+
+	public void testOptimalRejectsLargeComponents() {
+		try {
+			new OptimalOneToOneAssignment<Movie>(3).assign(generateCorrespondences());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.LinearCombinationMatchingRule;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByDecadeGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByYearGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieDateComparator10Years;
+import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
+
+public class BlockingPlannerTest extends TestCase {
+
+	private DataSet<Movie> createDataSet(String provenance, int firstId,
+			String... dates) {
+		DataSet<Movie> ds = new DataSet<>();
+		for (int i = 0; i < dates.length; i++) {
+			Movie m = new Movie(Integer.toString(firstId + i), provenance);
+			m.setDate(DateTime.parse(dates[i]));
+			ds.addRecord(m);
+		}
+		return ds;
+	}
+
+	private DataSet<Movie> generateDS1() {
+		return createDataSet("DS1", 1, "1980-10-10", "1990-10-10",
+				"1991-10-10");
+	}
+
+	private DataSet<Movie> generateDS2() {
+		return createDataSet("DS2", 4, "1983-10-10", "1984-10-10",
+				"1995-10-10");
+	}
+
+	public void testPlan() {
+		DataSet<Movie> ds1 = generateDS1();
+		DataSet<Movie> ds2 = generateDS2();
+		MovieBlockingKeyByDecadeGenerator decade = new MovieBlockingKeyByDecadeGenerator();
+
+		BlockingPlanner<Movie> planner = new BlockingPlanner<>();
+
+		BlockingPlan<Movie> plan = planner.plan(decade, ds1, ds2);
+		assertEquals(4, plan.getNumberOfPairs());
+		assertEquals(new StandardBlocker<>(decade).generatePairs(ds1, ds2)
+				.size(), plan.getNumberOfPairs());
+		assertEquals(2, plan.getLargestBlock());
+		assertEquals(Integer.valueOf(1), plan.getBlockSizes1().get(1));
+		assertEquals(Integer.valueOf(1), plan.getBlockSizes1().get(2));
+		assertTrue(plan.getEstimatedMemory() > 0);
+		assertTrue(Double.isNaN(plan.getEstimatedMatchingTime()));
+		assertTrue(Double.isNaN(plan.getPairCompleteness()));
+		assertTrue(plan.isAccepted());
+
+		plan = planner.plan(decade, ds1, true);
+		assertEquals(1, plan.getNumberOfPairs());
+		assertEquals(new StandardBlocker<>(decade).generatePairs(ds1, true)
+				.size(), plan.getNumberOfPairs());
+
+		plan = planner.plan(decade, ds1, false);
+		assertEquals(new StandardBlocker<>(decade).generatePairs(ds1, false)
+				.size(), plan.getNumberOfPairs());
+
+		assertEquals(0, planner.plan(new MovieBlockingKeyByYearGenerator(),
+				ds1, ds2).getNumberOfPairs());
+	}
+
+	public void testBudget() throws Exception {
+		DataSet<Movie> ds1 = generateDS1();
+		DataSet<Movie> ds2 = generateDS2();
+
+		LinearCombinationMatchingRule<Movie> rule = new LinearCombinationMatchingRule<>(
+				0.5);
+		rule.addComparator(new MovieDateComparator10Years(), 1.0);
+		rule.setEarlyTermination(true);
+
+		BlockingPlanner<Movie> planner = new BlockingPlanner<>();
+		planner.setMatchingRule(rule, 100);
+
+		BlockingPlan<Movie> plan = planner.plan(
+				new MovieBlockingKeyByDecadeGenerator(), ds1, ds2);
+		assertFalse(Double.isNaN(plan.getEstimatedMatchingTime()));
+		assertTrue(plan.isAccepted());
+
+		// the sample does not count towards the statistics of the rule
+		assertEquals(0, rule.getNumberOfEvaluatedComparisons());
+
+		planner.setMaxMatchingTime(-1);
+		assertFalse(planner.plan(new MovieBlockingKeyByDecadeGenerator(),
+				ds1, ds2).isAccepted());
+
+		planner.setMaxMatchingTime(Double.POSITIVE_INFINITY);
+		planner.setMaxPairs(3);
+		plan = planner.plan(new MovieBlockingKeyByDecadeGenerator(), ds1, ds2);
+		assertFalse(plan.isAccepted());
+		assertNotNull(plan.getRejection());
+	}
+
+	public void testRecommend() {
+		DataSet<Movie> ds1 = generateDS1();
+		DataSet<Movie> ds2 = generateDS2();
+
+		List<BlockingKeyGenerator<Movie>> candidates = new ArrayList<>();
+		candidates.add(new MovieBlockingKeyByYearGenerator());
+		candidates.add(new MovieBlockingKeyByDecadeGenerator());
+
+		MatchingGoldStandard gs = new MatchingGoldStandard();
+		gs.addPositiveExample(new Pair<>("1", "4"));
+		gs.addPositiveExample(new Pair<>("2", "6"));
+		gs.addPositiveExample(new Pair<>("5", "3"));
+
+		BlockingPlanner<Movie> planner = new BlockingPlanner<>();
+		planner.setGoldStandard(gs);
+
+		BlockingPlan<Movie> plan = planner.recommend(candidates, ds1, ds2);
+		assertSame(candidates.get(1), plan.getBlockingFunction());
+		assertEquals(2.0 / 3.0, plan.getPairCompleteness(), 1e-9);
+
+		planner.setMaxPairs(3);
+		plan = planner.recommend(candidates, ds1, ds2);
+		assertSame(candidates.get(0), plan.getBlockingFunction());
+		assertEquals(0.0, plan.getPairCompleteness(), 1e-9);
+
+		planner.setMaxPairs(-1);
+		assertNull(planner.recommend(candidates, ds1, ds2));
+	}
+
+}
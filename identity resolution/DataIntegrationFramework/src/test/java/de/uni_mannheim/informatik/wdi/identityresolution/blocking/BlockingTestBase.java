@@ -0,0 +1,61 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+/**
+ * Creates the companies and checks the pairs of the blocker tests
+ */
+public abstract class BlockingTestBase extends TestCase {
+
+	/**
+	 * Creates a company with each name, the identifiers are the provenance
+	 * followed by the position of the name
+	 */
+	protected DataSet<Company> createDataSet(String provenance, String... names) {
+		DataSet<Company> ds = new DataSet<>();
+		for (int i = 0; i < names.length; i++) {
+			Company c = new Company(provenance + i, provenance);
+			c.setName(names[i]);
+			ds.addRecord(c);
+		}
+		return ds;
+	}
+
+	/**
+	 * Returns the pairs as strings and checks that no pair is created twice
+	 */
+	protected Set<String> getKeys(List<Pair<Company, Company>> pairs) {
+		Set<String> keys = new HashSet<>();
+		for (Pair<Company, Company> p : pairs) {
+			assertTrue(keys.add(p.getFirst().getIdentifier() + "|"
+					+ p.getSecond().getIdentifier()));
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the pairs with the identifiers in ascending order and checks
+	 * that no pair is created twice (in any order)
+	 */
+	protected Set<String> getUnorderedKeys(List<Pair<Company, Company>> pairs) {
+		Set<String> keys = new HashSet<>();
+		for (Pair<Company, Company> p : pairs) {
+			String id1 = p.getFirst().getIdentifier();
+			String id2 = p.getSecond().getIdentifier();
+			if (id1.compareTo(id2) < 0) {
+				assertTrue(keys.add(id1 + "|" + id2));
+			} else {
+				assertTrue(keys.add(id2 + "|" + id1));
+			}
+		}
+		return keys;
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class CachingBlockingKeyGeneratorTest extends BlockingTestBase {
+
+	private static class CountingKeyGenerator extends
+			BlockingKeyGenerator<Company> {
+
+		private int calls = 0;
+
+		@Override
+		public String getBlockingKey(Company instance) {
+			calls++;
+			return instance.getName();
+		}
+	}
+
+	public void testGetBlockingKey() {
+		DataSet<Company> ds1 = createDataSet("a", "siemens", null);
+
+		// the records of both data sets have the same identifiers
+		DataSet<Company> ds2 = new DataSet<>();
+		for (Company c : createDataSet("a", "siemens", "bayer").getRecords()) {
+			Company c2 = new Company(c.getIdentifier(), "b");
+			c2.setName(c.getName());
+			ds2.addRecord(c2);
+		}
+
+		CountingKeyGenerator generator = new CountingKeyGenerator();
+		CachingBlockingKeyGenerator<Company> cache = new CachingBlockingKeyGenerator<>(
+				generator);
+
+		cache.prepare(ds1);
+		cache.prepare(ds2);
+		assertEquals(4, generator.calls);
+		assertEquals(4, cache.getSize());
+
+		assertEquals("siemens", cache.getBlockingKey(ds1.getRecord("a0")));
+		assertNull(cache.getBlockingKey(ds1.getRecord("a1")));
+		assertEquals("bayer", cache.getBlockingKey(ds2.getRecord("a1")));
+		assertEquals(4, generator.calls);
+		assertEquals(3, cache.getHits());
+
+		// a blocker with the cache does not compute the keys again
+		assertEquals(1, new StandardBlocker<>(cache).generatePairs(ds1, ds2)
+				.size());
+		assertEquals(4, generator.calls);
+
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		cache.getBlockingKey(ds2.getRecord("a0"));
+		assertEquals(5, generator.calls);
+	}
+
+	public void testPrepareWithFile() throws IOException {
+		DataSet<Company> ds = createDataSet("a", "siemens", null, "bayer");
+
+		File file = File.createTempFile("keys", ".bin");
+		file.delete();
+
+		try {
+			CountingKeyGenerator generator = new CountingKeyGenerator();
+			CachingBlockingKeyGenerator<Company> cache = new CachingBlockingKeyGenerator<>(
+					generator);
+			assertFalse(cache.prepare(ds, file));
+			assertTrue(file.exists());
+			assertEquals(3, generator.calls);
+
+			// a new run reads the keys from the file
+			generator = new CountingKeyGenerator();
+			cache = new CachingBlockingKeyGenerator<>(generator);
+			assertTrue(cache.prepare(ds, file));
+			assertEquals(0, generator.calls);
+			assertEquals("bayer", cache.getBlockingKey(ds.getRecord("a2")));
+			assertNull(cache.getBlockingKey(ds.getRecord("a1")));
+			assertEquals(0, generator.calls);
+
+			// the file is replaced if the data set changed
+			ds.addRecord(new Company("a3", "a"));
+			generator = new CountingKeyGenerator();
+			cache = new CachingBlockingKeyGenerator<>(generator);
+			assertFalse(cache.prepare(ds, file));
+			assertEquals(4, generator.calls);
+			assertTrue(new CachingBlockingKeyGenerator<>(
+					new CountingKeyGenerator()).prepare(ds, file));
+
+			// ... also if only an attribute value changed
+			ds.getRecord("a2").setName("basf");
+			cache = new CachingBlockingKeyGenerator<>(new CountingKeyGenerator());
+			assertFalse(cache.prepare(ds, file));
+			assertEquals("basf", cache.getBlockingKey(ds.getRecord("a2")));
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeysByNameTokenGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class CanopyBlockerTest extends BlockingTestBase {
+
+	public void testGeneratePairs() {
+		DataSet<Company> ds1 = createDataSet("a", "Deutsche Bank AG",
+				"Apple Inc");
+		DataSet<Company> ds2 = createDataSet("b", "Deutsche Bank",
+				"Apple Computer Inc", "Bank of America");
+
+		CanopyBlocker<Company> blocker = new CanopyBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 0.3, 0.8);
+
+		// "Bank of America" only shares the frequent token "bank"
+		Set<String> pairs = getUnorderedKeys(blocker.generatePairs(ds1, ds2));
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a1|b1"));
+		assertEquals(2, blocker.getNumberOfCanopies());
+	}
+
+	public void testGeneratePairsSymmetric() {
+		DataSet<Company> ds = createDataSet("a", "Deutsche Bank AG",
+				"Deutsche Bank", "Apple Inc", "Apple Computer Inc", "Siemens");
+
+		CanopyBlocker<Company> blocker = new CanopyBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 0.3, 0.8);
+
+		Set<String> pairs = getUnorderedKeys(blocker.generatePairs(ds, true));
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|a1"));
+		assertTrue(pairs.contains("a2|a3"));
+
+		// a loose threshold of 0 puts all records that share a token into the
+		// canopy of the first centre
+		blocker = new CanopyBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 0.0, 1.0);
+		pairs = getUnorderedKeys(blocker.generatePairs(ds, true));
+		assertTrue(pairs.contains("a0|a1"));
+		assertTrue(pairs.contains("a2|a3"));
+		assertFalse(pairs.contains("a0|a2"));
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.List;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeysByNameTokenGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class LSHBlockerTest extends BlockingTestBase {
+
+	public void testChooseBandsAndRows() {
+		for (double threshold : new double[] { 0.3, 0.5, 0.8 }) {
+			int[] parameters = LSHBlocker.chooseBandsAndRows(threshold, 128);
+			int bands = parameters[0];
+			int rows = parameters[1];
+
+			assertTrue(bands * rows <= 128);
+
+			// the similarity with a probability of 0.5 to be compared is
+			// close to the threshold
+			double s = Math.pow(1.0 - Math.pow(0.5, 1.0 / bands), 1.0 / rows);
+			assertEquals(threshold, s, 0.1);
+		}
+	}
+
+	public void testGeneratePairs() {
+		DataSet<Company> ds1 = createDataSet("a",
+				"Alpha Beta Gamma Delta Epsilon",
+				"Zeta Eta Theta Iota Kappa", "Lambda");
+		DataSet<Company> ds2 = createDataSet("b",
+				"Alpha Beta Gamma Delta Epsilon Omega",
+				"Mu Nu Xi Omicron Pi", "");
+
+		LSHBlocker<Company> blocker = new LSHBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 0.5);
+		blocker.setParallelism(2);
+
+		List<Pair<Company, Company>> pairs = blocker.generatePairs(ds1, ds2);
+
+		// a Jaccard similarity of 5/6 is found with a probability close to
+		// 1, disjoint token sets are never compared
+		assertEquals(1, pairs.size());
+		assertEquals("a0", pairs.get(0).getFirst().getIdentifier());
+		assertEquals("b0", pairs.get(0).getSecond().getIdentifier());
+	}
+
+	public void testGeneratePairsSymmetric() {
+		DataSet<Company> ds = createDataSet("a", "Deutsche Bank AG",
+				"Deutsche Bank AG", "Apple Inc", "Apple Inc");
+
+		LSHBlocker<Company> blocker = new LSHBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 0.7);
+
+		Set<String> pairs = getUnorderedKeys(blocker.generatePairs(ds, true));
+
+		// records with the same tokens have the same signature
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|a1"));
+		assertTrue(pairs.contains("a2|a3"));
+	}
+
+}
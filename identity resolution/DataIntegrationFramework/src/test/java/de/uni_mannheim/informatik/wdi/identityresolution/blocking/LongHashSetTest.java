@@ -0,0 +1,43 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class LongHashSetTest extends TestCase {
+
+	public void testAdd() {
+		LongHashSet set = new LongHashSet();
+		Set<Long> expected = new HashSet<>();
+		Random r = new Random(1);
+
+		for (int i = 0; i < 10000; i++) {
+			long value = LongHashSet.pairKey(r.nextInt(100), r.nextInt(100));
+			assertEquals(expected.add(value), set.add(value));
+		}
+		assertEquals(expected.size(), set.size());
+
+		for (long value : expected) {
+			assertTrue(set.contains(value));
+		}
+		assertFalse(set.contains(LongHashSet.pairKey(100, 0)));
+
+		// the value that marks empty slots
+		assertTrue(set.add(Long.MIN_VALUE));
+		assertFalse(set.add(Long.MIN_VALUE));
+		assertTrue(set.contains(Long.MIN_VALUE));
+
+		set.clear();
+		assertEquals(0, set.size());
+		assertFalse(set.contains(LongHashSet.pairKey(0, 0)));
+		assertFalse(set.contains(Long.MIN_VALUE));
+	}
+
+	public void testPairKey() {
+		assertFalse(LongHashSet.pairKey(1, 2) == LongHashSet.pairKey(2, 1));
+		assertEquals(LongHashSet.pairKey(1, 2), LongHashSet.pairKey(1, 2));
+	}
+
+}
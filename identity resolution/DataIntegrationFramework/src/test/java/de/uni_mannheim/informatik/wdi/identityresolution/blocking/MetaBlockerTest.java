@@ -0,0 +1,71 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.MetaBlocker.PruningScheme;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.MetaBlocker.WeightingScheme;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeysByNameTokenGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class MetaBlockerTest extends BlockingTestBase {
+
+	public void testWeightEdgePruning() {
+		DataSet<Company> ds1 = createDataSet("a", "Deutsche Bank AG",
+				"Apple Inc");
+		DataSet<Company> ds2 = createDataSet("b", "Deutsche Bank",
+				"Bank of America", "Apple Computer Inc", "Deutsche Telekom");
+
+		TokenBlocker<Company> tokenBlocker = new TokenBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator());
+		assertEquals(4, tokenBlocker.generatePairs(ds1, ds2).size());
+
+		// the average number of common blocks is 1.5
+		MetaBlocker<Company> blocker = new MetaBlocker<>(tokenBlocker,
+				WeightingScheme.COMMON_BLOCKS, PruningScheme.WEIGHT_EDGE);
+		Set<String> pairs = getUnorderedKeys(blocker.generatePairs(ds1, ds2));
+
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a1|b2"));
+
+		blocker = new MetaBlocker<>(tokenBlocker, WeightingScheme.JACCARD,
+				PruningScheme.WEIGHT_EDGE);
+		pairs = getUnorderedKeys(blocker.generatePairs(ds1, ds2));
+
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a1|b2"));
+	}
+
+	public void testCardinalityNodePruning() {
+		DataSet<Company> ds = createDataSet("a", "Deutsche Bank AG",
+				"Deutsche Bank", "Deutsche Telekom AG", "Bank of America");
+
+		TokenBlocker<Company> tokenBlocker = new TokenBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator());
+		assertEquals(5, tokenBlocker.generatePairs(ds, true).size());
+
+		// every record keeps its best edge: a1-a2 only shares "deutsche" and
+		// both records have better edges
+		MetaBlocker<Company> blocker = new MetaBlocker<>(tokenBlocker,
+				WeightingScheme.COMMON_BLOCKS, PruningScheme.CARDINALITY_NODE);
+		Set<String> pairs = getUnorderedKeys(blocker.generatePairs(ds, true));
+
+		assertEquals(4, pairs.size());
+		assertTrue(pairs.contains("a0|a1"));
+		assertTrue(pairs.contains("a0|a2"));
+		assertTrue(pairs.contains("a0|a3"));
+		assertTrue(pairs.contains("a1|a3"));
+
+		// with ARCS, sharing the small block "ag" weighs more than sharing the
+		// larger blocks "deutsche" and "bank"
+		blocker = new MetaBlocker<>(tokenBlocker, WeightingScheme.ARCS,
+				PruningScheme.CARDINALITY_NODE);
+		pairs = getUnorderedKeys(blocker.generatePairs(ds, true));
+		assertEquals(4, pairs.size());
+		assertTrue(pairs.contains("a0|a2"));
+		assertFalse(pairs.contains("a1|a2"));
+	}
+
+}
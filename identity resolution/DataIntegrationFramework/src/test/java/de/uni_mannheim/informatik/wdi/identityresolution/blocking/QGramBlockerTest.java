@@ -0,0 +1,67 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class QGramBlockerTest extends BlockingTestBase {
+
+	private static class NameKeyGenerator extends BlockingKeyGenerator<Company> {
+
+		@Override
+		public String getBlockingKey(Company instance) {
+			return instance.getName();
+		}
+	}
+
+	public void testGetSubLists() {
+		// the bigrams of "peter" are pe, et, te, er
+		Set<String> subLists = QGramBlocker.getSubLists("peter", 2, 0.75);
+
+		assertEquals(5, subLists.size());
+		assertTrue(subLists.contains("peetteer"));
+		assertTrue(subLists.contains("etteer"));
+		assertTrue(subLists.contains("peteer"));
+		assertTrue(subLists.contains("peeter"));
+		assertTrue(subLists.contains("peette"));
+
+		assertEquals(1, QGramBlocker.getSubLists("a", 2, 0.8).size());
+		assertEquals(0, QGramBlocker.getSubLists(null, 2, 0.8).size());
+	}
+
+	public void testGeneratePairs() {
+		DataSet<Company> ds1 = createDataSet("a", "siemens", "bayer");
+		DataSet<Company> ds2 = createDataSet("b", "seimens", "siemen",
+				"bayern", "basf");
+
+		QGramBlocker<Company> blocker = new QGramBlocker<>(
+				new NameKeyGenerator(), 2, 0.8);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds1, ds2));
+
+		// "siemen" misses one of six bigrams, "bayern" has one additional
+		// bigram, "seimens" misses three bigrams
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|b1"));
+		assertTrue(pairs.contains("a1|b2"));
+	}
+
+	public void testSuffixArrayBlocker() {
+		assertEquals(3, SuffixArrayBlocker.getSuffixes("bayer", 3).size());
+		assertEquals(1, SuffixArrayBlocker.getSuffixes("ab", 3).size());
+
+		DataSet<Company> ds1 = createDataSet("a", "siemens", "bayer");
+		DataSet<Company> ds2 = createDataSet("b", "xiemens", "mayer",
+				"basf", "mens");
+
+		// the blocks of "mens" and "ens" contain three records and are dropped
+		SuffixArrayBlocker<Company> blocker = new SuffixArrayBlocker<>(
+				new NameKeyGenerator(), 3, 2);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds1, ds2));
+
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a1|b1"));
+	}
+
+}
@@ -0,0 +1,166 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeyByCountryGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingValueByRevenueGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class RangeBlockerTest extends BlockingTestBase {
+
+	/**
+	 * Creates a company with each revenue, the fourth company of each data
+	 * set has its own country
+	 */
+	private DataSet<Company> createDataSet(String provenance, Double... revenues) {
+		DataSet<Company> ds = new DataSet<>();
+		for (int i = 0; i < revenues.length; i++) {
+			Company c = new Company(provenance + i, provenance);
+			c.setRevenue(revenues[i]);
+			c.setCountry(i == 3 ? provenance : "de");
+			ds.addRecord(c);
+		}
+		return ds;
+	}
+
+	public void testGeneratePairs() {
+		DataSet<Company> ds1 = createDataSet("a", 100.0, 1000.0, null, 5000.0);
+		DataSet<Company> ds2 = createDataSet("b", 95.0, 1040.0, 2000.0, 4800.0);
+
+		RangeBlocker<Company> blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 0.1, true);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds1, ds2));
+		assertEquals(3, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a1|b1"));
+		assertTrue(pairs.contains("a3|b3"));
+
+		blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 50, false);
+		assertEquals(2, getKeys(blocker.generatePairs(ds1, ds2)).size());
+
+		// 10% difference on the log scale
+		blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 0.1, false);
+		blocker.setLogScale(true);
+		assertEquals(3, getKeys(blocker.generatePairs(ds1, ds2)).size());
+	}
+
+	public void testGeneratePairsSingleDataSet() {
+		DataSet<Company> ds = createDataSet("a", 100.0, 105.0, 110.0, 200.0);
+
+		RangeBlocker<Company> blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 10, false);
+		assertEquals(3, getKeys(blocker.generatePairs(ds, true)).size());
+
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, false));
+		assertEquals(6, pairs.size());
+		assertTrue(pairs.contains("a2|a0"));
+		assertFalse(pairs.contains("a0|a0"));
+	}
+
+	public void testGeneratePairsRandom() {
+		Random random = new Random(1);
+		Double[] values1 = new Double[200];
+		Double[] values2 = new Double[150];
+		for (int i = 0; i < values1.length; i++) {
+			values1[i] = random.nextGaussian() * 1000;
+		}
+		for (int i = 0; i < values2.length; i++) {
+			values2[i] = random.nextGaussian() * 1000;
+		}
+		DataSet<Company> ds1 = createDataSet("a", values1);
+		DataSet<Company> ds2 = createDataSet("b", values2);
+
+		// the binary search must find the same pairs as comparing all values
+		Set<String> expected = new HashSet<>();
+		for (Company c1 : ds1.getRecords()) {
+			for (Company c2 : ds2.getRecords()) {
+				double a = c1.getRevenue();
+				double b = c2.getRevenue();
+				if (Math.abs(a - b) <= 0.05 * Math.max(Math.abs(a), Math.abs(b))) {
+					expected.add(c1.getIdentifier() + "|" + c2.getIdentifier());
+				}
+			}
+		}
+
+		RangeBlocker<Company> blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 0.05, true);
+		assertEquals(expected, getKeys(blocker.generatePairs(ds1, ds2)));
+	}
+
+	public void testSort() {
+		Random random = new Random(2);
+		double[] original = new double[500];
+		for (int i = 0; i < original.length; i++) {
+			// many equal values to check the stability
+			original[i] = random.nextInt(50) - 25;
+		}
+
+		double[] values = original.clone();
+		int[] order = new int[values.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		RangeBlocker.sort(values, order, new double[values.length],
+				new int[values.length], 0, values.length);
+
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(original[order[i]], values[i]);
+			if (i > 0) {
+				assertTrue(values[i - 1] <= values[i]);
+				if (values[i - 1] == values[i]) {
+					assertTrue(order[i - 1] < order[i]);
+				}
+			}
+		}
+	}
+
+	public void testRetainIndexes() {
+		DataSet<Company> ds1 = createDataSet("a", 100.0, 1000.0, null, 5000.0);
+		DataSet<Company> ds2 = createDataSet("b", 95.0, 1040.0, 2000.0, 4800.0);
+
+		RangeBlocker<Company> blocker = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 0.1, false);
+		blocker.setRetainIndexes(true);
+		assertEquals(0, getKeys(blocker.generatePairs(ds1, ds2)).size());
+
+		// the retained values must not be re-used on the other scale
+		blocker.setLogScale(true);
+		assertEquals(3, getKeys(blocker.generatePairs(ds1, ds2)).size());
+		blocker.setLogScale(false);
+		assertEquals(0, getKeys(blocker.generatePairs(ds1, ds2)).size());
+	}
+
+	public void testCombinedBlocker() {
+		DataSet<Company> ds1 = createDataSet("a", 100.0, 1000.0, null, 5000.0);
+		DataSet<Company> ds2 = createDataSet("b", 95.0, 1040.0, 2000.0, 4800.0);
+
+		RangeBlocker<Company> range = new RangeBlocker<>(
+				new CompanyBlockingValueByRevenueGenerator(), 0.1, true);
+		StandardBlocker<Company> country = new StandardBlocker<>(
+				new CompanyBlockingKeyByCountryGenerator());
+
+		// a3 and b3 have different countries
+		Set<String> pairs = getKeys(new CombinedBlocker<>(range, country,
+				CombinedBlocker.Combination.INTERSECTION).generatePairs(ds1, ds2));
+		assertEquals(2, pairs.size());
+		assertFalse(pairs.contains("a3|b3"));
+
+		// 3 range pairs and 9 country pairs, 2 of them in both
+		pairs = getKeys(new CombinedBlocker<>(range, country,
+				CombinedBlocker.Combination.UNION).generatePairs(ds1, ds2));
+		assertEquals(10, pairs.size());
+		assertTrue(pairs.contains("a3|b3"));
+		assertTrue(pairs.contains("a2|b2"));
+
+		// for a symmetric data set, (a,b) and (b,a) are the same pair
+		pairs = getKeys(new CombinedBlocker<>(range, country,
+				CombinedBlocker.Combination.UNION).generatePairs(ds2, true));
+		assertEquals(3, pairs.size());
+	}
+
+}
@@ -2,7 +2,13 @@ package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
@@ -12,14 +18,65 @@ import junit.framework.TestCase;
 import org.joda.time.DateTime;
 import org.xml.sax.SAXException;
 
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
 import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.model.Matchable;
 import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
 import de.uni_mannheim.informatik.wdi.model.Pair;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
 import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByYearGenerator;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 
 public class SortedNeighbourhoodBlockerTest extends TestCase {
 
+	private static class NameKeyGenerator extends BlockingKeyGenerator<Company> {
+
+		@Override
+		public String getBlockingKey(Company instance) {
+			return instance.getName();
+		}
+	}
+
+	private static class CityKeyGenerator extends BlockingKeyGenerator<Company> {
+
+		@Override
+		public String getBlockingKey(Company instance) {
+			return instance.getCity();
+		}
+	}
+
+	private DataSet<Company> createDataSet(String[] names, String[] cities) {
+		DataSet<Company> ds = new DataSet<>();
+		for (int i = 0; i < names.length; i++) {
+			Company c = new Company("c" + i, "DS");
+			c.setName(names[i]);
+			c.setCity(cities[i]);
+			ds.addRecord(c);
+		}
+		return ds;
+	}
+
+	/**
+	 * Returns the pairs as strings and checks that no pair is created twice
+	 * (in any order) and that no record is paired with itself
+	 */
+	private <T extends Matchable> Set<String> getKeys(
+			List<Pair<T, T>> pairs, boolean ordered) {
+		Set<String> keys = new HashSet<>();
+		for (Pair<T, T> p : pairs) {
+			String id1 = p.getFirst().getIdentifier();
+			String id2 = p.getSecond().getIdentifier();
+			assertFalse(id1.equals(id2));
+			if (!ordered && id1.compareTo(id2) > 0) {
+				String tmp = id1;
+				id1 = id2;
+				id2 = tmp;
+			}
+			assertTrue(keys.add(id1 + "|" + id2));
+		}
+		return keys;
+	}
+
 	private DataSet<Movie> generateDS1() {
 		DataSet<Movie> ds = new DataSet<>();
 		Movie m1 = new Movie("1", "DS1");
@@ -73,4 +130,303 @@ public class SortedNeighbourhoodBlockerTest extends TestCase {
 		assertEquals(8, pairs.size());
 	}
 
+	public void testIteratePairs() {
+		DataSet<Movie> ds = generateDS1();
+
+		DataSet<Movie> ds2 = generateDS2();
+
+		Blocker<Movie> blocker = new SortedNeighbourhoodBlocker<>(
+				new MovieBlockingKeyByYearGenerator(), 3);
+
+		// the streamed pairs must be the same as the generated pairs
+		List<Pair<Movie, Movie>> pairs = blocker.generatePairs(ds, ds2);
+		Iterator<Pair<Movie, Movie>> it = blocker.iteratePairs(ds, ds2);
+
+		for (Pair<Movie, Movie> p : pairs) {
+			assertTrue(it.hasNext());
+			Pair<Movie, Movie> p2 = it.next();
+			assertSame(p.getFirst(), p2.getFirst());
+			assertSame(p.getSecond(), p2.getSecond());
+		}
+		assertFalse(it.hasNext());
+
+		pairs = blocker.generatePairs(ds, true);
+		it = blocker.iteratePairs(ds, true);
+		assertEquals(3, pairs.size());
+		for (Pair<Movie, Movie> p : pairs) {
+			Pair<Movie, Movie> p2 = it.next();
+			assertSame(p.getFirst(), p2.getFirst());
+			assertSame(p.getSecond(), p2.getSecond());
+		}
+		assertFalse(it.hasNext());
+	}
+
+	public void testGeneratePairsTwoDataSets() {
+		DataSet<Movie> ds = generateDS1();
+		DataSet<Movie> ds2 = generateDS2();
+
+		Blocker<Movie> blocker = new SortedNeighbourhoodBlocker<>(
+				new MovieBlockingKeyByYearGenerator(), 3);
+
+		// the first record of every pair is from the first data set
+		List<Pair<Movie, Movie>> pairs = blocker.generatePairs(ds, ds2);
+		for (Pair<Movie, Movie> p : pairs) {
+			assertEquals("DS1", p.getFirst().getProvenance());
+			assertEquals("DS2", p.getSecond().getProvenance());
+		}
+		assertEquals(8, getKeys(pairs, true).size());
+	}
+
+	public void testGeneratePairsTwoDataSetsWithRuns() {
+		DataSet<Company> ds1 = new DataSet<>();
+		for (int i = 0; i < 5; i++) {
+			Company c = new Company("a" + i, "a");
+			c.setName("a" + i);
+			ds1.addRecord(c);
+		}
+		DataSet<Company> ds2 = new DataSet<>();
+		for (int i = 0; i < 3; i++) {
+			Company c = new Company("b" + i, "b");
+			c.setName("b" + i);
+			ds2.addRecord(c);
+		}
+
+		// the windows only count the records of the other data set, so all
+		// records of the first data set reach the first records of the second
+		SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+				new NameKeyGenerator(), 2);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds1, ds2), true);
+		assertEquals(5, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a4|b0"));
+
+		blocker = new SortedNeighbourhoodBlocker<>(new NameKeyGenerator(), 3);
+		pairs = getKeys(blocker.generatePairs(ds1, ds2), true);
+		assertEquals(10, pairs.size());
+		assertTrue(pairs.contains("a0|b1"));
+		assertFalse(pairs.contains("a0|b2"));
+	}
+
+	public void testGeneratePairsNonSymmetric() {
+		DataSet<Movie> ds = generateDS1();
+
+		Blocker<Movie> blocker = new SortedNeighbourhoodBlocker<>(
+				new MovieBlockingKeyByYearGenerator(), 3);
+
+		// both (a,b) and (b,a), but no duplicates and no (a,a)
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, false), true);
+		assertEquals(6, pairs.size());
+		assertTrue(pairs.contains("1|3"));
+		assertTrue(pairs.contains("3|1"));
+	}
+
+	public void testGeneratePairsMultiPass() {
+		DataSet<Company> ds = createDataSet(new String[] { "alpha", "beta",
+				"gamma" }, new String[] { "zurich", "athens", "berlin" });
+
+		List<BlockingKeyGenerator<Company>> generators = new ArrayList<>();
+		generators.add(new NameKeyGenerator());
+		generators.add(new CityKeyGenerator());
+
+		Blocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+				generators, 2);
+
+		// the name pass creates c0|c1 and c1|c2, the city pass creates c1|c2
+		// and c0|c2
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, true), false);
+		assertEquals(3, pairs.size());
+		assertTrue(pairs.contains("c0|c2"));
+
+		assertEquals(6, getKeys(blocker.generatePairs(ds, false), true).size());
+	}
+
+	public void testAdaptiveWindow() {
+		DataSet<Company> ds = createDataSet(new String[] { "jones", "smith",
+				"smithe", "smyth" }, new String[4]);
+
+		SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+				new NameKeyGenerator(), 2);
+		assertEquals(3, getKeys(blocker.generatePairs(ds, true), false).size());
+
+		// "smyth" is similar enough to "smith" to extend its window
+		blocker.setAdaptiveWindow(new LevenshteinSimilarity(), 0.7, 4);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, true), false);
+		assertEquals(4, pairs.size());
+		assertTrue(pairs.contains("c1|c3"));
+	}
+
+	public void testAdaptiveWindowShrinking() {
+		DataSet<Company> ds = createDataSet(new String[] { "jones", "smith",
+				"smithe", "smyth" }, new String[4]);
+
+		SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+				new NameKeyGenerator(), 3);
+		assertEquals(5, getKeys(blocker.generatePairs(ds, true), false).size());
+
+		// the window of "jones" ends before "smith", the window of "smithe"
+		// ends before "smyth"
+		blocker.setAdaptiveWindow(new LevenshteinSimilarity(), 0.7, 1, 3);
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, true), false);
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("c1|c2"));
+		assertTrue(pairs.contains("c1|c3"));
+
+		// the minimal window is kept even if the keys are not similar
+		blocker.setAdaptiveWindow(new LevenshteinSimilarity(), 0.7, 2, 3);
+		pairs = getKeys(blocker.generatePairs(ds, true), false);
+		assertEquals(4, pairs.size());
+		assertTrue(pairs.contains("c0|c1"));
+		assertTrue(pairs.contains("c2|c3"));
+	}
+
+	private DataSet<Company> createRandomDataSet(String provenance, int size,
+			Random random) {
+		DataSet<Company> ds = new DataSet<>();
+		for (int i = 0; i < size; i++) {
+			Company c = new Company(provenance + i, provenance);
+			char[] name = new char[3];
+			for (int j = 0; j < name.length; j++) {
+				name[j] = (char) ('a' + random.nextInt(4));
+			}
+			// some records without key
+			c.setName(i % 10 == 0 ? null : new String(name));
+			ds.addRecord(c);
+		}
+		return ds;
+	}
+
+	public void testExternalSort() throws IOException {
+		Random random = new Random(1);
+		DataSet<Company> ds1 = createRandomDataSet("a", 60, random);
+		DataSet<Company> ds2 = createRandomDataSet("b", 40, random);
+
+		File directory = File.createTempFile("snm", "");
+		directory.delete();
+		directory.mkdirs();
+
+		try {
+			for (int variant = 0; variant < 3; variant++) {
+				SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+						new NameKeyGenerator(), 3);
+				if (variant == 1) {
+					blocker.setAdaptiveWindow(new LevenshteinSimilarity(),
+							0.6, 6);
+				} else if (variant == 2) {
+					blocker.setAdaptiveWindow(new LevenshteinSimilarity(),
+							0.6, 1, 6);
+				}
+
+				Set<String> twoDataSets = getKeys(
+						blocker.generatePairs(ds1, ds2), true);
+				Set<String> symmetric = getKeys(
+						blocker.generatePairs(ds1, true), false);
+				Set<String> nonSymmetric = getKeys(
+						blocker.generatePairs(ds1, false), true);
+
+				// runs of 7 records are merged from several files
+				blocker.setExternalSort(directory, 7);
+
+				List<Pair<Company, Company>> pairs = blocker.generatePairs(
+						ds1, ds2);
+				for (Pair<Company, Company> p : pairs) {
+					assertEquals("a", p.getFirst().getProvenance());
+				}
+				assertEquals(twoDataSets, getKeys(pairs, true));
+				assertEquals(symmetric,
+						getKeys(blocker.generatePairs(ds1, true), false));
+				assertEquals(nonSymmetric,
+						getKeys(blocker.generatePairs(ds1, false), true));
+
+				// the temporary files are deleted
+				assertEquals(0, directory.listFiles().length);
+			}
+		} finally {
+			directory.delete();
+		}
+	}
+
+	public void testExternalSortCleanup() throws IOException {
+		// keys longer than 64 KB
+		char[] chars = new char[70000];
+		Arrays.fill(chars, 'x');
+		String longKey = new String(chars);
+
+		String[] names = new String[20];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = longKey + i;
+		}
+		DataSet<Company> ds = createDataSet(names, new String[names.length]);
+
+		File directory = File.createTempFile("snm", "");
+		directory.delete();
+		directory.mkdirs();
+
+		try {
+			SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+					new NameKeyGenerator(), 3);
+			Set<String> expected = getKeys(blocker.generatePairs(ds, true),
+					false);
+
+			blocker.setExternalSort(directory, 7);
+			assertEquals(expected,
+					getKeys(blocker.generatePairs(ds, true), false));
+
+			// the files are deleted if the iterator is closed before it is
+			// consumed
+			Iterator<Pair<Company, Company>> pairs = blocker.iteratePairs(ds,
+					true);
+			assertTrue(pairs.hasNext());
+			assertTrue(directory.listFiles().length > 0);
+			PairIterator.close(pairs);
+			assertEquals(0, directory.listFiles().length);
+		} finally {
+			directory.delete();
+		}
+	}
+
+	private void assertSamePairs(List<Pair<Company, Company>> expected,
+			List<Pair<Company, Company>> actual) {
+		assertEquals(expected.size(), actual.size());
+		Iterator<Pair<Company, Company>> it = actual.iterator();
+		for (Pair<Company, Company> p : expected) {
+			Pair<Company, Company> p2 = it.next();
+			assertSame(p.getFirst(), p2.getFirst());
+			assertSame(p.getSecond(), p2.getSecond());
+		}
+	}
+
+	public void testGeneratePairsParallel() {
+		Random random = new Random(2);
+		DataSet<Company> ds1 = createRandomDataSet("a", 3000, random);
+		DataSet<Company> ds2 = createRandomDataSet("b", 2000, random);
+		for (Company c : ds1.getRecords()) {
+			c.setCity(Integer.toString(random.nextInt(100)));
+		}
+		for (Company c : ds2.getRecords()) {
+			c.setCity(Integer.toString(random.nextInt(100)));
+		}
+
+		List<BlockingKeyGenerator<Company>> generators = new ArrayList<>();
+		generators.add(new NameKeyGenerator());
+		generators.add(new CityKeyGenerator());
+
+		SortedNeighbourhoodBlocker<Company> blocker = new SortedNeighbourhoodBlocker<>(
+				generators, 4);
+		blocker.setAdaptiveWindow(new LevenshteinSimilarity(), 0.6, 8);
+
+		List<Pair<Company, Company>> twoDataSets = blocker.generatePairs(ds1,
+				ds2);
+		List<Pair<Company, Company>> symmetric = blocker.generatePairs(ds1,
+				true);
+		List<Pair<Company, Company>> nonSymmetric = blocker.generatePairs(
+				ds1, false);
+
+		// the parallel blocker must create the same pairs in the same order
+		blocker.setParallelism(4);
+		assertSamePairs(twoDataSets, blocker.generatePairs(ds1, ds2));
+		assertEquals(twoDataSets.size(), getKeys(twoDataSets, true).size());
+		assertSamePairs(symmetric, blocker.generatePairs(ds1, true));
+		assertSamePairs(nonSymmetric, blocker.generatePairs(ds1, false));
+	}
+
 }
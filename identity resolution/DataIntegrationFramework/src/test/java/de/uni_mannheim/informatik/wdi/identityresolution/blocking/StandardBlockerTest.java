@@ -3,7 +3,9 @@ package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
@@ -18,6 +20,7 @@ import de.uni_mannheim.informatik.wdi.model.DataSet;
 import de.uni_mannheim.informatik.wdi.model.MatchingGoldStandard;
 import de.uni_mannheim.informatik.wdi.model.Pair;
 import de.uni_mannheim.informatik.wdi.model.Performance;
+import de.uni_mannheim.informatik.wdi.usecase.movies.identityresolution.MovieBlockingKeyByDecadeGenerator;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.Movie;
 import de.uni_mannheim.informatik.wdi.usecase.movies.model.MovieFactory;
 
@@ -58,4 +61,94 @@ public class StandardBlockerTest extends TestCase {
 		assertEquals(1.0, perf.getRecall());
 	}
 
+	public void testGeneratePairsSymmetric() throws XPathExpressionException,
+			ParserConfigurationException, SAXException, IOException {
+		DataSet<Movie> ds = new DataSet<>();
+		File sourceFile1 = new File("usecase/movie/input/actors.xml");
+		ds.loadFromXML(sourceFile1, new MovieFactory(), "/movies/movie");
+
+		MovieBlockingKeyByDecadeGenerator keyGenerator = new MovieBlockingKeyByDecadeGenerator();
+		StandardBlocker<Movie> blocker = new StandardBlocker<Movie>(
+				keyGenerator);
+
+		// all pairs of records with the same key
+		List<Movie> records = new ArrayList<>(ds.getRecords());
+		Set<String> expected = new HashSet<>();
+		for (int i = 0; i < records.size(); i++) {
+			for (int j = i + 1; j < records.size(); j++) {
+				if (keyGenerator.getBlockingKey(records.get(i)).equals(
+						keyGenerator.getBlockingKey(records.get(j)))) {
+					expected.add(getKey(records.get(i), records.get(j)));
+				}
+			}
+		}
+
+		List<Pair<Movie, Movie>> pairs = blocker.generatePairs(ds, true);
+		assertEquals(expected.size(), pairs.size());
+		for (Pair<Movie, Movie> p : pairs) {
+			assertTrue(expected.contains(getKey(p.getFirst(), p.getSecond())));
+		}
+		double reductionRatio = blocker.getReductionRatio();
+
+		blocker.setParallelism(4);
+		pairs = blocker.generatePairs(ds, true);
+		assertEquals(expected.size(), pairs.size());
+		for (Pair<Movie, Movie> p : pairs) {
+			assertTrue(expected.contains(getKey(p.getFirst(), p.getSecond())));
+		}
+		assertEquals(reductionRatio, blocker.getReductionRatio());
+	}
+
+	public void testGeneratePairsParallel() {
+		DataSet<Movie> ds = new DataSet<>();
+		for (int i = 0; i < 3000; i++) {
+			ds.addRecord(new Movie("a" + i, "a"));
+		}
+		DataSet<Movie> ds2 = new DataSet<>();
+		for (int i = 0; i < 2000; i++) {
+			ds2.addRecord(new Movie("b" + i, "b"));
+		}
+
+		BlockingKeyGenerator<Movie> keyGenerator = new BlockingKeyGenerator<Movie>() {
+
+			@Override
+			public String getBlockingKey(Movie instance) {
+				return Integer.toString(instance.getIdentifier().hashCode() % 50);
+			}
+		};
+
+		StandardBlocker<Movie> blocker = new StandardBlocker<Movie>(
+				keyGenerator);
+		List<Pair<Movie, Movie>> expected = blocker.generatePairs(ds, ds2);
+		List<Pair<Movie, Movie>> expectedSymmetric = blocker.generatePairs(
+				ds, true);
+
+		blocker.setParallelism(4);
+		assertSamePairs(expected, blocker.generatePairs(ds, ds2));
+		assertSamePairs(expectedSymmetric, blocker.generatePairs(ds, true));
+	}
+
+	private void assertSamePairs(List<Pair<Movie, Movie>> expected,
+			List<Pair<Movie, Movie>> actual) {
+		Set<String> expectedKeys = new HashSet<>();
+		for (Pair<Movie, Movie> p : expected) {
+			expectedKeys.add(p.getFirst().getIdentifier() + "|"
+					+ p.getSecond().getIdentifier());
+		}
+
+		assertEquals(expected.size(), actual.size());
+		for (Pair<Movie, Movie> p : actual) {
+			assertTrue(expectedKeys.contains(p.getFirst().getIdentifier() + "|"
+					+ p.getSecond().getIdentifier()));
+		}
+	}
+
+	private String getKey(Movie m1, Movie m2) {
+		if (m1.getIdentifier().compareTo(m2.getIdentifier()) < 0) {
+			return m1.getIdentifier() + "|" + m2.getIdentifier();
+		} else {
+			return m2.getIdentifier() + "|" + m1.getIdentifier();
+		}
+	}
+
 }
@@ -0,0 +1,55 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking;
+
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeysByNameTokenGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class TokenBlockerTest extends BlockingTestBase {
+
+	public void testGeneratePairs() {
+		DataSet<Company> ds1 = createDataSet("a", "Deutsche Bank AG",
+				"Siemens AG", "Apple Inc.");
+		DataSet<Company> ds2 = createDataSet("b", "Deutsche Bank",
+				"Bank of America", "Apple Computer, Inc.", "BASF");
+
+		TokenBlocker<Company> blocker = new TokenBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator());
+
+		Set<String> pairs = getKeys(blocker.generatePairs(ds1, ds2));
+
+		// a0 shares "deutsche" and "bank" with b0, but the pair is only
+		// created once
+		assertEquals(3, pairs.size());
+		assertTrue(pairs.contains("a0|b0"));
+		assertTrue(pairs.contains("a0|b1"));
+		assertTrue(pairs.contains("a2|b2"));
+		assertEquals(0, blocker.getNumberOfPurgedBlocks());
+	}
+
+	public void testBlockPurging() {
+		DataSet<Company> ds = createDataSet("a", "Deutsche Bank AG",
+				"Siemens AG", "Deutsche Telekom AG", "Bayer AG", "Siemens");
+
+		// the block of "ag" contains 4 records and is dropped
+		TokenBlocker<Company> blocker = new TokenBlocker<>(
+				new CompanyBlockingKeysByNameTokenGenerator(), 3);
+
+		Set<String> pairs = getKeys(blocker.generatePairs(ds, true));
+
+		assertEquals(2, pairs.size());
+		assertTrue(pairs.contains("a0|a2") || pairs.contains("a2|a0"));
+		assertTrue(pairs.contains("a1|a4") || pairs.contains("a4|a1"));
+		assertEquals(1, blocker.getNumberOfPurgedBlocks());
+
+		// without symmetry, both directions are created
+		pairs = getKeys(blocker.generatePairs(ds, false));
+		assertEquals(4, pairs.size());
+		assertTrue(pairs.contains("a0|a2"));
+		assertTrue(pairs.contains("a2|a0"));
+		assertTrue(pairs.contains("a1|a4"));
+		assertTrue(pairs.contains("a4|a1"));
+	}
+
+}
@@ -0,0 +1,87 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingTestBase;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.TokenBlocker;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeyByNamePhoneticGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeysByNamePhoneticGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class PhoneticBlockingKeyGeneratorTest extends BlockingTestBase {
+
+	public void testGetBlockingKey() {
+		DataSet<Company> ds1 = createDataSet("a", "Meyer Verlag", "Siemens");
+		DataSet<Company> ds2 = createDataSet("b", "Maier-Verlag", "Siemenz",
+				"Bayer");
+
+		CompanyBlockingKeyByNamePhoneticGenerator generator = new CompanyBlockingKeyByNamePhoneticGenerator(
+				new DoubleMetaphoneEncoder());
+		generator.prepare(ds1);
+		generator.prepare(ds2);
+		assertEquals("MRFR", generator.getBlockingKey(ds1.getRecord("a0")));
+		assertEquals("MRFR", generator.getBlockingKey(ds2.getRecord("b0")));
+		assertNull(generator.getBlockingKey(new Company("c0", "c")));
+		Company noLetters = new Company("c1", "c");
+		noLetters.setName("123");
+		assertNull(generator.getBlockingKey(noLetters));
+
+		Set<String> pairs = getKeys(new StandardBlocker<>(generator)
+				.generatePairs(ds1, ds2));
+		assertEquals(new HashSet<>(Arrays.asList("a0|b0", "a1|b1")), pairs);
+
+		assertFalse(generator.getFingerprint().equals(
+				new CompanyBlockingKeyByNamePhoneticGenerator(
+						new SoundexEncoder()).getFingerprint()));
+	}
+
+	public void testManyRecords() {
+		String[] names = new String[100];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = i % 2 == 0 ? "Meyer Verlag " + i : "Siemens " + i;
+		}
+		DataSet<Company> ds = createDataSet("a", names);
+
+		CompanyBlockingKeysByNamePhoneticGenerator generator = new CompanyBlockingKeysByNamePhoneticGenerator(
+				new SoundexEncoder());
+		generator.prepare(ds);
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(
+					i % 2 == 0 ? Arrays.asList("M600", "V642") : Arrays.asList("S552"),
+					generator.getBlockingKeys(ds.getRecord("a" + i)));
+		}
+
+		// records with the same code share the key
+		assertSame(generator.getBlockingKeys(ds.getRecord("a0")).iterator().next(),
+				generator.getBlockingKeys(ds.getRecord("a98")).iterator().next());
+	}
+
+	public void testGetBlockingKeys() {
+		DataSet<Company> ds1 = createDataSet("a", "Meyer Verlag", "Smith & Co");
+		DataSet<Company> ds2 = createDataSet("b", "Maier-Verlag", "Schmidt",
+				"Bayer");
+
+		CompanyBlockingKeysByNamePhoneticGenerator generator = new CompanyBlockingKeysByNamePhoneticGenerator(
+				new SoundexEncoder());
+		assertEquals(Arrays.asList("M600", "V642"),
+				generator.getBlockingKeys(ds1.getRecord("a0")));
+
+		assertEquals(new HashSet<>(Arrays.asList("a0|b0", "a1|b1")),
+				getKeys(new TokenBlocker<>(generator).generatePairs(ds1, ds2)));
+
+		// the alternate code of "Smith" is the primary code of "Schmidt"
+
+		generator = new CompanyBlockingKeysByNamePhoneticGenerator(
+				new DoubleMetaphoneEncoder());
+		generator.prepare(ds1);
+		assertEquals(Arrays.asList("SM0", "XMT", "K"),
+				generator.getBlockingKeys(ds1.getRecord("a1")));
+		assertEquals(new HashSet<>(Arrays.asList("a0|b0", "a1|b1")),
+				getKeys(new TokenBlocker<>(generator).generatePairs(ds1, ds2)));
+	}
+
+}
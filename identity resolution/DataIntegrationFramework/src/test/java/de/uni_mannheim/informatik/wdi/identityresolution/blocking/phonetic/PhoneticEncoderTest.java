@@ -0,0 +1,67 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.blocking.phonetic;
+
+import junit.framework.TestCase;
+
+public class PhoneticEncoderTest extends TestCase {
+
+	private void assertCodes(PhoneticEncoder encoder, String value,
+			String... expected) {
+		long[] codes = new long[encoder.getMaxCodes()];
+		int count = encoder.encode(value, 0, value.length(), codes, 0);
+		assertEquals(value, expected.length, count);
+		for (int i = 0; i < count; i++) {
+			assertEquals(value, expected[i], PhoneticEncoder.toString(codes[i]));
+		}
+	}
+
+	public void testSoundex() {
+		SoundexEncoder encoder = new SoundexEncoder();
+		assertEquals("R163", encoder.encode("Robert"));
+		assertEquals("R163", encoder.encode("Rupert"));
+		assertEquals("A261", encoder.encode("Ashcraft"));
+		assertEquals("T522", encoder.encode("Tymczak"));
+		assertEquals("P236", encoder.encode("Pfister"));
+		assertEquals("L000", encoder.encode("Lee"));
+		assertEquals("M460", encoder.encode("Müller"));
+		assertEquals("M460", encoder.encode("Mueller"));
+		assertNull(encoder.encode("123"));
+		assertNull(encoder.encode(null));
+	}
+
+	public void testNysiis() {
+		NysiisEncoder encoder = new NysiisEncoder();
+		assertEquals("NAT", encoder.encode("Knuth"));
+		assertEquals("MCANT", encoder.encode("MacIntosh"));
+		assertEquals("BAD", encoder.encode("Bart"));
+		assertEquals("HAD", encoder.encode("Hunt"));
+		assertEquals("FRASAR", encoder.encode("Frazier"));
+		assertEquals("BANAN", encoder.encode("Bowman"));
+		assertEquals("RACAD", encoder.encode("Rickert"));
+		assertEquals("DAT", encoder.encode("Deutsch"));
+		assertEquals("CARY", encoder.encode("Carraway"));
+		assertEquals("YANAD", encoder.encode("Yamada"));
+		assertEquals("JAL", encoder.encode("Jiles"));
+		assertEquals("WASTAR", encoder.encode("Westerlund"));
+		assertEquals("WASTARLAD", new NysiisEncoder(10).encode("Westerlund"));
+	}
+
+	public void testDoubleMetaphone() {
+		DoubleMetaphoneEncoder encoder = new DoubleMetaphoneEncoder();
+		assertCodes(encoder, "Smith", "SM0", "XMT");
+		assertCodes(encoder, "Schmidt", "XMT", "SMT");
+		assertCodes(encoder, "Michael", "MKL", "MXL");
+		assertCodes(encoder, "Catherine", "K0RN", "KTRN");
+		assertCodes(encoder, "Katherine", "K0RN", "KTRN");
+		assertCodes(encoder, "Jose", "HS");
+		assertCodes(encoder, "Knight", "NT");
+		assertCodes(encoder, "---");
+	}
+
+	public void testToString() {
+		char[] code = "Z09A".toCharArray();
+		assertEquals("Z09A",
+				PhoneticEncoder.toString(PhoneticEncoder.pack(code, 4)));
+		assertEquals("", PhoneticEncoder.toString(0));
+	}
+
+}
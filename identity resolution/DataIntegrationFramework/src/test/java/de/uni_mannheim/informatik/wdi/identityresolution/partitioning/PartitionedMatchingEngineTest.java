@@ -0,0 +1,151 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.partitioning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import de.uni_mannheim.informatik.wdi.identityresolution.Correspondence;
+import de.uni_mannheim.informatik.wdi.identityresolution.LinearCombinationMatchingRule;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingEngine;
+import de.uni_mannheim.informatik.wdi.identityresolution.MatchingRule;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.BlockingKeyGenerator;
+import de.uni_mannheim.informatik.wdi.identityresolution.blocking.StandardBlocker;
+import de.uni_mannheim.informatik.wdi.model.DataSet;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyBlockingKeyByFirstCharGenerator;
+import de.uni_mannheim.informatik.wdi.usecase.companies.identityresolution.CompanyNameComparatorLevenshtein;
+import de.uni_mannheim.informatik.wdi.usecase.companies.model.Company;
+
+public class PartitionedMatchingEngineTest extends TestCase {
+
+	public static class CompanyJob implements PartitionedMatchingJob<Company> {
+
+		@Override
+		public MatchingRule<Company> createMatchingRule() throws Exception {
+			LinearCombinationMatchingRule<Company> rule = new LinearCombinationMatchingRule<>(
+					0.6);
+			rule.addComparator(new CompanyNameComparatorLevenshtein(), 1.0);
+			return rule;
+		}
+
+		@Override
+		public BlockingKeyGenerator<Company> createBlockingFunction() {
+			return new CompanyBlockingKeyByFirstCharGenerator();
+		}
+	}
+
+	public static class FailingJob extends CompanyJob {
+
+		@Override
+		public MatchingRule<Company> createMatchingRule() throws Exception {
+			throw new Exception("No matching rule");
+		}
+	}
+
+	private static final String[] NAMES = { "Siemens", "Bayer", "BASF",
+			"Daimler", "Allianz", "Adidas", "Puma", "Porsche", "Bosch",
+			"Continental", "Henkel", "Merck", "Lufthansa", "Deutsche Bank",
+			"Deutsche Post", "Commerzbank", "Volkswagen", "BMW", "Audi", "SAP" };
+
+	private DataSet<Company> createDataSet(String provenance, String suffix) {
+		DataSet<Company> ds = new DataSet<>();
+		for (int i = 0; i < NAMES.length; i++) {
+			Company c = new Company(provenance + i, provenance);
+			c.setName(NAMES[i] + suffix);
+			ds.addRecord(c);
+		}
+		return ds;
+	}
+
+	private Set<String> getKeys(List<Correspondence<Company>> correspondences,
+			boolean ordered) {
+		Set<String> keys = new HashSet<>();
+		for (Correspondence<Company> cor : correspondences) {
+			String id1 = cor.getFirstRecord().getIdentifier();
+			String id2 = cor.getSecondRecord().getIdentifier();
+			if (!ordered && id1.compareTo(id2) > 0) {
+				String tmp = id1;
+				id1 = id2;
+				id2 = tmp;
+			}
+			assertTrue(keys.add(String.format("%s|%s|%f", id1, id2,
+					cor.getSimilarityScore())));
+		}
+		return keys;
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	public void testRunMatching() throws Exception {
+		DataSet<Company> ds1 = createDataSet("a", "");
+		DataSet<Company> ds2 = createDataSet("b", " AG");
+		File work = Files.createTempDirectory("partitions").toFile();
+
+		try {
+			CompanyJob job = new CompanyJob();
+			List<Correspondence<Company>> expected = new MatchingEngine<>(
+					job.createMatchingRule(), new StandardBlocker<>(
+							job.createBlockingFunction())).runMatching(ds1,
+					ds2);
+			assertFalse(expected.isEmpty());
+
+			PartitionedMatchingEngine<Company> engine = new PartitionedMatchingEngine<>(
+					CompanyJob.class, 3, work);
+			engine.setMaxConcurrentWorkers(2);
+			engine.setWorkerJvmOptions("-Xmx64m");
+			List<Correspondence<Company>> result = engine.runMatching(ds1, ds2);
+
+			assertEquals(getKeys(expected, true), getKeys(result, true));
+			for (Correspondence<Company> cor : result) {
+				assertSame(ds1.getRecord(cor.getFirstRecord().getIdentifier()),
+						cor.getFirstRecord());
+				assertSame(ds2.getRecord(cor.getSecondRecord().getIdentifier()),
+						cor.getSecondRecord());
+			}
+
+			// duplicate detection in a second run with the same directory, the
+			// records of a symmetric pair can be in any order
+			DataSet<Company> ds = createDataSet("a", "");
+			for (Company c : createDataSet("b", " AG").getRecords()) {
+				ds.addRecord(c);
+			}
+			expected = new MatchingEngine<>(job.createMatchingRule(),
+					new StandardBlocker<>(job.createBlockingFunction()))
+					.runDuplicateDetection(ds, true);
+			assertEquals(getKeys(expected, false),
+					getKeys(engine.runDuplicateDetection(ds, true), false));
+		} finally {
+			delete(work);
+		}
+	}
+
+	public void testFailedWorker() throws IOException {
+		DataSet<Company> ds1 = createDataSet("a", "");
+		File work = Files.createTempDirectory("partitions").toFile();
+
+		try {
+			PartitionedMatchingEngine<Company> engine = new PartitionedMatchingEngine<>(
+					FailingJob.class, 2, work);
+			try {
+				engine.runDuplicateDetection(ds1, true);
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("failed"));
+			}
+		} finally {
+			delete(work);
+		}
+	}
+
+}
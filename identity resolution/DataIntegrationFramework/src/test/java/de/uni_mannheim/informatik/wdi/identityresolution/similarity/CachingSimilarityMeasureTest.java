@@ -0,0 +1,59 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.similarity;
+
+import de.uni_mannheim.informatik.wdi.identityresolution.similarity.string.LevenshteinSimilarity;
+import junit.framework.TestCase;
+
+public class CachingSimilarityMeasureTest extends TestCase {
+
+	public void testCalculate() {
+		LevenshteinSimilarity lev = new LevenshteinSimilarity();
+		CachingSimilarityMeasure<String> sim = new CachingSimilarityMeasure<>(lev, 1000, true);
+
+		assertEquals(lev.calculate("Germany", "Denmark"), sim.calculate("Germany", "Denmark"));
+		assertEquals(0, sim.getHits());
+		assertEquals(1, sim.getMisses());
+
+		// symmetric pairs share one entry
+		assertEquals(lev.calculate("Germany", "Denmark"), sim.calculate("Denmark", "Germany"));
+		assertEquals(1, sim.getHits());
+		assertEquals(1, sim.getSize());
+
+		// null values are not cached
+		assertEquals(0.0, sim.calculate("Germany", null));
+		assertEquals(1, sim.getMisses());
+
+		assertEquals(0.5, sim.getHitRate());
+
+		sim.clear();
+		assertEquals(0, sim.getSize());
+		assertEquals(0, sim.getHits());
+	}
+
+	public void testCalculateAsymmetric() {
+		CachingSimilarityMeasure<String> sim = new CachingSimilarityMeasure<>(new SimilarityMeasure<String>() {
+
+			@Override
+			public double calculate(String first, String second) {
+				return first.length() < second.length() ? 1.0 : 0.0;
+			}
+		}, 1000, false);
+
+		assertEquals(1.0, sim.calculate("a", "bb"));
+		assertEquals(0.0, sim.calculate("bb", "a"));
+		assertEquals(2, sim.getMisses());
+		assertEquals(2, sim.getSize());
+	}
+
+	public void testEviction() {
+		CachingSimilarityMeasure<String> sim = new CachingSimilarityMeasure<>(new EqualsSimilarity<String>(), 32,
+				true);
+
+		for (int i = 0; i < 1000; i++) {
+			sim.calculate(Integer.toString(i), "x");
+		}
+
+		assertTrue(sim.getSize() <= 32);
+		assertEquals(1000, sim.getMisses());
+	}
+
+}
@@ -23,4 +23,24 @@ public class YearSimilarityTest extends TestCase {
 		assertEquals(0.0, sim.calculate(dt1, dt5));
 	}
 
+	public void testCalculateBatch() {
+		YearSimilarity sim = new YearSimilarity(10);
+
+		DateTime dt1 = DateTime.parse("2015-01-01");
+		DateTime[] dates = { DateTime.parse("2014-01-01"), DateTime.parse("2010-01-01"), null,
+				DateTime.parse("2005-01-01"), DateTime.parse("1905-01-01"), DateTime.parse("2024-06-01") };
+		double[] similarities = new double[dates.length];
+		sim.calculateBatch(dt1, dates, dates.length, similarities);
+
+		assertEquals(0.9, similarities[0]);
+		assertEquals(0.5, similarities[1]);
+		assertEquals(0.0, similarities[2]);
+		assertEquals(0.0, similarities[3]);
+		assertEquals(0.0, similarities[4]);
+		assertEquals(sim.calculate(dt1, dates[5]), similarities[5]);
+
+		sim.calculateBatch(null, dates, dates.length, similarities);
+		assertEquals(0.0, similarities[0]);
+	}
+
 }
@@ -11,4 +11,20 @@ public class PercentageSimilarityTest extends TestCase {
 		assertEquals(0.992, Math.round(sim.calculate(200000.0, 200500.0) * 1000.0) / 1000.0);
 	}
 
+	public void testCalculateBatch() {
+		PercentageSimilarity sim = new PercentageSimilarity(0.33);
+
+		double[] values = { 2500.0, 2000.0, Double.NaN, 10000.0 };
+		double[] similarities = new double[values.length];
+		sim.calculateBatch(2000.0, values, values.length, similarities);
+
+		assertEquals(sim.calculate(2000.0, 2500.0), similarities[0]);
+		assertEquals(1.0, similarities[1]);
+		assertEquals(0.0, similarities[2]);
+		assertEquals(0.0, similarities[3]);
+
+		sim.calculateBatch(Double.NaN, values, values.length, similarities);
+		assertEquals(0.0, similarities[1]);
+	}
+
 }
@@ -0,0 +1,29 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.similarity.string;
+
+import junit.framework.TestCase;
+
+public class LevenshteinSimilarityTest extends TestCase {
+
+	public void testCalculate() {
+		LevenshteinSimilarity sim = new LevenshteinSimilarity();
+
+		assertEquals(1.0, sim.calculate("kitten", "kitten"));
+		assertEquals(1.0 - 3.0 / 7.0, sim.calculate("kitten", "sitting"));
+		assertEquals(1.0 - 3.0 / 7.0, sim.calculate("sitting", "kitten"));
+		assertEquals(0.75, sim.calculate("abcd", "abxd"));
+		assertEquals(0.0, sim.calculate("abc", ""));
+		assertEquals(1.0, sim.calculate("", ""));
+		assertEquals(0.0, sim.calculate("abc", null));
+	}
+
+	public void testCalculatePrepared() {
+		LevenshteinSimilarity sim = new LevenshteinSimilarity();
+
+		char[] p1 = sim.prepare("Saturday");
+		char[] p2 = sim.prepare("Sunday");
+
+		assertEquals(1.0 - 3.0 / 8.0, sim.calculatePrepared(p1, p2));
+		assertEquals(sim.calculate("Saturday", "Sunday"), sim.calculatePrepared(p1, p2));
+	}
+
+}
@@ -0,0 +1,30 @@
+package de.uni_mannheim.informatik.wdi.identityresolution.similarity.string;
+
+import junit.framework.TestCase;
+
+public class TokenizingJaccardSimilarityTest extends TestCase {
+
+	public void testCalculate() {
+		TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
+
+		assertEquals(1.0, sim.calculate("SAP SE", "sap, se"));
+		assertEquals(0.6, sim.calculate("Bank of America", "Bank of Scotland America Corp"));
+		assertEquals(0.0, sim.calculate("Apple", "Microsoft"));
+		assertEquals(0.0, sim.calculate("Apple", null));
+		assertEquals(0.0, sim.calculate("", ""));
+	}
+
+	public void testCalculatePrepared() {
+		TokenizingJaccardSimilarity sim = new TokenizingJaccardSimilarity();
+
+		int[] p1 = sim.prepare("Deutsche Bank Deutsche");
+		int[] p2 = sim.prepare("deutsche post");
+
+		// duplicate tokens are removed
+		assertEquals(2, p1.length);
+		assertEquals(1.0 / 3.0, sim.calculatePrepared(p1, p2));
+		assertEquals(sim.calculate("Deutsche Bank Deutsche", "deutsche post"), sim.calculatePrepared(p1, p2));
+		assertNull(sim.prepare(null));
+	}
+
+}